@@ -2,8 +2,10 @@ package sae.semestre.six.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
 @EnableJpaRepositories
+@EnableScheduling
 public class ApplicationConfig {
 }
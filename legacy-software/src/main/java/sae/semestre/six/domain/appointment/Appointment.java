@@ -13,12 +13,17 @@ import java.time.LocalTime;
 
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_doctor_date", columnList = "doctor_id, appointment_date")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Appointment {
 
+    public static final String STATUS_SCHEDULED = "SCHEDULED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
     @Getter
     @Setter
     @Id
@@ -56,6 +61,7 @@ public class Appointment {
 
 
     @Setter
+    @Getter
     @Column(name = "status")
     private String status;
 
@@ -4,6 +4,7 @@ import org.springframework.stereotype.Repository;
 import sae.semestre.six.dao.GenericDao;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +12,20 @@ public interface AppointmentDao extends GenericDao<Appointment, Long> {
     List<Appointment> findByPatientId(Long patientId);
     List<Appointment> findByDoctorId(Long doctorId);
     List<Appointment> findByDateRange(LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * @param doctorId  l'identifiant du docteur
+     * @param startDate le début de la période (inclus)
+     * @param endDate   la fin de la période (exclue)
+     * @return les dates des rendez-vous non annulés du docteur sur la période
+     */
+    List<LocalDateTime> findActiveDatesByDoctorId(Long doctorId, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * @param doctorIds les identifiants des docteurs
+     * @param startDate le début de la période (inclus)
+     * @param endDate   la fin de la période (exclue)
+     * @return les dates des rendez-vous non annulés de ces docteurs sur la période, en une seule requête
+     */
+    List<DoctorAppointmentDate> findActiveDatesByDoctorIds(Collection<Long> doctorIds, LocalDateTime startDate, LocalDateTime endDate);
 } 
\ No newline at end of file
@@ -5,6 +5,7 @@ import sae.semestre.six.dao.AbstractHibernateDao;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -35,4 +36,36 @@ public class AppointmentDaoImpl extends AbstractHibernateDao<Appointment, Long>
         return query.getResultList();
     }
 
-} 
\ No newline at end of file
+    @Override
+    public List<LocalDateTime> findActiveDatesByDoctorId(Long doctorId, LocalDateTime startDate, LocalDateTime endDate) {
+        return getEntityManager()
+                .createQuery("SELECT a.appointmentDate FROM Appointment a " +
+                        "WHERE a.doctor.id = :doctorId " +
+                        "AND a.appointmentDate >= :startDate AND a.appointmentDate < :endDate " +
+                        "AND (a.status IS NULL OR a.status <> :cancelled)", LocalDateTime.class)
+                .setParameter("doctorId", doctorId)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .setParameter("cancelled", Appointment.STATUS_CANCELLED)
+                .getResultList();
+    }
+
+    @Override
+    public List<DoctorAppointmentDate> findActiveDatesByDoctorIds(Collection<Long> doctorIds, LocalDateTime startDate, LocalDateTime endDate) {
+        if (doctorIds.isEmpty()) {
+            return List.of();
+        }
+        return getEntityManager()
+                .createQuery("SELECT new sae.semestre.six.domain.appointment.DoctorAppointmentDate(a.doctor.id, a.appointmentDate) " +
+                        "FROM Appointment a " +
+                        "WHERE a.doctor.id IN :doctorIds " +
+                        "AND a.appointmentDate >= :startDate AND a.appointmentDate < :endDate " +
+                        "AND (a.status IS NULL OR a.status <> :cancelled)", DoctorAppointmentDate.class)
+                .setParameter("doctorIds", doctorIds)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .setParameter("cancelled", Appointment.STATUS_CANCELLED)
+                .getResultList();
+    }
+
+}
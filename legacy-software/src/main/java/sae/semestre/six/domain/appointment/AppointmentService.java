@@ -1,7 +1,10 @@
 package sae.semestre.six.domain.appointment;
 
 import lombok.AllArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import sae.semestre.six.domain.doctor.Doctor;
 import sae.semestre.six.domain.doctor.DoctorDao;
 import sae.semestre.six.domain.patient.Patient;
@@ -10,6 +13,8 @@ import sae.semestre.six.domain.room.Room;
 import sae.semestre.six.domain.room.RoomDao;
 import sae.semestre.six.exception.InvalidDataException;
 import sae.semestre.six.exception.ResourceNotFoundException;
+import sae.semestre.six.identifier.BusinessIdentifier;
+import sae.semestre.six.identifier.IdentifierService;
 import sae.semestre.six.mail.EmailService;
 
 import java.time.LocalDate;
@@ -28,12 +33,16 @@ public class AppointmentService {
     private final DoctorDao doctorDao;
     private final PatientDao patientDao;
     private final EmailService emailService;
+    private final IdentifierService identifierService;
+    private final DoctorCalendar doctorCalendar;
+    private final AppointmentSlotDao appointmentSlotDao;
 
     public void assignRoom(Long appointmentId, String roomNumber) {
         roomDao.findByRoomNumber(roomNumber).assignAppointment(appointmentDao.findById(appointmentId));
 
     }
 
+    @Transactional
     public Appointment create(Long doctorId, Long patientId, Long roomId, LocalDateTime appointmentDateTime) {
 
         Doctor doctor = doctorDao.findById(doctorId);
@@ -43,11 +52,7 @@ public class AppointmentService {
             throw new ResourceNotFoundException("Doctor or patient not found");
         }
 
-        List<Appointment> doctorAppointments = appointmentDao.findByDoctorId(doctorId);
-        boolean conflict = doctorAppointments.stream()
-                .anyMatch(appointment -> appointment.isSameDate(appointmentDateTime));
-
-        if (conflict) {
+        if (doctorCalendar.isOccupied(doctorId, appointmentDateTime)) {
             throw new InvalidDataException("Doctor is not available at this time");
         }
 
@@ -63,9 +68,24 @@ public class AppointmentService {
             throw new InvalidDataException("Appointments only available between 9 AM and 5 PM");
         }
 
+        // Réservation atomique du créneau, libéré si la transaction est annulée
+        if (!doctorCalendar.reserve(doctorId, appointmentDateTime)) {
+            throw new InvalidDataException("Doctor is not available at this time");
+        }
+        // La contrainte d'unicité du créneau arbitre les réservations simultanées de plusieurs instances ;
+        // seule une violation d'unicité signifie un créneau déjà pris, les autres erreurs remontent
+        try {
+            appointmentSlotDao.reserve(doctorId, appointmentDateTime);
+        } catch (DataIntegrityViolationException e) {
+            if (!isUniqueViolation(e)) {
+                throw e;
+            }
+            throw new InvalidDataException("Doctor is not available at this time");
+        }
+
         Appointment appt = Appointment.builder().doctor(doctor).patient(patient)
                 .roomNumber(room.getRoomNumber()).appointmentDate(appointmentDateTime)
-                .status("SCHEDULED").appointmentNumber("APPT" + System.currentTimeMillis()).build();
+                .status(Appointment.STATUS_SCHEDULED).appointmentNumber(identifierService.next(BusinessIdentifier.APPOINTMENT)).build();
 
         appointmentDao.save(appt);
 
@@ -77,17 +97,39 @@ public class AppointmentService {
         return appt;
     }
 
+    @Transactional
+    public void cancel(Long appointmentId) {
+        Appointment appointment = appointmentDao.findById(appointmentId);
+        if (appointment == null) {
+            throw new ResourceNotFoundException("Appointment not found");
+        }
+        if (Appointment.STATUS_CANCELLED.equals(appointment.getStatus())) {
+            return;
+        }
+        appointment.setStatus(Appointment.STATUS_CANCELLED);
+        appointmentDao.update(appointment);
+        appointmentSlotDao.release(appointment.getDoctor().getId(), appointment.getAppointmentDate());
+        // Le créneau est libéré une fois l'annulation validée
+        doctorCalendar.release(appointment.getDoctor().getId(), appointment.getAppointmentDate());
+    }
+
     public List<LocalDateTime> getAvailableSlots(
              Long doctorId,
              LocalDate date) {
-        List<Appointment> doctorAppsToday = appointmentDao.findByDoctorId(doctorId).stream()
-                .filter(app -> app.getAppointmentDate().toLocalDate().equals(date))
-                .toList();
+        int occupiedHours = doctorCalendar.getOccupiedHours(doctorId, date);
 
         return IntStream.rangeClosed(9, 17)
+                .filter(hour -> (occupiedHours & (1 << hour)) == 0)
                 .mapToObj(hour -> LocalDateTime.of(date, LocalTime.of(hour, 0)))
-                .filter(slot -> doctorAppsToday.stream()
-                        .noneMatch(app -> app.getAppointmentDate().toLocalTime().equals(slot.toLocalTime())))
                 .collect(Collectors.toList());
     }
+
+    /**
+     * @param e l'erreur levée par la base
+     * @return true si l'erreur est la violation d'une contrainte d'unicité
+     */
+    private static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException cause
+                && cause.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE;
+    }
 }
@@ -0,0 +1,52 @@
+package sae.semestre.six.domain.appointment;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * Créneau horaire réservé par un rendez-vous non annulé.
+ * <p>
+ * La contrainte d'unicité sur le docteur et le début du créneau garantit qu'un docteur n'a jamais deux
+ * rendez-vous dans la même heure, y compris lorsque plusieurs instances créent des rendez-vous en même temps :
+ * la seconde insertion échoue. Le créneau est supprimé à l'annulation du rendez-vous.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "appointment_slots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_appointment_slots_doctor_start", columnNames = {"doctor_id", "slot_start"})
+})
+public class AppointmentSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "slot_start", nullable = false)
+    private LocalDateTime slotStart;
+
+    @Column(name = "created_date", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdDate = new Date();
+
+    public AppointmentSlot(Long doctorId, LocalDateTime appointmentDate) {
+        this.doctorId = doctorId;
+        this.slotStart = slotStart(appointmentDate);
+    }
+
+    /**
+     * @param appointmentDate la date d'un rendez-vous
+     * @return le début de l'heure du rendez-vous, comme dans le {@link DoctorCalendar}
+     */
+    public static LocalDateTime slotStart(LocalDateTime appointmentDate) {
+        return appointmentDate.truncatedTo(ChronoUnit.HOURS);
+    }
+}
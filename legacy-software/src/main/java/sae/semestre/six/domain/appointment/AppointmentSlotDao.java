@@ -0,0 +1,26 @@
+package sae.semestre.six.domain.appointment;
+
+import sae.semestre.six.dao.GenericDao;
+
+import java.time.LocalDateTime;
+
+public interface AppointmentSlotDao extends GenericDao<AppointmentSlot, Long> {
+
+    /**
+     * Réserve le créneau d'un rendez-vous par une seule insertion, envoyée immédiatement à la base de données.
+     * Si le créneau est déjà réservé, l'insertion échoue sur la contrainte d'unicité
+     * ({@link org.springframework.dao.DataIntegrityViolationException}) et la transaction doit être annulée.
+     *
+     * @param doctorId        l'identifiant du docteur
+     * @param appointmentDate la date du rendez-vous
+     */
+    void reserve(Long doctorId, LocalDateTime appointmentDate);
+
+    /**
+     * Libère le créneau d'un rendez-vous annulé
+     *
+     * @param doctorId        l'identifiant du docteur
+     * @param appointmentDate la date du rendez-vous
+     */
+    void release(Long doctorId, LocalDateTime appointmentDate);
+}
@@ -0,0 +1,26 @@
+package sae.semestre.six.domain.appointment;
+
+import org.springframework.stereotype.Repository;
+import sae.semestre.six.dao.AbstractHibernateDao;
+
+import java.time.LocalDateTime;
+
+@Repository
+public class AppointmentSlotDaoImpl extends AbstractHibernateDao<AppointmentSlot, Long> implements AppointmentSlotDao {
+
+    @Override
+    public void reserve(Long doctorId, LocalDateTime appointmentDate) {
+        getEntityManager().persist(new AppointmentSlot(doctorId, appointmentDate));
+        // Insertion immédiate : un créneau déjà réservé est refusé ici plutôt qu'à la validation
+        getEntityManager().flush();
+    }
+
+    @Override
+    public void release(Long doctorId, LocalDateTime appointmentDate) {
+        getEntityManager()
+                .createQuery("DELETE FROM AppointmentSlot s WHERE s.doctorId = :doctorId AND s.slotStart = :slotStart")
+                .setParameter("doctorId", doctorId)
+                .setParameter("slotStart", AppointmentSlot.slotStart(appointmentDate))
+                .executeUpdate();
+    }
+}
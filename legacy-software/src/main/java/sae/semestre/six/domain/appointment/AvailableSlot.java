@@ -0,0 +1,19 @@
+package sae.semestre.six.domain.appointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Créneau libre d'un docteur, résultat de {@link EarliestSlotService#findEarliestSlots}
+ *
+ * @param doctorId       l'identifiant du docteur
+ * @param doctorNumber   le numéro du docteur
+ * @param firstName      le prénom du docteur
+ * @param lastName       le nom du docteur
+ * @param specialization la spécialité du docteur
+ * @param department     le service du docteur
+ * @param start          le début du créneau
+ * @param end            la fin du créneau
+ */
+public record AvailableSlot(Long doctorId, String doctorNumber, String firstName, String lastName,
+                            String specialization, String department, LocalDateTime start, LocalDateTime end) {
+}
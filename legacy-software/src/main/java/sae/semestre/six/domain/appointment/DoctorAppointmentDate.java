@@ -0,0 +1,12 @@
+package sae.semestre.six.domain.appointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Date d'un rendez-vous non annulé d'un docteur, lue par {@link AppointmentDao#findActiveDatesByDoctorIds}
+ *
+ * @param doctorId        l'identifiant du docteur
+ * @param appointmentDate la date du rendez-vous
+ */
+public record DoctorAppointmentDate(Long doctorId, LocalDateTime appointmentDate) {
+}
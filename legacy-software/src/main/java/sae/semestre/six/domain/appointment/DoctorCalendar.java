@@ -0,0 +1,316 @@
+package sae.semestre.six.domain.appointment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agenda en mémoire des docteurs : pour chaque docteur et chaque jour, les heures occupées par un
+ * rendez-vous sont représentées par un masque de 24 bits (bit {@code n} pour un rendez-vous commençant
+ * dans l'heure {@code n}).
+ * <p>
+ * Les masques sont chargés par mois, à la première consultation, par une seule requête sur les dates des
+ * rendez-vous non annulés du docteur dans ce mois ; la recherche d'un créneau ne dépend donc plus du nombre
+ * total de rendez-vous du docteur. Un mois chargé est rechargé après
+ * {@code sae.semestre.six.appointment.calendar.ttl-seconds} afin de prendre en compte les rendez-vous créés
+ * par d'autres instances ; au-delà de {@code max-months} mois en mémoire, les mois expirés puis les mois
+ * sans réservation en cours sont oubliés.
+ * <p>
+ * Pour une recherche sur plusieurs docteurs ({@link #getOccupiedHours(Collection, LocalDate, LocalDate)}),
+ * les mois manquants de tous les docteurs sont chargés ensemble par une seule requête.
+ * <p>
+ * Une réservation ({@link #reserve}) occupe le créneau immédiatement, de manière atomique : deux réservations
+ * simultanées du même créneau dans cette instance ne peuvent pas réussir toutes les deux ; entre plusieurs
+ * instances, c'est la contrainte d'unicité de {@link AppointmentSlot} qui arbitre. Le créneau est libéré si
+ * la transaction en cours est annulée. Une annulation ({@link #release}) libère le créneau une fois la transaction validée.
+ */
+@Component
+public class DoctorCalendar {
+
+    private record MonthKey(Long doctorId, YearMonth month) {
+    }
+
+    /**
+     * Créneaux d'un docteur sur un mois, un masque par jour
+     */
+    private static final class MonthSlots {
+        private final AtomicIntegerArray occupied;
+        /**
+         * Créneaux réservés par une transaction non encore terminée : conservés lors d'un rechargement
+         */
+        private final AtomicIntegerArray pending;
+        private final long expiresAtNanos;
+
+        private MonthSlots(int[] occupied, AtomicIntegerArray pending, long expiresAtNanos) {
+            this.occupied = new AtomicIntegerArray(occupied);
+            this.pending = pending;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isValid(long now) {
+            return now - expiresAtNanos < 0;
+        }
+
+        private boolean hasPending() {
+            for (int day = 0; day < pending.length(); day++) {
+                if (pending.get(day) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final AppointmentDao appointmentDao;
+    private final long ttlNanos;
+    private final int maxMonths;
+
+    private final Map<MonthKey, MonthSlots> months = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+
+    public DoctorCalendar(AppointmentDao appointmentDao,
+                          @Value("${sae.semestre.six.appointment.calendar.ttl-seconds:300}") long ttlSeconds,
+                          @Value("${sae.semestre.six.appointment.calendar.max-months:10000}") int maxMonths) {
+        this.appointmentDao = appointmentDao;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxMonths = maxMonths;
+    }
+
+    /**
+     * @param doctorId l'identifiant du docteur
+     * @param day      le jour
+     * @return les heures occupées ce jour-là, un bit par heure
+     */
+    public int getOccupiedHours(Long doctorId, LocalDate day) {
+        MonthSlots slots = slots(doctorId, YearMonth.from(day));
+        int index = day.getDayOfMonth() - 1;
+        return slots.occupied.get(index) | slots.pending.get(index);
+    }
+
+    /**
+     * Heures occupées de plusieurs docteurs sur une période ; les mois absents ou expirés sont chargés
+     * pour tous les docteurs par une seule requête
+     *
+     * @param doctorIds les identifiants des docteurs
+     * @param from      le premier jour de la période
+     * @param to        le dernier jour de la période (inclus)
+     * @return pour chaque docteur, les heures occupées de chaque jour de la période, un bit par heure
+     */
+    public Map<Long, int[]> getOccupiedHours(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+        List<YearMonth> periodMonths = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            periodMonths.add(month);
+        }
+        long now = System.nanoTime();
+        List<MonthKey> missing = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            for (YearMonth month : periodMonths) {
+                MonthKey key = new MonthKey(doctorId, month);
+                MonthSlots current = months.get(key);
+                if (current == null || !current.isValid(now)) {
+                    missing.add(key);
+                }
+            }
+        }
+        loadAll(missing, now);
+
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        Map<Long, int[]> occupiedHours = new HashMap<>();
+        for (Long doctorId : doctorIds) {
+            int[] masks = new int[days];
+            for (int index = 0; index < days; index++) {
+                masks[index] = getOccupiedHours(doctorId, from.plusDays(index));
+            }
+            occupiedHours.put(doctorId, masks);
+        }
+        return occupiedHours;
+    }
+
+    /**
+     * @param doctorId l'identifiant du docteur
+     * @param dateTime le début du rendez-vous
+     * @return true si le docteur a déjà un rendez-vous dans cette heure
+     */
+    public boolean isOccupied(Long doctorId, LocalDateTime dateTime) {
+        return (getOccupiedHours(doctorId, dateTime.toLocalDate()) & bit(dateTime)) != 0;
+    }
+
+    /**
+     * Occupe un créneau s'il est libre. Dans une transaction, le créneau est libéré si elle est annulée.
+     *
+     * @param doctorId l'identifiant du docteur
+     * @param dateTime le début du rendez-vous
+     * @return false si le créneau était déjà occupé
+     */
+    public boolean reserve(Long doctorId, LocalDateTime dateTime) {
+        MonthKey key = new MonthKey(doctorId, YearMonth.from(dateTime));
+        int day = dateTime.getDayOfMonth() - 1;
+        int bit = bit(dateTime);
+        MonthSlots slots = slots(doctorId, key.month());
+        // Le masque des réservations en cours est conservé lors d'un rechargement : il arbitre les
+        // réservations simultanées du même créneau
+        if ((slots.pending.getAndAccumulate(day, bit, (mask, added) -> mask | added) & bit) != 0) {
+            return false;
+        }
+        if ((slots.occupied.get(day) & bit) != 0) {
+            clear(slots.pending, day, bit);
+            return false;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            set(slots.occupied, day, bit);
+            clear(slots.pending, day, bit);
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                MonthSlots current = months.get(key);
+                if (current == null) {
+                    return;
+                }
+                if (status == STATUS_COMMITTED) {
+                    set(current.occupied, day, bit);
+                }
+                clear(current.pending, day, bit);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Libère un créneau, une fois la transaction en cours validée (immédiatement hors transaction)
+     *
+     * @param doctorId l'identifiant du docteur
+     * @param dateTime le début du rendez-vous annulé
+     */
+    public void release(Long doctorId, LocalDateTime dateTime) {
+        MonthKey key = new MonthKey(doctorId, YearMonth.from(dateTime));
+        int day = dateTime.getDayOfMonth() - 1;
+        int bit = bit(dateTime);
+        Runnable release = () -> {
+            MonthSlots current = months.get(key);
+            if (current != null) {
+                clear(current.occupied, day, bit);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release.run();
+            }
+        });
+    }
+
+    /**
+     * @return le nombre de chargements d'un mois depuis la base de données
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * @return les créneaux du mois, chargés ou rechargés si besoin
+     */
+    private MonthSlots slots(Long doctorId, YearMonth month) {
+        MonthKey key = new MonthKey(doctorId, month);
+        long now = System.nanoTime();
+        MonthSlots current = months.get(key);
+        if (current != null && current.isValid(now)) {
+            return current;
+        }
+        if (current == null && months.size() >= maxMonths) {
+            evict(now);
+        }
+        return months.compute(key, (k, existing) -> existing != null && existing.isValid(now)
+                ? existing
+                : load(k, existing, now));
+    }
+
+    /**
+     * Charge les rendez-vous d'un docteur sur un mois, en conservant les réservations en cours
+     */
+    private MonthSlots load(MonthKey key, MonthSlots previous, long now) {
+        int[] occupied = new int[key.month().lengthOfMonth()];
+        LocalDateTime start = key.month().atDay(1).atStartOfDay();
+        for (LocalDateTime dateTime : appointmentDao.findActiveDatesByDoctorId(key.doctorId(), start, start.plusMonths(1))) {
+            occupied[dateTime.getDayOfMonth() - 1] |= bit(dateTime);
+        }
+        return loaded(occupied, previous, now);
+    }
+
+    /**
+     * Charge par une seule requête les mois de plusieurs docteurs, en conservant les réservations en cours
+     */
+    private void loadAll(List<MonthKey> keys, long now) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (months.size() + keys.size() > maxMonths) {
+            evict(now);
+        }
+        Set<Long> doctorIds = new HashSet<>();
+        YearMonth first = keys.getFirst().month();
+        YearMonth last = first;
+        Map<MonthKey, int[]> occupied = new HashMap<>();
+        for (MonthKey key : keys) {
+            doctorIds.add(key.doctorId());
+            first = key.month().isBefore(first) ? key.month() : first;
+            last = key.month().isAfter(last) ? key.month() : last;
+            occupied.put(key, new int[key.month().lengthOfMonth()]);
+        }
+        LocalDateTime start = first.atDay(1).atStartOfDay();
+        LocalDateTime end = last.plusMonths(1).atDay(1).atStartOfDay();
+        for (DoctorAppointmentDate date : appointmentDao.findActiveDatesByDoctorIds(doctorIds, start, end)) {
+            int[] masks = occupied.get(new MonthKey(date.doctorId(), YearMonth.from(date.appointmentDate())));
+            if (masks != null) {
+                masks[date.appointmentDate().getDayOfMonth() - 1] |= bit(date.appointmentDate());
+            }
+        }
+        occupied.forEach((key, masks) -> months.compute(key, (k, existing) -> existing != null && existing.isValid(now)
+                ? existing
+                : loaded(masks, existing, now)));
+    }
+
+    private MonthSlots loaded(int[] occupied, MonthSlots previous, long now) {
+        AtomicIntegerArray pending = previous == null ? new AtomicIntegerArray(occupied.length) : previous.pending;
+        loads.increment();
+        return new MonthSlots(occupied, pending, now + ttlNanos);
+    }
+
+    /**
+     * Oublie les mois expirés, puis si besoin ceux sans réservation en cours
+     */
+    private void evict(long now) {
+        months.entrySet().removeIf(entry -> !entry.getValue().isValid(now) && !entry.getValue().hasPending());
+        if (months.size() >= maxMonths) {
+            months.entrySet().removeIf(entry -> !entry.getValue().hasPending());
+        }
+    }
+
+    private static void set(AtomicIntegerArray masks, int day, int bit) {
+        masks.accumulateAndGet(day, bit, (mask, added) -> mask | added);
+    }
+
+    private static void clear(AtomicIntegerArray masks, int day, int bit) {
+        masks.accumulateAndGet(day, bit, (mask, removed) -> mask & ~removed);
+    }
+
+    private static int bit(LocalDateTime dateTime) {
+        return 1 << dateTime.getHour();
+    }
+}
@@ -0,0 +1,146 @@
+package sae.semestre.six.domain.appointment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.exception.InvalidDataException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recherche des premiers créneaux libres parmi les docteurs d'une spécialité ou d'un service.
+ * <p>
+ * Les heures occupées de tous les docteurs sur la période sont lues dans le {@link DoctorCalendar}, qui charge
+ * les mois manquants par une seule requête ; chaque docteur est ensuite évalué en parallèle sur ces masques,
+ * sans autre accès à la base de données, puis les créneaux des docteurs sont fusionnés par date.
+ */
+@Service
+public class EarliestSlotService {
+
+    /**
+     * Heures de début possibles d'un rendez-vous, comme {@link AppointmentService#getAvailableSlots}
+     */
+    private static final int FIRST_HOUR = 9;
+    private static final int LAST_HOUR = 17;
+    private static final int WORKING_HOURS = ((1 << (LAST_HOUR + 1)) - 1) & ~((1 << FIRST_HOUR) - 1);
+
+    private static final Comparator<AvailableSlot> EARLIEST_FIRST = Comparator
+            .comparing(AvailableSlot::start)
+            .thenComparing(AvailableSlot::doctorId);
+
+    private final DoctorDao doctorDao;
+    private final DoctorCalendar doctorCalendar;
+    private final int maxDays;
+    private final int maxLimit;
+
+    public EarliestSlotService(DoctorDao doctorDao,
+                               DoctorCalendar doctorCalendar,
+                               @Value("${sae.semestre.six.appointment.search.max-days:62}") int maxDays,
+                               @Value("${sae.semestre.six.appointment.search.max-limit:50}") int maxLimit) {
+        this.doctorDao = doctorDao;
+        this.doctorCalendar = doctorCalendar;
+        this.maxDays = maxDays;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * @param specialization la spécialité des docteurs, ou null
+     * @param department     le service des docteurs, ou null ; combiné à la spécialité si les deux sont donnés
+     * @param from           le premier jour de la recherche
+     * @param days           le nombre de jours de la recherche
+     * @param slotHours      la durée du créneau en heures
+     * @param limit          le nombre maximal de créneaux renvoyés
+     * @return les créneaux libres les plus proches, du plus tôt au plus tard, sans créneau déjà commencé
+     */
+    public List<AvailableSlot> findEarliestSlots(String specialization, String department, LocalDate from,
+                                                 int days, int slotHours, int limit) {
+        if (isBlank(specialization) && isBlank(department)) {
+            throw new InvalidDataException("A specialization or a department is required");
+        }
+        if (from == null) {
+            throw new InvalidDataException("The start date is required");
+        }
+        if (days < 1 || days > maxDays) {
+            throw new InvalidDataException("The number of days must be between 1 and " + maxDays);
+        }
+        if (slotHours < 1 || slotHours > LAST_HOUR - FIRST_HOUR + 1) {
+            throw new InvalidDataException("The slot length must be between 1 and " + (LAST_HOUR - FIRST_HOUR + 1) + " hours");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new InvalidDataException("The limit must be between 1 and " + maxLimit);
+        }
+
+        List<Doctor> doctors = findDoctors(specialization, department);
+        if (doctors.isEmpty()) {
+            return List.of();
+        }
+        LocalDate to = from.plusDays(days - 1L);
+        Map<Long, int[]> occupiedHours = doctorCalendar.getOccupiedHours(
+                doctors.stream().map(Doctor::getId).toList(), from, to);
+        LocalDateTime now = LocalDateTime.now();
+
+        return doctors.parallelStream()
+                .flatMap(doctor -> earliestSlots(doctor, occupiedHours.get(doctor.getId()), from, slotHours, limit, now).stream())
+                .sorted(EARLIEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    private List<Doctor> findDoctors(String specialization, String department) {
+        if (isBlank(specialization)) {
+            return doctorDao.findByDepartment(department);
+        }
+        List<Doctor> doctors = doctorDao.findBySpecialization(specialization);
+        if (isBlank(department)) {
+            return doctors;
+        }
+        return doctors.stream().filter(doctor -> department.equals(doctor.getDepartment())).toList();
+    }
+
+    /**
+     * @return les {@code limit} premiers créneaux libres d'un docteur
+     */
+    private static List<AvailableSlot> earliestSlots(Doctor doctor, int[] occupiedHours, LocalDate from,
+                                                     int slotHours, int limit, LocalDateTime now) {
+        List<AvailableSlot> slots = new ArrayList<>();
+        for (int index = 0; index < occupiedHours.length && slots.size() < limit; index++) {
+            int starts = slotStarts(~occupiedHours[index] & WORKING_HOURS, slotHours);
+            LocalDate day = from.plusDays(index);
+            while (starts != 0 && slots.size() < limit) {
+                int hour = Integer.numberOfTrailingZeros(starts);
+                starts &= starts - 1;
+                LocalDateTime start = day.atTime(hour, 0);
+                if (start.isBefore(now)) {
+                    continue;
+                }
+                slots.add(new AvailableSlot(doctor.getId(), doctor.getDoctorNumber(), doctor.getFirstName(),
+                        doctor.getLastName(), doctor.getSpecialization(), doctor.getDepartment(),
+                        start, start.plusHours(slotHours)));
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * @param freeHours les heures libres de la journée, un bit par heure
+     * @param slotHours la durée du créneau en heures
+     * @return les heures à partir desquelles {@code slotHours} heures consécutives sont libres
+     */
+    private static int slotStarts(int freeHours, int slotHours) {
+        int starts = freeHours;
+        for (int hour = 1; hour < slotHours; hour++) {
+            starts &= freeHours >>> hour;
+        }
+        return starts;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -14,10 +14,13 @@ import java.util.List;
 public class SchedulingController {
 
     private final AppointmentService appointmentsService;
+    private final EarliestSlotService earliestSlotService;
 
     public SchedulingController(
-            AppointmentService appointmentsService) {
+            AppointmentService appointmentsService,
+            EarliestSlotService earliestSlotService) {
         this.appointmentsService = appointmentsService;
+        this.earliestSlotService = earliestSlotService;
     }
 
     @Transactional
@@ -32,6 +35,12 @@ public class SchedulingController {
         return "Appointment scheduled successfully";
     }
 
+    @PostMapping("/appointment/{appointmentId}/cancel")
+    public String cancelAppointment(@PathVariable Long appointmentId) {
+        appointmentsService.cancel(appointmentId);
+        return "Appointment cancelled successfully";
+    }
+
     @GetMapping("/available-slots/{doctorId}")
     public ResponseEntity<List<LocalDateTime>> getAvailableSlots(
             @PathVariable Long doctorId,
@@ -39,4 +48,17 @@ public class SchedulingController {
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         return ResponseEntity.ok(appointmentsService.getAvailableSlots(doctorId,date));
     }
+
+    @GetMapping("/earliest-slots")
+    public ResponseEntity<List<AvailableSlot>> getEarliestSlots(
+            @RequestParam(required = false) String specialization,
+            @RequestParam(required = false) String department,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(defaultValue = "14") int days,
+            @RequestParam(defaultValue = "1") int slotHours,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(earliestSlotService.findEarliestSlots(specialization, department,
+                from == null ? LocalDate.now() : from, days, slotHours, limit));
+    }
 }
\ No newline at end of file
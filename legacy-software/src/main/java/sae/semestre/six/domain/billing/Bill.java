@@ -21,6 +21,16 @@ import java.util.Set;
 @AllArgsConstructor
 public class Bill {
 
+    /**
+     * Montant total à partir duquel une réduction est appliquée
+     */
+    public static final double SEUIL_REDUCTION = 500.0;
+
+    /**
+     * Taux appliqué au total d'une facture dépassant le seuil de réduction
+     */
+    public static final double TAUX_REDUCTION = 0.9;
+
     @Getter
     @Setter
     @Id
@@ -55,6 +65,7 @@ public class Bill {
     @Column(name = "total_amount")
     private Double totalAmount = 0.0;
 
+    @Getter
     @Column(name = "status")
     @Convert(converter = BillStatusConverter.class)
     private BillStatus status = BillStatus.PENDING;
@@ -114,8 +125,6 @@ public class Bill {
      * Calcule et remplit le total de la facture
      */
     public void calculateTotal() {
-        final double TAUX_REDUCTION = 0.9;
-        final double SEUIL_REDUCTION = 500.0;
         double total = 0.0;
 
         for (BillDetail item : this.getBillDetails()) {
@@ -12,4 +12,42 @@ public interface BillDao extends GenericDao<Bill, Long> {
     List<Bill> findByDateRange(Date startDate, Date endDate);
     List<Bill> findByStatus(BillStatus status);
     double getTotalCost();
-} 
\ No newline at end of file
+
+    /**
+     * Récupère une page des informations d'intégrité des factures, triées par identifiant
+     * @param startDate la date de facturation minimale, ou null
+     * @param endDate la fin de la période de facturation (exclue), ou null
+     * @param status le statut des factures, ou null pour tous les statuts
+     * @param afterId l'identifiant après lequel reprendre la lecture, ou null pour commencer au début
+     * @param limit le nombre maximal de factures renvoyées
+     * @return les informations d'intégrité des factures de la page
+     */
+    List<BillIntegrityRow> findIntegrityPage(Date startDate, Date endDate, BillStatus status, Long afterId, int limit);
+
+    /**
+     * Récupère les identifiants des factures non payées contenant un traitement, triés par identifiant,
+     * et verrouille ces factures jusqu'à la fin de la transaction. À appeler en premier dans la transaction :
+     * les recalculs concurrents d'une même facture s'exécutent l'un après l'autre et lisent les montants validés
+     * @param treatmentName le nom du traitement
+     * @param afterId l'identifiant après lequel reprendre la lecture, ou null pour commencer au début
+     * @param limit le nombre maximal d'identifiants renvoyés
+     * @return les identifiants des factures
+     */
+    List<Long> findUnpaidBillIdsWithTreatment(String treatmentName, Long afterId, int limit);
+
+    /**
+     * Met à jour le prix unitaire et le total des lignes d'un traitement sur des factures
+     * @param billIds les identifiants des factures
+     * @param treatmentName le nom du traitement
+     * @param price le nouveau prix unitaire
+     * @return le nombre de lignes mises à jour
+     */
+    int updateTreatmentPrice(List<Long> billIds, String treatmentName, double price);
+
+    /**
+     * Recalcule le total (réduction comprise) des factures et les passe au statut {@link BillStatus#RECALC}
+     * @param billIds les identifiants des factures
+     * @return le nombre de factures mises à jour
+     */
+    int recalculateTotals(List<Long> billIds);
+}
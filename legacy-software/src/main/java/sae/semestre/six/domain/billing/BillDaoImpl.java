@@ -1,5 +1,7 @@
 package sae.semestre.six.domain.billing;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
 import sae.semestre.six.dao.AbstractHibernateDao;
 import org.springframework.stereotype.Repository;
 import java.util.Date;
@@ -63,4 +65,94 @@ public class BillDaoImpl extends AbstractHibernateDao<Bill, Long> implements Bil
         }
         return (double) total;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public List<BillIntegrityRow> findIntegrityPage(Date startDate, Date endDate, BillStatus status, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new sae.semestre.six.domain.billing.BillIntegrityRow(b.id, b.billNumber, b.hash, b.hashSalt) "
+                        + "FROM Bill b WHERE 1 = 1");
+        if (startDate != null) {
+            jpql.append(" AND b.billDate >= :startDate");
+        }
+        if (endDate != null) {
+            jpql.append(" AND b.billDate < :endDate");
+        }
+        if (status != null) {
+            jpql.append(" AND b.status = :status");
+        }
+        if (afterId != null) {
+            jpql.append(" AND b.id > :afterId");
+        }
+        jpql.append(" ORDER BY b.id");
+
+        TypedQuery<BillIntegrityRow> query = getEntityManager()
+                .createQuery(jpql.toString(), BillIntegrityRow.class)
+                .setMaxResults(limit);
+        if (startDate != null) {
+            query.setParameter("startDate", startDate);
+        }
+        if (endDate != null) {
+            query.setParameter("endDate", endDate);
+        }
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Long> findUnpaidBillIdsWithTreatment(String treatmentName, Long afterId, int limit) {
+        // Lecture verrouillante (SELECT ... FOR UPDATE) sur les factures elles-mêmes : elle attend les
+        // recalculs concurrents et lit leurs montants validés
+        return getEntityManager()
+                .createQuery("SELECT b.id FROM Bill b "
+                        + "WHERE b.status IN (:statuses) "
+                        + "AND b.id > :afterId "
+                        + "AND EXISTS (SELECT 1 FROM BillDetail d WHERE d.bill = b AND d.treatmentName = :treatmentName) "
+                        + "ORDER BY b.id", Long.class)
+                .setParameter("treatmentName", treatmentName)
+                .setParameter("statuses", List.of(BillStatus.PENDING, BillStatus.RECALC))
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    @Override
+    public int updateTreatmentPrice(List<Long> billIds, String treatmentName, double price) {
+        return getEntityManager()
+                .createQuery("UPDATE BillDetail d SET d.unitPrice = :price, d.lineTotal = d.quantity * :price "
+                        + "WHERE d.treatmentName = :treatmentName AND d.bill.id IN (:billIds)")
+                .setParameter("price", price)
+                .setParameter("treatmentName", treatmentName)
+                .setParameter("billIds", billIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public int recalculateTotals(List<Long> billIds) {
+        int updated = getEntityManager()
+                .createQuery("UPDATE Bill b SET "
+                        + "b.totalAmount = COALESCE((SELECT SUM(d.lineTotal) FROM BillDetail d WHERE d.bill = b), 0), "
+                        + "b.status = :status, "
+                        + "b.lastModified = :now "
+                        + "WHERE b.id IN (:billIds)")
+                .setParameter("status", BillStatus.RECALC)
+                .setParameter("now", new Date())
+                .setParameter("billIds", billIds)
+                .executeUpdate();
+
+        // Même réduction que Bill#calculateTotal
+        getEntityManager()
+                .createQuery("UPDATE Bill b SET b.totalAmount = b.totalAmount * :rate "
+                        + "WHERE b.id IN (:billIds) AND b.totalAmount > :threshold")
+                .setParameter("rate", Bill.TAUX_REDUCTION)
+                .setParameter("threshold", Bill.SEUIL_REDUCTION)
+                .setParameter("billIds", billIds)
+                .executeUpdate();
+        return updated;
+    }
+}
@@ -20,6 +20,7 @@ public class BillDetail {
     @JoinColumn(name = "bill_id", nullable = false)
     private Bill bill;
 
+    @Getter
     @Setter
     @Column(name = "treatment_name")
     private String treatmentName;
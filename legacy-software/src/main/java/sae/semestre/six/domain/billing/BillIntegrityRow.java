@@ -0,0 +1,12 @@
+package sae.semestre.six.domain.billing;
+
+/**
+ * Informations d'une facture nécessaires à la vérification de l'intégrité de son fichier
+ *
+ * @param id         l'identifiant de la facture
+ * @param billNumber le numéro de la facture
+ * @param hash       le hash du fichier de facture (hexadécimal)
+ * @param hashSalt   le sel utilisé pour le hash (hexadécimal)
+ */
+public record BillIntegrityRow(Long id, String billNumber, String hash, String hashSalt) {
+}
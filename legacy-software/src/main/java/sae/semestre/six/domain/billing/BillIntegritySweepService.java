@@ -0,0 +1,263 @@
+package sae.semestre.six.domain.billing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service en charge de la vérification en masse de l'intégrité des fichiers de factures.
+ * <p>
+ * Les factures sont lues par pages (pagination par identifiant) et vérifiées en parallèle via le
+ * {@link BillingHashExecutor}. Le nombre de vérifications en vol est borné afin de laisser de la
+ * place dans la file du pool aux facturations en cours. Chaque résultat est écrit en NDJSON
+ * (un objet JSON par ligne) dès qu'il est disponible, suivi d'une ligne de synthèse.
+ */
+@Service
+public class BillIntegritySweepService {
+
+    public enum IntegrityStatus {
+        OK,
+        FAILED,
+        MISSING,
+        ERROR
+    }
+
+    /**
+     * Résultat de la vérification d'une facture
+     *
+     * @param billNumber le numéro de la facture
+     * @param status     le résultat de la vérification
+     * @param message    le détail de l'erreur, le cas échéant
+     */
+    public record BillIntegrityResult(String billNumber, IntegrityStatus status, String message) {
+    }
+
+    /**
+     * Synthèse d'une vérification en masse
+     *
+     * @param summary        toujours vrai, permet de distinguer la ligne de synthèse des résultats
+     * @param checked        le nombre de factures vérifiées
+     * @param ok             le nombre de factures intègres
+     * @param failed         le nombre de factures dont le fichier ne correspond pas au hash
+     * @param missing        le nombre de factures dont le fichier est absent
+     * @param errors         le nombre de factures n'ayant pas pu être vérifiées
+     * @param durationMs     la durée de la vérification (en millisecondes)
+     * @param billsPerSecond le débit de vérification
+     */
+    public record BillIntegritySummary(boolean summary,
+                                       long checked,
+                                       long ok,
+                                       long failed,
+                                       long missing,
+                                       long errors,
+                                       long durationMs,
+                                       double billsPerSecond) {
+    }
+
+    private final BillDao billDao;
+    private final BillingService billingService;
+    private final BillingSecurityService billingSecurityService;
+    private final ObjectMapper objectMapper;
+
+    private final int parallelism;
+    private final int pageSize;
+    private final int lookbackDays;
+    private final String reportsFolder;
+    private final long requestTimeoutMs;
+
+    public BillIntegritySweepService(BillDao billDao,
+                                     BillingService billingService,
+                                     BillingSecurityService billingSecurityService,
+                                     ObjectMapper objectMapper,
+                                     @Value("${sae.semestre.six.billing.integrity.parallelism:2}") int parallelism,
+                                     @Value("${sae.semestre.six.billing.integrity.page-size:500}") int pageSize,
+                                     @Value("${sae.semestre.six.billing.integrity.lookback-days:1}") int lookbackDays,
+                                     @Value("${sae.semestre.six.files.integrity}") String reportsFolder,
+                                     @Value("${sae.semestre.six.billing.integrity.request-timeout-ms:3600000}") long requestTimeoutMs) {
+        this.billDao = billDao;
+        this.billingService = billingService;
+        this.billingSecurityService = billingSecurityService;
+        this.objectMapper = objectMapper;
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+        this.lookbackDays = lookbackDays;
+        this.reportsFolder = reportsFolder;
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    /**
+     * @return le délai maximal (en millisecondes) d'une vérification demandée par l'API, ligne de synthèse comprise
+     */
+    public long getRequestTimeoutMs() {
+        return requestTimeoutMs;
+    }
+
+    /**
+     * Vérifie l'intégrité des fichiers de toutes les factures correspondant aux filtres
+     *
+     * @param startDate la date de facturation minimale, ou null
+     * @param endDate   la fin de la période de facturation (exclue), ou null
+     * @param status    le statut des factures à vérifier, ou null pour tous les statuts
+     * @param output    le flux où écrire les résultats en NDJSON
+     * @return la synthèse de la vérification
+     */
+    public BillIntegritySummary sweep(Date startDate, Date endDate, BillStatus status, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        Counters counters = new Counters();
+        Semaphore inFlight = new Semaphore(parallelism);
+        long start = System.nanoTime();
+
+        Long afterId = null;
+        List<BillIntegrityRow> page;
+        do {
+            page = billDao.findIntegrityPage(startDate, endDate, status, afterId, pageSize);
+            for (BillIntegrityRow row : page) {
+                acquire(inFlight);
+                CompletableFuture<BillIntegrityResult> verification;
+                try {
+                    verification = verify(row);
+                } catch (RuntimeException e) {
+                    verification = CompletableFuture.failedFuture(e);
+                }
+                verification.whenComplete((result, throwable) -> {
+                    try {
+                        BillIntegrityResult written = throwable == null
+                                ? result
+                                : new BillIntegrityResult(row.billNumber(), IntegrityStatus.ERROR, throwable.getMessage());
+                        counters.add(written.status());
+                        writeLine(writer, written);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+                afterId = row.id();
+            }
+        } while (page.size() == pageSize);
+
+        // Attend la fin des vérifications encore en cours
+        acquire(inFlight, parallelism);
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        long checked = counters.checked.sum();
+        BillIntegritySummary summary = new BillIntegritySummary(true,
+                checked,
+                counters.ok.sum(),
+                counters.failed.sum(),
+                counters.missing.sum(),
+                counters.errors.sum(),
+                durationMs,
+                durationMs == 0 ? checked : checked * 1000.0 / durationMs);
+        writeLine(writer, summary);
+        writer.flush();
+        return summary;
+    }
+
+    /**
+     * Vérification nocturne des factures des derniers jours, dont le rapport est écrit dans le
+     * dossier des rapports d'intégrité
+     */
+    @Scheduled(cron = "${sae.semestre.six.billing.integrity.cron:0 0 2 * * *}")
+    public void nightlySweep() {
+        LocalDate today = LocalDate.now();
+        Date startDate = toDate(today.minusDays(lookbackDays));
+        Date endDate = toDate(today);
+        Path report = Path.of(reportsFolder, "integrity-" + today + ".ndjson");
+        try {
+            Files.createDirectories(report.getParent());
+            try (OutputStream output = Files.newOutputStream(report)) {
+                BillIntegritySummary summary = sweep(startDate, endDate, null, output);
+                System.out.println("Bill integrity sweep: " + summary);
+            }
+        } catch (IOException e) {
+            System.err.println("Bill integrity sweep failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Vérifie l'intégrité du fichier d'une facture
+     *
+     * @param row les informations d'intégrité de la facture
+     * @return le résultat de la vérification, une fois celle-ci terminée
+     */
+    private CompletableFuture<BillIntegrityResult> verify(BillIntegrityRow row) {
+        if (row.hash() == null || row.hashSalt() == null) {
+            return CompletableFuture.completedFuture(
+                    new BillIntegrityResult(row.billNumber(), IntegrityStatus.ERROR, "No hash stored for bill"));
+        }
+        Optional<String> contents = billingService.findBillFileContents(row.billNumber());
+        if (contents.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new BillIntegrityResult(row.billNumber(), IntegrityStatus.MISSING, null));
+        }
+
+        HexFormat format = HexFormat.of();
+        byte[] hash = format.parseHex(row.hash());
+        byte[] salt = format.parseHex(row.hashSalt());
+        return billingSecurityService.verifyAsyncWhenAvailable(contents.get(), hash, salt)
+                .thenApply(valid -> new BillIntegrityResult(row.billNumber(),
+                        valid ? IntegrityStatus.OK : IntegrityStatus.FAILED,
+                        null));
+    }
+
+    private void writeLine(Writer writer, Object line) {
+        try {
+            String json = objectMapper.writeValueAsString(line);
+            synchronized (writer) {
+                writer.write(json);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) {
+        acquire(semaphore, 1);
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bill integrity sweep interrupted", e);
+        }
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static class Counters {
+        private final LongAdder checked = new LongAdder();
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder missing = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private void add(IntegrityStatus status) {
+            checked.increment();
+            switch (status) {
+                case OK -> ok.increment();
+                case FAILED -> failed.increment();
+                case MISSING -> missing.increment();
+                case ERROR -> errors.increment();
+            }
+        }
+    }
+}
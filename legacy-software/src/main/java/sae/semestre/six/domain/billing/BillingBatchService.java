@@ -0,0 +1,276 @@
+package sae.semestre.six.domain.billing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.billing.medical_acts.MedicalAct;
+import sae.semestre.six.domain.billing.medical_acts.MedicalActCatalog;
+import sae.semestre.six.domain.billing.revenue.RevenueRollupService;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.patient.PatientDao;
+import sae.semestre.six.domain.prescription.Prescription;
+import sae.semestre.six.domain.prescription.PrescriptionDao;
+import sae.semestre.six.mail.EmailService;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service en charge de la facturation par lots (par exemple, l'ensemble d'un service en fin de journée).
+ * <p>
+ * Les patients, docteurs et actes médicaux de tout le lot sont résolus en quelques requêtes {@code IN},
+ * les hash sont calculés en parallèle sur le {@link BillingHashExecutor}, puis les factures sont
+ * sauvegardées par paquets de {@code hibernate.jdbc.batch_size}, chaque paquet dans sa propre transaction.
+ * Si un paquet échoue, ses factures sont retentées une par une afin que seules les factures en erreur
+ * soient rejetées. Un unique email récapitulatif est envoyé pour le lot.
+ */
+@Service
+public class BillingBatchService {
+
+    /**
+     * Une facture à générer
+     *
+     * @param patientId  l'identifiant du patient ayant été pris en charge
+     * @param doctorId   l'identifiant du docteur l'ayant pris en charge
+     * @param treatments les traitements prescrits pour cette facture
+     */
+    public record BatchBillRequest(Long patientId, Long doctorId, List<String> treatments) {
+    }
+
+    /**
+     * Le résultat de la génération d'une facture du lot
+     *
+     * @param index      la position de la demande dans le lot
+     * @param success    true si la facture a été générée
+     * @param billNumber le numéro de la facture générée
+     * @param error      la raison de l'échec, le cas échéant
+     */
+    public record BatchBillResult(int index, boolean success, String billNumber, String error) {
+
+        static BatchBillResult success(int index, String billNumber) {
+            return new BatchBillResult(index, true, billNumber, null);
+        }
+
+        static BatchBillResult failure(int index, String error) {
+            return new BatchBillResult(index, false, null, error);
+        }
+    }
+
+    /**
+     * Une facture prête à être sauvegardée
+     */
+    private record PreparedBill(int index, Bill bill, String contents) {
+    }
+
+    private final BillingService billingService;
+    private final BillingSecurityService billingSecurityService;
+    private final MedicalActCatalog medicalActCatalog;
+    private final PatientDao patientDao;
+    private final DoctorDao doctorDao;
+    private final PrescriptionDao prescriptionDao;
+    private final BillDao billDao;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final RevenueRollupService revenueRollupService;
+    private final int chunkSize;
+
+    public BillingBatchService(BillingService billingService,
+                               BillingSecurityService billingSecurityService,
+                               MedicalActCatalog medicalActCatalog,
+                               PatientDao patientDao,
+                               DoctorDao doctorDao,
+                               PrescriptionDao prescriptionDao,
+                               BillDao billDao,
+                               EmailService emailService,
+                               TransactionTemplate transactionTemplate,
+                               RevenueRollupService revenueRollupService,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int chunkSize) {
+        this.billingService = billingService;
+        this.billingSecurityService = billingSecurityService;
+        this.medicalActCatalog = medicalActCatalog;
+        this.patientDao = patientDao;
+        this.doctorDao = doctorDao;
+        this.prescriptionDao = prescriptionDao;
+        this.billDao = billDao;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.revenueRollupService = revenueRollupService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Génère les factures d'un lot
+     *
+     * @param requests les factures à générer
+     * @return le résultat de chaque facture, dans l'ordre des demandes
+     */
+    public List<BatchBillResult> processBills(List<BatchBillRequest> requests) {
+        BatchBillResult[] results = new BatchBillResult[requests.size()];
+
+        // Résolution groupée des patients, docteurs, actes médicaux et prescriptions
+        Map<Long, Patient> patients = patientDao.findByIds(collect(requests, r -> Optional.ofNullable(r.patientId()).stream())).stream()
+                .collect(Collectors.toMap(Patient::getId, Function.identity()));
+        Map<Long, Doctor> doctors = doctorDao.findByIds(collect(requests, r -> Optional.ofNullable(r.doctorId()).stream())).stream()
+                .collect(Collectors.toMap(Doctor::getId, Function.identity()));
+        Map<String, MedicalAct> acts = medicalActCatalog.findAllByName(collect(requests, r -> treatmentsOf(r).stream()
+                .filter(treatment -> !treatment.startsWith(Prescription.BILLABLE_PREFIX))));
+        Map<String, Prescription> prescriptions = prescriptionDao.findByPrescriptionNumbers(collect(requests, r -> treatmentsOf(r).stream()
+                        .filter(treatment -> treatment.startsWith(Prescription.BILLABLE_PREFIX))
+                        .map(treatment -> treatment.substring(Prescription.BILLABLE_PREFIX.length())))).stream()
+                .collect(Collectors.toMap(Prescription::getBillableName, Function.identity(), (first, second) -> first));
+
+        List<PreparedBill> prepared = new ArrayList<>();
+        for (int index = 0; index < requests.size(); index++) {
+            try {
+                prepared.add(prepare(index, requests.get(index), patients, doctors, acts, prescriptions));
+            } catch (RuntimeException e) {
+                results[index] = BatchBillResult.failure(index, e.getMessage());
+            }
+        }
+
+        for (int from = 0; from < prepared.size(); from += chunkSize) {
+            List<PreparedBill> chunk = prepared.subList(from, Math.min(from + chunkSize, prepared.size()));
+            hash(chunk);
+            for (BatchBillResult result : save(chunk)) {
+                results[result.index()] = result;
+            }
+        }
+
+        List<BatchBillResult> resultList = Arrays.asList(results);
+        sendEmailForNewBills(prepared, resultList);
+        return resultList;
+    }
+
+    /**
+     * Prépare une facture à partir des entités déjà résolues
+     */
+    private PreparedBill prepare(int index,
+                                 BatchBillRequest request,
+                                 Map<Long, Patient> patients,
+                                 Map<Long, Doctor> doctors,
+                                 Map<String, MedicalAct> acts,
+                                 Map<String, Prescription> prescriptions) {
+        Patient patient = patients.get(request.patientId());
+        if (patient == null) {
+            throw new IllegalArgumentException("Patient not found: " + request.patientId());
+        }
+        Doctor doctor = doctors.get(request.doctorId());
+        if (doctor == null) {
+            throw new IllegalArgumentException("Doctor not found: " + request.doctorId());
+        }
+        List<String> treatments = treatmentsOf(request);
+        if (treatments.isEmpty()) {
+            throw new IllegalArgumentException("No treatment to bill");
+        }
+
+        List<Billable> items = new ArrayList<>();
+        for (String treatment : treatments) {
+            Billable billable = treatment.startsWith(Prescription.BILLABLE_PREFIX)
+                    ? prescriptions.get(treatment)
+                    : acts.get(treatment);
+            if (billable == null) {
+                throw new IllegalArgumentException("Treatment not found: " + treatment);
+            }
+            items.add(billable);
+        }
+
+        Bill bill = billingService.initBill(patient, doctor, items);
+        String contents = billingService.buildBillFileContents(bill, patient.getId(), doctor.getId(), items);
+        return new PreparedBill(index, bill, contents);
+    }
+
+    /**
+     * Calcule en parallèle les hash des fichiers d'un paquet de factures
+     */
+    private void hash(List<PreparedBill> chunk) {
+        List<CompletableFuture<Void>> hashes = chunk.stream()
+                .map(prepared -> billingSecurityService.generateAsyncWhenAvailable(prepared.contents())
+                        .thenAccept(generated -> billingService.applyHash(prepared.bill(), generated)))
+                .toList();
+        CompletableFuture.allOf(hashes.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Sauvegarde un paquet de factures dans une seule transaction ; en cas d'échec, les factures
+     * sont sauvegardées une par une afin d'isoler celles en erreur
+     */
+    private List<BatchBillResult> save(List<PreparedBill> chunk) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> chunk.forEach(this::persist));
+            return chunk.stream().map(this::writeFile).toList();
+        } catch (RuntimeException chunkFailure) {
+            List<BatchBillResult> results = new ArrayList<>();
+            for (PreparedBill prepared : chunk) {
+                // Les identifiants attribués par la transaction annulée ne sont plus valides
+                prepared.bill().setId(null);
+                prepared.bill().getBillDetails().forEach(detail -> detail.setId(null));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(prepared));
+                    results.add(writeFile(prepared));
+                } catch (RuntimeException e) {
+                    results.add(BatchBillResult.failure(prepared.index(), e.getMessage()));
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Sauvegarde une facture et l'ajoute au chiffre d'affaires agrégé, dans la transaction courante
+     */
+    private void persist(PreparedBill prepared) {
+        billDao.save(prepared.bill());
+        revenueRollupService.recordNewBill(prepared.bill());
+    }
+
+    /**
+     * Écrit le fichier d'une facture sauvegardée
+     */
+    private BatchBillResult writeFile(PreparedBill prepared) {
+        try {
+            billingService.writeBillFile(prepared.bill(), prepared.contents());
+            return BatchBillResult.success(prepared.index(), prepared.bill().getBillNumber());
+        } catch (RuntimeException e) {
+            return BatchBillResult.failure(prepared.index(),
+                    "Bill " + prepared.bill().getBillNumber() + " saved but its file could not be written: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Envoie un unique email à l'administrateur récapitulant les factures générées
+     */
+    private void sendEmailForNewBills(List<PreparedBill> prepared, List<BatchBillResult> results) {
+        StringBuilder emailContent = new StringBuilder();
+        int generated = 0;
+        for (PreparedBill bill : prepared) {
+            if (results.get(bill.index()).success()) {
+                generated++;
+                emailContent.append("Bill Number: ").append(bill.bill().getBillNumber())
+                        .append(" - Total: $").append(bill.bill().getTotalAmount())
+                        .append("\n");
+            }
+        }
+        if (generated == 0) {
+            return;
+        }
+        emailService.sendEmail(
+                EmailService.EMAIL_SOURCE.ADMIN.getEmail(),
+                generated + " New Bills Generated",
+                emailContent.toString()
+        );
+    }
+
+    private static List<String> treatmentsOf(BatchBillRequest request) {
+        return request.treatments() == null ? List.of() : request.treatments();
+    }
+
+    private static <T> Set<T> collect(List<BatchBillRequest> requests,
+                                      Function<BatchBillRequest, Stream<T>> extractor) {
+        return requests.stream().flatMap(extractor).collect(Collectors.toSet());
+    }
+}
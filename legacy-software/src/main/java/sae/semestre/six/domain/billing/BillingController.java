@@ -1,13 +1,31 @@
 package sae.semestre.six.domain.billing;
 
 import jakarta.persistence.NoResultException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import sae.semestre.six.domain.billing.insurance.InsuranceQuote;
+import sae.semestre.six.domain.billing.insurance.InsuranceQuoteRequest;
+import sae.semestre.six.domain.billing.insurance.InsuranceService;
+import sae.semestre.six.domain.billing.medical_acts.MedicalActCatalog;
+import sae.semestre.six.domain.billing.revenue.RevenueByAct;
+import sae.semestre.six.domain.billing.revenue.RevenueByDay;
+import sae.semestre.six.domain.billing.revenue.RevenueByDoctor;
+import sae.semestre.six.domain.billing.revenue.RevenueRollupService;
+import sae.semestre.six.exception.ServiceBusyException;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @AllArgsConstructor
@@ -15,6 +33,11 @@ import java.util.Map;
 public class BillingController {
 
     private final BillingService billingService;
+    private final BillingHashExecutor billingHashExecutor;
+    private final BillIntegritySweepService billIntegritySweepService;
+    private final BillingBatchService billingBatchService;
+    private final RevenueRollupService revenueRollupService;
+    private final InsuranceService insuranceService;
 
     /**
      * Génère une facture
@@ -34,11 +57,27 @@ public class BillingController {
             return ResponseEntity.ok("Bill processed successfully");
         } catch (NoResultException e) {
             return ResponseEntity.notFound().build();
+        } catch (ServiceBusyException e) {
+            // Traitée par le GlobalExceptionHandler (503 + Retry-After)
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Génère un lot de factures. Chaque facture est traitée indépendamment :
+     * une facture en erreur n'empêche pas la génération des autres.
+     *
+     * @param requests les factures à générer
+     * @return le résultat de chaque facture, dans l'ordre du lot
+     */
+    @PostMapping("/process/batch")
+    public ResponseEntity<List<BillingBatchService.BatchBillResult>> processBills(
+            @RequestBody List<BillingBatchService.BatchBillRequest> requests) {
+        return ResponseEntity.ok(billingBatchService.processBills(requests));
+    }
+
     @PostMapping("/price")
     public ResponseEntity<String> setPrice(
             @RequestParam String treatment,
@@ -80,19 +119,48 @@ public class BillingController {
         return ResponseEntity.ok(billingService.getPriceList());
     }
 
+    /**
+     * @return les statistiques d'utilisation du catalogue des prix
+     */
+    @GetMapping("/prices/stats")
+    public ResponseEntity<MedicalActCatalog.MedicalActCatalogStats> getPriceCatalogStats() {
+        return ResponseEntity.ok(billingService.getPriceCatalogStats());
+    }
+
     /**
      * Calcule le remboursement par l'assurance
      *
-     * @param amount le montant de la facture
+     * @param amount  le montant de la facture
+     * @param product le produit facturé (CONSULTATION, HOSPITALISATION, ...)
+     * @param insurer le nom de l'assurance du patient
      * @return le montant remboursé
      */
     @GetMapping("/insurance")
-    public ResponseEntity<String> calculateInsurance(@RequestParam double amount) {
-        // TODO calculer le remboursement avec ms-assurance via une architecture micro-services
-        // A utiliser : webClient (dépendance légère) ou Feign (un peu lourdingue)
-        // pour webClient, voir service adresse dans la SAE du S5
-        double coverage = amount;
-        return ResponseEntity.ok("Insurance coverage: $" + coverage);
+    public CompletableFuture<ResponseEntity<String>> calculateInsurance(@RequestParam double amount,
+                                                                        @RequestParam String product,
+                                                                        @RequestParam String insurer) {
+        return insuranceService.quote(product, insurer, amount)
+                .thenApply(quote -> ResponseEntity.ok("Insurance coverage: $" + quote.coverage()));
+    }
+
+    /**
+     * Calcule le remboursement de plusieurs montants en un seul appel à ms-assurance
+     *
+     * @param requests les montants à rembourser
+     * @return les remboursements calculés, dans l'ordre des demandes
+     */
+    @PostMapping("/insurance/batch")
+    public CompletableFuture<ResponseEntity<List<InsuranceQuote>>> calculateInsurances(
+            @RequestBody List<InsuranceQuoteRequest> requests) {
+        return insuranceService.quote(requests).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * @return les statistiques du cache des taux de remboursement
+     */
+    @GetMapping("/insurance/stats")
+    public ResponseEntity<InsuranceService.InsuranceRateCacheStats> getInsuranceStats() {
+        return ResponseEntity.ok(insuranceService.getStats());
     }
 
     /**
@@ -103,6 +171,58 @@ public class BillingController {
         return ResponseEntity.ok("Total Revenue: $" + billingService.getTotalRevenue());
     }
 
+    /**
+     * @param from   le premier jour de facturation (inclus)
+     * @param to     le dernier jour de facturation (inclus)
+     * @param status le statut des factures
+     * @return le chiffre d'affaires par jour
+     */
+    @GetMapping("/revenue/daily")
+    public ResponseEntity<List<RevenueByDay>> getRevenueByDay(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) BillStatus status) {
+        return ResponseEntity.ok(revenueRollupService.getRevenueByDay(from, to, status));
+    }
+
+    /**
+     * @param from   le premier jour de facturation (inclus)
+     * @param to     le dernier jour de facturation (inclus)
+     * @param status le statut des factures
+     * @return le chiffre d'affaires par docteur
+     */
+    @GetMapping("/revenue/doctors")
+    public ResponseEntity<List<RevenueByDoctor>> getRevenueByDoctor(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) BillStatus status) {
+        return ResponseEntity.ok(revenueRollupService.getRevenueByDoctor(from, to, status));
+    }
+
+    /**
+     * @param from   le premier jour de facturation (inclus)
+     * @param to     le dernier jour de facturation (inclus)
+     * @param status le statut des factures
+     * @return le montant facturé par acte médical ou prescription, avant réduction
+     */
+    @GetMapping("/revenue/acts")
+    public ResponseEntity<List<RevenueByAct>> getRevenueByAct(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) BillStatus status) {
+        return ResponseEntity.ok(revenueRollupService.getRevenueByAct(from, to, status));
+    }
+
+    /**
+     * Reconstruit le chiffre d'affaires agrégé à partir des factures existantes
+     *
+     * @return le nombre d'agrégats reconstruits
+     */
+    @PostMapping("/revenue/rebuild")
+    public ResponseEntity<String> rebuildRevenue() {
+        return ResponseEntity.ok("Revenue rollups rebuilt: " + revenueRollupService.rebuild() + " rows");
+    }
+
     /**
      * @return les identifiants des factures en attente
      */
@@ -111,8 +231,43 @@ public class BillingController {
         return ResponseEntity.ok(billingService.getPendingBillsIds());
     }
 
+    /**
+     * Vérifie l'intégrité des fichiers de toutes les factures correspondant aux filtres.
+     * Les résultats sont renvoyés au fil de l'eau en NDJSON, la dernière ligne étant une synthèse.
+     *
+     * @param from   la date de facturation minimale (incluse)
+     * @param to     la date de facturation maximale (incluse)
+     * @param status le statut des factures à vérifier
+     * @param response la réponse, où les résultats sont écrits
+     * @return la vérification, exécutée en arrière-plan avec son propre délai maximal
+     */
+    @GetMapping("/integrity")
+    public WebAsyncTask<Void> checkBillsIntegrity(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) BillStatus status,
+            HttpServletResponse response) {
+        Date startDate = from == null ? null : Date.from(from.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date endDate = to == null ? null : Date.from(to.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Callable<Void> sweep = () -> {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            billIntegritySweepService.sweep(startDate, endDate, status, response.getOutputStream());
+            return null;
+        };
+        // Le délai par défaut des requêtes asynchrones (~30 s) couperait la vérification de milliers de factures
+        return new WebAsyncTask<>(billIntegritySweepService.getRequestTimeoutMs(), sweep);
+    }
+
     @GetMapping("/integrity/{billNumber}")
     public ResponseEntity<Boolean> checkBillIntegrity(@NonNull @PathVariable String billNumber) {
         return ResponseEntity.ok(billingService.checkBillIntegrity(billNumber));
     }
-} 
\ No newline at end of file
+
+    /**
+     * @return les statistiques du pool de calcul des hash de factures
+     */
+    @GetMapping("/security/metrics")
+    public ResponseEntity<BillingHashExecutor.BillingHashMetrics> getHashMetrics() {
+        return ResponseEntity.ok(billingHashExecutor.getMetrics());
+    }
+}
@@ -0,0 +1,164 @@
+package sae.semestre.six.domain.billing;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sae.semestre.six.exception.ServiceBusyException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Pool de threads dédié aux calculs de hash Argon2 des factures.
+ * <p>
+ * Chaque calcul Argon2 alloue environ 64 Mo : le nombre de calculs simultanés est donc plafonné
+ * et les demandes en attente sont placées dans une file bornée. Lorsque la file est pleine,
+ * la demande est refusée avec une {@link ServiceBusyException} (HTTP 503 + Retry-After).
+ */
+@Component
+public class BillingHashExecutor {
+
+    /**
+     * Statistiques du pool de hash
+     *
+     * @param concurrency       le nombre maximal de calculs simultanés
+     * @param queueCapacity     la taille maximale de la file d'attente
+     * @param queueDepth        le nombre de calculs en attente
+     * @param activeWorkers     le nombre de calculs en cours
+     * @param completed         le nombre de calculs terminés
+     * @param rejected          le nombre de demandes refusées car la file était pleine
+     * @param averageLatencyMs  la durée moyenne d'un calcul (en millisecondes)
+     * @param maxLatencyMs      la durée maximale d'un calcul (en millisecondes)
+     * @param averageWaitMs     le temps moyen passé dans la file (en millisecondes)
+     */
+    public record BillingHashMetrics(int concurrency,
+                                     int queueCapacity,
+                                     int queueDepth,
+                                     int activeWorkers,
+                                     long completed,
+                                     long rejected,
+                                     double averageLatencyMs,
+                                     double maxLatencyMs,
+                                     double averageWaitMs) {
+    }
+
+    private static final long BUSY_BACKOFF_MS = 100;
+
+    private final ThreadPoolExecutor executor;
+    private final int concurrency;
+    private final int queueCapacity;
+    private final long retryAfterSeconds;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public BillingHashExecutor(@Value("${sae.semestre.six.billing.hash.concurrency:2}") int concurrency,
+                               @Value("${sae.semestre.six.billing.hash.queue-capacity:50}") int queueCapacity,
+                               @Value("${sae.semestre.six.billing.hash.retry-after-seconds:5}") long retryAfterSeconds) {
+        if (concurrency <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Hash concurrency and queue capacity must be positive");
+        }
+        this.concurrency = concurrency;
+        this.queueCapacity = queueCapacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "billing-hash-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Soumet un calcul de hash au pool
+     *
+     * @param task le calcul à exécuter
+     * @return le résultat du calcul, disponible une fois celui-ci terminé
+     * @throws ServiceBusyException si la file d'attente est pleine
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                totalWaitNanos.add(startedAt - submittedAt);
+                try {
+                    return task.get();
+                } finally {
+                    recordLatency(System.nanoTime() - startedAt);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Billing hash queue is full, retry later", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Soumet un calcul de hash au pool en attendant, si besoin, qu'une place se libère dans la file.
+     * Destiné aux traitements de masse, qui doivent borner eux-mêmes le nombre de calculs en vol.
+     *
+     * @param task le calcul à exécuter
+     * @return le résultat du calcul, disponible une fois celui-ci terminé
+     */
+    public <T> CompletableFuture<T> submitWhenAvailable(Supplier<T> task) {
+        while (true) {
+            try {
+                return submit(task);
+            } catch (ServiceBusyException e) {
+                try {
+                    Thread.sleep(BUSY_BACKOFF_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the billing hash queue", interrupted);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return les statistiques courantes du pool
+     */
+    public BillingHashMetrics getMetrics() {
+        long done = completed.sum();
+        return new BillingHashMetrics(
+                concurrency,
+                queueCapacity,
+                executor.getQueue().size(),
+                executor.getActiveCount(),
+                done,
+                rejected.sum(),
+                done == 0 ? 0 : toMillis(totalLatencyNanos.sum()) / done,
+                toMillis(maxLatencyNanos.get()),
+                done == 0 ? 0 : toMillis(totalWaitNanos.sum()) / done);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void recordLatency(long latencyNanos) {
+        completed.increment();
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -11,9 +11,13 @@ import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
- * Service en charge de la sécurité des fichiers de factures
+ * Service en charge de la sécurité des fichiers de factures.
+ * Les calculs Argon2 sont exécutés par le {@link BillingHashExecutor} afin d'en limiter
+ * le nombre simultané.
  */
 @Service
 @AllArgsConstructor
@@ -24,8 +28,11 @@ public class BillingSecurityService {
 
     private Environment environment;
 
+    private BillingHashExecutor billingHashExecutor;
+
     private final Charset usedCharset = StandardCharsets.UTF_8;
     private final int hashLength = 32;
+    private final SecureRandom secureRandom = new SecureRandom();
 
     /**
      * Génère les paramètres pour l'algorithme Argon2
@@ -62,7 +69,6 @@ public class BillingSecurityService {
      * @return un sel aléatoire
      */
     private byte[] generateSalt() {
-        SecureRandom secureRandom = new SecureRandom();
         byte[] salt = new byte[16];
         secureRandom.nextBytes(salt);
 
@@ -82,8 +88,69 @@ public class BillingSecurityService {
      * Génère un sel et un hash avec Argon2 pour la chaîne en entrée
      * @param input la donnée d'entrée
      * @return un sel et un hash pour la chaîne en entrée
+     * @throws sae.semestre.six.exception.ServiceBusyException si trop de calculs sont en attente
      */
     public BillingSecurityDTO generate(String input) {
+        return join(generateAsync(input));
+    }
+
+    /**
+     * Génère un sel et un hash avec Argon2 pour la chaîne en entrée, de manière asynchrone
+     * @param input la donnée d'entrée
+     * @return un sel et un hash pour la chaîne en entrée, une fois le calcul terminé
+     * @throws sae.semestre.six.exception.ServiceBusyException si trop de calculs sont en attente
+     */
+    public CompletableFuture<BillingSecurityDTO> generateAsync(String input) {
+        return billingHashExecutor.submit(() -> computeGenerate(input));
+    }
+
+    /**
+     * Variante de {@link #generateAsync(String)} qui attend qu'une place se libère dans la file
+     * au lieu d'échouer, destinée aux traitements de masse
+     * @param input la donnée d'entrée
+     * @return un sel et un hash pour la chaîne en entrée, une fois le calcul terminé
+     */
+    public CompletableFuture<BillingSecurityDTO> generateAsyncWhenAvailable(String input) {
+        return billingHashExecutor.submitWhenAvailable(() -> computeGenerate(input));
+    }
+
+    /**
+     * Vérifie la correspondance d'un hash avec sa chaîne de départ
+     * @param input la chaîne d'entrée
+     * @param outputBytes les données en sortie
+     * @param saltBytes le sel donné en entrée
+     * @return true si les données correspondent, false sinon
+     * @throws sae.semestre.six.exception.ServiceBusyException si trop de calculs sont en attente
+     */
+    public boolean verify(String input, byte[] outputBytes, byte[] saltBytes) {
+        return join(verifyAsync(input, outputBytes, saltBytes));
+    }
+
+    /**
+     * Vérifie la correspondance d'un hash avec sa chaîne de départ, de manière asynchrone
+     * @param input la chaîne d'entrée
+     * @param outputBytes les données en sortie
+     * @param saltBytes le sel donné en entrée
+     * @return true si les données correspondent, false sinon, une fois le calcul terminé
+     * @throws sae.semestre.six.exception.ServiceBusyException si trop de calculs sont en attente
+     */
+    public CompletableFuture<Boolean> verifyAsync(String input, byte[] outputBytes, byte[] saltBytes) {
+        return billingHashExecutor.submit(() -> computeVerify(input, outputBytes, saltBytes));
+    }
+
+    /**
+     * Variante de {@link #verifyAsync(String, byte[], byte[])} qui attend qu'une place se libère
+     * dans la file au lieu d'échouer, destinée aux traitements de masse
+     * @param input la chaîne d'entrée
+     * @param outputBytes les données en sortie
+     * @param saltBytes le sel donné en entrée
+     * @return true si les données correspondent, false sinon, une fois le calcul terminé
+     */
+    public CompletableFuture<Boolean> verifyAsyncWhenAvailable(String input, byte[] outputBytes, byte[] saltBytes) {
+        return billingHashExecutor.submitWhenAvailable(() -> computeVerify(input, outputBytes, saltBytes));
+    }
+
+    private BillingSecurityDTO computeGenerate(String input) {
         byte[] inputBytes = getAsBytesBase64(input);
 
         byte[] salt = generateSalt();
@@ -97,14 +164,7 @@ public class BillingSecurityService {
         return new BillingSecurityDTO(salt, output);
     }
 
-    /**
-     * Vérifie la correspondance d'un hash avec sa chaîne de départ
-     * @param input la chaîne d'entrée
-     * @param outputBytes les données en sortie
-     * @param saltBytes le sel donné en entrée
-     * @return true si les données correspondent, false sinon
-     */
-    public boolean verify(String input, byte[] outputBytes, byte[] saltBytes) {
+    private boolean computeVerify(String input, byte[] outputBytes, byte[] saltBytes) {
         byte[] inputBytes = getAsBytesBase64(input);
         Argon2Parameters parameters = argon2Parameters(saltBytes);
 
@@ -114,4 +174,20 @@ public class BillingSecurityService {
         verifier.generateBytes(inputBytes, outputReprocessedBytes, 0, outputReprocessedBytes.length);
         return Arrays.equals(outputReprocessedBytes, outputBytes);
     }
+
+    /**
+     * Attend la fin d'un calcul et propage ses éventuelles exceptions telles quelles
+     * @param future le calcul en cours
+     * @return le résultat du calcul
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
 }
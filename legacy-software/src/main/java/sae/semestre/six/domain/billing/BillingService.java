@@ -5,20 +5,25 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import sae.semestre.six.domain.billing.medical_acts.MedicalAct;
+import sae.semestre.six.domain.billing.medical_acts.MedicalActCatalog;
 import sae.semestre.six.domain.billing.medical_acts.MedicalActDao;
+import sae.semestre.six.domain.billing.revenue.RevenueRollupService;
 import sae.semestre.six.domain.doctor.Doctor;
 import sae.semestre.six.domain.doctor.DoctorDao;
 import sae.semestre.six.domain.patient.Patient;
 import sae.semestre.six.domain.patient.PatientDao;
 import sae.semestre.six.domain.prescription.Prescription;
 import sae.semestre.six.domain.prescription.PrescriptionDao;
-import sae.semestre.six.file.FileHandler;
+import sae.semestre.six.file.BillArchive;
+import sae.semestre.six.identifier.BusinessIdentifier;
+import sae.semestre.six.identifier.IdentifierService;
 import sae.semestre.six.mail.EmailService;
 
-import java.io.File;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service en charge des facturations
@@ -27,17 +32,21 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class BillingService {
 
-    @Value("${sae.semestre.six.files.billing}")
-    private String BILLS_FOLDER;
+    @Value("${sae.semestre.six.billing.recalc.chunk-size:500}")
+    private int RECALC_CHUNK_SIZE = 500;
 
     private final BillingSecurityService billingSecurityService;
     private final MedicalActDao medicalActDao;
+    private final MedicalActCatalog medicalActCatalog;
     private final PrescriptionDao prescriptionDao;
     private final PatientDao patientDao;
-    private final FileHandler fileHandler;
+    private final BillArchive billArchive;
     private final BillDao billDao;
     private final EmailService emailService;
     private final DoctorDao doctorDao;
+    private final TransactionTemplate transactionTemplate;
+    private final RevenueRollupService revenueRollupService;
+    private final IdentifierService identifierService;
 
 
     /**
@@ -63,62 +72,127 @@ public class BillingService {
      */
     @Transactional
     public void processBill(Patient patient, Doctor doctor, String[] treatments) {
-        // On récupère le patient et le docteur concerné
+        // On récupère les éléments facturables
         List<Billable> items = findBillablesByName(treatments);
 
         // Initialise la facture
-        Bill bill = new Bill();
-        bill.setBillNumber("BILL" + System.currentTimeMillis());
-        bill.setPatient(patient);
-        bill.setDoctor(doctor);
-        bill.setBillDetails(items);
-        bill.calculateTotal();
+        Bill bill = initBill(patient, doctor, items);
 
         // Récupère et écrit les informations dans la facture
         String message = buildBillFileContents(bill,
                 patient.getId(),
                 doctor.getId(),
-                treatments);
-        File file = getFileForBillNumber(bill.getBillNumber());
-        fileHandler.writeToFile(file.getAbsolutePath(), message);
+                items);
+        writeBillFileAfterCommit(bill, message);
 
         // Génère un hash pour le contenu du fichier et l'ajoute aux informations de la facture
-        BillingSecurityService.BillingSecurityDTO generated = billingSecurityService.generate(message);
-        HexFormat format = HexFormat.of();
-        String salt = format.formatHex(generated.salt());
-        String hash = format.formatHex(generated.hash());
-        bill.setHash(salt);
-        bill.setHashSalt(hash);
+        applyHash(bill, billingSecurityService.generate(message));
 
-        // Sauvegarde la facture
+        // Sauvegarde la facture et l'ajoute au chiffre d'affaires agrégé
         billDao.save(bill);
+        revenueRollupService.recordNewBill(bill);
 
         // Prévient de l'arrivée d'une nouvelle facture
         sendEmailForNewBill(bill);
     }
 
     /**
-     * Met à jour le prix d'un traitement pour toutes les factures en attente
+     * Initialise une facture et calcule son total
+     *
+     * @param patient le patient ayant été pris en charge
+     * @param doctor  le doctor l'ayant pris en charge
+     * @param items   les éléments facturés
+     * @return la nouvelle facture, non sauvegardée
+     */
+    protected Bill initBill(Patient patient, Doctor doctor, List<Billable> items) {
+        Bill bill = new Bill();
+        bill.setBillNumber(nextBillNumber());
+        bill.setPatient(patient);
+        bill.setDoctor(doctor);
+        bill.setBillDetails(items);
+        bill.calculateTotal();
+        return bill;
+    }
+
+    /**
+     * @return un nouveau numéro de facture
+     */
+    protected String nextBillNumber() {
+        return identifierService.next(BusinessIdentifier.BILL);
+    }
+
+    /**
+     * Écrit le fichier d'une facture
+     *
+     * @param bill    la facture
+     * @param message le contenu du fichier
+     */
+    protected void writeBillFile(Bill bill, String message) {
+        billArchive.write(bill.getBillNumber(), message);
+    }
+
+    /**
+     * Écrit le fichier d'une facture une fois la transaction courante validée, afin qu'une transaction
+     * annulée ne laisse pas de fichier sans facture. Sans transaction, le fichier est écrit immédiatement.
+     *
+     * @param bill    la facture
+     * @param message le contenu du fichier
+     */
+    protected void writeBillFileAfterCommit(Bill bill, String message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeBillFile(bill, message);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    writeBillFile(bill, message);
+                } catch (RuntimeException e) {
+                    System.err.println("Bill " + bill.getBillNumber() + " saved but its file could not be written: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Renseigne le hash et le sel du fichier de la facture
+     *
+     * @param bill      la facture
+     * @param generated le hash et le sel générés pour le contenu du fichier
+     */
+    protected void applyHash(Bill bill, BillingSecurityService.BillingSecurityDTO generated) {
+        HexFormat format = HexFormat.of();
+        bill.setHash(format.formatHex(generated.hash()));
+        bill.setHashSalt(format.formatHex(generated.salt()));
+    }
+
+    /**
+     * Met à jour le prix d'un traitement pour toutes les factures non payées le contenant
      *
      * @param treatment l'identifiant du traitement mis à jour
      * @param price     le nouveau prix du traitement
      */
-    @Transactional
     public void updatePrice(
             String treatment,
             double price) {
         medicalActDao.updatePrice(treatment, price);
-        recalculateAllPendingBills();
+        medicalActCatalog.updatePrice(treatment, price);
+        recalculateBillsWithTreatment(treatment, price);
     }
 
     /**
      * @return la liste des prix des actes médicaux
      */
     public Map<String, Double> getPriceList() {
-        return medicalActDao.findAll()
-                .stream()
-                .map(medicalAct -> Map.entry(medicalAct.getName(), medicalAct.getPrice()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        return medicalActCatalog.getPriceList();
+    }
+
+    /**
+     * @return les statistiques d'utilisation du catalogue des prix
+     */
+    public MedicalActCatalog.MedicalActCatalogStats getPriceCatalogStats() {
+        return medicalActCatalog.getStats();
     }
 
     /**
@@ -127,7 +201,7 @@ public class BillingService {
      * @return une chaîne de caractères décrivant le total des factures
      */
     public double getTotalRevenue() {
-        return billDao.getTotalCost();
+        return revenueRollupService.getTotalRevenue();
     }
 
     /**
@@ -139,6 +213,7 @@ public class BillingService {
     public void addPrice(String treatment, double price) {
         MedicalAct medicalAct = MedicalAct.builder().name(treatment).price(price).build();
         medicalActDao.save(medicalAct);
+        medicalActCatalog.put(medicalAct);
     }
 
     /**
@@ -182,49 +257,57 @@ public class BillingService {
      * @return le contenu du fichier de facture
      */
     protected String getBillFileContents(@NonNull Bill bill) {
-        File file = getFileForBillNumber(bill.getBillNumber());
-        return fileHandler.readFromFile(file.getAbsolutePath());
+        return findBillFileContents(bill.getBillNumber())
+                .orElseThrow(() -> new IllegalStateException("Cannot read file of bill " + bill.getBillNumber()));
     }
 
     /**
-     * @param billNumber le numéro de facture
-     * @return le fichier contenant (normalement) les informations de la facture
+     * @param billNumber le numéro de la facture
+     * @return le contenu du fichier de facture, ou vide si le fichier n'existe pas
      */
-    protected File getFileForBillNumber(@NonNull String billNumber) {
-        return new File(BILLS_FOLDER, billNumber + ".txt");
+    protected Optional<String> findBillFileContents(@NonNull String billNumber) {
+        return billArchive.read(billNumber);
     }
 
     /**
-     * Met à jour une facture en mettant à jour le statut
+     * Recalcule les factures non payées contenant un traitement.
+     * Les factures sont traitées par lots, chacun dans sa propre transaction, afin de ne pas
+     * verrouiller l'ensemble des factures le temps du recalcul. Chaque lot verrouille ses factures avant
+     * de les retirer des agrégats : deux changements de prix concurrents ne retirent pas deux fois le même montant.
      *
-     * @param billId l'identifiant de la facture
-     * @param status le statut à appliquer sur la facture
-     */
-    @Transactional
-    protected void updateBill(String billId, BillStatus status, String[] types) {
-        Bill bill = billDao.findById(Long.valueOf(billId));
-        bill.setStatus(status);
-        billDao.update(bill);
-    }
-
-    /**
-     * Recalcule les factures en attentes
+     * @param treatment le nom du traitement dont le prix a changé
+     * @param price     le nouveau prix du traitement
      */
-    @Transactional
-    protected void recalculateAllPendingBills() {
-        for (String billId : getPendingBillsIds()) {
-            updateBill(billId, BillStatus.RECALC, new String[]{"CONSULTATION"});
-        }
+    protected void recalculateBillsWithTreatment(String treatment, double price) {
+        Long afterId = null;
+        List<Long> billIds;
+        do {
+            final Long lastId = afterId;
+            billIds = transactionTemplate.execute(status -> {
+                List<Long> chunk = billDao.findUnpaidBillIdsWithTreatment(treatment, lastId, RECALC_CHUNK_SIZE);
+                if (!chunk.isEmpty()) {
+                    revenueRollupService.withdrawBills(chunk);
+                    billDao.updateTreatmentPrice(chunk, treatment, price);
+                    billDao.recalculateTotals(chunk);
+                    revenueRollupService.recordBills(chunk);
+                }
+                return chunk;
+            });
+            if (billIds == null || billIds.isEmpty()) {
+                return;
+            }
+            afterId = billIds.getLast();
+        } while (billIds.size() == RECALC_CHUNK_SIZE);
     }
 
     /**
      * @param treatments les traitements facturables
-     * @return les éléments facturables par leurs noms
+     * @return les éléments facturables par leurs noms, chaque nom n'étant recherché qu'une fois
      */
     private List<Billable> findBillablesByName(@NonNull String[] treatments) {
-        return new ArrayList<>(Arrays.asList(treatments))
-                .stream()
-                .map(this::findBillableByName)
+        Map<String, Billable> billablesByName = new HashMap<>();
+        return Arrays.stream(treatments)
+                .map(treatment -> billablesByName.computeIfAbsent(treatment, this::findBillableByName))
                 .toList();
     }
 
@@ -232,14 +315,14 @@ public class BillingService {
      * @param billableName le nom de l'élément facturable
      * @return le nom de l'élément facturable
      */
-    private Billable findBillableByName(@NonNull String billableName) {
+    protected Billable findBillableByName(@NonNull String billableName) {
         boolean isPrescription = billableName.startsWith(Prescription.BILLABLE_PREFIX);
 
         if (isPrescription) {
             String prescriptionNumber = billableName.replace(Prescription.BILLABLE_PREFIX, "");
             return prescriptionDao.findByPrescriptionNumber(prescriptionNumber);
         } else {
-            return medicalActDao.findByName(billableName);
+            return medicalActCatalog.findByName(billableName);
         }
     }
 
@@ -249,12 +332,12 @@ public class BillingService {
      * @param bill       la facture
      * @param patientId  l'identifiant du patient
      * @param doctorId   l'identifiant du docteur
-     * @param treatments les traitements sur la facture
+     * @param items      les éléments facturés, déjà résolus
      */
-    private String buildBillFileContents(@NonNull Bill bill,
-                                         @NonNull Long patientId,
-                                         @NonNull Long doctorId,
-                                         @NonNull String[] treatments) {
+    protected String buildBillFileContents(@NonNull Bill bill,
+                                           @NonNull Long patientId,
+                                           @NonNull Long doctorId,
+                                           @NonNull List<Billable> items) {
         if (bill.getBillNumber() == null) {
             throw new IllegalStateException("Bill number is null");
         }
@@ -267,10 +350,10 @@ public class BillingService {
 
 
         StringBuilder billDetailsBuilder = new StringBuilder(billDetails);
-        for (String treatment : treatments) {
-            double price = medicalActDao.findPriceByName(treatment);
+        for (Billable item : items) {
+            double price = item.getBillableAmount();
             total += price;
-            billDetailsBuilder.append(treatment).append(": $").append(price).append("\n");
+            billDetailsBuilder.append(item.getBillableName()).append(": $").append(price).append("\n");
         }
         billDetails = billDetailsBuilder.toString();
 
@@ -0,0 +1,248 @@
+package sae.semestre.six.domain.billing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.billing.revenue.RevenueRollupService;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.prescription.Prescription;
+import sae.semestre.six.domain.prescription.PrescriptionBillingBacklog;
+import sae.semestre.six.domain.prescription.PrescriptionBillingMode;
+import sae.semestre.six.domain.prescription.PrescriptionDao;
+import sae.semestre.six.mail.EmailService;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Facture en arrière-plan les prescriptions créées en mode {@link PrescriptionBillingMode#ASYNC}.
+ * La scrutation ne fait rien dans les autres modes.
+ * <p>
+ * Les prescriptions à facturer sont réservées par lots ({@code SELECT ... FOR UPDATE SKIP LOCKED}) ; les hash
+ * du lot sont calculés en parallèle sur le {@link BillingHashExecutor}, puis les factures sont sauvegardées et
+ * les prescriptions marquées comme facturées ({@code is_billed}) dans la transaction de la réservation : une
+ * prescription n'est donc jamais facturée deux fois, même avec plusieurs instances. Les fichiers des factures
+ * sont écrits après la validation et un unique email récapitulatif est envoyé par lot.
+ * <p>
+ * Une prescription qui ne peut pas être facturée (patient absent, etc.) est écartée avec la raison de l'échec.
+ * Tant que le docteur {@value #SYSTEM_DOCTOR_NUMBER} n'existe pas, les prescriptions restent en attente.
+ */
+@Component
+public class PrescriptionBillingDispatcher {
+
+    /**
+     * Numéro du docteur auquel sont rattachées les factures des prescriptions
+     */
+    public static final String SYSTEM_DOCTOR_NUMBER = "SYSTEM";
+
+    /**
+     * Retard de la facturation des prescriptions
+     *
+     * @param pending             le nombre de prescriptions à facturer
+     * @param failed              le nombre de prescriptions écartées car leur facturation a échoué
+     * @param oldestRequestedDate la date de demande de la plus ancienne prescription à facturer
+     * @param lagSeconds          l'ancienneté de cette demande, 0 si aucune prescription n'est à facturer
+     * @param billed              le nombre de prescriptions facturées par cette instance depuis son démarrage
+     * @param lastBatchDate       la date du dernier lot traité par cette instance
+     */
+    public record PrescriptionBillingLag(long pending, long failed, Date oldestRequestedDate, long lagSeconds,
+                                         long billed, Date lastBatchDate) {
+    }
+
+    /**
+     * Une facture de prescription prête à être sauvegardée
+     */
+    private record PreparedBill(Prescription prescription, Bill bill, String contents) {
+    }
+
+    private final BillingService billingService;
+    private final BillingSecurityService billingSecurityService;
+    private final PrescriptionDao prescriptionDao;
+    private final DoctorDao doctorDao;
+    private final BillDao billDao;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final RevenueRollupService revenueRollupService;
+    private final int batchSize;
+    private final PrescriptionBillingMode billingMode;
+
+    private final AtomicLong billed = new AtomicLong();
+    private final AtomicReference<Date> lastBatchDate = new AtomicReference<>();
+
+    public PrescriptionBillingDispatcher(BillingService billingService,
+                                         BillingSecurityService billingSecurityService,
+                                         PrescriptionDao prescriptionDao,
+                                         DoctorDao doctorDao,
+                                         BillDao billDao,
+                                         EmailService emailService,
+                                         TransactionTemplate transactionTemplate,
+                                         RevenueRollupService revenueRollupService,
+                                         @Value("${sae.semestre.six.prescription.billing.batch-size:50}") int batchSize,
+                                         @Value("${sae.semestre.six.prescription.billing.mode:SYNC}") PrescriptionBillingMode billingMode) {
+        this.billingService = billingService;
+        this.billingSecurityService = billingSecurityService;
+        this.prescriptionDao = prescriptionDao;
+        this.doctorDao = doctorDao;
+        this.billDao = billDao;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.revenueRollupService = revenueRollupService;
+        this.batchSize = batchSize;
+        this.billingMode = billingMode;
+    }
+
+    /**
+     * Facture les prescriptions en attente, lot par lot, tant qu'il en reste.
+     * Ne fait rien hors du mode {@link PrescriptionBillingMode#ASYNC}, où aucune prescription n'est mise en attente.
+     */
+    @Scheduled(fixedDelayString = "${sae.semestre.six.prescription.billing.poll-interval-ms:2000}")
+    public void billPending() {
+        if (billingMode != PrescriptionBillingMode.ASYNC) {
+            return;
+        }
+        while (billBatch() == batchSize) {
+            // Lot complet : d'autres prescriptions attendent peut-être
+        }
+    }
+
+    /**
+     * Facture un lot de prescriptions
+     *
+     * @return le nombre de prescriptions traitées (facturées ou écartées)
+     */
+    public int billBatch() {
+        List<PreparedBill> saved = new ArrayList<>();
+        Integer processed = transactionTemplate.execute(status -> {
+            List<Prescription> batch = prescriptionDao.claimUnbilled(batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            Optional<Doctor> systemDoctor = doctorDao.findByDoctorNumber(SYSTEM_DOCTOR_NUMBER);
+            if (systemDoctor.isEmpty()) {
+                return 0;
+            }
+
+            List<PreparedBill> prepared = new ArrayList<>();
+            for (Prescription prescription : batch) {
+                try {
+                    prepared.add(prepare(prescription, systemDoctor.get()));
+                } catch (RuntimeException e) {
+                    reject(prescription, e);
+                }
+            }
+            for (PreparedBill bill : hash(prepared)) {
+                billDao.save(bill.bill());
+                revenueRollupService.recordNewBill(bill.bill());
+                bill.prescription().setIsBilled(true);
+                bill.prescription().setLastModified(new Date());
+                saved.add(bill);
+            }
+            return batch.size();
+        });
+        if (processed == null || processed == 0) {
+            return 0;
+        }
+
+        saved.forEach(this::writeFile);
+        sendEmailForNewBills(saved);
+        billed.addAndGet(saved.size());
+        lastBatchDate.set(new Date());
+        return processed;
+    }
+
+    /**
+     * @return le nombre de prescriptions en attente de facturation et l'ancienneté de la plus ancienne
+     */
+    public PrescriptionBillingLag getLag() {
+        PrescriptionBillingBacklog backlog = prescriptionDao.findBillingBacklog();
+        Date oldest = backlog.oldestRequestedDate();
+        long lagSeconds = oldest == null ? 0
+                : Math.max(0, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - oldest.getTime()));
+        return new PrescriptionBillingLag(backlog.pending(), backlog.failed(), oldest, lagSeconds,
+                billed.get(), lastBatchDate.get());
+    }
+
+    /**
+     * Prépare la facture d'une prescription
+     */
+    private PreparedBill prepare(Prescription prescription, Doctor doctor) {
+        if (prescription.getPatient() == null) {
+            throw new IllegalArgumentException("Patient not found for prescription " + prescription.getPrescriptionNumber());
+        }
+        List<Billable> items = List.of(prescription);
+        Bill bill = billingService.initBill(prescription.getPatient(), doctor, items);
+        String contents = billingService.buildBillFileContents(bill, prescription.getPatient().getId(), doctor.getId(), items);
+        return new PreparedBill(prescription, bill, contents);
+    }
+
+    /**
+     * Calcule en parallèle les hash des fichiers des factures ; une prescription dont le hash
+     * n'a pas pu être calculé est écartée
+     *
+     * @return les factures dont le hash a été calculé
+     */
+    private List<PreparedBill> hash(List<PreparedBill> prepared) {
+        List<CompletableFuture<Boolean>> hashes = prepared.stream()
+                .map(bill -> billingSecurityService.generateAsyncWhenAvailable(bill.contents())
+                        .thenApply(generated -> {
+                            billingService.applyHash(bill.bill(), generated);
+                            return true;
+                        })
+                        .exceptionally(e -> false))
+                .toList();
+        List<PreparedBill> hashed = new ArrayList<>();
+        for (int index = 0; index < prepared.size(); index++) {
+            if (hashes.get(index).join()) {
+                hashed.add(prepared.get(index));
+            } else {
+                reject(prepared.get(index).prescription(), new IllegalStateException("Cannot hash the bill file"));
+            }
+        }
+        return hashed;
+    }
+
+    /**
+     * Écarte une prescription de la facturation automatique
+     */
+    private void reject(Prescription prescription, RuntimeException e) {
+        String error = String.valueOf(e.getMessage());
+        prescription.setBillingError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        prescription.setLastModified(new Date());
+    }
+
+    /**
+     * Écrit le fichier d'une facture sauvegardée ; la facture reste valide si l'écriture échoue
+     */
+    private void writeFile(PreparedBill prepared) {
+        try {
+            billingService.writeBillFile(prepared.bill(), prepared.contents());
+        } catch (RuntimeException e) {
+            System.err.println("Bill " + prepared.bill().getBillNumber() + " saved but its file could not be written: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Envoie un unique email à l'administrateur récapitulant les factures générées
+     */
+    private void sendEmailForNewBills(List<PreparedBill> saved) {
+        if (saved.isEmpty()) {
+            return;
+        }
+        StringBuilder emailContent = new StringBuilder();
+        for (PreparedBill bill : saved) {
+            emailContent.append("Bill Number: ").append(bill.bill().getBillNumber())
+                    .append(" - Total: $").append(bill.bill().getTotalAmount())
+                    .append("\n");
+        }
+        emailService.sendEmail(
+                EmailService.EMAIL_SOURCE.ADMIN.getEmail(),
+                saved.size() + " New Bills Generated",
+                emailContent.toString()
+        );
+    }
+}
@@ -0,0 +1,162 @@
+package sae.semestre.six.domain.billing.insurance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client HTTP de ms-assurance (recherches du {@code RemboursementRepository} exposées par Spring Data REST).
+ * <p>
+ * Les appels sont non bloquants : ils renvoient un {@link CompletableFuture} complété par le client HTTP,
+ * sans occuper de thread pendant l'attente de la réponse. Les connexions vers ms-assurance sont conservées
+ * et réutilisées d'un appel à l'autre. Un délai maximal est appliqué à l'établissement de la connexion
+ * et à chaque requête.
+ */
+@Component
+public class InsuranceClient {
+
+    private static final String SINGLE_SEARCH = "/remboursement/search/remboursementByNomProduitAndNomAssurance";
+    private static final String BATCH_SEARCH = "/remboursement/search/remboursementsByNomProduitsAndNomAssurances";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final int maxBatchRows;
+
+    private final LongAdder remoteCalls = new LongAdder();
+
+    public InsuranceClient(ObjectMapper objectMapper,
+                           @Value("${sae.semestre.six.insurance.url:http://localhost:8888}") String baseUrl,
+                           @Value("${sae.semestre.six.insurance.connect-timeout-ms:1000}") long connectTimeoutMs,
+                           @Value("${sae.semestre.six.insurance.request-timeout-ms:2000}") long requestTimeoutMs,
+                           @Value("${sae.semestre.six.insurance.max-batch-rows:1000}") int maxBatchRows) {
+        if (maxBatchRows <= 0) {
+            throw new IllegalArgumentException("Insurance batch size must be positive");
+        }
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.maxBatchRows = maxBatchRows;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    /**
+     * @param product le nom du produit
+     * @param insurer le nom de l'assurance
+     * @return le taux de remboursement, vide si l'assurance ne rembourse pas ce produit
+     */
+    public CompletableFuture<Optional<InsuranceRate>> fetchRate(String product, String insurer) {
+        String query = "nomProduit=" + encode(product) + "&nomAssurance=" + encode(insurer) + "&size=1";
+        return get(SINGLE_SEARCH, query)
+                .thenApply(rates -> rates.stream().findFirst());
+    }
+
+    /**
+     * Recherche les taux de remboursement de plusieurs produits auprès de plusieurs assurances,
+     * en un seul appel tant que le nombre de combinaisons ne dépasse pas
+     * {@code sae.semestre.six.insurance.max-batch-rows}
+     *
+     * @param products les noms des produits
+     * @param insurers les noms des assurances
+     * @return les taux trouvés ; les combinaisons non remboursées sont absentes
+     */
+    public CompletableFuture<List<InsuranceRate>> fetchRates(Collection<String> products, Collection<String> insurers) {
+        List<String> productList = List.copyOf(new LinkedHashSet<>(products));
+        List<String> insurerList = List.copyOf(new LinkedHashSet<>(insurers));
+        if (productList.isEmpty() || insurerList.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        // Découpe en appels dont le nombre de lignes tient dans une page
+        int insurersPerCall = Math.min(insurerList.size(), maxBatchRows);
+        int productsPerCall = Math.max(1, maxBatchRows / insurersPerCall);
+        List<CompletableFuture<List<InsuranceRate>>> calls = new ArrayList<>();
+        for (int i = 0; i < insurerList.size(); i += insurersPerCall) {
+            List<String> insurerChunk = insurerList.subList(i, Math.min(i + insurersPerCall, insurerList.size()));
+            for (int p = 0; p < productList.size(); p += productsPerCall) {
+                List<String> productChunk = productList.subList(p, Math.min(p + productsPerCall, productList.size()));
+                calls.add(get(BATCH_SEARCH, batchQuery(productChunk, insurerChunk)));
+            }
+        }
+
+        return CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new))
+                .thenApply(done -> calls.stream()
+                        .flatMap(call -> call.join().stream())
+                        .toList());
+    }
+
+    /**
+     * @return le nombre d'appels effectués vers ms-assurance
+     */
+    public long getRemoteCalls() {
+        return remoteCalls.sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        httpClient.close();
+    }
+
+    private String batchQuery(List<String> products, List<String> insurers) {
+        StringJoiner query = new StringJoiner("&");
+        products.forEach(product -> query.add("nomProduits=" + encode(product)));
+        insurers.forEach(insurer -> query.add("nomAssurances=" + encode(insurer)));
+        query.add("size=" + products.size() * insurers.size());
+        return query.toString();
+    }
+
+    private CompletableFuture<List<InsuranceRate>> get(String path, String query) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path + "?" + query))
+                .timeout(requestTimeout)
+                .header("Accept", "application/hal+json, application/json")
+                .GET()
+                .build();
+        remoteCalls.increment();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(this::parseRates);
+    }
+
+    private List<InsuranceRate> parseRates(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("ms-assurance answered HTTP " + response.statusCode());
+        }
+        try {
+            JsonNode remboursements = objectMapper.readTree(response.body())
+                    .path("_embedded")
+                    .path("remboursements");
+            List<InsuranceRate> rates = new ArrayList<>();
+            for (JsonNode remboursement : remboursements) {
+                rates.add(new InsuranceRate(
+                        remboursement.path("nomProduit").asText(),
+                        remboursement.path("nomAssurance").asText(),
+                        remboursement.path("tauxRemboursement").asDouble()));
+            }
+            return rates;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid response from ms-assurance", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,22 @@
+package sae.semestre.six.domain.billing.insurance;
+
+/**
+ * Remboursement calculé pour un montant
+ *
+ * @param product  le nom du produit facturé
+ * @param insurer  le nom de l'assurance
+ * @param amount   le montant facturé
+ * @param covered  false si l'assurance ne rembourse pas ce produit
+ * @param rate     le taux de remboursement appliqué, en pourcentage
+ * @param coverage le montant remboursé
+ */
+public record InsuranceQuote(String product, String insurer, double amount, boolean covered, double rate, double coverage) {
+
+    static InsuranceQuote of(InsuranceQuoteRequest request, InsuranceRate rate) {
+        if (rate == null) {
+            return new InsuranceQuote(request.product(), request.insurer(), request.amount(), false, 0, 0);
+        }
+        return new InsuranceQuote(request.product(), request.insurer(), request.amount(), true,
+                rate.rate(), request.amount() * (rate.rate() / 100));
+    }
+}
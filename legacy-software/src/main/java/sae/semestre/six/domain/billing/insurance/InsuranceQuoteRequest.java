@@ -0,0 +1,11 @@
+package sae.semestre.six.domain.billing.insurance;
+
+/**
+ * Demande de calcul du remboursement d'un montant
+ *
+ * @param product le nom du produit facturé
+ * @param insurer le nom de l'assurance
+ * @param amount  le montant facturé
+ */
+public record InsuranceQuoteRequest(String product, String insurer, double amount) {
+}
@@ -0,0 +1,11 @@
+package sae.semestre.six.domain.billing.insurance;
+
+/**
+ * Taux de remboursement d'un produit par une assurance, tel que fourni par ms-assurance
+ *
+ * @param product le nom du produit (acte médical, hospitalisation, ...)
+ * @param insurer le nom de l'assurance
+ * @param rate    le taux de remboursement, en pourcentage
+ */
+public record InsuranceRate(String product, String insurer, double rate) {
+}
@@ -0,0 +1,212 @@
+package sae.semestre.six.domain.billing.insurance;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sae.semestre.six.exception.ServiceBusyException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service en charge du calcul des remboursements par les assurances.
+ * <p>
+ * Les taux de remboursement (par produit et assurance) proviennent de ms-assurance et sont conservés
+ * en mémoire pendant {@code sae.semestre.six.insurance.cache.ttl-seconds}, y compris l'absence de
+ * remboursement, dans la limite de {@code sae.semestre.six.insurance.cache.max-entries} taux : au-delà,
+ * le taux le moins récemment utilisé est retiré. Les demandes simultanées d'un même taux partagent un seul
+ * appel à ms-assurance, et les taux manquants d'un lot de demandes sont recherchés en un seul appel.
+ * <p>
+ * Si ms-assurance ne répond pas, le calcul échoue avec une {@link ServiceBusyException} (HTTP 503 + Retry-After).
+ */
+@Service
+public class InsuranceService {
+
+    /**
+     * Statistiques du cache des taux de remboursement
+     *
+     * @param size        le nombre de taux en mémoire
+     * @param hits        le nombre de taux trouvés en mémoire
+     * @param misses      le nombre de taux recherchés auprès de ms-assurance
+     * @param remoteCalls le nombre d'appels effectués vers ms-assurance
+     */
+    public record InsuranceRateCacheStats(int size, long hits, long misses, long remoteCalls) {
+    }
+
+    private record RateKey(String product, String insurer) {
+    }
+
+    /**
+     * Taux en mémoire, ou en cours de recherche
+     */
+    private record CachedRate(CompletableFuture<Optional<InsuranceRate>> rate, long expiresAtNanos) {
+        boolean isValid(long now) {
+            return now - expiresAtNanos < 0;
+        }
+    }
+
+    private final InsuranceClient insuranceClient;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long retryAfterSeconds;
+
+    private final Map<RateKey, CachedRate> rates;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public InsuranceService(InsuranceClient insuranceClient,
+                            @Value("${sae.semestre.six.insurance.cache.ttl-seconds:600}") long ttlSeconds,
+                            @Value("${sae.semestre.six.insurance.cache.max-entries:10000}") int maxEntries,
+                            @Value("${sae.semestre.six.insurance.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.insuranceClient = insuranceClient;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.retryAfterSeconds = retryAfterSeconds;
+        // Ordre d'accès : le premier taux est le moins récemment utilisé, retiré quand la limite est dépassée
+        this.rates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RateKey, CachedRate> eldest) {
+                return size() > InsuranceService.this.maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Calcule le remboursement d'un montant
+     *
+     * @param product le nom du produit facturé
+     * @param insurer le nom de l'assurance
+     * @param amount  le montant facturé
+     * @return le remboursement calculé
+     */
+    public CompletableFuture<InsuranceQuote> quote(String product, String insurer, double amount) {
+        InsuranceQuoteRequest request = new InsuranceQuoteRequest(product, insurer, amount);
+        RateKey key = new RateKey(product, insurer);
+        long now = System.nanoTime();
+
+        CachedRate cached = rates.get(key);
+        if (cached != null && cached.isValid(now)) {
+            hits.increment();
+            return toQuote(request, cached.rate());
+        }
+
+        CachedRate entry = new CachedRate(new CompletableFuture<>(), now + ttlNanos);
+        CachedRate current = register(key, entry, now);
+        if (current == entry) {
+            misses.increment();
+            insuranceClient.fetchRate(product, insurer).whenComplete((rate, error) -> {
+                if (error != null) {
+                    fail(key, entry, error);
+                } else {
+                    entry.rate().complete(rate);
+                }
+            });
+        } else {
+            hits.increment();
+        }
+        return toQuote(request, current.rate());
+    }
+
+    /**
+     * Calcule le remboursement de plusieurs montants.
+     * Les taux absents de la mémoire sont recherchés en un seul appel à ms-assurance.
+     *
+     * @param requests les montants à rembourser
+     * @return les remboursements calculés, dans l'ordre des demandes
+     */
+    public CompletableFuture<List<InsuranceQuote>> quote(List<InsuranceQuoteRequest> requests) {
+        long now = System.nanoTime();
+        Map<RateKey, CachedRate> requested = new HashMap<>();
+        Map<RateKey, CachedRate> toFetch = new HashMap<>();
+
+        for (InsuranceQuoteRequest request : requests) {
+            RateKey key = new RateKey(request.product(), request.insurer());
+            if (requested.containsKey(key)) {
+                continue;
+            }
+            CachedRate cached = rates.get(key);
+            if (cached != null && cached.isValid(now)) {
+                hits.increment();
+                requested.put(key, cached);
+                continue;
+            }
+            CachedRate entry = new CachedRate(new CompletableFuture<>(), now + ttlNanos);
+            CachedRate current = register(key, entry, now);
+            if (current == entry) {
+                misses.increment();
+                toFetch.put(key, entry);
+            } else {
+                hits.increment();
+            }
+            requested.put(key, current);
+        }
+
+        if (!toFetch.isEmpty()) {
+            Set<String> products = new LinkedHashSet<>();
+            Set<String> insurers = new LinkedHashSet<>();
+            toFetch.keySet().forEach(key -> {
+                products.add(key.product());
+                insurers.add(key.insurer());
+            });
+            insuranceClient.fetchRates(products, insurers).whenComplete((found, error) -> {
+                if (error != null) {
+                    toFetch.forEach((key, entry) -> fail(key, entry, error));
+                    return;
+                }
+                Map<RateKey, InsuranceRate> foundByKey = new HashMap<>();
+                for (InsuranceRate rate : found) {
+                    foundByKey.put(new RateKey(rate.product(), rate.insurer()), rate);
+                }
+                toFetch.forEach((key, entry) -> entry.rate().complete(Optional.ofNullable(foundByKey.get(key))));
+            });
+        }
+
+        List<CompletableFuture<InsuranceQuote>> quotes = requests.stream()
+                .map(request -> toQuote(request, requested.get(new RateKey(request.product(), request.insurer())).rate()))
+                .toList();
+        return CompletableFuture.allOf(quotes.toArray(CompletableFuture[]::new))
+                .thenApply(done -> quotes.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Vide le cache des taux de remboursement
+     */
+    public void clearCache() {
+        rates.clear();
+    }
+
+    /**
+     * @return les statistiques du cache des taux de remboursement
+     */
+    public InsuranceRateCacheStats getStats() {
+        return new InsuranceRateCacheStats(rates.size(), hits.sum(), misses.sum(), insuranceClient.getRemoteCalls());
+    }
+
+    /**
+     * Enregistre un taux à rechercher, sauf si un taux encore valide (ou déjà en cours de recherche) existe
+     *
+     * @return l'entrée retenue pour ce taux
+     */
+    private CachedRate register(RateKey key, CachedRate entry, long now) {
+        return rates.compute(key, (k, current) -> current != null && current.isValid(now) ? current : entry);
+    }
+
+    /**
+     * Retire un taux dont la recherche a échoué, pour qu'il soit recherché à nouveau à la prochaine demande
+     */
+    private void fail(RateKey key, CachedRate entry, Throwable error) {
+        rates.remove(key, entry);
+        entry.rate().completeExceptionally(error);
+    }
+
+    private CompletableFuture<InsuranceQuote> toQuote(InsuranceQuoteRequest request,
+                                                      CompletableFuture<Optional<InsuranceRate>> rate) {
+        return rate.handle((found, error) -> {
+            if (error != null) {
+                throw new ServiceBusyException("Insurance service unavailable", retryAfterSeconds);
+            }
+            return InsuranceQuote.of(request, found.orElse(null));
+        });
+    }
+}
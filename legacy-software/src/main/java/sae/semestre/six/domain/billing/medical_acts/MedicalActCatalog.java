@@ -0,0 +1,147 @@
+package sae.semestre.six.domain.billing.medical_acts;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Catalogue en mémoire des actes médicaux et de leurs prix.
+ * <p>
+ * Il est chargé au démarrage de l'application puis tenu à jour lors des ajouts et des
+ * modifications de prix (écriture simultanée en base et dans le catalogue).
+ * Un acte absent du catalogue est recherché en base puis ajouté au catalogue.
+ */
+@Component
+@RequiredArgsConstructor
+public class MedicalActCatalog {
+
+    /**
+     * Statistiques d'utilisation du catalogue
+     *
+     * @param size   le nombre d'actes médicaux en mémoire
+     * @param hits   le nombre de recherches satisfaites par le catalogue
+     * @param misses le nombre de recherches ayant nécessité une requête en base
+     */
+    public record MedicalActCatalogStats(int size, long hits, long misses) {
+    }
+
+    private final MedicalActDao medicalActDao;
+
+    private final Map<String, MedicalAct> actsByName = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean loaded = false;
+
+    /**
+     * Charge l'ensemble des actes médicaux en mémoire
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        Map<String, MedicalAct> acts = medicalActDao.findAll()
+                .stream()
+                .collect(Collectors.toMap(MedicalAct::getName, act -> act, (first, second) -> second));
+        actsByName.clear();
+        actsByName.putAll(acts);
+        loaded = true;
+    }
+
+    /**
+     * @param name le nom de l'acte médical
+     * @return l'acte médical correspondant
+     * @throws jakarta.persistence.NoResultException si l'acte médical n'existe pas
+     */
+    public MedicalAct findByName(String name) {
+        MedicalAct act = actsByName.get(name);
+        if (act != null) {
+            hits.increment();
+            return act;
+        }
+        misses.increment();
+        act = medicalActDao.findByName(name);
+        if (act != null) {
+            actsByName.put(name, act);
+        }
+        return act;
+    }
+
+    /**
+     * Recherche plusieurs actes médicaux ; les actes absents du catalogue sont recherchés en base
+     * en une seule requête
+     *
+     * @param names les noms des actes médicaux
+     * @return les actes médicaux trouvés, par nom
+     */
+    public Map<String, MedicalAct> findAllByName(Collection<String> names) {
+        Map<String, MedicalAct> found = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String name : names) {
+            MedicalAct act = actsByName.get(name);
+            if (act != null) {
+                hits.increment();
+                found.put(name, act);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            for (MedicalAct act : medicalActDao.findByNames(missing)) {
+                actsByName.put(act.getName(), act);
+                found.put(act.getName(), act);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return les actes médicaux et leurs prix
+     */
+    public Map<String, Double> getPriceList() {
+        if (!loaded) {
+            misses.increment();
+            reload();
+        } else {
+            hits.increment();
+        }
+        return actsByName.values()
+                .stream()
+                .collect(Collectors.toMap(MedicalAct::getName, MedicalAct::getPrice));
+    }
+
+    /**
+     * Ajoute ou remplace un acte médical dans le catalogue
+     *
+     * @param medicalAct l'acte médical enregistré en base
+     */
+    public void put(MedicalAct medicalAct) {
+        actsByName.put(medicalAct.getName(), medicalAct);
+    }
+
+    /**
+     * Met à jour le prix d'un acte médical dans le catalogue.
+     * Si l'acte n'est pas en mémoire, il sera chargé depuis la base lors de sa prochaine recherche.
+     *
+     * @param name  le nom de l'acte médical
+     * @param price le nouveau prix
+     */
+    public void updatePrice(String name, double price) {
+        actsByName.computeIfPresent(name, (key, act) -> MedicalAct.builder()
+                .id(act.getId())
+                .name(act.getName())
+                .price(price)
+                .build());
+    }
+
+    /**
+     * @return les statistiques d'utilisation du catalogue
+     */
+    public MedicalActCatalogStats getStats() {
+        return new MedicalActCatalogStats(actsByName.size(), hits.sum(), misses.sum());
+    }
+}
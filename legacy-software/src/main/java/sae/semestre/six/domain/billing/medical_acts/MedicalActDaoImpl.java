@@ -4,6 +4,9 @@ import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Repository;
 import sae.semestre.six.dao.AbstractHibernateDao;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public class MedicalActDaoImpl extends AbstractHibernateDao<MedicalAct, Long> implements MedicalActDao {
     @Override
@@ -22,6 +25,17 @@ public class MedicalActDaoImpl extends AbstractHibernateDao<MedicalAct, Long> im
                 .getSingleResult();
     }
 
+    @Override
+    public List<MedicalAct> findByNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return List.of();
+        }
+        return getEntityManager()
+                .createQuery("FROM MedicalAct WHERE name IN (:names)", MedicalAct.class)
+                .setParameter("names", names)
+                .getResultList();
+    }
+
     @Override
     public double findPriceByName(String name) {
         return findByName(name).getPrice();
@@ -0,0 +1,41 @@
+package sae.semestre.six.domain.billing.revenue;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import sae.semestre.six.domain.billing.BillStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Montant facturé agrégé par jour de facturation, élément facturé (acte médical ou prescription)
+ * et statut de facture. Les montants sont ceux des lignes de facture, avant la réduction
+ * appliquée au total de la facture.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "act_revenue_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_act_revenue_rollup", columnNames = {"revenue_day", "treatment_name", "status"})
+})
+public class ActRevenueRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "revenue_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "treatment_name", nullable = false)
+    private String treatmentName;
+
+    @Column(name = "status", nullable = false)
+    private BillStatus status;
+
+    @Column(name = "line_count", nullable = false)
+    private long lineCount;
+
+    @Column(name = "total_amount", nullable = false)
+    private double totalAmount;
+}
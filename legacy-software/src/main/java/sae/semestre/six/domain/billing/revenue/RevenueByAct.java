@@ -0,0 +1,11 @@
+package sae.semestre.six.domain.billing.revenue;
+
+/**
+ * Montant facturé pour un acte médical ou une prescription
+ *
+ * @param treatmentName le nom de l'élément facturé
+ * @param lineCount     le nombre de lignes de facture
+ * @param totalAmount   le montant total des lignes, avant réduction
+ */
+public record RevenueByAct(String treatmentName, Long lineCount, Double totalAmount) {
+}
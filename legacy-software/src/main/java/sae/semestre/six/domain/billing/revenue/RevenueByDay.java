@@ -0,0 +1,13 @@
+package sae.semestre.six.domain.billing.revenue;
+
+import java.time.LocalDate;
+
+/**
+ * Chiffre d'affaires d'une journée
+ *
+ * @param day         le jour de facturation
+ * @param billCount   le nombre de factures
+ * @param totalAmount le montant total des factures
+ */
+public record RevenueByDay(LocalDate day, Long billCount, Double totalAmount) {
+}
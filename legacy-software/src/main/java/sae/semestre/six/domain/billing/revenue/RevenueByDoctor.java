@@ -0,0 +1,11 @@
+package sae.semestre.six.domain.billing.revenue;
+
+/**
+ * Chiffre d'affaires d'un docteur
+ *
+ * @param doctorId    l'identifiant du docteur
+ * @param billCount   le nombre de factures
+ * @param totalAmount le montant total des factures
+ */
+public record RevenueByDoctor(Long doctorId, Long billCount, Double totalAmount) {
+}
@@ -0,0 +1,45 @@
+package sae.semestre.six.domain.billing.revenue;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import sae.semestre.six.domain.billing.BillStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Chiffre d'affaires agrégé par jour de facturation, docteur et statut de facture.
+ * <p>
+ * Tenu à jour par le {@link RevenueRollupService} dans la même transaction que la création
+ * ou la modification des factures.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "revenue_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_revenue_rollup", columnNames = {"revenue_day", "doctor_id", "status"})
+})
+public class RevenueRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "revenue_day", nullable = false)
+    private LocalDate day;
+
+    /**
+     * Identifiant du docteur ({@link RevenueRollupService#NO_DOCTOR} pour une facture sans docteur)
+     */
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "status", nullable = false)
+    private BillStatus status;
+
+    @Column(name = "bill_count", nullable = false)
+    private long billCount;
+
+    @Column(name = "total_amount", nullable = false)
+    private double totalAmount;
+}
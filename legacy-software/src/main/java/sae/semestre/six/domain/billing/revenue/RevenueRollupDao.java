@@ -0,0 +1,81 @@
+package sae.semestre.six.domain.billing.revenue;
+
+import sae.semestre.six.dao.GenericDao;
+import sae.semestre.six.domain.billing.BillStatus;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface RevenueRollupDao extends GenericDao<RevenueRollup, Long> {
+
+    /**
+     * Agrégat des factures pour une clé (jour, docteur, statut)
+     */
+    record BillAggregate(LocalDate day, Long doctorId, BillStatus status, Long billCount, Double totalAmount) {
+    }
+
+    /**
+     * Agrégat des lignes de facture pour une clé (jour, élément facturé, statut)
+     */
+    record BillLineAggregate(LocalDate day, String treatmentName, BillStatus status, Long lineCount, Double totalAmount) {
+    }
+
+    /**
+     * Ajoute (ou retranche, avec des valeurs négatives) des montants à l'agrégat d'une clé, en le créant si besoin
+     */
+    void addToRollup(LocalDate day, Long doctorId, BillStatus status, long billCount, double totalAmount);
+
+    /**
+     * Ajoute (ou retranche, avec des valeurs négatives) des montants à l'agrégat par acte d'une clé, en le créant si besoin
+     */
+    void addToActRollup(LocalDate day, String treatmentName, BillStatus status, long lineCount, double totalAmount);
+
+    /**
+     * Agrège les factures depuis la table des factures
+     * @param billIds les identifiants des factures, ou null pour toutes les factures
+     * @return les agrégats par (jour, docteur, statut)
+     */
+    List<BillAggregate> aggregateBills(Collection<Long> billIds);
+
+    /**
+     * Agrège les lignes de facture depuis la table des lignes de facture
+     * @param billIds les identifiants des factures, ou null pour toutes les factures
+     * @return les agrégats par (jour, élément facturé, statut)
+     */
+    List<BillLineAggregate> aggregateBillLines(Collection<Long> billIds);
+
+    /**
+     * Vide les tables d'agrégats
+     */
+    void deleteAllRollups();
+
+    /**
+     * @param from   le premier jour (inclus), ou null
+     * @param to     le dernier jour (inclus), ou null
+     * @param status le statut des factures, ou null pour tous les statuts
+     * @return le chiffre d'affaires par jour, trié par jour
+     */
+    List<RevenueByDay> findRevenueByDay(LocalDate from, LocalDate to, BillStatus status);
+
+    /**
+     * @param from   le premier jour (inclus), ou null
+     * @param to     le dernier jour (inclus), ou null
+     * @param status le statut des factures, ou null pour tous les statuts
+     * @return le chiffre d'affaires par docteur, du plus élevé au plus faible
+     */
+    List<RevenueByDoctor> findRevenueByDoctor(LocalDate from, LocalDate to, BillStatus status);
+
+    /**
+     * @param from   le premier jour (inclus), ou null
+     * @param to     le dernier jour (inclus), ou null
+     * @param status le statut des factures, ou null pour tous les statuts
+     * @return le montant facturé par élément facturé, du plus élevé au plus faible
+     */
+    List<RevenueByAct> findRevenueByAct(LocalDate from, LocalDate to, BillStatus status);
+
+    /**
+     * @return le montant total de toutes les factures
+     */
+    double getTotalAmount();
+}
@@ -0,0 +1,139 @@
+package sae.semestre.six.domain.billing.revenue;
+
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+import sae.semestre.six.dao.AbstractHibernateDao;
+import sae.semestre.six.domain.billing.BillStatus;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class RevenueRollupDaoImpl extends AbstractHibernateDao<RevenueRollup, Long> implements RevenueRollupDao {
+
+    @Override
+    public void addToRollup(LocalDate day, Long doctorId, BillStatus status, long billCount, double totalAmount) {
+        // Mise à jour atomique : deux transactions concurrentes sur la même clé ne perdent aucune mise à jour
+        getEntityManager()
+                .createNativeQuery("INSERT INTO revenue_rollup (revenue_day, doctor_id, status, bill_count, total_amount) "
+                        + "VALUES (:day, :doctorId, :status, :billCount, :totalAmount) "
+                        + "ON DUPLICATE KEY UPDATE bill_count = bill_count + VALUES(bill_count), "
+                        + "total_amount = total_amount + VALUES(total_amount)")
+                .setParameter("day", day)
+                .setParameter("doctorId", doctorId)
+                .setParameter("status", status.getCode())
+                .setParameter("billCount", billCount)
+                .setParameter("totalAmount", totalAmount)
+                .executeUpdate();
+    }
+
+    @Override
+    public void addToActRollup(LocalDate day, String treatmentName, BillStatus status, long lineCount, double totalAmount) {
+        getEntityManager()
+                .createNativeQuery("INSERT INTO act_revenue_rollup (revenue_day, treatment_name, status, line_count, total_amount) "
+                        + "VALUES (:day, :treatmentName, :status, :lineCount, :totalAmount) "
+                        + "ON DUPLICATE KEY UPDATE line_count = line_count + VALUES(line_count), "
+                        + "total_amount = total_amount + VALUES(total_amount)")
+                .setParameter("day", day)
+                .setParameter("treatmentName", treatmentName)
+                .setParameter("status", status.getCode())
+                .setParameter("lineCount", lineCount)
+                .setParameter("totalAmount", totalAmount)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<BillAggregate> aggregateBills(Collection<Long> billIds) {
+        TypedQuery<BillAggregate> query = getEntityManager()
+                .createQuery("SELECT new sae.semestre.six.domain.billing.revenue.RevenueRollupDao$BillAggregate("
+                        + "CAST(b.billDate AS LocalDate), COALESCE(d.id, " + RevenueRollupService.NO_DOCTOR + "), "
+                        + "b.status, COUNT(b), SUM(b.totalAmount)) "
+                        + "FROM Bill b LEFT JOIN b.doctor d "
+                        + (billIds == null ? "" : "WHERE b.id IN (:billIds) ")
+                        + "GROUP BY CAST(b.billDate AS LocalDate), COALESCE(d.id, " + RevenueRollupService.NO_DOCTOR + "), b.status",
+                        BillAggregate.class);
+        if (billIds != null) {
+            query.setParameter("billIds", billIds);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<BillLineAggregate> aggregateBillLines(Collection<Long> billIds) {
+        TypedQuery<BillLineAggregate> query = getEntityManager()
+                .createQuery("SELECT new sae.semestre.six.domain.billing.revenue.RevenueRollupDao$BillLineAggregate("
+                        + "CAST(b.billDate AS LocalDate), l.treatmentName, b.status, COUNT(l), SUM(l.lineTotal)) "
+                        + "FROM BillDetail l JOIN l.bill b "
+                        + (billIds == null ? "" : "WHERE b.id IN (:billIds) ")
+                        + "GROUP BY CAST(b.billDate AS LocalDate), l.treatmentName, b.status",
+                        BillLineAggregate.class);
+        if (billIds != null) {
+            query.setParameter("billIds", billIds);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public void deleteAllRollups() {
+        getEntityManager().createQuery("DELETE FROM RevenueRollup").executeUpdate();
+        getEntityManager().createQuery("DELETE FROM ActRevenueRollup").executeUpdate();
+    }
+
+    @Override
+    public List<RevenueByDay> findRevenueByDay(LocalDate from, LocalDate to, BillStatus status) {
+        return filtered("SELECT new sae.semestre.six.domain.billing.revenue.RevenueByDay(r.day, SUM(r.billCount), SUM(r.totalAmount)) "
+                        + "FROM RevenueRollup r", from, to, status,
+                " GROUP BY r.day ORDER BY r.day", RevenueByDay.class);
+    }
+
+    @Override
+    public List<RevenueByDoctor> findRevenueByDoctor(LocalDate from, LocalDate to, BillStatus status) {
+        return filtered("SELECT new sae.semestre.six.domain.billing.revenue.RevenueByDoctor(r.doctorId, SUM(r.billCount), SUM(r.totalAmount)) "
+                        + "FROM RevenueRollup r", from, to, status,
+                " GROUP BY r.doctorId ORDER BY SUM(r.totalAmount) DESC", RevenueByDoctor.class);
+    }
+
+    @Override
+    public List<RevenueByAct> findRevenueByAct(LocalDate from, LocalDate to, BillStatus status) {
+        return filtered("SELECT new sae.semestre.six.domain.billing.revenue.RevenueByAct(r.treatmentName, SUM(r.lineCount), SUM(r.totalAmount)) "
+                        + "FROM ActRevenueRollup r", from, to, status,
+                " GROUP BY r.treatmentName ORDER BY SUM(r.totalAmount) DESC", RevenueByAct.class);
+    }
+
+    @Override
+    public double getTotalAmount() {
+        return getEntityManager()
+                .createQuery("SELECT COALESCE(SUM(r.totalAmount), 0.0) FROM RevenueRollup r", Double.class)
+                .getSingleResult();
+    }
+
+    /**
+     * Exécute une requête d'agrégation sur une table d'agrégats avec les filtres optionnels de jour et de statut
+     */
+    private <T> List<T> filtered(String select, LocalDate from, LocalDate to, BillStatus status, String groupBy, Class<T> type) {
+        StringBuilder jpql = new StringBuilder(select).append(" WHERE 1 = 1");
+        if (from != null) {
+            jpql.append(" AND r.day >= :from");
+        }
+        if (to != null) {
+            jpql.append(" AND r.day <= :to");
+        }
+        if (status != null) {
+            jpql.append(" AND r.status = :status");
+        }
+        jpql.append(groupBy);
+
+        TypedQuery<T> query = getEntityManager().createQuery(jpql.toString(), type);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,176 @@
+package sae.semestre.six.domain.billing.revenue;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.billing.Bill;
+import sae.semestre.six.domain.billing.BillDao;
+import sae.semestre.six.domain.billing.BillDetail;
+import sae.semestre.six.domain.billing.BillStatus;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service en charge du chiffre d'affaires agrégé.
+ * <p>
+ * Les agrégats (par jour, docteur et statut, et par jour, élément facturé et statut) sont tenus à jour
+ * de façon incrémentale, dans la transaction qui crée ou modifie les factures : les méthodes de mise à jour
+ * exigent donc une transaction en cours. Toute modification du statut ou du montant de factures doit être
+ * encadrée par {@link #withdrawBills(Collection)} (avant) et {@link #recordBills(Collection)} (après).
+ * <p>
+ * Les consultations ne lisent que les agrégats, jamais la table des factures.
+ */
+@Service
+@RequiredArgsConstructor
+public class RevenueRollupService {
+
+    /**
+     * Identifiant utilisé dans les agrégats pour les factures sans docteur
+     */
+    public static final long NO_DOCTOR = 0L;
+
+    private final RevenueRollupDao revenueRollupDao;
+    private final BillDao billDao;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Ajoute une nouvelle facture aux agrégats, sans relire la base
+     *
+     * @param bill la facture qui vient d'être créée
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordNewBill(Bill bill) {
+        LocalDate day = toDay(bill);
+        Long doctorId = bill.getDoctor() == null || bill.getDoctor().getId() == null ? NO_DOCTOR : bill.getDoctor().getId();
+        revenueRollupDao.addToRollup(day, doctorId, bill.getStatus(), 1, bill.getTotalAmount());
+
+        Map<String, double[]> lines = new HashMap<>();
+        for (BillDetail detail : bill.getBillDetails()) {
+            double[] line = lines.computeIfAbsent(detail.getTreatmentName(), name -> new double[2]);
+            line[0]++;
+            line[1] += detail.getLineTotal();
+        }
+        lines.forEach((treatmentName, line) ->
+                revenueRollupDao.addToActRollup(day, treatmentName, bill.getStatus(), (long) line[0], line[1]));
+    }
+
+    /**
+     * Retire des factures des agrégats, avant une modification de leur statut ou de leur montant
+     *
+     * @param billIds les identifiants des factures
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void withdrawBills(Collection<Long> billIds) {
+        apply(billIds, -1);
+    }
+
+    /**
+     * Ajoute des factures aux agrégats, après une modification de leur statut ou de leur montant
+     *
+     * @param billIds les identifiants des factures
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBills(Collection<Long> billIds) {
+        apply(billIds, 1);
+    }
+
+    /**
+     * Reconstruit les agrégats à partir des factures existantes.
+     * À lancer lorsque la facturation est au repos : une facture créée pendant la reconstruction
+     * pourrait être comptée deux fois.
+     *
+     * @return le nombre d'agrégats (jour, docteur, statut) reconstruits
+     */
+    public int rebuild() {
+        Integer rows = transactionTemplate.execute(status -> {
+            revenueRollupDao.deleteAllRollups();
+            List<RevenueRollupDao.BillAggregate> bills = revenueRollupDao.aggregateBills(null);
+            for (RevenueRollupDao.BillAggregate aggregate : bills) {
+                revenueRollupDao.addToRollup(aggregate.day(), aggregate.doctorId(), aggregate.status(),
+                        aggregate.billCount(), aggregate.totalAmount());
+            }
+            for (RevenueRollupDao.BillLineAggregate aggregate : revenueRollupDao.aggregateBillLines(null)) {
+                revenueRollupDao.addToActRollup(aggregate.day(), aggregate.treatmentName(), aggregate.status(),
+                        aggregate.lineCount(), aggregate.totalAmount());
+            }
+            return bills.size();
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * Remplit les agrégats au démarrage s'ils sont vides alors que des factures existent
+     * (première mise en service des agrégats)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (revenueRollupDao.count() == 0 && billDao.count() > 0) {
+            int rows = rebuild();
+            System.out.println("Revenue rollups backfilled: " + rows + " rows");
+        }
+    }
+
+    /**
+     * @return le montant total de toutes les factures
+     */
+    public double getTotalRevenue() {
+        return revenueRollupDao.getTotalAmount();
+    }
+
+    /**
+     * @param from   le premier jour (inclus), ou null
+     * @param to     le dernier jour (inclus), ou null
+     * @param status le statut des factures, ou null pour tous les statuts
+     * @return le chiffre d'affaires par jour
+     */
+    public List<RevenueByDay> getRevenueByDay(LocalDate from, LocalDate to, BillStatus status) {
+        return revenueRollupDao.findRevenueByDay(from, to, status);
+    }
+
+    /**
+     * @param from   le premier jour (inclus), ou null
+     * @param to     le dernier jour (inclus), ou null
+     * @param status le statut des factures, ou null pour tous les statuts
+     * @return le chiffre d'affaires par docteur
+     */
+    public List<RevenueByDoctor> getRevenueByDoctor(LocalDate from, LocalDate to, BillStatus status) {
+        return revenueRollupDao.findRevenueByDoctor(from, to, status);
+    }
+
+    /**
+     * @param from   le premier jour (inclus), ou null
+     * @param to     le dernier jour (inclus), ou null
+     * @param status le statut des factures, ou null pour tous les statuts
+     * @return le montant facturé par acte médical ou prescription
+     */
+    public List<RevenueByAct> getRevenueByAct(LocalDate from, LocalDate to, BillStatus status) {
+        return revenueRollupDao.findRevenueByAct(from, to, status);
+    }
+
+    private void apply(Collection<Long> billIds, int sign) {
+        if (billIds.isEmpty()) {
+            return;
+        }
+        for (RevenueRollupDao.BillAggregate aggregate : revenueRollupDao.aggregateBills(billIds)) {
+            revenueRollupDao.addToRollup(aggregate.day(), aggregate.doctorId(), aggregate.status(),
+                    sign * aggregate.billCount(), sign * aggregate.totalAmount());
+        }
+        for (RevenueRollupDao.BillLineAggregate aggregate : revenueRollupDao.aggregateBillLines(billIds)) {
+            revenueRollupDao.addToActRollup(aggregate.day(), aggregate.treatmentName(), aggregate.status(),
+                    sign * aggregate.lineCount(), sign * aggregate.totalAmount());
+        }
+    }
+
+    private static LocalDate toDay(Bill bill) {
+        return bill.getBillDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -2,6 +2,7 @@ package sae.semestre.six.domain.doctor;
 
 import sae.semestre.six.dao.GenericDao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,4 +10,5 @@ public interface DoctorDao extends GenericDao<Doctor, Long> {
     Optional<Doctor> findByDoctorNumber(String doctorNumber);
     List<Doctor> findBySpecialization(String specialization);
     List<Doctor> findByDepartment(String department);
+    List<Doctor> findByIds(Collection<Long> ids);
 } 
\ No newline at end of file
@@ -4,6 +4,7 @@ import jakarta.persistence.TypedQuery;
 import org.springframework.stereotype.Repository;
 import sae.semestre.six.dao.AbstractHibernateDao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,4 +44,15 @@ public class DoctorDaoImpl extends AbstractHibernateDao<Doctor, Long> implements
                 .setParameter("department", department);
         return query.getResultList();
     }
+
+    @Override
+    public List<Doctor> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        TypedQuery<Doctor> query = getEntityManager()
+                .createQuery("SELECT d FROM Doctor d WHERE d.id IN (:ids)", Doctor.class)
+                .setParameter("ids", ids);
+        return query.getResultList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package sae.semestre.six.domain.inventory;
+
+import java.time.LocalDate;
+
+/**
+ * Data Transfer Object (DTO) for the price of an inventory item at the end of a day.
+ *
+ * @param date  The day
+ * @param price The last price set that day
+ */
+public record DailyPriceDTO(LocalDate date, Double price) {
+}
@@ -0,0 +1,22 @@
+package sae.semestre.six.domain.inventory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Event published by the InventoryDao whenever inventory items are created, updated or deleted,
+ * within the transaction making the change.
+ *
+ * @param inventoryIds The ids of the changed items
+ * @param itemCodes    The item codes of the changed items, when the ids are not known
+ */
+public record InventoryChangedEvent(Collection<Long> inventoryIds, Collection<String> itemCodes) {
+
+    public static InventoryChangedEvent ofIds(Collection<Long> inventoryIds) {
+        return new InventoryChangedEvent(List.copyOf(inventoryIds), List.of());
+    }
+
+    public static InventoryChangedEvent ofItemCodes(Collection<String> itemCodes) {
+        return new InventoryChangedEvent(List.of(), List.copyOf(itemCodes));
+    }
+}
@@ -1,11 +1,30 @@
 package sae.semestre.six.domain.inventory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import sae.semestre.six.domain.inventory.forecast.StockForecast;
+import sae.semestre.six.domain.inventory.forecast.StockForecastService;
+import sae.semestre.six.domain.inventory.reorder.ReorderJob;
+import sae.semestre.six.domain.inventory.reorder.ReorderService;
 import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceDTO;
+import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceFormat;
+import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceImportService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -18,7 +37,14 @@ import java.util.Map;
 @RequestMapping("/inventory")
 public class InventoryController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final InventoryService inventoryService;
+    private final SupplierInvoiceImportService supplierInvoiceImportService;
+    private final ReorderService reorderService;
+    private final StockForecastService stockForecastService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Adds a new inventory item.
@@ -37,13 +63,74 @@ public class InventoryController {
     }
 
     /**
-     * Retrieves all inventory items.
+     * Lists the inventory items matching the filters, ordered by item code, as a JSON array.
+     * <p>
+     * Without {@code limit}, all the matching items are streamed, read from the database one page at a time.
+     * With {@code limit}, a single page is returned and the {@code X-Next-Cursor} header gives the
+     * {@code after} value of the next page (absent on the last page).
+     * <p>
+     * If reading fails once the listing has started, the array ends with an {@code {"error": ...}} element.
      *
-     * @return List of InventoryDTOs
+     * @param namePrefix The beginning of the item name
+     * @param lowStock   True for the low-stock items only, false for the others only
+     * @param minPrice   The lowest unit price (inclusive)
+     * @param maxPrice   The highest unit price (inclusive)
+     * @param after      The item code after which the listing starts
+     * @param limit      The maximum number of items
+     * @param response   The response the items are written to
      */
     @GetMapping
-    public List<InventoryDTO> getAllInventory() {
-        return inventoryService.getAllInventory();
+    public void getAllInventory(@RequestParam(required = false) String namePrefix,
+                                @RequestParam(required = false) Boolean lowStock,
+                                @RequestParam(required = false) Double minPrice,
+                                @RequestParam(required = false) Double maxPrice,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) Integer limit,
+                                HttpServletResponse response) throws IOException {
+        InventoryFilter filter = new InventoryFilter(namePrefix, lowStock, minPrice, maxPrice);
+        InventoryPage page = null;
+        try {
+            if (limit != null) {
+                page = inventoryService.getInventoryPage(filter, after, limit);
+            } else {
+                filter.validate();
+            }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), Map.of("error", e.getMessage()));
+            return;
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (page != null && page.nextCursor() != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            json.writeStartArray();
+            try {
+                if (page != null) {
+                    writeItems(json, page.items());
+                } else {
+                    inventoryService.streamInventory(filter, after, items -> writeItems(json, items));
+                }
+            } catch (UncheckedIOException e) {
+                // The client is gone: nothing more can be written
+                throw e;
+            } catch (RuntimeException e) {
+                // Items may already have been sent with a 200 status: the array ends with an error
+                // element so that the client can tell an interrupted listing from a complete one
+                System.err.println("Inventory listing interrupted: " + e.getMessage());
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                }
+                json.writeStartObject();
+                json.writeStringField("error", "Inventory listing interrupted: " + e.getMessage());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
     }
 
     /**
@@ -98,12 +185,73 @@ public class InventoryController {
      * Retrieves the price history for a specific inventory item.
      *
      * @param itemCode The unique item code
+     * @param from     The first day (inclusive)
+     * @param to       The last day (inclusive)
      * @return List of PriceHistoryDTOs or error message
      */
     @GetMapping("/price-history/{itemCode}")
-    public ResponseEntity<?> getPriceHistory(@PathVariable String itemCode) {
+    public ResponseEntity<?> getPriceHistory(@PathVariable String itemCode,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(inventoryService.getPriceHistory(itemCode, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves the most recent price changes for a specific inventory item.
+     *
+     * @param itemCode The unique item code
+     * @param count    The maximum number of changes
+     * @return List of PriceHistoryDTOs, most recent first, or error message
+     */
+    @GetMapping("/price-history/{itemCode}/latest")
+    public ResponseEntity<?> getLatestPrices(@PathVariable String itemCode,
+                                             @RequestParam(defaultValue = "10") int count) {
         try {
-            return ResponseEntity.ok(inventoryService.getPriceHistory(itemCode));
+            return ResponseEntity.ok(inventoryService.getLatestPrices(itemCode, count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves the last price of each day a specific inventory item was repriced.
+     *
+     * @param itemCode The unique item code
+     * @param from     The first day (inclusive)
+     * @param to       The last day (inclusive)
+     * @return List of DailyPriceDTOs or error message
+     */
+    @GetMapping("/price-history/{itemCode}/daily")
+    public ResponseEntity<?> getDailyPrices(@PathVariable String itemCode,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(inventoryService.getDailyPrices(itemCode, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves the lowest and highest prices per period for a specific inventory item.
+     *
+     * @param itemCode The unique item code
+     * @param period   The period length (DAY, WEEK or MONTH)
+     * @param from     The first day (inclusive)
+     * @param to       The last day (inclusive)
+     * @return List of PriceRangeDTOs or error message
+     */
+    @GetMapping("/price-history/{itemCode}/ranges")
+    public ResponseEntity<?> getPriceRanges(@PathVariable String itemCode,
+                                            @RequestParam(defaultValue = "DAY") PricePeriod period,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(inventoryService.getPriceRanges(itemCode, period, from, to));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -128,6 +276,38 @@ public class InventoryController {
         }
     }
 
+    /**
+     * Imports a large supplier invoice. The lines are streamed in the request body, either as a JSON
+     * array of details or as CSV lines {@code itemCode,quantity,unitPrice} (Content-Type text/csv).
+     * Invalid lines are skipped and listed in the report.
+     *
+     * @param invoiceNumber The unique invoice number
+     * @param supplierName  The supplier name
+     * @param invoiceDate   The invoice date (defaults to now)
+     * @param totalAmount   The total announced by the supplier, checked against the imported lines
+     * @param request       The request whose body contains the lines
+     * @return The import report or error message
+     */
+    @PostMapping(value = "/supplier-invoice/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public ResponseEntity<?> importSupplierInvoice(@RequestParam String invoiceNumber,
+                                                   @RequestParam String supplierName,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date invoiceDate,
+                                                   @RequestParam(required = false) Double totalAmount,
+                                                   HttpServletRequest request) {
+        SupplierInvoiceFormat format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(TEXT_CSV)
+                ? SupplierInvoiceFormat.CSV
+                : SupplierInvoiceFormat.JSON;
+        try {
+            return ResponseEntity.ok(supplierInvoiceImportService.importInvoice(
+                    invoiceNumber, supplierName, invoiceDate, totalAmount, format, request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
     /**
      * Retrieves inventory items that are low in stock.
      *
@@ -136,9 +316,7 @@ public class InventoryController {
     @GetMapping("/low-stock")
     public ResponseEntity<?> getLowStockItems() {
         try {
-            return ResponseEntity.ok(inventoryService.getLowStockItems().stream()
-                    .map(InventoryDTO::new)
-                    .toList());
+            return ResponseEntity.ok(inventoryService.getLowStockItems());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", e.getMessage()));
@@ -146,12 +324,77 @@ public class InventoryController {
     }
 
     /**
-     * Sends reorder requests for low stock items.
+     * Streams the low-stock threshold crossings as Server-Sent Events
+     * ({@code LOW_STOCK} and {@code BACK_IN_STOCK}).
      *
-     * @return Status message
+     * @return The event stream
+     */
+    @GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLowStockEvents() {
+        return inventoryService.subscribeToLowStockEvents();
+    }
+
+    /**
+     * Starts sending reorder requests for low stock items in the background.
+     * If a reorder is already in progress, that reorder is returned.
+     *
+     * @return The reorder job, to poll at the Location URL
      */
     @PostMapping("/reorder")
-    public String reorderItems() {
-        return inventoryService.reorderItems();
+    public ResponseEntity<ReorderJob> reorderItems() {
+        ReorderJob job = reorderService.submit();
+        return ResponseEntity.accepted()
+                .location(URI.create("/inventory/reorder/" + job.id()))
+                .body(job);
+    }
+
+    /**
+     * Retrieves the status of a reorder job.
+     *
+     * @param jobId The job id
+     * @return The reorder job, with its report once completed, or error message
+     */
+    @GetMapping("/reorder/{jobId}")
+    public ResponseEntity<?> getReorderJob(@PathVariable String jobId) {
+        return reorderService.getJob(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Reorder job not found")));
+    }
+
+    /**
+     * Retrieves the items projected to run out of stock within a number of days, from their consumption rates.
+     *
+     * @param days The number of days
+     * @return List of StockForecasts, soonest stock-out first, or error message
+     */
+    @GetMapping("/forecast")
+    public ResponseEntity<?> getStockOuts(@RequestParam(defaultValue = "30") int days) {
+        try {
+            return ResponseEntity.ok(stockForecastService.getStockOuts(days));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves the consumption rate, projected stock-out date and reorder quantity of an inventory item.
+     *
+     * @param itemCode The unique item code
+     * @return The StockForecast
+     */
+    @GetMapping("/forecast/{itemCode}")
+    public ResponseEntity<StockForecast> getForecast(@PathVariable String itemCode) {
+        return ResponseEntity.ok(stockForecastService.getForecast(itemCode));
+    }
+
+    private static void writeItems(JsonGenerator json, List<InventoryDTO> items) {
+        try {
+            for (InventoryDTO item : items) {
+                json.writeObject(item);
+            }
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -1,7 +1,11 @@
 package sae.semestre.six.domain.inventory;
 
 import sae.semestre.six.dao.GenericDao;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO interface for inventory-related database operations.
@@ -42,4 +46,60 @@ public interface InventoryDao extends GenericDao<Inventory, Long> {
      * @param inventory The Inventory entity
      */
     void deleteSupplierInvoiceDetailsByInventory(Inventory inventory);
+
+    /**
+     * Atomically reserves stock for several items. Each item's quantity is decreased by the
+     * requested amount only if enough stock is left, without reading or locking the rows beforehand.
+     * Either every item is reserved or none is.
+     * <p>
+     * Quantities of Inventory entities already loaded in the persistence context are not refreshed.
+     *
+     * @param quantities The requested quantity for each item code (strictly positive)
+     * @return The item codes that could not be reserved (unknown code or not enough stock),
+     *         empty if the whole reservation succeeded
+     */
+    Set<String> reserveStock(Map<String, Integer> quantities);
+
+    /**
+     * Loads the inventory items of several item codes with a single query.
+     *
+     * @param itemCodes The item codes to load; duplicates are allowed
+     * @return The items found, and the unknown item codes
+     */
+    InventoryLookup findByItemCodes(Collection<String> itemCodes);
+
+    /**
+     * Resolves several item codes with a single query.
+     *
+     * @param itemCodes The item codes to resolve
+     * @return The inventory id of each known item code; unknown codes are absent
+     */
+    Map<String, Long> findIdsByItemCodes(Collection<String> itemCodes);
+
+    /**
+     * Adds stock to several items with batched updates, without loading the entities.
+     *
+     * @param quantities  The quantity to add for each inventory id
+     * @param restockedAt The restock date to record on each item
+     */
+    void restockByIds(Map<Long, Integer> quantities, Date restockedAt);
+
+    /**
+     * Retrieves the inventory items matching either the given ids or the given item codes.
+     *
+     * @param ids       The inventory ids
+     * @param itemCodes The item codes
+     * @return The matching Inventory entities
+     */
+    List<Inventory> findByIdsOrItemCodes(Collection<Long> ids, Collection<String> itemCodes);
+
+    /**
+     * Retrieves a page of inventory items ordered by item code, without loading the entities.
+     *
+     * @param filter        The filters to apply
+     * @param afterItemCode The item code after which the page starts, null for the first page
+     * @param limit         The maximum number of items
+     * @return List of InventoryDTOs
+     */
+    List<InventoryDTO> findPage(InventoryFilter filter, String afterItemCode, int limit);
 }
@@ -1,14 +1,56 @@
 package sae.semestre.six.domain.inventory;
 
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Transactional;
 import sae.semestre.six.dao.AbstractHibernateDao;
 import org.springframework.stereotype.Repository;
-import java.util.List;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
 
 /**
  * Implementation of the InventoryDao interface for accessing inventory data using Hibernate.
+ * Every write publishes an {@link InventoryChangedEvent} so that the low-stock tracker can follow stock levels.
  */
 @Repository
+@RequiredArgsConstructor
 public class InventoryDaoImpl extends AbstractHibernateDao<Inventory, Long> implements InventoryDao {
+
+    private static final String RESERVE_STOCK =
+            "UPDATE inventory SET quantity = quantity - ? WHERE item_code = ? AND quantity >= ?";
+    private static final String RELEASE_STOCK =
+            "UPDATE inventory SET quantity = quantity + ? WHERE item_code = ?";
+    private static final String RESTOCK_BY_ID =
+            "UPDATE inventory SET quantity = quantity + ?, last_restocked = ? WHERE id = ?";
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    @Override
+    public void save(Inventory inventory) {
+        super.save(inventory);
+        publishChanged(inventory.getId());
+    }
+
+    @Override
+    public void update(Inventory inventory) {
+        super.update(inventory);
+        publishChanged(inventory.getId());
+    }
+
+    @Override
+    public void delete(Inventory inventory) {
+        Long id = inventory.getId();
+        super.delete(inventory);
+        publishChanged(id);
+    }
+
     /**
      * Finds an inventory item by its unique item code.
      *
@@ -48,4 +90,209 @@ public class InventoryDaoImpl extends AbstractHibernateDao<Inventory, Long> impl
             .setParameter("inventory", inventory)
             .executeUpdate();
     }
+
+    /**
+     * Atomically reserves stock for several items.
+     * <p>
+     * One conditional update per item is sent in a single JDBC batch, in item code order so that
+     * concurrent reservations always lock rows in the same order. The update count of each statement
+     * tells which items are short; the items already reserved are then released in the same transaction.
+     *
+     * @param quantities The requested quantity for each item code (strictly positive)
+     * @return The item codes that could not be reserved, empty if the whole reservation succeeded
+     */
+    @Override
+    public Set<String> reserveStock(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Set.of();
+        }
+        List<Map.Entry<String, Integer>> items = new ArrayList<>(quantities.entrySet());
+        for (Map.Entry<String, Integer> item : items) {
+            if (item.getValue() == null || item.getValue() <= 0) {
+                throw new IllegalArgumentException("Reserved quantity must be positive for item " + item.getKey());
+            }
+        }
+        items.sort(Map.Entry.comparingByKey());
+
+        Set<String> result = getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            int[] counts = executeStockBatch(connection, RESERVE_STOCK, items, true);
+            Set<String> shortItems = new TreeSet<>();
+            List<Map.Entry<String, Integer>> reserved = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                if (counts[i] == 0) {
+                    shortItems.add(items.get(i).getKey());
+                } else {
+                    reserved.add(items.get(i));
+                }
+            }
+            if (!shortItems.isEmpty() && !reserved.isEmpty()) {
+                executeStockBatch(connection, RELEASE_STOCK, reserved, false);
+            }
+            return shortItems;
+        });
+        if (result.isEmpty()) {
+            eventPublisher.publishEvent(InventoryChangedEvent.ofItemCodes(quantities.keySet()));
+            eventPublisher.publishEvent(new StockConsumedEvent(quantities, new Date()));
+        }
+        return result;
+    }
+
+    @Override
+    public InventoryLookup findByItemCodes(Collection<String> itemCodes) {
+        Set<String> requested = new LinkedHashSet<>(itemCodes);
+        if (requested.isEmpty()) {
+            return new InventoryLookup(Map.of(), List.of());
+        }
+        Map<String, Inventory> items = new HashMap<>();
+        getEntityManager()
+                .createQuery("FROM Inventory i WHERE i.itemCode IN :itemCodes", Inventory.class)
+                .setParameter("itemCodes", requested)
+                .getResultList()
+                .forEach(inventory -> items.put(inventory.getItemCode(), inventory));
+        List<String> missing = requested.stream().filter(itemCode -> !items.containsKey(itemCode)).toList();
+        return new InventoryLookup(items, missing);
+    }
+
+    /**
+     * Resolves several item codes with a single query.
+     *
+     * @param itemCodes The item codes to resolve
+     * @return The inventory id of each known item code; unknown codes are absent
+     */
+    @Override
+    public Map<String, Long> findIdsByItemCodes(Collection<String> itemCodes) {
+        if (itemCodes.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Long> ids = new HashMap<>();
+        getEntityManager()
+                .createQuery("SELECT i.itemCode, i.id FROM Inventory i WHERE i.itemCode IN :itemCodes", Object[].class)
+                .setParameter("itemCodes", itemCodes)
+                .getResultList()
+                .forEach(row -> ids.put((String) row[0], (Long) row[1]));
+        return ids;
+    }
+
+    /**
+     * Adds stock to several items in a single JDBC batch, in id order so that concurrent restocks
+     * lock rows in the same order.
+     *
+     * @param quantities  The quantity to add for each inventory id
+     * @param restockedAt The restock date to record on each item
+     */
+    @Override
+    public void restockByIds(Map<Long, Integer> quantities, Date restockedAt) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> items = new ArrayList<>(quantities.entrySet());
+        items.sort(Map.Entry.comparingByKey());
+        Timestamp timestamp = new Timestamp(restockedAt.getTime());
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(RESTOCK_BY_ID)) {
+                for (Map.Entry<Long, Integer> item : items) {
+                    statement.setInt(1, item.getValue());
+                    statement.setTimestamp(2, timestamp);
+                    statement.setLong(3, item.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        eventPublisher.publishEvent(InventoryChangedEvent.ofIds(quantities.keySet()));
+    }
+
+    /**
+     * Retrieves the inventory items matching either the given ids or the given item codes.
+     *
+     * @param ids       The inventory ids
+     * @param itemCodes The item codes
+     * @return The matching Inventory entities
+     */
+    @Override
+    public List<Inventory> findByIdsOrItemCodes(Collection<Long> ids, Collection<String> itemCodes) {
+        if (ids.isEmpty() && itemCodes.isEmpty()) {
+            return List.of();
+        }
+        // An empty IN list is not valid SQL: only the non-empty criteria are used
+        List<String> criteria = new ArrayList<>();
+        if (!ids.isEmpty()) {
+            criteria.add("i.id IN :ids");
+        }
+        if (!itemCodes.isEmpty()) {
+            criteria.add("i.itemCode IN :itemCodes");
+        }
+        TypedQuery<Inventory> query = getEntityManager()
+                .createQuery("FROM Inventory i WHERE " + String.join(" OR ", criteria), Inventory.class);
+        if (!ids.isEmpty()) {
+            query.setParameter("ids", ids);
+        }
+        if (!itemCodes.isEmpty()) {
+            query.setParameter("itemCodes", itemCodes);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Keyset pagination on the unique item code index: each page starts after the last item code of
+     * the previous one, so deep pages cost the same as the first one.
+     */
+    @Override
+    public List<InventoryDTO> findPage(InventoryFilter filter, String afterItemCode, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT new sae.semestre.six.domain.inventory.InventoryRow(" +
+                "i.itemCode, i.name, i.quantity, i.unitPrice, i.reorderLevel, i.lastRestocked) " +
+                "FROM Inventory i WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        if (afterItemCode != null) {
+            jpql.append(" AND i.itemCode > :after");
+            parameters.put("after", afterItemCode);
+        }
+        if (filter.namePrefix() != null && !filter.namePrefix().isEmpty()) {
+            jpql.append(" AND i.name LIKE :namePrefix ESCAPE '!'");
+            parameters.put("namePrefix", filter.namePrefix()
+                    .replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+        }
+        if (filter.lowStock() != null) {
+            jpql.append(filter.lowStock()
+                    ? " AND i.quantity <= i.reorderLevel"
+                    : " AND i.quantity > i.reorderLevel");
+        }
+        if (filter.minPrice() != null) {
+            jpql.append(" AND i.unitPrice >= :minPrice");
+            parameters.put("minPrice", filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            jpql.append(" AND i.unitPrice <= :maxPrice");
+            parameters.put("maxPrice", filter.maxPrice());
+        }
+        jpql.append(" ORDER BY i.itemCode");
+
+        TypedQuery<InventoryRow> query = getEntityManager().createQuery(jpql.toString(), InventoryRow.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList().stream()
+                .map(InventoryRow::toDto)
+                .toList();
+    }
+
+    private void publishChanged(Long id) {
+        if (id != null) {
+            eventPublisher.publishEvent(InventoryChangedEvent.ofIds(List.of(id)));
+        }
+    }
+
+    private static int[] executeStockBatch(Connection connection, String sql,
+                                           List<Map.Entry<String, Integer>> items,
+                                           boolean conditional) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Map.Entry<String, Integer> item : items) {
+                statement.setInt(1, item.getValue());
+                statement.setString(2, item.getKey());
+                if (conditional) {
+                    statement.setInt(3, item.getValue());
+                }
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
 }
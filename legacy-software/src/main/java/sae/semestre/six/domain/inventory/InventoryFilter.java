@@ -0,0 +1,24 @@
+package sae.semestre.six.domain.inventory;
+
+/**
+ * Filters of the inventory listing. Null values are ignored.
+ *
+ * @param namePrefix The beginning of the item name (case-sensitive)
+ * @param lowStock   True for the items at or below their reorder level only, false for the others only
+ * @param minPrice   The lowest unit price (inclusive)
+ * @param maxPrice   The highest unit price (inclusive)
+ */
+public record InventoryFilter(String namePrefix, Boolean lowStock, Double minPrice, Double maxPrice) {
+
+    /**
+     * @throws IllegalArgumentException if the price range is invalid
+     */
+    public void validate() {
+        if ((minPrice != null && minPrice < 0) || (maxPrice != null && maxPrice < 0)) {
+            throw new IllegalArgumentException("Prices cannot be negative");
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice cannot be greater than maxPrice");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package sae.semestre.six.domain.inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of resolving several item codes at once with {@link InventoryDao#findByItemCodes}.
+ *
+ * @param items   The inventory item of each known item code
+ * @param missing The unknown item codes, in the order they were requested
+ */
+public record InventoryLookup(Map<String, Inventory> items, List<String> missing) {
+
+    public InventoryLookup {
+        items = Map.copyOf(items);
+        // A null item code is reported as missing, which List.copyOf does not allow
+        missing = Collections.unmodifiableList(new ArrayList<>(missing));
+    }
+
+    /**
+     * @return true if every requested item code is known
+     */
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+}
@@ -0,0 +1,12 @@
+package sae.semestre.six.domain.inventory;
+
+import java.util.List;
+
+/**
+ * A page of the inventory listing, ordered by item code.
+ *
+ * @param items      The items of the page
+ * @param nextCursor The item code to pass as {@code after} to read the next page, null on the last page
+ */
+public record InventoryPage(List<InventoryDTO> items, String nextCursor) {
+}
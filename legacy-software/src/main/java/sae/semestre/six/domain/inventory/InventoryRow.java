@@ -0,0 +1,30 @@
+package sae.semestre.six.domain.inventory;
+
+import java.util.Date;
+
+/**
+ * Columns of an inventory item read by the constructor projections of the {@link InventoryDao},
+ * which do not load entities.
+ *
+ * @param itemCode      The unique item code
+ * @param name          The item name
+ * @param quantity      The quantity in stock
+ * @param unitPrice     The unit price
+ * @param reorderLevel  The quantity at or below which the item is reordered
+ * @param lastRestocked The last restocking date
+ */
+public record InventoryRow(String itemCode,
+                           String name,
+                           Integer quantity,
+                           Double unitPrice,
+                           Integer reorderLevel,
+                           Date lastRestocked) {
+
+    /**
+     * @return The InventoryDTO of this item, formatted like {@link InventoryDTO#InventoryDTO(Inventory)}
+     */
+    public InventoryDTO toDto() {
+        return new InventoryDTO(itemCode, name, quantity, unitPrice, reorderLevel,
+                lastRestocked != null ? lastRestocked.toString() : null);
+    }
+}
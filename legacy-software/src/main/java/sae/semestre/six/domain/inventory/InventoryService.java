@@ -2,31 +2,41 @@ package sae.semestre.six.domain.inventory;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import sae.semestre.six.domain.inventory.supplierInvoice.*;
-import sae.semestre.six.mail.EmailService;
 
-import java.io.FileWriter;
-import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Service class for inventory management operations.
- * Handles inventory CRUD, price history, supplier invoices, and reorder logic.
+ * Handles inventory CRUD, price history, supplier invoices, and low-stock items.
+ * Reorders are handled by the {@link sae.semestre.six.domain.inventory.reorder.ReorderService}.
  */
 @Service
 @RequiredArgsConstructor
 public class InventoryService {
 
-    @Value("${sae.semestre.six.files.order}")
-    private String ORDERS_FILE = "C:\\hospital\\orders.txt";
+    @Value("${sae.semestre.six.inventory.listing.page-size:500}")
+    private int listingPageSize = 500;
+
+    @Value("${sae.semestre.six.inventory.listing.max-limit:1000}")
+    private int listingMaxLimit = 1000;
 
     private final InventoryDao inventoryDao;
     private final SupplierInvoiceDao supplierInvoiceDao;
     private final PriceHistoryDao priceHistoryDao;
-    private final EmailService emailService;
+    private final PriceHistoryService priceHistoryService;
+    private final LowStockTracker lowStockTracker;
+    private final LowStockEventStream lowStockEventStream;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Adds a new inventory item to the system.
@@ -54,13 +64,50 @@ public class InventoryService {
     }
 
     /**
-     * Retrieves all inventory items.
+     * Retrieves a page of inventory items, ordered by item code.
      *
-     * @return List of InventoryDTOs
+     * @param filter The filters to apply
+     * @param after  The item code after which the page starts, null for the first page
+     * @param limit  The maximum number of items
+     * @return The page, with the cursor of the next one
+     * @throws IllegalArgumentException if the filters or the limit are invalid
      */
     @Transactional(readOnly = true)
-    public List<InventoryDTO> getAllInventory() {
-        return inventoryDao.findAll().stream().map(InventoryDTO::new).collect(Collectors.toList());
+    public InventoryPage getInventoryPage(InventoryFilter filter, String after, int limit) {
+        filter.validate();
+        if (limit <= 0 || limit > listingMaxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + listingMaxLimit);
+        }
+        // One more item tells whether there is a next page
+        List<InventoryDTO> items = inventoryDao.findPage(filter, after, limit + 1);
+        if (items.size() <= limit) {
+            return new InventoryPage(items, null);
+        }
+        List<InventoryDTO> page = items.subList(0, limit);
+        return new InventoryPage(page, page.getLast().itemCode());
+    }
+
+    /**
+     * Reads all the inventory items matching the filters, ordered by item code, one page at a time.
+     * Pages are read outside of a transaction and passed to the consumer as soon as they are read,
+     * so that the catalog is never held in memory at once.
+     *
+     * @param filter       The filters to apply
+     * @param after        The item code after which the listing starts, null to start at the beginning
+     * @param pageConsumer The consumer of each page
+     * @throws IllegalArgumentException if the filters are invalid
+     */
+    public void streamInventory(InventoryFilter filter, String after, Consumer<List<InventoryDTO>> pageConsumer) {
+        filter.validate();
+        String cursor = after;
+        List<InventoryDTO> page;
+        do {
+            page = inventoryDao.findPage(filter, cursor, listingPageSize);
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+                cursor = page.getLast().itemCode();
+            }
+        } while (page.size() == listingPageSize);
     }
 
     /**
@@ -100,6 +147,7 @@ public class InventoryService {
                 inv.restock(diff);
             } else if (diff < 0) {
                 inv.decrementStock(-diff);
+                eventPublisher.publishEvent(new StockConsumedEvent(Map.of(inv.getItemCode(), -diff), new Date()));
             }
         } else if (dto.quantity() != null) {
             throw new IllegalArgumentException("Quantity cannot be negative");
@@ -135,6 +183,7 @@ public class InventoryService {
         Inventory inv = inventoryDao.findByItemCode(itemCode);
         // Remove all SupplierInvoiceDetails referencing this inventory
         inventoryDao.deleteSupplierInvoiceDetailsByInventory(inv);
+        priceHistoryService.deleteCompactedHistory(inv);
         inventoryDao.delete(inv);
     }
 
@@ -142,14 +191,56 @@ public class InventoryService {
      * Retrieves the price history for a specific inventory item.
      *
      * @param itemCode The unique item code
-     * @return List of PriceHistoryDTOs
+     * @param from     The first day (inclusive), null for no lower bound
+     * @param to       The last day (inclusive), null for no upper bound
+     * @return List of PriceHistoryDTOs, in chronological order
+     */
+    @Transactional(readOnly = true)
+    public List<PriceHistoryDTO> getPriceHistory(String itemCode, LocalDate from, LocalDate to) {
+        Inventory inv = inventoryDao.findByItemCode(itemCode);
+        return priceHistoryService.getHistory(inv, from, to);
+    }
+
+    /**
+     * Retrieves the most recent price changes for a specific inventory item.
+     *
+     * @param itemCode The unique item code
+     * @param count    The maximum number of changes
+     * @return List of PriceHistoryDTOs, most recent first
+     */
+    @Transactional(readOnly = true)
+    public List<PriceHistoryDTO> getLatestPrices(String itemCode, int count) {
+        Inventory inv = inventoryDao.findByItemCode(itemCode);
+        return priceHistoryService.getLatest(inv, count);
+    }
+
+    /**
+     * Retrieves the last price of each day a specific inventory item was repriced.
+     *
+     * @param itemCode The unique item code
+     * @param from     The first day (inclusive), null for no lower bound
+     * @param to       The last day (inclusive), null for no upper bound
+     * @return List of DailyPriceDTOs
+     */
+    @Transactional(readOnly = true)
+    public List<DailyPriceDTO> getDailyPrices(String itemCode, LocalDate from, LocalDate to) {
+        Inventory inv = inventoryDao.findByItemCode(itemCode);
+        return priceHistoryService.getDailyPrices(inv, from, to);
+    }
+
+    /**
+     * Retrieves the lowest and highest prices per period for a specific inventory item.
+     *
+     * @param itemCode The unique item code
+     * @param period   The period length
+     * @param from     The first day (inclusive), null for no lower bound
+     * @param to       The last day (inclusive), null for no upper bound
+     * @return List of PriceRangeDTOs
      */
     @Transactional(readOnly = true)
-    public List<PriceHistoryDTO> getPriceHistory(String itemCode) {
+    public List<PriceRangeDTO> getPriceRanges(String itemCode, PricePeriod period, LocalDate from, LocalDate to) {
         Inventory inv = inventoryDao.findByItemCode(itemCode);
-        return priceHistoryDao.findByInventory(inv).stream()
-                .map(PriceHistoryDTO::new)
-                .collect(Collectors.toList());
+        return priceHistoryService.getPriceRanges(inv, period, from, to);
     }
 
     /**
@@ -163,12 +254,17 @@ public class InventoryService {
         if (!invoice.checkValidity()) {
             throw new IllegalArgumentException("Supplier invoice is invalid");
         }
+        InventoryLookup lookup = inventoryDao.findByItemCodes(
+                Arrays.stream(invoice.details()).map(SupplierInvoiceDetailDTO::itemCode).toList());
+        if (!lookup.isComplete()) {
+            throw new IllegalArgumentException("Item not found in inventory: " + String.join(", ", lookup.missing()));
+        }
         SupplierInvoice supplierInvoice = new SupplierInvoice(invoice);
         for (SupplierInvoiceDetailDTO detail : invoice.details()) {
             SupplierInvoiceDetail supplierInvoiceDetail = new SupplierInvoiceDetail(detail);
             supplierInvoiceDetail.setSupplierInvoice(supplierInvoice);
             supplierInvoiceDetail.setInventory(
-                    addNewStock(detail.itemCode(), detail.quantity())
+                    addNewStock(lookup.items().get(detail.itemCode()), detail.quantity())
             );
             supplierInvoice.addDetails(supplierInvoiceDetail);
         }
@@ -182,18 +278,11 @@ public class InventoryService {
     /**
      * Adds new stock to an inventory item.
      *
-     * @param itemCode The unique item code
-     * @param quantity The quantity to add
+     * @param inventory The Inventory entity
+     * @param quantity  The quantity to add
      * @return The updated Inventory entity
-     * @throws IllegalArgumentException if the item is not found
      */
-    private Inventory addNewStock(String itemCode, Integer quantity) {
-        Inventory inventory;
-        try {
-            inventory = inventoryDao.findByItemCode(itemCode);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Item not found in inventory");
-        }
+    private Inventory addNewStock(Inventory inventory, Integer quantity) {
         inventory.restock(quantity);
         inventoryDao.update(inventory);
         return inventory;
@@ -201,35 +290,20 @@ public class InventoryService {
 
     /**
      * Retrieves inventory items that are low in stock.
+     * Served from the {@link LowStockTracker} rather than by scanning the inventory table.
      *
-     * @return List of Inventory entities needing restock
+     * @return List of InventoryDTOs needing restock
      */
-    public List<Inventory> getLowStockItems() {
-        return inventoryDao.findNeedingRestock();
+    public List<InventoryDTO> getLowStockItems() {
+        return lowStockTracker.getLowStockItems();
     }
 
     /**
-     * Sends reorder requests for low stock items and notifies suppliers.
+     * Subscribes to the low-stock threshold crossings.
      *
-     * @return Status message indicating the number of reorder requests sent
+     * @return The Server-Sent Events stream of {@link LowStockEvent}s
      */
-    public String reorderItems() {
-        List<Inventory> lowStockItems = getLowStockItems();
-
-        for (Inventory item : lowStockItems) {
-            int reorderQuantity = item.getReorderLevel() * 2;
-
-            try (FileWriter fw = new FileWriter(ORDERS_FILE, true)) {
-                fw.write("REORDER: " + item.getItemCode() + ", Quantity: " + reorderQuantity + "\n");
-            } catch (IOException e) {
-                System.err.println("Error writing to file: " + e.getMessage());
-            }
-
-            emailService.sendEmail(EmailService.EMAIL_SOURCE.SUPPLIER.getEmail(),
-                    "Reorder Request",
-                    "Please restock " + item.getName() + " (Quantity: " + reorderQuantity + ")");
-        }
-
-        return "Reorder requests sent for " + lowStockItems.size() + " items";
+    public SseEmitter subscribeToLowStockEvents() {
+        return lowStockEventStream.subscribe();
     }
 }
@@ -0,0 +1,32 @@
+package sae.semestre.six.domain.inventory;
+
+import java.util.Date;
+
+/**
+ * Event published when a committed change makes an inventory item cross its reorder level.
+ *
+ * @param type         The direction of the crossing
+ * @param itemCode     The item code
+ * @param name         The item name
+ * @param quantity     The quantity in stock after the change
+ * @param reorderLevel The reorder level after the change
+ * @param occurredAt   The date the crossing was detected
+ */
+public record LowStockEvent(Type type,
+                            String itemCode,
+                            String name,
+                            Integer quantity,
+                            Integer reorderLevel,
+                            Date occurredAt) {
+
+    public enum Type {
+        /**
+         * The item fell to or below its reorder level.
+         */
+        LOW_STOCK,
+        /**
+         * The item went back above its reorder level, or was deleted while low in stock.
+         */
+        BACK_IN_STOCK
+    }
+}
@@ -0,0 +1,81 @@
+package sae.semestre.six.domain.inventory;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes {@link LowStockEvent}s to the subscribed clients (ward dashboards) as Server-Sent Events.
+ * <p>
+ * Events are sent from a dedicated thread, so that a slow client never delays the transaction
+ * that triggered the event. A client whose connection fails is unsubscribed; browsers reconnect
+ * automatically when the stream times out.
+ */
+@Component
+public class LowStockEventStream {
+
+    private final long timeoutMs;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LowStockEventStream(@Value("${sae.semestre.six.inventory.low-stock.stream-timeout-ms:1800000}") long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return A new event stream, receiving the events published from now on
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(error -> emitters.remove(emitter));
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    /**
+     * @return The number of subscribed clients
+     */
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    @EventListener
+    public void onLowStockEvent(LowStockEvent event) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        sender.execute(() -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event()
+                            .name(event.type().name())
+                            .data(event));
+                } catch (IOException | IllegalStateException e) {
+                    emitters.remove(emitter);
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+        emitters.clear();
+    }
+}
@@ -0,0 +1,219 @@
+package sae.semestre.six.domain.inventory;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory set of the inventory items at or below their reorder level.
+ * <p>
+ * The set is loaded once at startup. Afterwards, the items reported by each {@link InventoryChangedEvent}
+ * are collected per transaction and, once the transaction commits, re-read to update the set. Re-reading
+ * the committed rows (rather than applying the entities' state) keeps the set right when concurrent
+ * transactions commit in a different order than their callbacks run.
+ * <p>
+ * The re-reads run on a single background thread: the committing thread still holds its database
+ * connection during the callbacks, and the items committed meanwhile are re-read with one query.
+ * The set is therefore updated shortly after each commit.
+ * <p>
+ * Each time an item crosses its reorder level, a {@link LowStockEvent} is published.
+ * <p>
+ * A transaction that has changed the inventory and not committed yet reads the low-stock items from
+ * the database, so that it sees its own changes.
+ */
+@Component
+public class LowStockTracker {
+
+    private final InventoryDao inventoryDao;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate refreshTransaction;
+
+    private final Executor refresher;
+
+    private final Map<Long, InventoryDTO> lowStockItems = new ConcurrentHashMap<>();
+    private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedItemCodes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private volatile boolean loaded = false;
+
+    @Autowired
+    public LowStockTracker(InventoryDao inventoryDao,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
+        this(inventoryDao, eventPublisher, transactionManager, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "low-stock-tracker");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    LowStockTracker(InventoryDao inventoryDao,
+                    ApplicationEventPublisher eventPublisher,
+                    PlatformTransactionManager transactionManager,
+                    Executor refresher) {
+        this.inventoryDao = inventoryDao;
+        this.eventPublisher = eventPublisher;
+        this.refresher = refresher;
+        // Callbacks run after commit: the refresh must not join the completed transaction
+        this.refreshTransaction = new TransactionTemplate(transactionManager);
+        this.refreshTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.refreshTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Loads the low-stock items from the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        Map<Long, InventoryDTO> items = new HashMap<>();
+        refreshTransaction.executeWithoutResult(status -> {
+            for (Inventory inventory : inventoryDao.findNeedingRestock()) {
+                items.put(inventory.getId(), new InventoryDTO(inventory));
+            }
+        });
+        lowStockItems.clear();
+        lowStockItems.putAll(items);
+        loaded = true;
+    }
+
+    /**
+     * @return The inventory items at or below their reorder level
+     */
+    public List<InventoryDTO> getLowStockItems() {
+        if (!loaded || TransactionSynchronizationManager.hasResource(this)) {
+            return inventoryDao.findNeedingRestock().stream().map(InventoryDTO::new).toList();
+        }
+        return lowStockItems.values().stream()
+                .sorted(Comparator.comparing(InventoryDTO::itemCode))
+                .toList();
+    }
+
+    /**
+     * Records inventory changes. They are applied once the current transaction commits,
+     * or immediately outside of a transaction.
+     *
+     * @param event The changed items
+     */
+    @EventListener
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            scheduleRefresh(event.inventoryIds(), event.itemCodes());
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.inventoryIds.addAll(event.inventoryIds());
+        pending.itemCodes.addAll(event.itemCodes());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refresher instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues committed changes for the refresher thread. Changes queued while a refresh is
+     * waiting to run are re-read by that refresh.
+     */
+    private void scheduleRefresh(Collection<Long> inventoryIds, Collection<String> itemCodes) {
+        changedIds.addAll(inventoryIds);
+        changedItemCodes.addAll(itemCodes);
+        if (refreshScheduled.compareAndSet(false, true)) {
+            refresher.execute(this::refreshChanged);
+        }
+    }
+
+    private void refreshChanged() {
+        refreshScheduled.set(false);
+        Set<Long> inventoryIds = drain(changedIds);
+        Set<String> itemCodes = drain(changedItemCodes);
+        if (!inventoryIds.isEmpty() || !itemCodes.isEmpty()) {
+            refresh(inventoryIds, itemCodes);
+        }
+    }
+
+    private static <T> Set<T> drain(Set<T> changed) {
+        Set<T> drained = new HashSet<>();
+        for (T value : changed) {
+            if (changed.remove(value)) {
+                drained.add(value);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Re-reads changed items and updates the set. Refreshes are serialized so that each one reads
+     * a state at least as recent as the previous one.
+     */
+    synchronized void refresh(Set<Long> inventoryIds, Set<String> itemCodes) {
+        if (!loaded) {
+            return;
+        }
+        List<Inventory> items = refreshTransaction.execute(status -> inventoryDao.findByIdsOrItemCodes(inventoryIds, itemCodes));
+        Date now = new Date();
+        Set<Long> found = new HashSet<>();
+        for (Inventory inventory : items == null ? List.<Inventory>of() : items) {
+            found.add(inventory.getId());
+            InventoryDTO item = new InventoryDTO(inventory);
+            if (inventory.isBelowReorderLevel()) {
+                if (lowStockItems.put(inventory.getId(), item) == null) {
+                    publish(LowStockEvent.Type.LOW_STOCK, item, now);
+                }
+            } else if (lowStockItems.remove(inventory.getId()) != null) {
+                publish(LowStockEvent.Type.BACK_IN_STOCK, item, now);
+            }
+        }
+        // Deleted items
+        for (Long id : inventoryIds) {
+            if (!found.contains(id)) {
+                InventoryDTO removed = lowStockItems.remove(id);
+                if (removed != null) {
+                    publish(LowStockEvent.Type.BACK_IN_STOCK, removed, now);
+                }
+            }
+        }
+    }
+
+    private void publish(LowStockEvent.Type type, InventoryDTO item, Date now) {
+        eventPublisher.publishEvent(new LowStockEvent(type, item.itemCode(), item.name(),
+                item.quantity(), item.reorderLevel(), now));
+    }
+
+    /**
+     * Items changed by the current transaction
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+        private final Set<Long> inventoryIds = new HashSet<>();
+        private final Set<String> itemCodes = new HashSet<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LowStockTracker.this);
+            if (status == STATUS_COMMITTED) {
+                scheduleRefresh(inventoryIds, itemCodes);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package sae.semestre.six.domain.inventory;
+
+import java.util.Date;
+
+/**
+ * A price change, read either from a {@link PriceHistory} row or from a compacted {@link PriceHistorySegment}.
+ *
+ * @param changeDate The date and time of the change
+ * @param oldPrice   The previous price, null if the item had no price
+ * @param newPrice   The new price
+ */
+record PriceChange(Date changeDate, Double oldPrice, Double newPrice) {
+
+    PriceChange(PriceHistory priceHistory) {
+        this(priceHistory.getChangeDate(), priceHistory.getOldPrice(), priceHistory.getNewPrice());
+    }
+}
@@ -8,11 +8,12 @@ import java.util.Date;
 /**
  * Entity representing a price change history record for an inventory item.
  * Stores the old price, new price, and the date of the change for auditing and tracking purposes.
+ * Older records are compacted into {@link PriceHistorySegment}s by the {@link PriceHistoryService}.
  */
 @Getter
 @Setter
 @Entity
-@Table(name = "price_history")
+@Table(name = "price_history", indexes = @Index(name = "idx_price_history_inventory_date", columnList = "inventory_id, change_date"))
 public class PriceHistory {
     /**
      * Unique identifier for the price history record.
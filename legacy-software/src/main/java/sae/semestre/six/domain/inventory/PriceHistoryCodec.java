@@ -0,0 +1,126 @@
+package sae.semestre.six.domain.inventory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Delta encoding of a chronological list of price changes.
+ * <p>
+ * Dates are stored as the milliseconds elapsed since the previous change, and prices (to 4 decimals)
+ * as the difference with the previous price, all as variable-length integers. A change usually
+ * takes 4 to 8 bytes instead of a full price_history row.
+ * <p>
+ * Layout: version, count, then for each change: date delta, old price (0 if null, otherwise
+ * zigzag delta from the previous new price + 1), new price (zigzag delta from the old price,
+ * or from the previous new price when the old price is null).
+ */
+final class PriceHistoryCodec {
+
+    private static final int VERSION = 1;
+    private static final double PRICE_SCALE = 10_000.0;
+
+    private PriceHistoryCodec() {
+    }
+
+    /**
+     * @param changes The changes, in chronological order
+     * @return The encoded changes
+     */
+    static byte[] encode(List<PriceChange> changes) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(changes.size() * 6 + 8);
+        writeVarLong(output, VERSION);
+        writeVarLong(output, changes.size());
+        long previousTime = 0;
+        long previousPrice = 0;
+        for (PriceChange change : changes) {
+            long time = change.changeDate().getTime();
+            writeVarLong(output, zigzag(time - previousTime));
+            long basePrice = previousPrice;
+            if (change.oldPrice() == null) {
+                writeVarLong(output, 0);
+            } else {
+                long oldPrice = scale(change.oldPrice());
+                writeVarLong(output, zigzag(oldPrice - previousPrice) + 1);
+                basePrice = oldPrice;
+            }
+            long newPrice = scale(change.newPrice());
+            writeVarLong(output, zigzag(newPrice - basePrice));
+            previousTime = time;
+            previousPrice = newPrice;
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @param data The encoded changes
+     * @return The changes, in chronological order
+     */
+    static List<PriceChange> decode(byte[] data) {
+        int[] position = {0};
+        long version = readVarLong(data, position);
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported price history encoding: " + version);
+        }
+        int count = (int) readVarLong(data, position);
+        List<PriceChange> changes = new ArrayList<>(count);
+        long previousTime = 0;
+        long previousPrice = 0;
+        for (int i = 0; i < count; i++) {
+            long time = previousTime + unzigzag(readVarLong(data, position));
+            long encodedOldPrice = readVarLong(data, position);
+            Double oldPrice = null;
+            long basePrice = previousPrice;
+            if (encodedOldPrice != 0) {
+                basePrice = previousPrice + unzigzag(encodedOldPrice - 1);
+                oldPrice = unscale(basePrice);
+            }
+            long newPrice = basePrice + unzigzag(readVarLong(data, position));
+            changes.add(new PriceChange(new Date(time), oldPrice, unscale(newPrice)));
+            previousTime = time;
+            previousPrice = newPrice;
+        }
+        return changes;
+    }
+
+    private static long scale(double price) {
+        return Math.round(price * PRICE_SCALE);
+    }
+
+    private static double unscale(long price) {
+        return price / PRICE_SCALE;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= data.length) {
+                throw new IllegalStateException("Truncated price history data");
+            }
+            byte current = data[position[0]++];
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -19,4 +19,17 @@ public record PriceHistoryDTO(Double oldPrice, Double newPrice, String changeDat
             new SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(ph.getChangeDate())
         );
     }
+
+    /**
+     * Constructs a PriceHistoryDTO from a price change, possibly read from the compacted history.
+     *
+     * @param change The price change
+     */
+    PriceHistoryDTO(PriceChange change) {
+        this(
+            change.oldPrice(),
+            change.newPrice(),
+            new SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(change.changeDate())
+        );
+    }
 }
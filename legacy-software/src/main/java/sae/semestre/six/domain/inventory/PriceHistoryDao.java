@@ -1,6 +1,7 @@
 package sae.semestre.six.domain.inventory;
 
 import sae.semestre.six.dao.GenericDao;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -12,7 +13,44 @@ public interface PriceHistoryDao extends GenericDao<PriceHistory, Long> {
      * Retrieves all price history records for a given inventory item.
      *
      * @param inventory The inventory item
-     * @return List of PriceHistory records for the inventory item
+     * @return List of PriceHistory records for the inventory item, in chronological order
      */
     List<PriceHistory> findByInventory(Inventory inventory);
+
+    /**
+     * Retrieves the price history records of an inventory item in a date range.
+     *
+     * @param inventory The inventory item
+     * @param from      The start of the range (inclusive), null for no lower bound
+     * @param to        The end of the range (exclusive), null for no upper bound
+     * @return List of PriceHistory records, in chronological order
+     */
+    List<PriceHistory> findByInventory(Inventory inventory, Date from, Date to);
+
+    /**
+     * Retrieves the most recent price history records of an inventory item.
+     *
+     * @param inventory The inventory item
+     * @param limit     The maximum number of records
+     * @return List of PriceHistory records, most recent first
+     */
+    List<PriceHistory> findLatest(Inventory inventory, int limit);
+
+    /**
+     * Retrieves the inventory items having enough price history records before a date to be compacted.
+     *
+     * @param before     The date before which records are compacted
+     * @param minRecords The minimum number of records
+     * @return The ids of the inventory items
+     */
+    List<Long> findInventoryIdsToCompact(Date before, int minRecords);
+
+    /**
+     * Deletes the price history records of an inventory item before a date.
+     *
+     * @param inventory The inventory item
+     * @param before    The date before which records are deleted
+     * @return The number of deleted records
+     */
+    int deleteByInventoryBefore(Inventory inventory, Date before);
 }
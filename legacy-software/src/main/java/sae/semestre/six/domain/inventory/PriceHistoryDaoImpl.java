@@ -1,7 +1,9 @@
 package sae.semestre.six.domain.inventory;
 
+import jakarta.persistence.TypedQuery;
 import org.springframework.stereotype.Repository;
 import sae.semestre.six.dao.AbstractHibernateDao;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -19,8 +21,57 @@ public class PriceHistoryDaoImpl extends AbstractHibernateDao<PriceHistory, Long
     @Override
     public List<PriceHistory> findByInventory(Inventory inventory) {
         return getEntityManager()
-            .createQuery("FROM PriceHistory WHERE inventory = :inventory", PriceHistory.class)
+            .createQuery("FROM PriceHistory WHERE inventory = :inventory ORDER BY changeDate, id", PriceHistory.class)
             .setParameter("inventory", inventory)
             .getResultList();
     }
+
+    /**
+     * Retrieves the price history records of an inventory item in a date range,
+     * using the (inventory_id, change_date) index.
+     */
+    @Override
+    public List<PriceHistory> findByInventory(Inventory inventory, Date from, Date to) {
+        TypedQuery<PriceHistory> query = getEntityManager().createQuery(
+                "FROM PriceHistory WHERE inventory = :inventory" +
+                        (from != null ? " AND changeDate >= :from" : "") +
+                        (to != null ? " AND changeDate < :to" : "") +
+                        " ORDER BY changeDate, id", PriceHistory.class);
+        query.setParameter("inventory", inventory);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<PriceHistory> findLatest(Inventory inventory, int limit) {
+        return getEntityManager()
+            .createQuery("FROM PriceHistory WHERE inventory = :inventory ORDER BY changeDate DESC, id DESC", PriceHistory.class)
+            .setParameter("inventory", inventory)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    @Override
+    public List<Long> findInventoryIdsToCompact(Date before, int minRecords) {
+        return getEntityManager()
+            .createQuery("SELECT p.inventory.id FROM PriceHistory p WHERE p.changeDate < :before " +
+                    "GROUP BY p.inventory.id HAVING COUNT(p) >= :minRecords", Long.class)
+            .setParameter("before", before)
+            .setParameter("minRecords", (long) minRecords)
+            .getResultList();
+    }
+
+    @Override
+    public int deleteByInventoryBefore(Inventory inventory, Date before) {
+        return getEntityManager()
+            .createQuery("DELETE FROM PriceHistory WHERE inventory = :inventory AND changeDate < :before")
+            .setParameter("inventory", inventory)
+            .setParameter("before", before)
+            .executeUpdate();
+    }
 }
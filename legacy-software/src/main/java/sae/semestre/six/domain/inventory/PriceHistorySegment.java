@@ -0,0 +1,74 @@
+package sae.semestre.six.domain.inventory;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Entity holding the compacted price changes of an inventory item for one calendar month.
+ * The changes are delta-encoded by {@link PriceHistoryCodec}.
+ */
+@Getter
+@Entity
+@NoArgsConstructor
+@Table(name = "price_history_segments",
+        uniqueConstraints = @UniqueConstraint(name = "uk_price_history_segment", columnNames = {"inventory_id", "period_start"}))
+public class PriceHistorySegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "inventory_id", nullable = false)
+    private Inventory inventory;
+
+    /**
+     * First day of the month covered by the segment.
+     */
+    @Column(name = "period_start", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date periodStart;
+
+    @Column(name = "first_change", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date firstChange;
+
+    @Column(name = "last_change", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastChange;
+
+    @Column(name = "change_count", nullable = false)
+    private Integer changeCount;
+
+    @Lob
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    public PriceHistorySegment(Inventory inventory, Date periodStart) {
+        this.inventory = inventory;
+        this.periodStart = periodStart;
+    }
+
+    /**
+     * @return The price changes of the segment, in chronological order
+     */
+    List<PriceChange> getChanges() {
+        return data == null ? List.of() : PriceHistoryCodec.decode(data);
+    }
+
+    /**
+     * Replaces the content of the segment.
+     *
+     * @param changes The price changes, in chronological order (at least one)
+     */
+    void setChanges(List<PriceChange> changes) {
+        this.data = PriceHistoryCodec.encode(changes);
+        this.changeCount = changes.size();
+        this.firstChange = changes.getFirst().changeDate();
+        this.lastChange = changes.getLast().changeDate();
+    }
+}
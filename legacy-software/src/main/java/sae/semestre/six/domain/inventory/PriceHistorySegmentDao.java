@@ -0,0 +1,48 @@
+package sae.semestre.six.domain.inventory;
+
+import sae.semestre.six.dao.GenericDao;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * DAO interface for PriceHistorySegment entity.
+ * Provides database operations for the compacted price history.
+ */
+public interface PriceHistorySegmentDao extends GenericDao<PriceHistorySegment, Long> {
+
+    /**
+     * Retrieves the segments of an item containing changes in a date range.
+     *
+     * @param inventory The inventory item
+     * @param from      The start of the range (inclusive), null for no lower bound
+     * @param to        The end of the range (exclusive), null for no upper bound
+     * @return The segments, in chronological order
+     */
+    List<PriceHistorySegment> findByInventory(Inventory inventory, Date from, Date to);
+
+    /**
+     * Retrieves the most recent segments of an item.
+     *
+     * @param inventory The inventory item
+     * @param limit     The maximum number of segments
+     * @return The segments, most recent first
+     */
+    List<PriceHistorySegment> findLatest(Inventory inventory, int limit);
+
+    /**
+     * Retrieves the segment of an item for a month.
+     *
+     * @param inventory   The inventory item
+     * @param periodStart The first day of the month
+     * @return The segment, or null if none
+     */
+    PriceHistorySegment findByInventoryAndPeriod(Inventory inventory, Date periodStart);
+
+    /**
+     * Deletes all segments of an item.
+     *
+     * @param inventory The inventory item
+     */
+    void deleteByInventory(Inventory inventory);
+}
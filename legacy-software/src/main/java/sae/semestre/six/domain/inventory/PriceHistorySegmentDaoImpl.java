@@ -0,0 +1,63 @@
+package sae.semestre.six.domain.inventory;
+
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+import sae.semestre.six.dao.AbstractHibernateDao;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Implementation of the PriceHistorySegmentDao interface.
+ * Provides database operations for PriceHistorySegment entities using Hibernate.
+ */
+@Repository
+public class PriceHistorySegmentDaoImpl extends AbstractHibernateDao<PriceHistorySegment, Long> implements PriceHistorySegmentDao {
+
+    @Override
+    public List<PriceHistorySegment> findByInventory(Inventory inventory, Date from, Date to) {
+        TypedQuery<PriceHistorySegment> query = getEntityManager().createQuery(
+                "FROM PriceHistorySegment s WHERE s.inventory = :inventory" +
+                        (from != null ? " AND s.lastChange >= :from" : "") +
+                        (to != null ? " AND s.firstChange < :to" : "") +
+                        " ORDER BY s.periodStart", PriceHistorySegment.class);
+        query.setParameter("inventory", inventory);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<PriceHistorySegment> findLatest(Inventory inventory, int limit) {
+        return getEntityManager()
+                .createQuery("FROM PriceHistorySegment s WHERE s.inventory = :inventory " +
+                        "ORDER BY s.periodStart DESC", PriceHistorySegment.class)
+                .setParameter("inventory", inventory)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public PriceHistorySegment findByInventoryAndPeriod(Inventory inventory, Date periodStart) {
+        return getEntityManager()
+                .createQuery("FROM PriceHistorySegment s WHERE s.inventory = :inventory " +
+                        "AND s.periodStart = :periodStart", PriceHistorySegment.class)
+                .setParameter("inventory", inventory)
+                .setParameter("periodStart", periodStart)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public void deleteByInventory(Inventory inventory) {
+        getEntityManager()
+                .createQuery("DELETE FROM PriceHistorySegment s WHERE s.inventory = :inventory")
+                .setParameter("inventory", inventory)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,228 @@
+package sae.semestre.six.domain.inventory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Service for querying and compacting the price history of inventory items.
+ * <p>
+ * Recent price changes are kept as {@link PriceHistory} rows, indexed on (inventory, date). Changes older
+ * than {@code sae.semestre.six.inventory.price-history.retention-days} are compacted every night into one
+ * delta-encoded {@link PriceHistorySegment} per item and month, for items having at least
+ * {@code compaction-min-records} old rows. Queries read both and return the same results before and
+ * after compaction, except that prices are kept to 4 decimals in segments.
+ */
+@Service
+public class PriceHistoryService {
+
+    private final PriceHistoryDao priceHistoryDao;
+    private final PriceHistorySegmentDao priceHistorySegmentDao;
+    private final InventoryDao inventoryDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int compactionMinRecords;
+
+    public PriceHistoryService(PriceHistoryDao priceHistoryDao,
+                               PriceHistorySegmentDao priceHistorySegmentDao,
+                               InventoryDao inventoryDao,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${sae.semestre.six.inventory.price-history.retention-days:90}") int retentionDays,
+                               @Value("${sae.semestre.six.inventory.price-history.compaction-min-records:50}") int compactionMinRecords) {
+        this.priceHistoryDao = priceHistoryDao;
+        this.priceHistorySegmentDao = priceHistorySegmentDao;
+        this.inventoryDao = inventoryDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.compactionMinRecords = compactionMinRecords;
+    }
+
+    /**
+     * Retrieves the price changes of an item.
+     *
+     * @param inventory The inventory item
+     * @param from      The first day (inclusive), null for no lower bound
+     * @param to        The last day (inclusive), null for no upper bound
+     * @return List of PriceHistoryDTOs, in chronological order
+     */
+    public List<PriceHistoryDTO> getHistory(Inventory inventory, LocalDate from, LocalDate to) {
+        return getChanges(inventory, from, to).stream().map(PriceHistoryDTO::new).toList();
+    }
+
+    /**
+     * Retrieves the most recent price changes of an item.
+     *
+     * @param inventory The inventory item
+     * @param count     The maximum number of changes
+     * @return List of PriceHistoryDTOs, most recent first
+     */
+    public List<PriceHistoryDTO> getLatest(Inventory inventory, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        List<PriceChange> latest = new ArrayList<>(priceHistoryDao.findLatest(inventory, count).stream()
+                .map(PriceChange::new)
+                .toList());
+        if (latest.size() < count) {
+            // Each segment holds at least one change
+            for (PriceHistorySegment segment : priceHistorySegmentDao.findLatest(inventory, count - latest.size())) {
+                List<PriceChange> changes = segment.getChanges();
+                for (int i = changes.size() - 1; i >= 0 && latest.size() < count; i--) {
+                    latest.add(changes.get(i));
+                }
+                if (latest.size() == count) {
+                    break;
+                }
+            }
+        }
+        return latest.stream().map(PriceHistoryDTO::new).toList();
+    }
+
+    /**
+     * Retrieves the last price set each day an item was repriced.
+     *
+     * @param inventory The inventory item
+     * @param from      The first day (inclusive), null for no lower bound
+     * @param to        The last day (inclusive), null for no upper bound
+     * @return List of DailyPriceDTOs, in chronological order
+     */
+    public List<DailyPriceDTO> getDailyPrices(Inventory inventory, LocalDate from, LocalDate to) {
+        Map<LocalDate, Double> prices = new LinkedHashMap<>();
+        for (PriceChange change : getChanges(inventory, from, to)) {
+            prices.put(toDay(change.changeDate()), change.newPrice());
+        }
+        return prices.entrySet().stream()
+                .map(entry -> new DailyPriceDTO(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * Retrieves the lowest and highest prices of an item for each period it was repriced.
+     *
+     * @param inventory The inventory item
+     * @param period    The period length
+     * @param from      The first day (inclusive), null for no lower bound
+     * @param to        The last day (inclusive), null for no upper bound
+     * @return List of PriceRangeDTOs, in chronological order
+     */
+    public List<PriceRangeDTO> getPriceRanges(Inventory inventory, PricePeriod period, LocalDate from, LocalDate to) {
+        List<PriceRangeDTO> ranges = new ArrayList<>();
+        LocalDate periodStart = null;
+        double min = 0;
+        double max = 0;
+        double last = 0;
+        int changes = 0;
+        for (PriceChange change : getChanges(inventory, from, to)) {
+            LocalDate start = period.start(toDay(change.changeDate()));
+            if (!start.equals(periodStart)) {
+                if (periodStart != null) {
+                    ranges.add(new PriceRangeDTO(periodStart, min, max, last, changes));
+                }
+                periodStart = start;
+                changes = 0;
+                // The price in effect when the period starts
+                min = max = change.oldPrice() != null ? change.oldPrice() : change.newPrice();
+            }
+            min = Math.min(min, change.newPrice());
+            max = Math.max(max, change.newPrice());
+            last = change.newPrice();
+            changes++;
+        }
+        if (periodStart != null) {
+            ranges.add(new PriceRangeDTO(periodStart, min, max, last, changes));
+        }
+        return ranges;
+    }
+
+    /**
+     * Compacts the old price history records of the frequently repriced items. Each item is compacted
+     * in its own transaction.
+     *
+     * @return The number of records compacted
+     */
+    @Scheduled(cron = "${sae.semestre.six.inventory.price-history.compaction-cron:0 30 3 * * *}")
+    public int compact() {
+        Date cutoff = toDate(LocalDate.now().minusDays(retentionDays));
+        List<Long> inventoryIds = transactionTemplate.execute(status ->
+                priceHistoryDao.findInventoryIdsToCompact(cutoff, compactionMinRecords));
+        int compacted = 0;
+        for (Long inventoryId : inventoryIds == null ? List.<Long>of() : inventoryIds) {
+            Integer records = transactionTemplate.execute(status -> compact(inventoryId, cutoff));
+            compacted += records == null ? 0 : records;
+        }
+        return compacted;
+    }
+
+    /**
+     * Deletes the compacted history of an item, before deleting the item.
+     *
+     * @param inventory The inventory item
+     */
+    public void deleteCompactedHistory(Inventory inventory) {
+        priceHistorySegmentDao.deleteByInventory(inventory);
+    }
+
+    private int compact(Long inventoryId, Date cutoff) {
+        Inventory inventory = inventoryDao.findById(inventoryId);
+        if (inventory == null) {
+            return 0;
+        }
+        Map<LocalDate, List<PriceChange>> changesByMonth = new TreeMap<>();
+        List<PriceHistory> records = priceHistoryDao.findByInventory(inventory, null, cutoff);
+        for (PriceHistory record : records) {
+            changesByMonth.computeIfAbsent(PricePeriod.MONTH.start(toDay(record.getChangeDate())), month -> new ArrayList<>())
+                    .add(new PriceChange(record));
+        }
+        changesByMonth.forEach((month, changes) -> {
+            PriceHistorySegment segment = priceHistorySegmentDao.findByInventoryAndPeriod(inventory, toDate(month));
+            if (segment == null) {
+                segment = new PriceHistorySegment(inventory, toDate(month));
+                segment.setChanges(changes);
+                priceHistorySegmentDao.save(segment);
+            } else {
+                List<PriceChange> merged = new ArrayList<>(segment.getChanges());
+                merged.addAll(changes);
+                merged.sort(Comparator.comparing(PriceChange::changeDate));
+                segment.setChanges(merged);
+                priceHistorySegmentDao.update(segment);
+            }
+        });
+        priceHistoryDao.deleteByInventoryBefore(inventory, cutoff);
+        return records.size();
+    }
+
+    /**
+     * Reads the compacted and recent changes of an item in a range of days
+     */
+    private List<PriceChange> getChanges(Inventory inventory, LocalDate from, LocalDate to) {
+        Date start = from == null ? null : toDate(from);
+        Date end = to == null ? null : toDate(to.plusDays(1));
+        List<PriceChange> changes = new ArrayList<>();
+        for (PriceHistorySegment segment : priceHistorySegmentDao.findByInventory(inventory, start, end)) {
+            for (PriceChange change : segment.getChanges()) {
+                if ((start == null || !change.changeDate().before(start)) && (end == null || change.changeDate().before(end))) {
+                    changes.add(change);
+                }
+            }
+        }
+        for (PriceHistory record : priceHistoryDao.findByInventory(inventory, start, end)) {
+            changes.add(new PriceChange(record));
+        }
+        changes.sort(Comparator.comparing(PriceChange::changeDate));
+        return changes;
+    }
+
+    private static LocalDate toDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,26 @@
+package sae.semestre.six.domain.inventory;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Period used to downsample the price history.
+ */
+public enum PricePeriod {
+    DAY,
+    WEEK,
+    MONTH;
+
+    /**
+     * @param day A day
+     * @return The first day of the period containing the day (weeks start on Monday)
+     */
+    public LocalDate start(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package sae.semestre.six.domain.inventory;
+
+import java.time.LocalDate;
+
+/**
+ * Data Transfer Object (DTO) for the prices of an inventory item over a period.
+ *
+ * @param periodStart The first day of the period
+ * @param minPrice    The lowest price in effect during the period
+ * @param maxPrice    The highest price in effect during the period
+ * @param lastPrice   The price at the end of the period
+ * @param changes     The number of price changes during the period
+ */
+public record PriceRangeDTO(LocalDate periodStart, Double minPrice, Double maxPrice, Double lastPrice, int changes) {
+}
@@ -0,0 +1,18 @@
+package sae.semestre.six.domain.inventory;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Event published whenever stock leaves the inventory (prescriptions and manual decrements),
+ * within the transaction making the change. Restocks are not consumption and are not reported.
+ *
+ * @param quantities The quantity consumed for each item code
+ * @param consumedAt The date of the consumption
+ */
+public record StockConsumedEvent(Map<String, Integer> quantities, Date consumedAt) {
+
+    public StockConsumedEvent {
+        quantities = Map.copyOf(quantities);
+    }
+}
@@ -0,0 +1,54 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exponentially weighted consumption of an inventory item.
+ * <p>
+ * Each consumed quantity is weighted by {@code exp(-age / meanLife)}; only the weighted sum at the last
+ * consumption is kept, so that recording a consumption costs O(1) whatever the history. The rate divides
+ * the weighted sum by the weight of the observed window, which makes it an unbiased estimate even for an
+ * item tracked for less than a mean life.
+ *
+ * @param weightedQuantity The consumed quantities, weighted at {@code lastConsumedAt}
+ * @param firstConsumedAt  The epoch millis of the first consumption
+ * @param lastConsumedAt   The epoch millis of the last consumption
+ */
+record ConsumptionRate(double weightedQuantity, long firstConsumedAt, long lastConsumedAt) {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    static ConsumptionRate of(int quantity, long consumedAt) {
+        return new ConsumptionRate(quantity, consumedAt, consumedAt);
+    }
+
+    /**
+     * Combines two consumption histories of the same item, in any order.
+     *
+     * @param other    The other history
+     * @param meanLife The mean life of a consumption, in millis
+     * @return The combined history
+     */
+    ConsumptionRate merge(ConsumptionRate other, double meanLife) {
+        long last = Math.max(lastConsumedAt, other.lastConsumedAt);
+        double weighted = weightedQuantity * decay(last - lastConsumedAt, meanLife)
+                + other.weightedQuantity * decay(last - other.lastConsumedAt, meanLife);
+        return new ConsumptionRate(weighted, Math.min(firstConsumedAt, other.firstConsumedAt), last);
+    }
+
+    /**
+     * @param now      The epoch millis to estimate the rate at
+     * @param meanLife The mean life of a consumption, in millis
+     * @return The estimated consumption per day
+     */
+    double perDay(long now, double meanLife) {
+        double weighted = weightedQuantity * decay(Math.max(now - lastConsumedAt, 0), meanLife);
+        // A window shorter than a day would turn a single consumption into a huge rate
+        long window = Math.max(now - firstConsumedAt, DAY);
+        return weighted * DAY / (meanLife * (1 - decay(window, meanLife)));
+    }
+
+    private static double decay(long age, double meanLife) {
+        return Math.exp(-age / meanLife);
+    }
+}
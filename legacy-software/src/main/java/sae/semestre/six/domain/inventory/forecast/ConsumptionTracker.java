@@ -0,0 +1,130 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.inventory.StockConsumedEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory consumption rates of the inventory items.
+ * <p>
+ * Each committed {@link StockConsumedEvent} updates the {@link ConsumptionRate} of its items in O(1).
+ * The rates changed since the last flush are saved periodically, and loaded back at startup, so that
+ * reading a rate never rescans the stock movements.
+ */
+@Component
+public class ConsumptionTracker {
+
+    private final ItemConsumptionDao itemConsumptionDao;
+    private final TransactionTemplate transactionTemplate;
+    private final double meanLife;
+
+    private final Map<String, ConsumptionRate> rates = new ConcurrentHashMap<>();
+    private final Set<String> changedItemCodes = ConcurrentHashMap.newKeySet();
+
+    public ConsumptionTracker(ItemConsumptionDao itemConsumptionDao,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${sae.semestre.six.inventory.forecast.half-life-days:14}") double halfLifeDays) {
+        if (halfLifeDays <= 0) {
+            throw new IllegalArgumentException("The consumption half-life must be positive");
+        }
+        this.itemConsumptionDao = itemConsumptionDao;
+        // Flushes may run after commit callbacks: they must not join a completed transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meanLife = halfLifeDays * TimeUnit.DAYS.toMillis(1) / Math.log(2);
+    }
+
+    /**
+     * Loads the saved rates. Consumption recorded before the load is kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ItemConsumption> saved = transactionTemplate.execute(status -> itemConsumptionDao.findAll());
+        for (ItemConsumption consumption : saved == null ? List.<ItemConsumption>of() : saved) {
+            rates.merge(consumption.getItemCode(), consumption.toRate(), this::merge);
+        }
+    }
+
+    /**
+     * Records consumed stock once the transaction consuming it commits.
+     *
+     * @param event The consumed quantities
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockConsumed(StockConsumedEvent event) {
+        long consumedAt = event.consumedAt().getTime();
+        event.quantities().forEach((itemCode, quantity) -> {
+            if (quantity > 0) {
+                rates.merge(itemCode, ConsumptionRate.of(quantity, consumedAt), this::merge);
+                changedItemCodes.add(itemCode);
+            }
+        });
+    }
+
+    /**
+     * @param itemCode The item code
+     * @return The estimated consumption per day, 0 if the item was never consumed
+     */
+    public double getDailyRate(String itemCode) {
+        return getDailyRate(itemCode, System.currentTimeMillis());
+    }
+
+    double getDailyRate(String itemCode, long now) {
+        ConsumptionRate rate = rates.get(itemCode);
+        return rate == null ? 0 : rate.perDay(now, meanLife);
+    }
+
+    /**
+     * @return The codes of the items consumed at least once
+     */
+    public Set<String> getTrackedItemCodes() {
+        return Collections.unmodifiableSet(rates.keySet());
+    }
+
+    /**
+     * Saves the rates changed since the last flush. On failure, they are saved by the next flush.
+     */
+    @Scheduled(fixedDelayString = "${sae.semestre.six.inventory.forecast.flush-interval-ms:60000}")
+    public void flush() {
+        List<String> itemCodes = new ArrayList<>();
+        for (String itemCode : changedItemCodes) {
+            if (changedItemCodes.remove(itemCode)) {
+                itemCodes.add(itemCode);
+            }
+        }
+        if (itemCodes.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (String itemCode : itemCodes) {
+                    itemConsumptionDao.update(new ItemConsumption(itemCode, rates.get(itemCode)));
+                }
+            });
+        } catch (RuntimeException e) {
+            changedItemCodes.addAll(itemCodes);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private ConsumptionRate merge(ConsumptionRate current, ConsumptionRate added) {
+        return current.merge(added, meanLife);
+    }
+}
@@ -0,0 +1,50 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Entity storing the consumption rate state of an inventory item, so that the rates survive restarts
+ * without rescanning the stock movements.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "inventory_consumption")
+public class ItemConsumption {
+
+    /**
+     * Code of the inventory item. Not a foreign key: the state of a deleted item is simply never read.
+     */
+    @Id
+    @Column(name = "item_code")
+    private String itemCode;
+
+    /**
+     * The quantities consumed, each weighted by its age at the last consumption.
+     */
+    @Column(name = "weighted_quantity", nullable = false)
+    private double weightedQuantity;
+
+    @Column(name = "first_consumed_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date firstConsumedAt;
+
+    @Column(name = "last_consumed_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastConsumedAt;
+
+    ItemConsumption(String itemCode, ConsumptionRate rate) {
+        this.itemCode = itemCode;
+        this.weightedQuantity = rate.weightedQuantity();
+        this.firstConsumedAt = new Date(rate.firstConsumedAt());
+        this.lastConsumedAt = new Date(rate.lastConsumedAt());
+    }
+
+    ConsumptionRate toRate() {
+        return new ConsumptionRate(weightedQuantity, firstConsumedAt.getTime(), lastConsumedAt.getTime());
+    }
+}
@@ -0,0 +1,10 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import sae.semestre.six.dao.GenericDao;
+
+/**
+ * DAO interface for ItemConsumption.
+ * Defines database operations for ItemConsumption entities.
+ */
+public interface ItemConsumptionDao extends GenericDao<ItemConsumption, String> {
+}
@@ -0,0 +1,12 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import org.springframework.stereotype.Repository;
+import sae.semestre.six.dao.AbstractHibernateDao;
+
+/**
+ * Implementation of the ItemConsumptionDao interface.
+ * Provides database operations for ItemConsumption entities using Hibernate.
+ */
+@Repository
+public class ItemConsumptionDaoImpl extends AbstractHibernateDao<ItemConsumption, String> implements ItemConsumptionDao {
+}
@@ -0,0 +1,25 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import java.time.LocalDate;
+
+/**
+ * Stock projection of an inventory item, based on its consumption rate.
+ *
+ * @param itemCode          The item code
+ * @param name              The item name
+ * @param quantity          The quantity in stock
+ * @param reorderLevel      The reorder level
+ * @param dailyConsumption  The estimated consumption per day, 0 if the item is not consumed
+ * @param daysOfStock       The days until the stock runs out, null if the item is not consumed
+ * @param projectedStockOut The date the stock runs out, null if not within the forecast horizon
+ * @param reorderQuantity   The quantity to order when reordering the item
+ */
+public record StockForecast(String itemCode,
+                            String name,
+                            Integer quantity,
+                            Integer reorderLevel,
+                            double dailyConsumption,
+                            Double daysOfStock,
+                            LocalDate projectedStockOut,
+                            int reorderQuantity) {
+}
@@ -0,0 +1,110 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import sae.semestre.six.domain.inventory.Inventory;
+import sae.semestre.six.domain.inventory.InventoryDTO;
+import sae.semestre.six.domain.inventory.InventoryDao;
+import sae.semestre.six.exception.ResourceNotFoundException;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Service projecting the stock of the inventory items from their {@link ConsumptionTracker} rates.
+ * <p>
+ * An item is reordered up to its reorder level plus the stock consumed during the supplier lead time
+ * and the coverage period. Items with no consumption keep the default quantity (twice the reorder level).
+ */
+@Service
+public class StockForecastService {
+
+    static final int HORIZON_DAYS = 3650;
+
+    /**
+     * Rates below this value (a unit every three years) are treated as no consumption
+     */
+    private static final double MIN_DAILY_RATE = 0.001;
+
+    private final InventoryDao inventoryDao;
+    private final ConsumptionTracker consumptionTracker;
+    private final int leadTimeDays;
+    private final int coverageDays;
+
+    public StockForecastService(InventoryDao inventoryDao,
+                                ConsumptionTracker consumptionTracker,
+                                @Value("${sae.semestre.six.inventory.forecast.lead-time-days:7}") int leadTimeDays,
+                                @Value("${sae.semestre.six.inventory.forecast.coverage-days:30}") int coverageDays) {
+        this.inventoryDao = inventoryDao;
+        this.consumptionTracker = consumptionTracker;
+        this.leadTimeDays = leadTimeDays;
+        this.coverageDays = coverageDays;
+    }
+
+    /**
+     * Projects the stock of an inventory item.
+     *
+     * @param itemCode The unique item code
+     * @return The stock forecast
+     * @throws ResourceNotFoundException if the item does not exist
+     */
+    @Transactional(readOnly = true)
+    public StockForecast getForecast(String itemCode) {
+        try {
+            return forecast(new InventoryDTO(inventoryDao.findByItemCode(itemCode)));
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResourceNotFoundException("The item was not found");
+        }
+    }
+
+    /**
+     * Retrieves the items projected to run out of stock within a number of days.
+     *
+     * @param days The number of days
+     * @return The forecasts, soonest stock-out first
+     * @throws IllegalArgumentException if the number of days is out of range
+     */
+    @Transactional(readOnly = true)
+    public List<StockForecast> getStockOuts(int days) {
+        if (days <= 0 || days > HORIZON_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + HORIZON_DAYS);
+        }
+        LocalDate limit = LocalDate.now().plusDays(days);
+        List<Inventory> items = inventoryDao.findByIdsOrItemCodes(List.of(), List.copyOf(consumptionTracker.getTrackedItemCodes()));
+        return items.stream()
+                .map(item -> forecast(new InventoryDTO(item)))
+                .filter(forecast -> forecast.projectedStockOut() != null && !forecast.projectedStockOut().isAfter(limit))
+                .sorted(Comparator.comparing(StockForecast::projectedStockOut).thenComparing(StockForecast::itemCode))
+                .toList();
+    }
+
+    /**
+     * Projects the stock of an inventory item.
+     *
+     * @param item The inventory item
+     * @return The stock forecast
+     */
+    public StockForecast forecast(InventoryDTO item) {
+        double dailyRate = consumptionTracker.getDailyRate(item.itemCode());
+        if (dailyRate < MIN_DAILY_RATE) {
+            return new StockForecast(item.itemCode(), item.name(), item.quantity(), item.reorderLevel(),
+                    0, null, null, item.reorderLevel() * 2);
+        }
+        double daysOfStock = item.quantity() / dailyRate;
+        LocalDate stockOut = daysOfStock <= HORIZON_DAYS ? LocalDate.now().plusDays((long) daysOfStock) : null;
+        int target = item.reorderLevel() + (int) Math.ceil(dailyRate * (leadTimeDays + coverageDays));
+        return new StockForecast(item.itemCode(), item.name(), item.quantity(), item.reorderLevel(),
+                dailyRate, daysOfStock, stockOut, Math.max(target - item.quantity(), 1));
+    }
+
+    /**
+     * @param item The inventory item
+     * @return The quantity to order when reordering the item
+     */
+    public int reorderQuantity(InventoryDTO item) {
+        return forecast(item).reorderQuantity();
+    }
+}
@@ -0,0 +1,48 @@
+package sae.semestre.six.domain.inventory.reorder;
+
+import java.util.Date;
+
+/**
+ * State of a background reorder run, as returned to the client polling it.
+ *
+ * @param id          The job id
+ * @param status      The job status
+ * @param submittedAt The date the job was submitted
+ * @param finishedAt  The date the job completed or failed, null before
+ * @param report      The result, once the job has completed
+ * @param error       The failure cause, if the job has failed
+ */
+public record ReorderJob(String id,
+                         Status status,
+                         Date submittedAt,
+                         Date finishedAt,
+                         ReorderReport report,
+                         String error) {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    static ReorderJob queued(String id) {
+        return new ReorderJob(id, Status.QUEUED, new Date(), null, null, null);
+    }
+
+    ReorderJob running() {
+        return new ReorderJob(id, Status.RUNNING, submittedAt, null, null, null);
+    }
+
+    ReorderJob completed(ReorderReport report) {
+        return new ReorderJob(id, Status.COMPLETED, submittedAt, new Date(), report, null);
+    }
+
+    ReorderJob failed(String error) {
+        return new ReorderJob(id, Status.FAILED, submittedAt, new Date(), null, error);
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
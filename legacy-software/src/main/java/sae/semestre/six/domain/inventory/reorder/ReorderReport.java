@@ -0,0 +1,12 @@
+package sae.semestre.six.domain.inventory.reorder;
+
+/**
+ * Result of a reorder run.
+ *
+ * @param lowStockItems  The number of items at or below their reorder level
+ * @param ordered        The number of items reordered
+ * @param alreadyOnOrder The number of items skipped because they are already on order
+ * @param emailsSent     The number of digest emails sent, one per supplier
+ */
+public record ReorderReport(int lowStockItems, int ordered, int alreadyOnOrder, int emailsSent) {
+}
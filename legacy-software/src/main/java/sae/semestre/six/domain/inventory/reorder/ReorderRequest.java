@@ -0,0 +1,45 @@
+package sae.semestre.six.domain.inventory.reorder;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Entity representing a reorder sent to a supplier for a low-stock inventory item.
+ * The item stays on order until it is back above its reorder level.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "reorder_requests", indexes = @Index(name = "idx_reorder_requests_open", columnList = "item_code, received_at"))
+public class ReorderRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Code of the reordered inventory item. Not a foreign key, so that deleting an item keeps its reorders.
+     */
+    @Column(name = "item_code", nullable = false)
+    private String itemCode;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "supplier_name")
+    private String supplierName;
+
+    @Column(name = "requested_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date requestedAt;
+
+    /**
+     * The date the item went back in stock, null while the item is on order.
+     */
+    @Column(name = "received_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date receivedAt;
+}
@@ -0,0 +1,50 @@
+package sae.semestre.six.domain.inventory.reorder;
+
+import sae.semestre.six.dao.GenericDao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DAO interface for ReorderRequest.
+ * Defines database operations for ReorderRequest entities.
+ */
+public interface ReorderRequestDao extends GenericDao<ReorderRequest, Long> {
+
+    /**
+     * A reorder to insert without creating its entity.
+     *
+     * @param itemCode     The code of the reordered item
+     * @param quantity     The quantity ordered
+     * @param supplierName The supplier the order is sent to, null if unknown
+     */
+    record OrderRow(String itemCode, int quantity, String supplierName) {
+    }
+
+    /**
+     * Retrieves the items that are already on order.
+     *
+     * @param itemCodes The item codes to look up
+     * @return The item codes having a reorder not received yet
+     */
+    Set<String> findOpenItemCodes(Collection<String> itemCodes);
+
+    /**
+     * Inserts open reorders with batched inserts.
+     *
+     * @param orders      The reorders to insert
+     * @param requestedAt The date of the reorders
+     */
+    void insertOpen(List<OrderRow> orders, Date requestedAt);
+
+    /**
+     * Marks the open reorders of an item as received.
+     *
+     * @param itemCode   The item code
+     * @param receivedAt The date the item went back in stock
+     * @return The number of reorders closed
+     */
+    int markReceived(String itemCode, Date receivedAt);
+}
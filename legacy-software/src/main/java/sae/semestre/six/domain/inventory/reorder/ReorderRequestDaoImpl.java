@@ -0,0 +1,73 @@
+package sae.semestre.six.domain.inventory.reorder;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import sae.semestre.six.dao.AbstractHibernateDao;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Implementation of the ReorderRequestDao interface.
+ * Provides database operations for ReorderRequest entities using Hibernate.
+ */
+@Repository
+public class ReorderRequestDaoImpl extends AbstractHibernateDao<ReorderRequest, Long> implements ReorderRequestDao {
+
+    private static final String INSERT_ORDER =
+            "INSERT INTO reorder_requests (item_code, quantity, supplier_name, requested_at) VALUES (?, ?, ?, ?)";
+
+    @Override
+    public Set<String> findOpenItemCodes(Collection<String> itemCodes) {
+        if (itemCodes.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(getEntityManager()
+                .createQuery("SELECT DISTINCT r.itemCode FROM ReorderRequest r " +
+                        "WHERE r.itemCode IN :itemCodes AND r.receivedAt IS NULL", String.class)
+                .setParameter("itemCodes", itemCodes)
+                .getResultList());
+    }
+
+    /**
+     * Inserts open reorders in a single JDBC batch.
+     *
+     * @param orders      The reorders to insert
+     * @param requestedAt The date of the reorders
+     */
+    @Override
+    public void insertOpen(List<OrderRow> orders, Date requestedAt) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = new Timestamp(requestedAt.getTime());
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_ORDER)) {
+                for (OrderRow order : orders) {
+                    statement.setString(1, order.itemCode());
+                    statement.setInt(2, order.quantity());
+                    if (order.supplierName() == null) {
+                        statement.setNull(3, Types.VARCHAR);
+                    } else {
+                        statement.setString(3, order.supplierName());
+                    }
+                    statement.setTimestamp(4, timestamp);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public int markReceived(String itemCode, Date receivedAt) {
+        return getEntityManager()
+                .createQuery("UPDATE ReorderRequest r SET r.receivedAt = :receivedAt " +
+                        "WHERE r.itemCode = :itemCode AND r.receivedAt IS NULL")
+                .setParameter("receivedAt", receivedAt)
+                .setParameter("itemCode", itemCode)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,240 @@
+package sae.semestre.six.domain.inventory.reorder;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.inventory.InventoryDTO;
+import sae.semestre.six.domain.inventory.LowStockEvent;
+import sae.semestre.six.domain.inventory.LowStockTracker;
+import sae.semestre.six.domain.inventory.forecast.StockForecastService;
+import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceDao;
+import sae.semestre.six.mail.EmailService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service sending reorder requests for the low-stock items.
+ * <p>
+ * A reorder run orders every low-stock item that is not already on order, in one transaction:
+ * the reorders are recorded with one batched insert, one digest email is sent per supplier (the supplier
+ * of the item's latest invoice) and all the order lines are appended to the orders file at once.
+ * The quantity ordered comes from the item's consumption rate ({@link StockForecastService}).
+ * An item stays on order until a {@link LowStockEvent} reports it back in stock.
+ * <p>
+ * Runs are executed in the background one at a time; requesting a run while one is queued or running
+ * returns that run. Clients poll the run with {@link #getJob(String)}.
+ */
+@Service
+public class ReorderService {
+
+    static final String UNKNOWN_SUPPLIER = "Default supplier";
+
+    private final LowStockTracker lowStockTracker;
+    private final StockForecastService stockForecastService;
+    private final ReorderRequestDao reorderRequestDao;
+    private final SupplierInvoiceDao supplierInvoiceDao;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final String ordersFile;
+    private final int maxRetainedJobs;
+
+    private final Map<String, ReorderJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicReference<ReorderJob> currentJob = new AtomicReference<>();
+
+    @Autowired
+    public ReorderService(LowStockTracker lowStockTracker,
+                          StockForecastService stockForecastService,
+                          ReorderRequestDao reorderRequestDao,
+                          SupplierInvoiceDao supplierInvoiceDao,
+                          EmailService emailService,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${sae.semestre.six.files.order}") String ordersFile,
+                          @Value("${sae.semestre.six.inventory.reorder.max-retained-jobs:100}") int maxRetainedJobs) {
+        this(lowStockTracker, stockForecastService, reorderRequestDao, supplierInvoiceDao, emailService, transactionManager,
+                ordersFile, maxRetainedJobs, Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "inventory-reorder");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    ReorderService(LowStockTracker lowStockTracker,
+                   StockForecastService stockForecastService,
+                   ReorderRequestDao reorderRequestDao,
+                   SupplierInvoiceDao supplierInvoiceDao,
+                   EmailService emailService,
+                   PlatformTransactionManager transactionManager,
+                   String ordersFile,
+                   int maxRetainedJobs,
+                   Executor executor) {
+        this.lowStockTracker = lowStockTracker;
+        this.stockForecastService = stockForecastService;
+        this.reorderRequestDao = reorderRequestDao;
+        this.supplierInvoiceDao = supplierInvoiceDao;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ordersFile = ordersFile;
+        this.maxRetainedJobs = maxRetainedJobs;
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a reorder run, unless one is already queued or running.
+     *
+     * @return The submitted run, or the run in progress
+     */
+    public ReorderJob submit() {
+        ReorderJob job = ReorderJob.queued(UUID.randomUUID().toString());
+        while (true) {
+            ReorderJob current = currentJob.get();
+            if (current != null) {
+                return jobs.getOrDefault(current.id(), current);
+            }
+            if (currentJob.compareAndSet(null, job)) {
+                break;
+            }
+        }
+        store(job);
+        executor.execute(() -> run(job));
+        return job;
+    }
+
+    /**
+     * Retrieves a reorder run.
+     *
+     * @param jobId The job id
+     * @return The run, empty if unknown or no longer retained
+     */
+    public Optional<ReorderJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Orders the low-stock items that are not already on order.
+     *
+     * @return The result of the run
+     */
+    public ReorderReport reorder() {
+        return transactionTemplate.execute(status -> {
+            List<InventoryDTO> lowStockItems = lowStockTracker.getLowStockItems();
+            Set<String> onOrder = reorderRequestDao.findOpenItemCodes(
+                    lowStockItems.stream().map(InventoryDTO::itemCode).toList());
+            List<InventoryDTO> toOrder = lowStockItems.stream()
+                    .filter(item -> !onOrder.contains(item.itemCode()))
+                    .toList();
+            if (toOrder.isEmpty()) {
+                return new ReorderReport(lowStockItems.size(), 0, onOrder.size(), 0);
+            }
+
+            Map<String, String> suppliers = supplierInvoiceDao.findLatestSupplierNames(
+                    toOrder.stream().map(InventoryDTO::itemCode).toList());
+            Map<String, List<InventoryDTO>> itemsBySupplier = new TreeMap<>();
+            Map<String, Integer> quantities = new HashMap<>();
+            List<ReorderRequestDao.OrderRow> orders = new ArrayList<>(toOrder.size());
+            for (InventoryDTO item : toOrder) {
+                String supplier = suppliers.get(item.itemCode());
+                int quantity = stockForecastService.reorderQuantity(item);
+                quantities.put(item.itemCode(), quantity);
+                orders.add(new ReorderRequestDao.OrderRow(item.itemCode(), quantity, supplier));
+                itemsBySupplier.computeIfAbsent(supplier == null ? UNKNOWN_SUPPLIER : supplier, name -> new ArrayList<>())
+                        .add(item);
+            }
+
+            reorderRequestDao.insertOpen(orders, new Date());
+            itemsBySupplier.forEach((supplier, items) -> sendDigest(supplier, items, quantities));
+            // Last step: a failure to write the file rolls the reorders and emails back
+            appendOrderLines(toOrder, quantities);
+            return new ReorderReport(lowStockItems.size(), toOrder.size(), onOrder.size(), itemsBySupplier.size());
+        });
+    }
+
+    /**
+     * Closes the reorders of an item once it is back in stock, so that it can be ordered again.
+     *
+     * @param event The threshold crossing
+     */
+    @EventListener
+    public void onLowStockEvent(LowStockEvent event) {
+        if (event.type() == LowStockEvent.Type.BACK_IN_STOCK) {
+            transactionTemplate.executeWithoutResult(status ->
+                    reorderRequestDao.markReceived(event.itemCode(), event.occurredAt()));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void run(ReorderJob job) {
+        store(job.running());
+        try {
+            store(job.completed(reorder()));
+        } catch (RuntimeException e) {
+            store(job.failed(String.valueOf(e.getMessage())));
+        } finally {
+            currentJob.set(null);
+        }
+    }
+
+    private void store(ReorderJob job) {
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+            Iterator<ReorderJob> oldest = jobs.values().iterator();
+            while (jobs.size() > maxRetainedJobs && oldest.hasNext()) {
+                if (oldest.next().isFinished()) {
+                    oldest.remove();
+                }
+            }
+        }
+    }
+
+    private void sendDigest(String supplier, List<InventoryDTO> items, Map<String, Integer> quantities) {
+        StringBuilder body = new StringBuilder("Please restock the following items:\n");
+        for (InventoryDTO item : items) {
+            body.append("- ").append(item.name())
+                    .append(" (").append(item.itemCode()).append("), Quantity: ")
+                    .append(quantities.get(item.itemCode())).append('\n');
+        }
+        emailService.sendEmail(EmailService.EMAIL_SOURCE.SUPPLIER.getEmail(),
+                "Reorder Request - " + supplier + " (" + items.size() + " items)",
+                body.toString());
+    }
+
+    private void appendOrderLines(List<InventoryDTO> items, Map<String, Integer> quantities) {
+        Path path = Path.of(ordersFile);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (InventoryDTO item : items) {
+                    writer.write("REORDER: " + item.itemCode() + ", Quantity: " + quantities.get(item.itemCode()));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing to orders file: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads comma-separated invoice lines ({@code itemCode,quantity,unitPrice}) one text line at a time.
+ * Blank lines are ignored, and the first line is skipped when it is a header starting with {@code itemCode}.
+ */
+class CsvSupplierInvoiceLineReader implements SupplierInvoiceLineReader {
+
+    private final BufferedReader reader;
+    private long line = 0;
+
+    CsvSupplierInvoiceLineReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public SupplierInvoiceLine next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank() || (line == 1 && text.strip().regionMatches(true, 0, "itemCode", 0, 8))) {
+                continue;
+            }
+            return toLine(text);
+        }
+        return null;
+    }
+
+    private SupplierInvoiceLine toLine(String text) {
+        String[] columns = text.split(",", -1);
+        if (columns.length != 3) {
+            return SupplierInvoiceLine.invalid(line, "Expected 3 columns (itemCode,quantity,unitPrice), found " + columns.length);
+        }
+        String itemCode = columns[0].strip();
+        if (itemCode.isEmpty()) {
+            return SupplierInvoiceLine.invalid(line, "Missing item code");
+        }
+        int quantity;
+        double unitPrice;
+        try {
+            quantity = Integer.parseInt(columns[1].strip());
+        } catch (NumberFormatException e) {
+            return SupplierInvoiceLine.invalid(line, "Invalid quantity for item " + itemCode);
+        }
+        try {
+            unitPrice = Double.parseDouble(columns[2].strip());
+        } catch (NumberFormatException e) {
+            return SupplierInvoiceLine.invalid(line, "Invalid unit price for item " + itemCode);
+        }
+        return SupplierInvoiceLine.parsed(line, new SupplierInvoiceDetailDTO(quantity, unitPrice, itemCode));
+    }
+}
@@ -0,0 +1,70 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a JSON array of invoice lines with the Jackson streaming parser: only the current
+ * array element is held in memory.
+ */
+class JsonSupplierInvoiceLineReader implements SupplierInvoiceLineReader {
+
+    private final JsonParser parser;
+    private long line = 0;
+
+    JsonSupplierInvoiceLineReader(InputStream input, ObjectMapper objectMapper) throws IOException {
+        this.parser = objectMapper.getFactory().createParser(input);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Supplier invoice lines must be a JSON array");
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed supplier invoice JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public SupplierInvoiceLine next() throws IOException {
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IllegalArgumentException("Malformed supplier invoice JSON: unexpected end of payload");
+            }
+            if (token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            line++;
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return SupplierInvoiceLine.invalid(line, "Invoice line must be a JSON object");
+            }
+            return toLine(parser.readValueAsTree());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed supplier invoice JSON near line " + (line + 1)
+                    + ": " + e.getOriginalMessage());
+        }
+    }
+
+    private SupplierInvoiceLine toLine(JsonNode node) {
+        JsonNode itemCode = node.path("itemCode");
+        JsonNode quantity = node.path("quantity");
+        JsonNode unitPrice = node.path("unitPrice");
+        if (!itemCode.isTextual()) {
+            return SupplierInvoiceLine.invalid(line, "Missing item code");
+        }
+        if (!quantity.canConvertToInt() || !quantity.isIntegralNumber()) {
+            return SupplierInvoiceLine.invalid(line, "Invalid quantity for item " + itemCode.asText());
+        }
+        if (!unitPrice.isNumber()) {
+            return SupplierInvoiceLine.invalid(line, "Invalid unit price for item " + itemCode.asText());
+        }
+        return SupplierInvoiceLine.parsed(line,
+                new SupplierInvoiceDetailDTO(quantity.intValue(), unitPrice.doubleValue(), itemCode.asText()));
+    }
+}
@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 /**
  * Entity representing a supplier invoice.
@@ -35,6 +36,7 @@ public class SupplierInvoice {
     @OneToMany(mappedBy = "supplierInvoice", cascade = {CascadeType.ALL}, orphanRemoval = true)
     private Set<SupplierInvoiceDetail> details = new HashSet<>();
 
+    @Setter
     @Column(name = "total_amount")
     private Double totalAmount = 0.0;
 
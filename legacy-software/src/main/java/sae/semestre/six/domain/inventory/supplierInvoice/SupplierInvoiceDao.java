@@ -2,10 +2,39 @@ package sae.semestre.six.domain.inventory.supplierInvoice;
 
 import sae.semestre.six.dao.GenericDao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * DAO interface for SupplierInvoice.
  * Defines database operations for SupplierInvoice entities.
  */
 public interface SupplierInvoiceDao extends GenericDao<SupplierInvoice, Long> {
-    // No additional methods; inherits CRUD from GenericDao
+
+    /**
+     * A supplier invoice detail to insert without creating its entity.
+     *
+     * @param inventoryId The id of the restocked inventory item
+     * @param quantity    The quantity received
+     * @param unitPrice   The unit price charged by the supplier
+     */
+    record DetailRow(Long inventoryId, int quantity, double unitPrice) {
+    }
+
+    /**
+     * Inserts details of a saved supplier invoice with batched inserts.
+     *
+     * @param invoice The supplier invoice, already saved
+     * @param details The details to insert
+     */
+    void insertDetails(SupplierInvoice invoice, List<DetailRow> details);
+
+    /**
+     * Retrieves the supplier of each item, as given by the item's latest supplier invoice.
+     *
+     * @param itemCodes The item codes to look up
+     * @return The supplier names by item code; items never invoiced are absent
+     */
+    Map<String, String> findLatestSupplierNames(Collection<String> itemCodes);
 }
@@ -1,13 +1,69 @@
 package sae.semestre.six.domain.inventory.supplierInvoice;
 
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 import sae.semestre.six.dao.AbstractHibernateDao;
 
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Implementation of the SupplierInvoiceDao interface.
  * Provides database operations for SupplierInvoice entities using Hibernate.
  */
 @Repository
 public class SupplierInvoiceDaoImpl extends AbstractHibernateDao<SupplierInvoice, Long> implements SupplierInvoiceDao {
-    // No additional methods; inherits CRUD from AbstractHibernateDao
+
+    private static final String INSERT_DETAIL =
+            "INSERT INTO supplier_invoice_details (invoice_id, inventory_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+
+    /**
+     * Inserts details of a saved supplier invoice in a single JDBC batch.
+     * The inserted rows are not added to the invoice's details collection.
+     *
+     * @param invoice The supplier invoice, already saved
+     * @param details The details to insert
+     */
+    @Override
+    public void insertDetails(SupplierInvoice invoice, List<DetailRow> details) {
+        if (details.isEmpty()) {
+            return;
+        }
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_DETAIL)) {
+                for (DetailRow detail : details) {
+                    statement.setLong(1, invoice.getId());
+                    statement.setLong(2, detail.inventoryId());
+                    statement.setInt(3, detail.quantity());
+                    statement.setDouble(4, detail.unitPrice());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public Map<String, String> findLatestSupplierNames(Collection<String> itemCodes) {
+        if (itemCodes.isEmpty()) {
+            return Map.of();
+        }
+        List<Object[]> rows = getEntityManager()
+                .createQuery("SELECT d.inventory.itemCode, i.supplierName FROM SupplierInvoiceDetail d " +
+                        "JOIN d.supplierInvoice i " +
+                        "WHERE d.inventory.itemCode IN :itemCodes " +
+                        "AND i.invoiceDate = (SELECT MAX(i2.invoiceDate) FROM SupplierInvoiceDetail d2 " +
+                        "JOIN d2.supplierInvoice i2 WHERE d2.inventory = d.inventory) " +
+                        "ORDER BY i.id", Object[].class)
+                .setParameter("itemCodes", itemCodes)
+                .getResultList();
+        Map<String, String> suppliers = new HashMap<>();
+        for (Object[] row : rows) {
+            suppliers.put((String) row[0], (String) row[1]);
+        }
+        return suppliers;
+    }
 }
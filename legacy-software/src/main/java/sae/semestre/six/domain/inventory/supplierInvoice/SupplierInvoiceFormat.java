@@ -0,0 +1,34 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Payload formats accepted by the streaming supplier invoice import.
+ */
+public enum SupplierInvoiceFormat {
+
+    /**
+     * A JSON array of {@link SupplierInvoiceDetailDTO} objects.
+     */
+    JSON {
+        @Override
+        SupplierInvoiceLineReader open(InputStream input, ObjectMapper objectMapper) throws IOException {
+            return new JsonSupplierInvoiceLineReader(input, objectMapper);
+        }
+    },
+
+    /**
+     * Comma-separated lines {@code itemCode,quantity,unitPrice}, with an optional header line.
+     */
+    CSV {
+        @Override
+        SupplierInvoiceLineReader open(InputStream input, ObjectMapper objectMapper) {
+            return new CsvSupplierInvoiceLineReader(input);
+        }
+    };
+
+    abstract SupplierInvoiceLineReader open(InputStream input, ObjectMapper objectMapper) throws IOException;
+}
@@ -0,0 +1,33 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+import java.util.List;
+
+/**
+ * Result of a streamed supplier invoice import.
+ *
+ * @param invoiceNumber   The number of the imported invoice
+ * @param linesRead       The number of lines read from the payload
+ * @param linesImported   The number of lines recorded and restocked
+ * @param linesRejected   The number of lines rejected
+ * @param totalAmount     The total amount of the imported lines
+ * @param errors          The rejected lines, in payload order, up to the configured limit
+ * @param errorsTruncated true if more lines were rejected than listed in {@code errors}
+ */
+public record SupplierInvoiceImportReport(String invoiceNumber,
+                                          long linesRead,
+                                          long linesImported,
+                                          long linesRejected,
+                                          double totalAmount,
+                                          List<LineError> errors,
+                                          boolean errorsTruncated) {
+
+    /**
+     * A rejected invoice line.
+     *
+     * @param line     The line number in the payload
+     * @param itemCode The item code of the line, if it could be read
+     * @param message  The reason why the line was rejected
+     */
+    public record LineError(long line, String itemCode, String message) {
+    }
+}
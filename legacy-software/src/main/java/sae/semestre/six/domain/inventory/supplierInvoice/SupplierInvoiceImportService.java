@@ -0,0 +1,176 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import sae.semestre.six.domain.inventory.InventoryDao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Service for importing large supplier invoices from a streamed payload (JSON array or CSV).
+ * <p>
+ * Lines are parsed one at a time and processed by chunks: the item codes of a chunk are resolved
+ * with a single IN query and its details are inserted with a single JDBC batch. Restocked quantities
+ * are summed per item and applied at the end of the import with batched updates, so inventory rows
+ * are only locked for the end of the transaction. Memory use depends on the chunk size and on the
+ * number of distinct items, not on the number of lines.
+ * <p>
+ * Invalid lines (unparseable, invalid quantity or price, unknown item) are skipped and reported.
+ * The whole import is rolled back if the payload is malformed, if the invoice number already exists,
+ * if no line is valid, or if the expected total does not match the total of the imported lines.
+ */
+@Service
+public class SupplierInvoiceImportService {
+
+    private static final double TOTAL_TOLERANCE = 0.005;
+
+    private final InventoryDao inventoryDao;
+    private final SupplierInvoiceDao supplierInvoiceDao;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public SupplierInvoiceImportService(InventoryDao inventoryDao,
+                                        SupplierInvoiceDao supplierInvoiceDao,
+                                        ObjectMapper objectMapper,
+                                        @Value("${sae.semestre.six.inventory.supplier-invoice.chunk-size:500}") int chunkSize,
+                                        @Value("${sae.semestre.six.inventory.supplier-invoice.max-reported-errors:1000}") int maxReportedErrors) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Supplier invoice chunk size must be positive");
+        }
+        this.inventoryDao = inventoryDao;
+        this.supplierInvoiceDao = supplierInvoiceDao;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Imports a supplier invoice whose lines are streamed from the given input.
+     *
+     * @param invoiceNumber The unique invoice number
+     * @param supplierName  The supplier name
+     * @param invoiceDate   The invoice date, or null for the current date
+     * @param expectedTotal The total announced by the supplier, or null to skip the check
+     * @param format        The format of the lines
+     * @param input         The payload containing the lines
+     * @return The import report, including rejected lines
+     * @throws IllegalArgumentException if the invoice cannot be imported
+     */
+    @Transactional
+    public SupplierInvoiceImportReport importInvoice(String invoiceNumber,
+                                                     String supplierName,
+                                                     Date invoiceDate,
+                                                     Double expectedTotal,
+                                                     SupplierInvoiceFormat format,
+                                                     InputStream input) {
+        if (invoiceNumber == null || invoiceNumber.isBlank()) {
+            throw new IllegalArgumentException("invoiceNumber is required");
+        }
+        SupplierInvoice invoice = new SupplierInvoice(new SupplierInvoiceDTO(
+                invoiceNumber, supplierName, invoiceDate, new SupplierInvoiceDetailDTO[0], 0.0));
+        try {
+            supplierInvoiceDao.save(invoice);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Another supplier invoice with the same number already exists");
+        }
+
+        ImportState state = new ImportState();
+        try {
+            SupplierInvoiceLineReader reader = format.open(input, objectMapper);
+            List<SupplierInvoiceLine> chunk = new ArrayList<>(chunkSize);
+            SupplierInvoiceLine line;
+            while ((line = reader.next()) != null) {
+                chunk.add(line);
+                if (chunk.size() == chunkSize) {
+                    processChunk(invoice, chunk, state);
+                    chunk.clear();
+                }
+            }
+            processChunk(invoice, chunk, state);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read supplier invoice " + invoiceNumber, e);
+        }
+
+        if (state.imported == 0) {
+            throw new IllegalArgumentException("Supplier invoice has no valid line (" + state.rejected + " rejected)");
+        }
+        if (expectedTotal != null && Math.abs(expectedTotal - state.total) > TOTAL_TOLERANCE) {
+            throw new IllegalArgumentException("Supplier invoice total " + expectedTotal
+                    + " does not match the imported lines total " + state.total);
+        }
+        inventoryDao.restockByIds(state.restocks, new Date());
+        invoice.setTotalAmount(state.total);
+
+        return new SupplierInvoiceImportReport(invoiceNumber, state.read, state.imported, state.rejected,
+                state.total, state.errors, state.rejected > state.errors.size());
+    }
+
+    private void processChunk(SupplierInvoice invoice, List<SupplierInvoiceLine> chunk, ImportState state) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // Resolve the item codes not seen yet with a single query
+        Set<String> toResolve = new HashSet<>();
+        for (SupplierInvoiceLine line : chunk) {
+            if (line.detail() != null && !state.inventoryIds.containsKey(line.detail().itemCode())) {
+                toResolve.add(line.detail().itemCode());
+            }
+        }
+        if (!toResolve.isEmpty()) {
+            Map<String, Long> resolved = inventoryDao.findIdsByItemCodes(toResolve);
+            for (String itemCode : toResolve) {
+                state.inventoryIds.put(itemCode, Optional.ofNullable(resolved.get(itemCode)));
+            }
+        }
+
+        List<SupplierInvoiceDao.DetailRow> rows = new ArrayList<>(chunk.size());
+        for (SupplierInvoiceLine line : chunk) {
+            state.read++;
+            SupplierInvoiceDetailDTO detail = line.detail();
+            if (detail == null) {
+                state.reject(line.line(), null, line.error());
+                continue;
+            }
+            if (!detail.checkValidity()) {
+                state.reject(line.line(), detail.itemCode(), "Quantity and unit price must be positive");
+                continue;
+            }
+            Optional<Long> inventoryId = state.inventoryIds.get(detail.itemCode());
+            if (inventoryId.isEmpty()) {
+                state.reject(line.line(), detail.itemCode(), "Item not found in inventory");
+                continue;
+            }
+            rows.add(new SupplierInvoiceDao.DetailRow(inventoryId.get(), detail.quantity(), detail.unitPrice()));
+            state.restocks.merge(inventoryId.get(), detail.quantity(), Integer::sum);
+            state.total += detail.calculateTotalPrice();
+            state.imported++;
+        }
+        supplierInvoiceDao.insertDetails(invoice, rows);
+    }
+
+    /**
+     * Progress of an import
+     */
+    private final class ImportState {
+        private final Map<String, Optional<Long>> inventoryIds = new HashMap<>();
+        private final Map<Long, Integer> restocks = new HashMap<>();
+        private final List<SupplierInvoiceImportReport.LineError> errors = new ArrayList<>();
+        private long read = 0;
+        private long imported = 0;
+        private long rejected = 0;
+        private double total = 0;
+
+        private void reject(long line, String itemCode, String message) {
+            rejected++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new SupplierInvoiceImportReport.LineError(line, itemCode, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+/**
+ * A line read from a streamed supplier invoice.
+ *
+ * @param line   The line number in the payload (CSV line, or position in the JSON array), starting at 1
+ * @param detail The parsed detail, or null if the line could not be parsed
+ * @param error  The parsing error, or null if the line was parsed
+ */
+record SupplierInvoiceLine(long line, SupplierInvoiceDetailDTO detail, String error) {
+
+    static SupplierInvoiceLine parsed(long line, SupplierInvoiceDetailDTO detail) {
+        return new SupplierInvoiceLine(line, detail, null);
+    }
+
+    static SupplierInvoiceLine invalid(long line, String error) {
+        return new SupplierInvoiceLine(line, null, error);
+    }
+}
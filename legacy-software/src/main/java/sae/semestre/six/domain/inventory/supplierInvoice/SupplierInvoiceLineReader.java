@@ -0,0 +1,17 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+import java.io.IOException;
+
+/**
+ * Reads the lines of a streamed supplier invoice one at a time, without loading the whole payload.
+ * A line that cannot be parsed is returned with an error; a malformed payload stops the import.
+ */
+interface SupplierInvoiceLineReader {
+
+    /**
+     * @return The next line, or null at the end of the payload
+     * @throws IOException              if the payload cannot be read
+     * @throws IllegalArgumentException if the payload is malformed and no further line can be read
+     */
+    SupplierInvoiceLine next() throws IOException;
+}
@@ -2,9 +2,11 @@ package sae.semestre.six.domain.patient;
 
 import sae.semestre.six.dao.GenericDao;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface PatientDao extends GenericDao<Patient, Long> {
     Patient findByPatientNumber(String patientNumber);
     List<Patient> findByLastName(String lastName);
+    List<Patient> findByIds(Collection<Long> ids);
 } 
\ No newline at end of file
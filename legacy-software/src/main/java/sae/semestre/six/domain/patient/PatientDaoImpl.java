@@ -2,6 +2,7 @@ package sae.semestre.six.domain.patient;
 
 import sae.semestre.six.dao.AbstractHibernateDao;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,4 +25,15 @@ public class PatientDaoImpl extends AbstractHibernateDao<Patient, Long> implemen
                 .setParameter("lastName", lastName + "%")
                 .getResultList();
     }
-} 
\ No newline at end of file
+
+    @Override
+    public List<Patient> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return getEntityManager()
+                .createQuery("FROM Patient WHERE id IN (:ids)", Patient.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+}
\ No newline at end of file
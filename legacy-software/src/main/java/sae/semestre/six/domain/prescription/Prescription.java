@@ -20,7 +20,9 @@ import java.util.List;
 @Builder
 @AllArgsConstructor
 @Getter
-@Table(name = "prescriptions")
+@Table(name = "prescriptions", indexes = {
+        @Index(name = "idx_prescriptions_billing", columnList = "is_billed, billing_requested_date")
+})
 public class Prescription implements Billable {
 
     @Transient
@@ -31,10 +33,10 @@ public class Prescription implements Billable {
     private Long id;
 
     /**
-     * Unique prescription number (e.g., RX123).
+     * Unique prescription number (e.g., RX00000123), generated by the IdentifierService.
      */
     @Setter
-    @Column(name = "prescription_number")
+    @Column(name = "prescription_number", unique = true)
     private String prescriptionNumber;
 
     /**
@@ -78,6 +80,22 @@ public class Prescription implements Billable {
     @Column(name = "is_billed")
     private Boolean isBilled = false;
 
+    /**
+     * Date when the asynchronous billing of the prescription was requested, or null if it is billed
+     * with its creation. See {@link sae.semestre.six.domain.billing.PrescriptionBillingDispatcher}.
+     */
+    @Setter
+    @Column(name = "billing_requested_date")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date billingRequestedDate;
+
+    /**
+     * Reason why the asynchronous billing failed; the prescription is then no longer billed automatically.
+     */
+    @Setter
+    @Column(name = "billing_error", length = 1000)
+    private String billingError;
+
     /**
      * Indicates if the inventory has been updated for this prescription.
      */
@@ -0,0 +1,13 @@
+package sae.semestre.six.domain.prescription;
+
+import java.util.Date;
+
+/**
+ * Prescriptions waiting for their asynchronous billing.
+ *
+ * @param pending             The number of prescriptions to bill
+ * @param oldestRequestedDate The billing request date of the oldest prescription to bill, or null if there is none
+ * @param failed              The number of prescriptions whose billing failed
+ */
+public record PrescriptionBillingBacklog(long pending, Date oldestRequestedDate, long failed) {
+}
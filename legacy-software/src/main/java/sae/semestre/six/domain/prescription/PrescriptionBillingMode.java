@@ -0,0 +1,16 @@
+package sae.semestre.six.domain.prescription;
+
+/**
+ * How a new prescription is billed ({@code sae.semestre.six.prescription.billing.mode}).
+ */
+public enum PrescriptionBillingMode {
+    /**
+     * The bill is generated while creating the prescription, in the same transaction.
+     */
+    SYNC,
+    /**
+     * The prescription is only marked as to be billed; the bill is generated in the background
+     * by the {@link sae.semestre.six.domain.billing.PrescriptionBillingDispatcher}.
+     */
+    ASYNC
+}
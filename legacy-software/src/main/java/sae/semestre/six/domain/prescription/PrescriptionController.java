@@ -1,10 +1,14 @@
 package sae.semestre.six.domain.prescription;
 
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import sae.semestre.six.domain.billing.PrescriptionBillingDispatcher;
+import sae.semestre.six.file.AuditLogAppender;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +48,29 @@ public class PrescriptionController {
         return new ResponseEntity<>(prescriptionService.getPatientPrescriptions(patientId), HttpStatus.OK);
     }
 
+    /**
+     * Retrieves a page of the prescriptions of a patient, oldest first, with their medicines.
+     *
+     * @param patientId The ID of the patient
+     * @param from      The first creation day (inclusive)
+     * @param to        The last creation day (inclusive)
+     * @param after     The {@code nextCursor} of the previous page
+     * @param limit     The maximum number of prescriptions
+     * @return The page and the cursor of the next one, or an error if a parameter is invalid
+     */
+    @GetMapping("/patient/{patientId}/page")
+    public ResponseEntity<?> getPatientPrescriptionPage(@PathVariable String patientId,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                        @RequestParam(required = false) Long after,
+                                                        @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(prescriptionService.getPatientPrescriptionPage(patientId, from, to, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Gets the total cost of a prescription, including markup.
      *
@@ -65,4 +92,24 @@ public class PrescriptionController {
             throw new IllegalArgumentException("Prescription not found");
         }
     }
+
+    /**
+     * Retrieves the statistics of the prescription audit log.
+     *
+     * @return The audit log statistics, including write latencies
+     */
+    @GetMapping("/audit/stats")
+    public ResponseEntity<AuditLogAppender.AuditLogStats> getAuditLogStats() {
+        return ResponseEntity.ok(prescriptionService.getAuditLogStats());
+    }
+
+    /**
+     * Retrieves the delay of the asynchronous billing of prescriptions.
+     *
+     * @return The number of prescriptions waiting to be billed, the age of the oldest one and the billing failures
+     */
+    @GetMapping("/billing/lag")
+    public ResponseEntity<PrescriptionBillingDispatcher.PrescriptionBillingLag> getBillingLag() {
+        return ResponseEntity.ok(prescriptionService.getBillingLag());
+    }
 }
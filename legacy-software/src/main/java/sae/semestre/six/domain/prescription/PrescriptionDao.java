@@ -2,6 +2,8 @@ package sae.semestre.six.domain.prescription;
 
 import sae.semestre.six.dao.GenericDao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -15,8 +17,51 @@ public interface PrescriptionDao extends GenericDao<Prescription, Long> {
      * @return List of Prescription entities for the patient
      */
     List<Prescription> findByPatientId(Long patientId);
+
+    /**
+     * Retrieves the ids of a page of prescriptions of a patient, ordered by id (creation order).
+     *
+     * @param patientId The ID of the patient
+     * @param from      The lowest creation date (inclusive), null for no lower bound
+     * @param to        The highest creation date (exclusive), null for no upper bound
+     * @param afterId   The id after which the page starts, null for the first page
+     * @param limit     The maximum number of ids
+     * @return The prescription ids
+     */
+    List<Long> findIdsByPatientId(Long patientId, Date from, Date to, Long afterId, int limit);
+
+    /**
+     * Retrieves prescriptions with their patient and medicines, in a single query.
+     *
+     * @param ids The prescription ids
+     * @return The prescriptions, in the order of the ids
+     */
+    List<Prescription> findWithMedicinesByIds(Collection<Long> ids);
     Prescription findByPrescriptionNumber(String prescriptionNumber);
 
+    /**
+     * Retrieves prescriptions by their prescription numbers, in a single query.
+     *
+     * @param prescriptionNumbers The prescription numbers
+     * @return The known prescriptions, in no particular order
+     */
+    List<Prescription> findByPrescriptionNumbers(Collection<String> prescriptionNumbers);
+
+    /**
+     * Finds the prescription numbers shared by several prescriptions.
+     *
+     * @param limit The maximum number of duplicated numbers to return
+     * @return The duplicated prescription numbers, in ascending order
+     */
+    List<String> findDuplicatePrescriptionNumbers(int limit);
+
+    /**
+     * Checks in the database metadata that the prescription_number column has its own unique index.
+     *
+     * @return true if the unique index exists
+     */
+    boolean hasUniquePrescriptionNumberIndex();
+
     /**
      * Finds a prescription by its prescription number.
      *
@@ -26,10 +71,17 @@ public interface PrescriptionDao extends GenericDao<Prescription, Long> {
     Prescription findByPrescriptionId(String prescriptionId);
 
     /**
-     * Gets the next available prescription ID (auto-incremented).
+     * Locks the oldest prescriptions waiting for their asynchronous billing, skipping the ones already
+     * locked by another transaction. Must be called within a transaction, which keeps them locked.
      *
-     * @return The next prescription ID as an integer
+     * @param limit The maximum number of prescriptions
+     * @return The prescriptions to bill, oldest request first
+     */
+    List<Prescription> claimUnbilled(int limit);
+
+    /**
+     * @return The number of prescriptions waiting for their asynchronous billing and the oldest request date
      */
-    int getNextId();
+    PrescriptionBillingBacklog findBillingBacklog();
 }
 
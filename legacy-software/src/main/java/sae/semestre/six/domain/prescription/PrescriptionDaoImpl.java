@@ -1,8 +1,18 @@
 package sae.semestre.six.domain.prescription;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
 import sae.semestre.six.dao.AbstractHibernateDao;
 import org.springframework.stereotype.Repository;
-import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of the PrescriptionDao interface for accessing prescription data using Hibernate.
@@ -24,6 +34,48 @@ public class PrescriptionDaoImpl extends AbstractHibernateDao<Prescription, Long
                 .getResultList();
     }
 
+    @Override
+    public List<Long> findIdsByPatientId(Long patientId, Date from, Date to, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT p.id FROM Prescription p WHERE p.patient.id = :patientId");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("patientId", patientId);
+        if (from != null) {
+            jpql.append(" AND p.createdDate >= :from");
+            parameters.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" AND p.createdDate < :to");
+            parameters.put("to", to);
+        }
+        if (afterId != null) {
+            jpql.append(" AND p.id > :afterId");
+            parameters.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY p.id");
+
+        TypedQuery<Long> query = getEntityManager().createQuery(jpql.toString(), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Prescription> findWithMedicinesByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Prescription> prescriptions = getEntityManager()
+                .createQuery("SELECT DISTINCT p FROM Prescription p " +
+                        "LEFT JOIN FETCH p.patient LEFT JOIN FETCH p.medicines " +
+                        "WHERE p.id IN :ids", Prescription.class)
+                .setParameter("ids", ids)
+                .getResultStream()
+                .collect(Collectors.toMap(Prescription::getId, Function.identity(), (first, second) -> first));
+        return ids.stream()
+                .map(prescriptions::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     @Override
     public Prescription findByPrescriptionNumber(String prescriptionNumber) {
         return (Prescription) getEntityManager()
@@ -32,6 +84,55 @@ public class PrescriptionDaoImpl extends AbstractHibernateDao<Prescription, Long
                 .getSingleResult();
     }
 
+    @Override
+    public List<Prescription> findByPrescriptionNumbers(Collection<String> prescriptionNumbers) {
+        if (prescriptionNumbers.isEmpty()) {
+            return List.of();
+        }
+        return getEntityManager()
+                .createQuery("FROM Prescription WHERE prescriptionNumber IN :numbers", Prescription.class)
+                .setParameter("numbers", prescriptionNumbers)
+                .getResultList();
+    }
+
+    @Override
+    public List<String> findDuplicatePrescriptionNumbers(int limit) {
+        return getEntityManager()
+                .createQuery("SELECT p.prescriptionNumber FROM Prescription p WHERE p.prescriptionNumber IS NOT NULL " +
+                        "GROUP BY p.prescriptionNumber HAVING COUNT(p) > 1 ORDER BY p.prescriptionNumber", String.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Reads the JDBC index metadata of the prescriptions table. The table name is tried as declared and
+     * in upper case, for the databases storing unquoted identifiers in upper case.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public boolean hasUniquePrescriptionNumberIndex() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : List.of("prescriptions", "PRESCRIPTIONS")) {
+                Map<String, List<String>> columnsByIndex = new HashMap<>();
+                try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, table, true, false)) {
+                    while (indexes.next()) {
+                        String column = indexes.getString("COLUMN_NAME");
+                        if (column != null) {
+                            columnsByIndex.computeIfAbsent(indexes.getString("INDEX_NAME"), name -> new ArrayList<>())
+                                    .add(column);
+                        }
+                    }
+                }
+                if (columnsByIndex.values().stream().anyMatch(columns ->
+                        columns.size() == 1 && columns.getFirst().equalsIgnoreCase("prescription_number"))) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
     /**
      * Finds a prescription by its prescription number.
      *
@@ -46,23 +147,28 @@ public class PrescriptionDaoImpl extends AbstractHibernateDao<Prescription, Long
                 .getSingleResult();
     }
 
-    /**
-     * Gets the next available prescription ID (auto-incremented).
-     *
-     * @return The next prescription ID as an integer
-     */
     @Override
-    public int getNextId() {
-        Object singleResult = getEntityManager()
-                .createQuery("SELECT MAX(p.id) FROM Prescription p")
+    public List<Prescription> claimUnbilled(int limit) {
+        return getEntityManager()
+                .createQuery("FROM Prescription p " +
+                        "WHERE p.isBilled = false AND p.billingRequestedDate IS NOT NULL AND p.billingError IS NULL " +
+                        "ORDER BY p.billingRequestedDate, p.id", Prescription.class)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .getResultList();
+    }
+
+    @Override
+    public PrescriptionBillingBacklog findBillingBacklog() {
+        Object[] pending = getEntityManager()
+                .createQuery("SELECT COUNT(p), MIN(p.billingRequestedDate) FROM Prescription p " +
+                        "WHERE p.isBilled = false AND p.billingRequestedDate IS NOT NULL AND p.billingError IS NULL", Object[].class)
                 .getSingleResult();
-        if (singleResult == null) {
-            return 1; // If no prescriptions exist, start with ID 1
-        } else if (singleResult instanceof Number) {
-            return ((Number) singleResult).intValue() + 1;
-        } else {
-            throw new IllegalStateException("Unexpected result type: " + singleResult.getClass());
-        }
+        long failed = getEntityManager()
+                .createQuery("SELECT COUNT(p) FROM Prescription p " +
+                        "WHERE p.isBilled = false AND p.billingError IS NOT NULL", Long.class)
+                .getSingleResult();
+        return new PrescriptionBillingBacklog((Long) pending[0], (Date) pending[1], failed);
     }
 }
-
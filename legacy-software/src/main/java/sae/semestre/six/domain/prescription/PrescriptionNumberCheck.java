@@ -0,0 +1,54 @@
+package sae.semestre.six.domain.prescription;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup report on the unique constraint on prescription numbers.
+ * <p>
+ * The constraint is created by the Hibernate schema update ({@code spring.jpa.hibernate.ddl-auto=update}),
+ * which only logs a warning when the database refuses it, e.g. because prescriptions created before the
+ * constraint share the same number. Startup goes on: legacy numbers such as {@code RX42} cannot collide with
+ * the {@code RX%08d} numbers given to new prescriptions. The duplicated numbers are reported so that they can
+ * be renumbered by hand (with the PRESCRIPTION_&lt;number&gt; lines of their bills); the constraint is then
+ * created at the next startup.
+ */
+@Component
+@RequiredArgsConstructor
+public class PrescriptionNumberCheck {
+
+    private static final int MAX_REPORTED_DUPLICATES = 20;
+
+    private final PrescriptionDao prescriptionDao;
+
+    /**
+     * Reports duplicated prescription numbers and a missing unique index on the error output
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        findProblems().forEach(problem -> System.err.println("Warning: " + problem));
+    }
+
+    /**
+     * @return the problems of the prescription numbers, empty if they are unique and indexed
+     */
+    List<String> findProblems() {
+        List<String> problems = new ArrayList<>();
+        List<String> duplicates = prescriptionDao.findDuplicatePrescriptionNumbers(MAX_REPORTED_DUPLICATES);
+        if (!duplicates.isEmpty()) {
+            problems.add("Prescription numbers shared by several prescriptions " +
+                    "(first " + MAX_REPORTED_DUPLICATES + " at most): " + duplicates +
+                    ". The unique constraint on prescriptions.prescription_number cannot be created until " +
+                    "these prescriptions (and the PRESCRIPTION_<number> lines of their bills) are renumbered.");
+        } else if (!prescriptionDao.hasUniquePrescriptionNumberIndex()) {
+            problems.add("Missing unique index on prescriptions.prescription_number: " +
+                    "check the schema update errors in the startup logs.");
+        }
+        return problems;
+    }
+}
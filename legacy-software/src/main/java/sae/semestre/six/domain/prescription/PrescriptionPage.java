@@ -0,0 +1,12 @@
+package sae.semestre.six.domain.prescription;
+
+import java.util.List;
+
+/**
+ * A page of the prescriptions of a patient, oldest first.
+ *
+ * @param prescriptions The prescriptions of the page
+ * @param nextCursor    The value to pass as {@code after} to read the next page, null on the last page
+ */
+public record PrescriptionPage(List<PrescriptionDTO> prescriptions, Long nextCursor) {
+}
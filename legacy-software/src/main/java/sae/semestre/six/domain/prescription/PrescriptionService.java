@@ -4,19 +4,24 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import sae.semestre.six.domain.billing.BillingService;
+import sae.semestre.six.domain.billing.PrescriptionBillingDispatcher;
 import sae.semestre.six.domain.doctor.Doctor;
 import sae.semestre.six.domain.doctor.DoctorDao;
 import sae.semestre.six.domain.inventory.Inventory;
 import sae.semestre.six.domain.inventory.InventoryDao;
+import sae.semestre.six.domain.inventory.InventoryLookup;
 import sae.semestre.six.domain.patient.Patient;
 import sae.semestre.six.domain.patient.PatientDao;
-import sae.semestre.six.file.FileHandler;
+import sae.semestre.six.file.AuditLogAppender;
+import sae.semestre.six.identifier.BusinessIdentifier;
+import sae.semestre.six.identifier.IdentifierService;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -27,18 +32,25 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PrescriptionService {
 
+    @Value("${sae.semestre.six.prescription.billing.mode:SYNC}")
+    private PrescriptionBillingMode billingMode = PrescriptionBillingMode.SYNC;
+
+    @Value("${sae.semestre.six.prescription.listing.max-limit:100}")
+    private int listingMaxLimit = 100;
+
     private final InventoryDao inventoryDao;
     private final PrescriptionDao prescriptionDao;
     private final PatientDao patientDao;
     private final DoctorDao doctorDao;
-    private final FileHandler fileHandler;
+    private final AuditLogAppender auditLogAppender;
     private final BillingService billingService;
-
-    @Value("${sae.semestre.six.files.prescriptions}")
-    private String AUDIT_FILE;
+    private final IdentifierService identifierService;
+    private final PrescriptionBillingDispatcher prescriptionBillingDispatcher;
 
     /**
      * Adds a new prescription for a patient, updates inventory, logs the action, and processes billing.
+     * In {@link PrescriptionBillingMode#ASYNC} mode, the prescription is only marked as to be billed
+     * and the bill is generated later by the {@link PrescriptionBillingDispatcher}.
      *
      * @param dto Data transfer object containing prescription details
      * @return Status message indicating success or failure
@@ -46,17 +58,15 @@ public class PrescriptionService {
     @Transactional
     public String addPrescription(PrescriptionDTO dto) {
         try {
-            int prescriptionCounter = prescriptionDao.getNextId();
-            // Get all the inventories entries and calculate the cost
+            // Get all the inventories entries with a single query and calculate the cost
+            InventoryLookup lookup = inventoryDao.findByItemCodes(dto.medicineCodes());
+            if (!lookup.isComplete()) {
+                return "Failed: inventory not found for code " + lookup.missing().getFirst();
+            }
             List<Inventory> inventories = new ArrayList<>();
             double cost = 0;
             for (String code : dto.medicineCodes()) {
-                Inventory inventory;
-                try {
-                    inventory = inventoryDao.findByItemCode(code);
-                } catch (Exception e) {
-                    return "Failed: inventory not found for code " + code;
-                }
+                Inventory inventory = lookup.items().get(code);
                 cost += inventory.getUnitPrice();
                 inventories.add(inventory);
             }
@@ -70,35 +80,79 @@ public class PrescriptionService {
                 return "Failed: patient not found for id " + dto.patientId();
             }
 
+            // Refus immédiat si le stock lu est déjà insuffisant
+            Map<String, Integer> requestedQuantities = countByCode(dto.medicineCodes());
+            List<String> shortItems = inventories.stream()
+                    .distinct()
+                    .filter(inventory -> inventory.getQuantity() < requestedQuantities.get(inventory.getItemCode()))
+                    .map(Inventory::getItemCode)
+                    .sorted()
+                    .toList();
+            if (!shortItems.isEmpty()) {
+                return "Failed: insufficient stock for " + shortItems;
+            }
+
             // On crée la prescription
-            String prescriptionId = "RX" + prescriptionCounter;
+            String prescriptionId = identifierService.next(BusinessIdentifier.PRESCRIPTION);
             Prescription prescription = new Prescription(prescriptionId, patient, inventories, dto.notes(), cost);
+            boolean asyncBilling = billingMode == PrescriptionBillingMode.ASYNC;
+            if (asyncBilling) {
+                // La facture sera générée en arrière-plan
+                prescription.setIsBilled(false);
+                prescription.setBillingRequestedDate(new Date());
+            }
             prescriptionDao.save(prescription);
 
-            // On renseigne la création dans le fichier d'audit
-            fileHandler.writeToFile(AUDIT_FILE,
-                    new Date() + " - " + prescriptionId + "\n");
-
             // On crée la facture correspondante
-            Optional<Doctor> systemDoctor = doctorDao.findByDoctorNumber("SYSTEM");
-            systemDoctor.ifPresent(doctor -> billingService.processBill(
-                    patient,
-                    doctor,
-                    new String[]{Prescription.BILLABLE_PREFIX + prescriptionId}
-            ));
-
-            for (Inventory inventory : inventories) {
-                inventory.setQuantity(inventory.getQuantity() - 1);
-                inventoryDao.update(inventory);
+            if (!asyncBilling) {
+                Optional<Doctor> systemDoctor = doctorDao.findByDoctorNumber(PrescriptionBillingDispatcher.SYSTEM_DOCTOR_NUMBER);
+                systemDoctor.ifPresent(doctor -> {
+                    billingService.processBill(
+                            patient,
+                            doctor,
+                            new String[]{Prescription.BILLABLE_PREFIX + prescriptionId}
+                    );
+                    prescription.setIsBilled(true);
+                });
             }
 
-            return "Prescription " + prescriptionId + " created and billed";
+            // Réservation du stock en dernier : les lignes ne restent verrouillées que jusqu'au commit.
+            // Un stock consommé entre-temps par une autre prescription annule l'ensemble ; le fichier
+            // de la facture n'étant écrit qu'après le commit, aucun fichier orphelin n'est laissé
+            Set<String> unavailable = inventoryDao.reserveStock(requestedQuantities);
+            if (!unavailable.isEmpty()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return "Failed: insufficient stock for " + unavailable;
+            }
+
+            // On renseigne la création dans le journal d'audit (écrit en arrière-plan)
+            auditLogAppender.append(new Date() + " - " + prescriptionId);
+
+            return asyncBilling
+                    ? "Prescription " + prescriptionId + " created, billing pending"
+                    : "Prescription " + prescriptionId + " created and billed";
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
+            // La prescription ne doit pas être validée sans sa facture
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
             return "Failed: " + e;
         }
     }
 
+    /**
+     * @param codes The medicine codes of a prescription, possibly repeated
+     * @return The number of units requested for each code
+     */
+    private static Map<String, Integer> countByCode(List<String> codes) {
+        Map<String, Integer> quantities = new HashMap<>();
+        for (String code : codes) {
+            quantities.merge(code, 1, Integer::sum);
+        }
+        return quantities;
+    }
+
     /**
      * Retrieves all prescriptions for a given patient.
      *
@@ -113,6 +167,57 @@ public class PrescriptionService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Retrieves a page of the prescriptions of a patient, oldest first.
+     * <p>
+     * The page is read with two queries whatever its size: one for the ids of the page, then one
+     * for these prescriptions with their medicines.
+     *
+     * @param patientId The ID of the patient
+     * @param from      The first creation day (inclusive), null for no lower bound
+     * @param to        The last creation day (inclusive), null for no upper bound
+     * @param after     The cursor returned with the previous page, null for the first page
+     * @param limit     The maximum number of prescriptions
+     * @return The page, with the cursor of the next one
+     * @throws IllegalArgumentException if the patient id, the dates or the limit are invalid
+     */
+    @Transactional(readOnly = true)
+    public PrescriptionPage getPatientPrescriptionPage(String patientId, LocalDate from, LocalDate to, Long after, int limit) {
+        if (limit <= 0 || limit > listingMaxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + listingMaxLimit);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        long id;
+        try {
+            id = Long.parseLong(patientId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid patient id " + patientId);
+        }
+
+        // One more id tells whether there is a next page
+        List<Long> ids = prescriptionDao.findIdsByPatientId(id,
+                from == null ? null : toDate(from),
+                to == null ? null : toDate(to.plusDays(1)),
+                after,
+                limit + 1);
+        Long nextCursor = null;
+        if (ids.size() > limit) {
+            ids = ids.subList(0, limit);
+            nextCursor = ids.getLast();
+        }
+        List<PrescriptionDTO> prescriptions = prescriptionDao.findWithMedicinesByIds(ids)
+                .stream()
+                .map(PrescriptionDTO::fromEntity)
+                .toList();
+        return new PrescriptionPage(prescriptions, nextCursor);
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
     public Prescription getPrescription(String prescriptionId) {
         try {
             return prescriptionDao.findByPrescriptionId(prescriptionId);
@@ -120,4 +225,22 @@ public class PrescriptionService {
             throw new IllegalArgumentException("Prescription not found");
         }
     }
+
+    /**
+     * Retrieves the statistics of the prescription audit log.
+     *
+     * @return The number of records written, pending or failed, and the write latencies
+     */
+    public AuditLogAppender.AuditLogStats getAuditLogStats() {
+        return auditLogAppender.getStats();
+    }
+
+    /**
+     * Retrieves the delay of the asynchronous billing of prescriptions.
+     *
+     * @return The number of prescriptions waiting to be billed and the age of the oldest one
+     */
+    public PrescriptionBillingDispatcher.PrescriptionBillingLag getBillingLag() {
+        return prescriptionBillingDispatcher.getLag();
+    }
 }
@@ -1,5 +1,6 @@
 package sae.semestre.six.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,4 +23,11 @@ public class GlobalExceptionHandler {
         // TODO Message plus adapté à un mode débug ou dev
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage() + "\n" + ex.getStackTrace()[0] + "\n" + ex.getClass());
     }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<String> handlerServiceBusyException(ServiceBusyException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
 }
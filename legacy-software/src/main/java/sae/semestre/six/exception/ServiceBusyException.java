@@ -0,0 +1,21 @@
+package sae.semestre.six.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception pour indiquer qu'un traitement est momentanément saturé et que la requête doit être
+ * renouvelée plus tard.
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    /**
+     * Délai conseillé (en secondes) avant de renouveler la requête
+     */
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
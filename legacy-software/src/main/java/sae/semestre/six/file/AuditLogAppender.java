@@ -0,0 +1,315 @@
+package sae.semestre.six.file;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Journal d'audit (fichier {@code sae.semestre.six.files.prescriptions}), écrit en arrière-plan.
+ * <p>
+ * Les enregistrements sont mis en file d'attente puis écrits par un seul thread, par groupes : tous les
+ * enregistrements en attente sont écrits en une seule écriture sur un canal ouvert en permanence. La
+ * synchronisation sur disque ({@code sae.semestre.six.audit.fsync}) se fait :
+ * <ul>
+ *     <li>{@code ALWAYS} : après chaque groupe, avant de signaler les enregistrements comme écrits ;
+ *     un seul fsync couvre donc tous les enregistrements arrivés pendant l'écriture précédente</li>
+ *     <li>{@code INTERVAL} : au plus toutes les {@code sae.semestre.six.audit.fsync-interval-ms}</li>
+ *     <li>{@code NEVER} : jamais, le système décide</li>
+ * </ul>
+ * Lorsque le fichier atteint {@code sae.semestre.six.audit.max-file-bytes}, il est renommé en
+ * {@code <fichier>.1} (les anciens fichiers sont décalés jusqu'à {@code max-rotated-files}) et un nouveau
+ * fichier est commencé. Si la file d'attente est pleine, l'ajout attend qu'elle se libère.
+ */
+@Service
+public class AuditLogAppender {
+
+    public enum FsyncPolicy {
+        ALWAYS, INTERVAL, NEVER
+    }
+
+    /**
+     * Statistiques du journal d'audit
+     *
+     * @param appended            le nombre d'enregistrements ajoutés
+     * @param written             le nombre d'enregistrements écrits
+     * @param failed              le nombre d'enregistrements dont l'écriture a échoué
+     * @param pending             le nombre d'enregistrements en attente
+     * @param groups              le nombre d'écritures groupées
+     * @param syncs               le nombre de synchronisations sur disque
+     * @param rotations           le nombre de rotations du fichier
+     * @param averageLatencyMicros le délai moyen entre l'ajout d'un enregistrement et son écriture
+     * @param maxLatencyMicros     le délai maximal entre l'ajout d'un enregistrement et son écriture
+     * @param averageWriteMicros   la durée moyenne d'une écriture groupée (synchronisation comprise)
+     */
+    public record AuditLogStats(long appended, long written, long failed, int pending, long groups, long syncs,
+                                long rotations, long averageLatencyMicros, long maxLatencyMicros,
+                                long averageWriteMicros) {
+    }
+
+    private record Entry(byte[] line, long appendedAt, CompletableFuture<Void> written) {
+    }
+
+    private final Path file;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long maxFileBytes;
+    private final int maxRotatedFiles;
+    private final int maxGroupSize;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    // Utilisés uniquement par le thread d'écriture
+    private FileChannel channel;
+    private long fileSize;
+    private boolean unsynced = false;
+    private long lastSync = System.nanoTime();
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final LongAdder writeNanos = new LongAdder();
+
+    public AuditLogAppender(@Value("${sae.semestre.six.files.prescriptions}") String file,
+                            @Value("${sae.semestre.six.audit.fsync:INTERVAL}") FsyncPolicy fsyncPolicy,
+                            @Value("${sae.semestre.six.audit.fsync-interval-ms:1000}") long fsyncIntervalMillis,
+                            @Value("${sae.semestre.six.audit.max-file-bytes:10485760}") long maxFileBytes,
+                            @Value("${sae.semestre.six.audit.max-rotated-files:5}") int maxRotatedFiles,
+                            @Value("${sae.semestre.six.audit.queue-capacity:10000}") int queueCapacity,
+                            @Value("${sae.semestre.six.audit.max-group-size:1000}") int maxGroupSize) {
+        if (fsyncIntervalMillis <= 0 || maxFileBytes <= 0 || maxRotatedFiles < 1 || queueCapacity <= 0 || maxGroupSize <= 0) {
+            throw new IllegalArgumentException("Invalid audit log configuration");
+        }
+        this.file = Path.of(file);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.maxFileBytes = maxFileBytes;
+        this.maxRotatedFiles = maxRotatedFiles;
+        this.maxGroupSize = maxGroupSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        try {
+            openFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit log " + file, e);
+        }
+        this.writer = new Thread(this::writeLoop, "audit-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Ajoute un enregistrement au journal
+     *
+     * @param record l'enregistrement, sur une ligne (le retour à la ligne est ajouté)
+     * @return une promesse terminée une fois l'enregistrement écrit (et synchronisé avec {@code ALWAYS})
+     * @throws IllegalStateException si le journal est fermé
+     */
+    public CompletableFuture<Void> append(String record) {
+        if (closed) {
+            throw new IllegalStateException("Audit log is closed");
+        }
+        Entry entry = new Entry((record + "\n").getBytes(StandardCharsets.UTF_8), System.nanoTime(), new CompletableFuture<>());
+        appended.increment();
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            appended.decrement();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while appending to the audit log", e);
+        }
+        return entry.written();
+    }
+
+    /**
+     * @return les statistiques du journal d'audit
+     */
+    public AuditLogStats getStats() {
+        long writtenCount = written.sum();
+        long groupCount = groups.sum();
+        return new AuditLogStats(appended.sum(), writtenCount, failed.sum(), queue.size(), groupCount, syncs.sum(),
+                rotations.sum(),
+                writtenCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latencyNanos.sum() / writtenCount),
+                TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get()),
+                groupCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(writeNanos.sum() / groupCount));
+    }
+
+    /**
+     * Écrit les enregistrements en attente, synchronise le fichier et le ferme
+     */
+    @PreDestroy
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Enregistrements ajoutés pendant la fermeture
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(entry -> entry.written().completeExceptionally(new IllegalStateException("Audit log is closed")));
+        failed.add(remaining.size());
+    }
+
+    private void writeLoop() {
+        List<Entry> group = new ArrayList<>(maxGroupSize);
+        // Le thread n'est jamais interrompu : une interruption fermerait le canal
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(Math.min(fsyncIntervalNanos, TimeUnit.MILLISECONDS.toNanos(100)), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    group.add(first);
+                    queue.drainTo(group, maxGroupSize - 1);
+                    writeGroup(group);
+                    group.clear();
+                } else if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+                    syncIfDue();
+                }
+            } catch (InterruptedException e) {
+                // Seule la fermeture arrête le thread
+            } catch (RuntimeException e) {
+                group.forEach(entry -> entry.written().completeExceptionally(e));
+                group.clear();
+            }
+        }
+        closeFile();
+    }
+
+    private void writeGroup(List<Entry> group) {
+        int length = 0;
+        for (Entry entry : group) {
+            length += entry.line().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        group.forEach(entry -> buffer.put(entry.line()));
+        buffer.flip();
+
+        long start = System.nanoTime();
+        try {
+            if (channel == null) {
+                openFile();
+            }
+            if (fileSize > 0 && fileSize + length > maxFileBytes) {
+                rotate();
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            fileSize += length;
+            unsynced = true;
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                sync();
+            } else if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+                syncIfDue();
+            }
+        } catch (IOException e) {
+            // Le fichier est rouvert à la prochaine écriture
+            closeFile();
+            failed.add(group.size());
+            UncheckedIOException error = new UncheckedIOException("Cannot write to audit log " + file, e);
+            group.forEach(entry -> entry.written().completeExceptionally(error));
+            return;
+        }
+
+        long end = System.nanoTime();
+        groups.increment();
+        writeNanos.add(end - start);
+        for (Entry entry : group) {
+            long latency = end - entry.appendedAt();
+            latencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            entry.written().complete(null);
+        }
+        written.add(group.size());
+    }
+
+    private void syncIfDue() {
+        if (unsynced && System.nanoTime() - lastSync >= fsyncIntervalNanos) {
+            try {
+                sync();
+            } catch (IOException e) {
+                closeFile();
+            }
+        }
+    }
+
+    private void sync() throws IOException {
+        channel.force(false);
+        syncs.increment();
+        unsynced = false;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Décale les anciens fichiers ({@code .1} devient {@code .2}, ...), renomme le fichier courant en
+     * {@code .1} et en commence un nouveau
+     */
+    private void rotate() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            sync();
+        }
+        channel.close();
+        channel = null;
+        Files.deleteIfExists(rotatedFile(maxRotatedFiles));
+        for (int index = maxRotatedFiles - 1; index >= 1; index--) {
+            Path rotated = rotatedFile(index);
+            if (Files.exists(rotated)) {
+                Files.move(rotated, rotatedFile(index + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotatedFile(1), StandardCopyOption.REPLACE_EXISTING);
+        rotations.increment();
+        openFile();
+    }
+
+    private Path rotatedFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openFile() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        unsynced = false;
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (unsynced && fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(false);
+                syncs.increment();
+            }
+            channel.close();
+        } catch (IOException e) {
+            // Le canal est abandonné
+        } finally {
+            channel = null;
+            unsynced = false;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package sae.semestre.six.file;
+
+import java.util.Optional;
+
+/**
+ * Stockage du contenu des fichiers de factures.
+ * <p>
+ * Deux modes sont disponibles, choisis par {@code sae.semestre.six.billing.archive.storage} :
+ * <ul>
+ *     <li>{@code files} (par défaut) : un fichier par facture ({@link FileBillArchive})</li>
+ *     <li>{@code segments} : des fichiers segments en ajout seul, avec un index des positions
+ *     ({@link SegmentedBillArchive})</li>
+ * </ul>
+ */
+public interface BillArchive {
+
+    /**
+     * Enregistre le contenu d'une facture
+     *
+     * @param billNumber le numéro de la facture
+     * @param contents   le contenu du fichier de facture
+     */
+    void write(String billNumber, String contents);
+
+    /**
+     * @param billNumber le numéro de la facture
+     * @return le contenu du fichier de facture, ou vide s'il n'existe pas
+     */
+    Optional<String> read(String billNumber);
+}
@@ -0,0 +1,107 @@
+package sae.semestre.six.file;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Outil de migration des fichiers de factures (un fichier par facture) vers l'archive segmentée.
+ * <p>
+ * Lancé au démarrage lorsque {@code sae.semestre.six.billing.archive.migrate-on-startup=true}
+ * (avec {@code sae.semestre.six.billing.archive.storage=segments}) : chaque fichier
+ * {@code <numéro de facture>.txt} du dossier {@code sae.semestre.six.files.billing} est ajouté à
+ * l'archive, puis relu pour vérification. Les factures déjà archivées sont ignorées, la migration
+ * peut donc être relancée après une interruption. Les fichiers d'origine ne sont supprimés que si
+ * {@code sae.semestre.six.billing.archive.migrate-delete-source=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "sae.semestre.six.billing.archive.migrate-on-startup", havingValue = "true")
+public class BillArchiveMigration implements ApplicationRunner {
+
+    /**
+     * Bilan d'une migration
+     *
+     * @param scanned  le nombre de fichiers de factures parcourus
+     * @param migrated le nombre de factures ajoutées à l'archive
+     * @param skipped  le nombre de factures déjà présentes dans l'archive
+     * @param failed   le nombre de fichiers n'ayant pas pu être migrés
+     */
+    public record MigrationReport(long scanned, long migrated, long skipped, long failed) {
+    }
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private final BillArchive billArchive;
+    private final String sourceFolder;
+    private final boolean deleteSource;
+
+    public BillArchiveMigration(BillArchive billArchive,
+                                @Value("${sae.semestre.six.files.billing}") String sourceFolder,
+                                @Value("${sae.semestre.six.billing.archive.migrate-delete-source:false}") boolean deleteSource) {
+        this.billArchive = billArchive;
+        this.sourceFolder = sourceFolder;
+        this.deleteSource = deleteSource;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!(billArchive instanceof SegmentedBillArchive segmentedArchive)) {
+            throw new IllegalStateException("Bill archive migration requires sae.semestre.six.billing.archive.storage=segments");
+        }
+        MigrationReport report = migrate(Path.of(sourceFolder), segmentedArchive, deleteSource);
+        System.out.println("Bill archive migration done: " + report);
+    }
+
+    /**
+     * Migre les fichiers de factures d'un dossier vers l'archive segmentée.
+     * Le dossier est parcouru au fil de l'eau, sans charger la liste complète des fichiers.
+     *
+     * @param source       le dossier contenant les fichiers {@code <numéro de facture>.txt}
+     * @param target       l'archive segmentée
+     * @param deleteSource true pour supprimer chaque fichier une fois sa migration vérifiée
+     * @return le bilan de la migration
+     */
+    public static MigrationReport migrate(Path source, SegmentedBillArchive target, boolean deleteSource) {
+        long scanned = 0, migrated = 0, skipped = 0, failed = 0;
+        if (!Files.isDirectory(source)) {
+            return new MigrationReport(0, 0, 0, 0);
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(source, "*.txt")) {
+            for (Path file : files) {
+                scanned++;
+                String fileName = file.getFileName().toString();
+                String billNumber = fileName.substring(0, fileName.length() - ".txt".length());
+                try {
+                    String contents = Files.readString(file);
+                    if (target.contains(billNumber)) {
+                        skipped++;
+                    } else {
+                        target.write(billNumber, contents);
+                        migrated++;
+                    }
+                    if (deleteSource && target.read(billNumber).filter(contents::equals).isPresent()) {
+                        Files.delete(file);
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    failed++;
+                    System.err.println("Cannot migrate bill file " + file + ": " + e.getMessage());
+                }
+                if (scanned % PROGRESS_INTERVAL == 0) {
+                    System.out.println("Bill archive migration: " + scanned + " files scanned");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list bill files in " + source, e);
+        }
+        return new MigrationReport(scanned, migrated, skipped, failed);
+    }
+}
@@ -0,0 +1,47 @@
+package sae.semestre.six.file;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.Optional;
+
+/**
+ * Stockage historique des factures : un fichier {@code <numéro de facture>.txt} par facture
+ */
+@Component
+@ConditionalOnProperty(name = "sae.semestre.six.billing.archive.storage", havingValue = "files", matchIfMissing = true)
+public class FileBillArchive implements BillArchive {
+
+    private final FileHandler fileHandler;
+    private final String billsFolder;
+
+    public FileBillArchive(FileHandler fileHandler,
+                           @Value("${sae.semestre.six.files.billing}") String billsFolder) {
+        this.fileHandler = fileHandler;
+        this.billsFolder = billsFolder;
+    }
+
+    @Override
+    public void write(String billNumber, String contents) {
+        fileHandler.writeToFile(getFileForBillNumber(billNumber).getAbsolutePath(), contents);
+    }
+
+    @Override
+    public Optional<String> read(String billNumber) {
+        File file = getFileForBillNumber(billNumber);
+        if (!file.exists()) {
+            return Optional.empty();
+        }
+        return Optional.of(fileHandler.readFromFile(file.getAbsolutePath()));
+    }
+
+    /**
+     * @param billNumber le numéro de facture
+     * @return le fichier contenant (normalement) les informations de la facture
+     */
+    private File getFileForBillNumber(String billNumber) {
+        return new File(billsFolder, billNumber + ".txt");
+    }
+}
@@ -0,0 +1,310 @@
+package sae.semestre.six.file;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Archive des factures en fichiers segments, en ajout seul.
+ * <p>
+ * Le contenu des factures est ajouté à la fin du segment courant ({@code bills-000001.seg}, ...) ;
+ * un nouveau segment est ouvert lorsque le courant atteint la taille maximale. Chaque enregistrement
+ * d'un segment porte le numéro de la facture, ce qui rend les segments autosuffisants.
+ * <p>
+ * Un index ({@code bills.idx}, lui aussi en ajout seul) associe chaque numéro de facture à
+ * (segment, position, longueur). Il est chargé en mémoire au démarrage : la lecture d'une facture
+ * est alors une seule lecture positionnée. Si l'application s'est arrêtée entre l'écriture d'un
+ * segment et celle de l'index, les enregistrements manquants sont réindexés au démarrage, et un
+ * enregistrement incomplet en fin de segment est tronqué.
+ * <p>
+ * Une facture écrite plusieurs fois est remplacée : seule sa dernière version est lue.
+ */
+@Component
+@ConditionalOnProperty(name = "sae.semestre.six.billing.archive.storage", havingValue = "segments")
+public class SegmentedBillArchive implements BillArchive {
+
+    /**
+     * Position d'une facture dans l'archive
+     *
+     * @param segment le numéro du segment
+     * @param offset  la position du contenu dans le segment
+     * @param length  la longueur du contenu, en octets
+     */
+    public record BillLocation(int segment, long offset, int length) {
+    }
+
+    /**
+     * Marqueur de début d'enregistrement dans un segment ("BILL")
+     */
+    private static final int RECORD_MAGIC = 0x42494C4C;
+    private static final String INDEX_FILE = "bills.idx";
+
+    private final Path folder;
+    private final long maxSegmentBytes;
+    private final boolean sync;
+
+    private final Map<String, BillLocation> index = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> readChannels = new ConcurrentHashMap<>();
+
+    private FileChannel indexChannel;
+    private FileChannel currentSegment;
+    private int currentSegmentNumber;
+    private long currentSegmentSize;
+
+    public SegmentedBillArchive(@Value("${sae.semestre.six.files.billing-archive}") String folder,
+                                @Value("${sae.semestre.six.billing.archive.segment-size-bytes:268435456}") long maxSegmentBytes,
+                                @Value("${sae.semestre.six.billing.archive.sync:false}") boolean sync) {
+        this.folder = Path.of(folder);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.sync = sync;
+        try {
+            Files.createDirectories(this.folder);
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open bill archive " + folder, e);
+        }
+    }
+
+    @Override
+    public synchronized void write(String billNumber, String contents) {
+        byte[] key = billNumber.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = contents.getBytes(StandardCharsets.UTF_8);
+        int recordLength = Integer.BYTES + Short.BYTES + key.length + Integer.BYTES + payload.length;
+
+        try {
+            if (currentSegmentSize > 0 && currentSegmentSize + recordLength > maxSegmentBytes) {
+                openSegment(currentSegmentNumber + 1);
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(recordLength)
+                    .putInt(RECORD_MAGIC)
+                    .putShort((short) key.length)
+                    .put(key)
+                    .putInt(payload.length)
+                    .put(payload)
+                    .flip();
+            writeFully(currentSegment, record);
+            if (sync) {
+                currentSegment.force(false);
+            }
+
+            BillLocation location = new BillLocation(currentSegmentNumber,
+                    currentSegmentSize + recordLength - payload.length,
+                    payload.length);
+            currentSegmentSize += recordLength;
+            appendToIndex(billNumber, location);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append bill " + billNumber + " to the archive", e);
+        }
+    }
+
+    @Override
+    public Optional<String> read(String billNumber) {
+        BillLocation location = index.get(billNumber);
+        if (location == null) {
+            return Optional.empty();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(location.length());
+            FileChannel channel = readChannel(location.segment());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, location.offset() + buffer.position()) < 0) {
+                    throw new EOFException("Segment " + location.segment() + " is truncated");
+                }
+            }
+            return Optional.of(new String(buffer.array(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read bill " + billNumber + " from the archive", e);
+        }
+    }
+
+    /**
+     * @param billNumber le numéro de la facture
+     * @return true si la facture est présente dans l'archive
+     */
+    public boolean contains(String billNumber) {
+        return index.containsKey(billNumber);
+    }
+
+    /**
+     * @param billNumber le numéro de la facture
+     * @return la position de la facture dans l'archive
+     */
+    public Optional<BillLocation> locate(String billNumber) {
+        return Optional.ofNullable(index.get(billNumber));
+    }
+
+    /**
+     * @return le nombre de factures indexées
+     */
+    public int size() {
+        return index.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            for (FileChannel channel : readChannels.values()) {
+                channel.close();
+            }
+            readChannels.clear();
+            if (currentSegment != null) {
+                currentSegment.close();
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Charge l'index, réindexe les enregistrements qui n'y figurent pas encore et ouvre le dernier segment
+     */
+    private void open() throws IOException {
+        // Position de fin de chaque segment d'après l'index, y compris les versions remplacées
+        Map<Integer, Long> indexedEnds = new HashMap<>();
+        Path indexPath = folder.resolve(INDEX_FILE);
+        long validIndexLength = loadIndex(indexPath, indexedEnds);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        indexChannel.truncate(validIndexLength);
+        indexChannel.position(validIndexLength);
+
+        int lastIndexedSegment = indexedEnds.keySet().stream().max(Integer::compare).orElse(1);
+
+        int segment = lastIndexedSegment;
+        while (true) {
+            Path path = segmentPath(segment);
+            if (!Files.exists(path)) {
+                break;
+            }
+            recoverSegment(segment, indexedEnds.getOrDefault(segment, 0L));
+            segment++;
+        }
+        openSegment(Math.max(lastIndexedSegment, segment - 1));
+    }
+
+    /**
+     * @return la longueur de la partie valide de l'index (un enregistrement incomplet en fin de fichier est ignoré)
+     */
+    private long loadIndex(Path indexPath, Map<Integer, Long> indexedEnds) throws IOException {
+        if (!Files.exists(indexPath)) {
+            return 0;
+        }
+        long validLength = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            while (true) {
+                try {
+                    int keyLength = input.readUnsignedShort();
+                    byte[] key = input.readNBytes(keyLength);
+                    if (key.length < keyLength) {
+                        break;
+                    }
+                    BillLocation location = new BillLocation(input.readInt(), input.readLong(), input.readInt());
+                    index.put(new String(key, StandardCharsets.UTF_8), location);
+                    indexedEnds.merge(location.segment(), location.offset() + location.length(), Math::max);
+                    validLength += Short.BYTES + keyLength + Integer.BYTES + Long.BYTES + Integer.BYTES;
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Réindexe les enregistrements d'un segment situés après la dernière position indexée
+     * et tronque un éventuel enregistrement incomplet
+     */
+    private void recoverSegment(int segment, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = from;
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Short.BYTES);
+            while (position < size) {
+                header.clear();
+                if (channel.read(header, position) < header.capacity() || header.flip().getInt() != RECORD_MAGIC) {
+                    break;
+                }
+                int keyLength = Short.toUnsignedInt(header.getShort());
+                ByteBuffer keyAndLength = ByteBuffer.allocate(keyLength + Integer.BYTES);
+                if (channel.read(keyAndLength, position + header.capacity()) < keyAndLength.capacity()) {
+                    break;
+                }
+                keyAndLength.flip();
+                byte[] key = new byte[keyLength];
+                keyAndLength.get(key);
+                int payloadLength = keyAndLength.getInt();
+                long payloadOffset = position + header.capacity() + keyAndLength.capacity();
+                if (payloadOffset + payloadLength > size) {
+                    break;
+                }
+                appendToIndex(new String(key, StandardCharsets.UTF_8), new BillLocation(segment, payloadOffset, payloadLength));
+                position = payloadOffset + payloadLength;
+            }
+            if (position < size) {
+                channel.truncate(position);
+            }
+        }
+    }
+
+    private void openSegment(int segment) throws IOException {
+        if (currentSegment != null) {
+            currentSegment.close();
+        }
+        currentSegmentNumber = segment;
+        currentSegment = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentSegmentSize = currentSegment.size();
+    }
+
+    private void appendToIndex(String billNumber, BillLocation location) throws IOException {
+        byte[] key = billNumber.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(Short.BYTES + key.length + Integer.BYTES + Long.BYTES + Integer.BYTES)
+                .putShort((short) key.length)
+                .put(key)
+                .putInt(location.segment())
+                .putLong(location.offset())
+                .putInt(location.length())
+                .flip();
+        writeFully(indexChannel, entry);
+        if (sync) {
+            indexChannel.force(false);
+        }
+        index.put(billNumber, location);
+    }
+
+    private FileChannel readChannel(int segment) {
+        return readChannels.computeIfAbsent(segment, number -> {
+            try {
+                return FileChannel.open(segmentPath(number), StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open segment " + number, e);
+            }
+        });
+    }
+
+    private Path segmentPath(int segment) {
+        return folder.resolve(String.format("bills-%06d.seg", segment));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package sae.semestre.six.identifier;
+
+import lombok.Getter;
+
+/**
+ * Les numéros métier générés par l'{@link IdentifierService}
+ */
+@Getter
+public enum BusinessIdentifier {
+    BILL("BILL"),
+    APPOINTMENT("APPT"),
+    PRESCRIPTION("RX");
+
+    /**
+     * Préfixe du numéro (et nom de la séquence en base)
+     */
+    private final String prefix;
+
+    BusinessIdentifier(String prefix) {
+        this.prefix = prefix;
+    }
+}
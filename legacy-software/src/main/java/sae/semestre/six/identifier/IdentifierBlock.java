@@ -0,0 +1,29 @@
+package sae.semestre.six.identifier;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Séquence de numéros métier : prochaine valeur non encore réservée par une instance de l'application
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "identifier_blocks")
+public class IdentifierBlock {
+
+    @Id
+    @Column(name = "sequence_name", length = 32)
+    private String sequenceName;
+
+    @Column(name = "next_value", nullable = false)
+    private long nextValue;
+
+    public IdentifierBlock(String sequenceName, long nextValue) {
+        this.sequenceName = sequenceName;
+        this.nextValue = nextValue;
+    }
+}
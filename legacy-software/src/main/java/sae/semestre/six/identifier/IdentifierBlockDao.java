@@ -0,0 +1,16 @@
+package sae.semestre.six.identifier;
+
+import sae.semestre.six.dao.GenericDao;
+
+public interface IdentifierBlockDao extends GenericDao<IdentifierBlock, String> {
+
+    /**
+     * Réserve un bloc de valeurs d'une séquence, en créant la séquence si besoin.
+     * La ligne de la séquence est verrouillée jusqu'à la fin de la transaction, qui doit être courte.
+     *
+     * @param sequenceName le nom de la séquence
+     * @param blockSize    le nombre de valeurs à réserver
+     * @return la première valeur du bloc réservé
+     */
+    long reserveBlock(String sequenceName, int blockSize);
+}
@@ -0,0 +1,24 @@
+package sae.semestre.six.identifier;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.stereotype.Repository;
+import sae.semestre.six.dao.AbstractHibernateDao;
+
+@Repository
+public class IdentifierBlockDaoImpl extends AbstractHibernateDao<IdentifierBlock, String> implements IdentifierBlockDao {
+
+    @Override
+    public long reserveBlock(String sequenceName, int blockSize) {
+        IdentifierBlock block = getEntityManager().find(IdentifierBlock.class, sequenceName, LockModeType.PESSIMISTIC_WRITE);
+        if (block == null) {
+            // Première utilisation : une instance concurrente peut créer la même séquence,
+            // l'insertion échoue alors sur la clé primaire et la réservation est retentée
+            getEntityManager().persist(new IdentifierBlock(sequenceName, 1L + blockSize));
+            getEntityManager().flush();
+            return 1L;
+        }
+        long start = block.getNextValue();
+        block.setNextValue(start + blockSize);
+        return start;
+    }
+}
@@ -0,0 +1,100 @@
+package sae.semestre.six.identifier;
+
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Génère les numéros métier (factures, rendez-vous, prescriptions), par exemple {@code BILL00000042}.
+ * <p>
+ * Les valeurs sont réservées en base par blocs ({@code sae.semestre.six.identifiers.block-size}) puis
+ * distribuées depuis la mémoire : un accès à la base n'a lieu qu'une fois par bloc. Chaque réservation
+ * se fait dans sa propre courte transaction, indépendante de celle de l'appelant, en verrouillant la
+ * ligne de la séquence. Les numéros sont donc uniques entre les redémarrages et entre plusieurs
+ * instances de l'application, et croissants pour une instance donnée. Les valeurs d'un bloc non
+ * utilisées avant un arrêt sont perdues (trous dans la numérotation), jamais réattribuées.
+ */
+@Service
+public class IdentifierService {
+
+    private static final int MAX_RESERVATION_ATTEMPTS = 3;
+
+    /**
+     * Bloc de valeurs réservé par cette instance
+     */
+    private static final class Block {
+        private long next;
+        private long end;
+    }
+
+    private final IdentifierBlockDao identifierBlockDao;
+    private final TransactionTemplate reservationTransaction;
+    private final int blockSize;
+    private final int digits;
+    private final Map<BusinessIdentifier, Block> blocks = new EnumMap<>(BusinessIdentifier.class);
+
+    public IdentifierService(IdentifierBlockDao identifierBlockDao,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${sae.semestre.six.identifiers.block-size:100}") int blockSize,
+                             @Value("${sae.semestre.six.identifiers.digits:8}") int digits) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Identifier block size must be positive");
+        }
+        this.identifierBlockDao = identifierBlockDao;
+        this.reservationTransaction = new TransactionTemplate(transactionManager);
+        this.reservationTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        this.digits = digits;
+        for (BusinessIdentifier identifier : BusinessIdentifier.values()) {
+            blocks.put(identifier, new Block());
+        }
+    }
+
+    /**
+     * @param identifier le type de numéro
+     * @return un nouveau numéro, préfixé et complété par des zéros
+     */
+    public String next(BusinessIdentifier identifier) {
+        return identifier.getPrefix() + String.format("%0" + digits + "d", nextValue(identifier));
+    }
+
+    /**
+     * @param identifier le type de numéro
+     * @return une nouvelle valeur de la séquence
+     */
+    public long nextValue(BusinessIdentifier identifier) {
+        Block block = blocks.get(identifier);
+        synchronized (block) {
+            if (block.next >= block.end) {
+                long start = reserveBlock(identifier.getPrefix());
+                block.next = start;
+                block.end = start + blockSize;
+            }
+            return block.next++;
+        }
+    }
+
+    private long reserveBlock(String sequenceName) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Long start = reservationTransaction.execute(status -> identifierBlockDao.reserveBlock(sequenceName, blockSize));
+                if (start == null) {
+                    throw new IllegalStateException("No block reserved for sequence " + sequenceName);
+                }
+                return start;
+            } catch (DataIntegrityViolationException | PersistenceException e) {
+                // Séquence créée au même moment par une autre instance
+                if (attempt >= MAX_RESERVATION_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package sae.semestre.six.mail;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.mail.MailSender;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
@@ -8,14 +10,19 @@ import org.springframework.stereotype.Service;
 
 import java.util.Properties;
 
-@Service
+/**
+ * Transport d'emails par le serveur SMTP de Gmail. Utilisé par le {@link OutboxEmailDispatcher} ;
+ * les services métier passent par la boîte d'envoi ({@link OutboxEmailService}).
+ */
+@Service("emailTransport")
+@ConditionalOnProperty(name = "sae.semestre.six.mail.transport", havingValue = "gmail", matchIfMissing = true)
 public class GmailService implements EmailService {
 
     private final MailSender mailSender;
 
-    /* Ne pas enlever l'autowired car Spring doit utiliser ce constructeur par défaut */
+    /* Ne pas enlever l'autowired car Spring doit utiliser ce constructeur */
     @Autowired
-    public GmailService() {
+    public GmailService(@Value("${sae.semestre.six.mail.outbox.send-timeout-ms:10000}") long sendTimeoutMs) {
         JavaMailSenderImpl sender = new JavaMailSenderImpl();
         sender.setHost("smtp.gmail.com");
         sender.setPort(587);
@@ -26,6 +33,10 @@ public class GmailService implements EmailService {
         props.put("mail.transport.protocol", "smtp");
         props.put("mail.smtp.auth", "true");
         props.put("mail.smtp.starttls.enable", "true");
+        // Un envoi bloqué ne doit pas dépasser la réservation de l'email par le répartiteur
+        props.put("mail.smtp.connectiontimeout", String.valueOf(sendTimeoutMs));
+        props.put("mail.smtp.timeout", String.valueOf(sendTimeoutMs));
+        props.put("mail.smtp.writetimeout", String.valueOf(sendTimeoutMs));
 
         this.mailSender = sender;
     }
@@ -46,6 +57,8 @@ public class GmailService implements EmailService {
             System.out.println("Email sent successfully");
         } catch (Exception e) {
             System.out.println("Failed to send email: " + e.getMessage());
+            // Remontée au répartiteur de la boîte d'envoi, qui programmera une nouvelle tentative
+            throw e;
         }
     }
 }
@@ -0,0 +1,61 @@
+package sae.semestre.six.mail;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport d'emails local, sans serveur de mail : les emails sont conservés en mémoire.
+ * Activé avec {@code sae.semestre.six.mail.transport=local} (développement et tests).
+ */
+@Service("emailTransport")
+@ConditionalOnProperty(name = "sae.semestre.six.mail.transport", havingValue = "local")
+public class LocalEmailService implements EmailService {
+
+    /**
+     * Un email « envoyé » par le transport local
+     */
+    public record LocalEmail(String to, String subject, String body, Date sentDate) {
+    }
+
+    private final List<LocalEmail> sentEmails = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger failuresToSimulate = new AtomicInteger();
+
+    @Override
+    public void sendEmail(String to, String subject, String body) {
+        if (failuresToSimulate.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            throw new MailSendException("Simulated failure sending email to " + to);
+        }
+        sentEmails.add(new LocalEmail(to, subject, body, new Date()));
+        System.out.println("Email stored locally for " + to + ": " + subject);
+    }
+
+    /**
+     * @return une copie des emails envoyés, dans l'ordre d'envoi
+     */
+    public List<LocalEmail> getSentEmails() {
+        synchronized (sentEmails) {
+            return List.copyOf(sentEmails);
+        }
+    }
+
+    /**
+     * Fait échouer les prochains envois
+     *
+     * @param count le nombre d'envois à faire échouer
+     */
+    public void failNext(int count) {
+        failuresToSimulate.set(count);
+    }
+
+    public void clear() {
+        sentEmails.clear();
+        failuresToSimulate.set(0);
+    }
+}
@@ -0,0 +1,27 @@
+package sae.semestre.six.mail;
+
+import sae.semestre.six.dao.GenericDao;
+
+import java.util.Date;
+import java.util.List;
+
+public interface OutboxEmailDao extends GenericDao<OutboxEmail, Long> {
+
+    /**
+     * Réserve les prochains emails à envoyer. Les lignes déjà verrouillées par un autre répartiteur
+     * sont ignorées ; les emails réservés passent à l'état {@link OutboxEmailStatus#SENDING}
+     * jusqu'à {@code leaseUntil}. Doit être appelée dans une transaction.
+     *
+     * @param now        la date courante
+     * @param leaseUntil la date à laquelle les emails réservés redeviennent éligibles s'ils n'ont pas été confirmés
+     * @param limit      le nombre maximal d'emails à réserver
+     * @return les emails réservés, du plus ancien au plus récent
+     */
+    List<OutboxEmail> claimDue(Date now, Date leaseUntil, int limit);
+
+    /**
+     * @param status l'état recherché
+     * @return le nombre d'emails dans cet état
+     */
+    long countByStatus(OutboxEmailStatus status);
+}
@@ -0,0 +1,40 @@
+package sae.semestre.six.mail;
+
+import jakarta.persistence.LockModeType;
+import org.hibernate.LockOptions;
+import org.springframework.stereotype.Repository;
+import sae.semestre.six.dao.AbstractHibernateDao;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public class OutboxEmailDaoImpl extends AbstractHibernateDao<OutboxEmail, Long> implements OutboxEmailDao {
+
+    @Override
+    public List<OutboxEmail> claimDue(Date now, Date leaseUntil, int limit) {
+        List<OutboxEmail> due = getEntityManager()
+                .createQuery("FROM OutboxEmail e " +
+                        "WHERE e.status IN :statuses AND e.nextAttemptAt <= :now " +
+                        "ORDER BY e.id", OutboxEmail.class)
+                .setParameter("statuses", List.of(OutboxEmailStatus.PENDING, OutboxEmailStatus.SENDING))
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .getResultList();
+        for (OutboxEmail email : due) {
+            email.setStatus(OutboxEmailStatus.SENDING);
+            email.setNextAttemptAt(leaseUntil);
+        }
+        return due;
+    }
+
+    @Override
+    public long countByStatus(OutboxEmailStatus status) {
+        return getEntityManager()
+                .createQuery("SELECT COUNT(e) FROM OutboxEmail e WHERE e.status = :status", Long.class)
+                .setParameter("status", status)
+                .getSingleResult();
+    }
+}
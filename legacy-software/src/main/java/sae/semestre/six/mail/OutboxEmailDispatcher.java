@@ -0,0 +1,120 @@
+package sae.semestre.six.mail;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Envoie en arrière-plan les emails de la boîte d'envoi.
+ * <p>
+ * Les emails sont réservés par lots dans une courte transaction, puis envoyés hors transaction ;
+ * le résultat de chaque envoi est enregistré dès la fin de cet envoi, si bien qu'un arrêt en cours de lot
+ * ne renvoie que l'email en cours. La réservation dure {@code lease-ms}, qui doit couvrir l'envoi de tout
+ * le lot ({@code batch-size * send-timeout-ms}) pour qu'une autre instance ne reprenne pas un email en cours.
+ * Un envoi en échec est reprogrammé avec un délai exponentiel
+ * ({@code base-delay-ms * 2^(tentatives - 1)}, plafonné à {@code max-delay-ms}) ; au-delà de
+ * {@code max-attempts} tentatives, l'email est marqué {@link OutboxEmailStatus#FAILED}.
+ * Plusieurs instances peuvent tourner en parallèle : une ligne réservée est ignorée des autres.
+ */
+@Component
+public class OutboxEmailDispatcher {
+
+    private final OutboxEmailDao outboxEmailDao;
+    private final EmailService transport;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    /**
+     * Durée pendant laquelle un email réservé n'est pas proposé aux autres répartiteurs
+     */
+    private final long leaseMs;
+
+    public OutboxEmailDispatcher(OutboxEmailDao outboxEmailDao,
+                                 @Qualifier("emailTransport") EmailService transport,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${sae.semestre.six.mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${sae.semestre.six.mail.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${sae.semestre.six.mail.outbox.base-delay-ms:1000}") long baseDelayMs,
+                                 @Value("${sae.semestre.six.mail.outbox.max-delay-ms:3600000}") long maxDelayMs,
+                                 @Value("${sae.semestre.six.mail.outbox.lease-ms:600000}") long leaseMs,
+                                 @Value("${sae.semestre.six.mail.outbox.send-timeout-ms:10000}") long sendTimeoutMs) {
+        if (leaseMs < batchSize * sendTimeoutMs) {
+            throw new IllegalStateException("sae.semestre.six.mail.outbox.lease-ms (" + leaseMs
+                    + ") must be at least batch-size * send-timeout-ms (" + batchSize * sendTimeoutMs + ")");
+        }
+        this.outboxEmailDao = outboxEmailDao;
+        this.transport = transport;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.leaseMs = leaseMs;
+    }
+
+    /**
+     * Vide la boîte d'envoi, lot par lot, tant que des emails sont à envoyer
+     */
+    @Scheduled(fixedDelayString = "${sae.semestre.six.mail.outbox.poll-interval-ms:2000}")
+    public void dispatchPending() {
+        while (dispatchBatch() == batchSize) {
+            // Lot complet : d'autres emails attendent peut-être
+        }
+    }
+
+    /**
+     * Envoie un lot d'emails
+     *
+     * @return le nombre d'emails traités (envoyés ou reprogrammés)
+     */
+    public int dispatchBatch() {
+        Date now = new Date();
+        List<OutboxEmail> batch = transactionTemplate.execute(status ->
+                outboxEmailDao.claimDue(now, new Date(now.getTime() + leaseMs), batchSize));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        for (OutboxEmail email : batch) {
+            email.setAttempts(email.getAttempts() + 1);
+            try {
+                transport.sendEmail(email.getRecipient(), email.getSubject(), email.getBody());
+                email.setStatus(OutboxEmailStatus.SENT);
+                email.setSentDate(new Date());
+                email.setLastError(null);
+            } catch (RuntimeException e) {
+                recordFailure(email, e);
+            }
+            // Enregistré aussitôt : un arrêt en cours de lot ne renvoie pas les emails déjà envoyés
+            transactionTemplate.executeWithoutResult(status -> outboxEmailDao.update(email));
+        }
+        return batch.size();
+    }
+
+    /**
+     * @param attempts le nombre de tentatives déjà effectuées
+     * @return le délai avant la prochaine tentative, en millisecondes
+     */
+    long backoffDelay(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(maxDelayMs, baseDelayMs << exponent);
+    }
+
+    private void recordFailure(OutboxEmail email, RuntimeException e) {
+        String error = String.valueOf(e.getMessage());
+        email.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus(OutboxEmailStatus.FAILED);
+        } else {
+            email.setStatus(OutboxEmailStatus.PENDING);
+            email.setNextAttemptAt(new Date(System.currentTimeMillis() + backoffDelay(email.getAttempts())));
+        }
+    }
+}
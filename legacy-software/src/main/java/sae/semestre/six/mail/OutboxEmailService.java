@@ -0,0 +1,26 @@
+package sae.semestre.six.mail;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implémentation par défaut de {@link EmailService} : les emails ne sont pas envoyés directement
+ * mais enregistrés dans la boîte d'envoi, dans la transaction de l'appelant. Ils ne partent donc
+ * que si l'opération métier est validée, et la latence du serveur SMTP n'est plus subie par la requête.
+ * L'envoi effectif est assuré par le {@link OutboxEmailDispatcher}.
+ */
+@Primary
+@Service
+@RequiredArgsConstructor
+public class OutboxEmailService implements EmailService {
+
+    private final OutboxEmailDao outboxEmailDao;
+
+    @Override
+    @Transactional
+    public void sendEmail(String to, String subject, String body) {
+        outboxEmailDao.save(new OutboxEmail(to, subject, body));
+    }
+}
@@ -0,0 +1,23 @@
+package sae.semestre.six.mail;
+
+/**
+ * États d'un email de la boîte d'envoi
+ */
+public enum OutboxEmailStatus {
+    /**
+     * En attente d'envoi (premier envoi ou nouvelle tentative programmée)
+     */
+    PENDING,
+    /**
+     * Réservé par un répartiteur ; redevient éligible si l'envoi n'est pas confirmé à temps
+     */
+    SENDING,
+    /**
+     * Envoyé
+     */
+    SENT,
+    /**
+     * Abandonné après le nombre maximal de tentatives
+     */
+    FAILED
+}
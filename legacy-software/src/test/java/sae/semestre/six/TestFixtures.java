@@ -0,0 +1,56 @@
+package sae.semestre.six;
+
+import sae.semestre.six.domain.inventory.Inventory;
+import sae.semestre.six.domain.patient.Patient;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Unsaved entities shared by the integration tests.
+ * <p>
+ * Numbers and item codes are built from {@link #uniqueSuffix()}, so that the data of a test never
+ * collides with the data left in the database by other tests or other runs.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    /**
+     * @return a short random suffix for the numbers and item codes created by one test
+     */
+    public static String uniqueSuffix() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * @param patientNumber the unique patient number
+     * @return an unsaved patient
+     */
+    public static Patient patient(String patientNumber) {
+        return Patient.builder()
+                .firstName("Test")
+                .lastName("Patient")
+                .email("test.patient@gmail.fr")
+                .patientNumber(patientNumber)
+                .build();
+    }
+
+    /**
+     * @param itemCode  the unique item code
+     * @param quantity  the quantity in stock
+     * @param unitPrice the unit price
+     * @return an unsaved inventory item, never below its reorder level
+     */
+    public static Inventory inventoryItem(String itemCode, int quantity, double unitPrice) {
+        Inventory inventory = new Inventory();
+        inventory.setItemCode(itemCode);
+        inventory.setName("Test item " + itemCode);
+        inventory.setQuantity(quantity);
+        inventory.setUnitPrice(unitPrice);
+        inventory.setReorderLevel(0);
+        inventory.setLastRestocked(new Date());
+        return inventory;
+    }
+}
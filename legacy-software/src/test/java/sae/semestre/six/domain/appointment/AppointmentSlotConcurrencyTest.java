@@ -0,0 +1,165 @@
+package sae.semestre.six.domain.appointment;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.TestFixtures;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.patient.PatientDao;
+import sae.semestre.six.domain.room.Room;
+import sae.semestre.six.domain.room.RoomDao;
+import sae.semestre.six.exception.InvalidDataException;
+import sae.semestre.six.identifier.IdentifierService;
+import sae.semestre.six.mail.EmailService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests de concurrence de la prise de rendez-vous sur la base réelle.
+ * <p>
+ * Chaque thread utilise sa propre instance de l'{@link AppointmentService}, avec son propre
+ * {@link DoctorCalendar} (comme plusieurs instances de l'application) : seule la contrainte d'unicité
+ * de {@link AppointmentSlot} peut empêcher une double réservation. Le test n'est pas transactionnel :
+ * chaque rendez-vous est validé dans sa propre transaction, puis les données sont supprimées.
+ */
+@SpringBootTest
+public class AppointmentSlotConcurrencyTest {
+
+    private static final LocalDateTime SLOT = LocalDateTime.of(2099, 6, 15, 10, 0);
+
+    @Autowired
+    private AppointmentDao appointmentDao;
+
+    @Autowired
+    private AppointmentSlotDao appointmentSlotDao;
+
+    @Autowired
+    private DoctorDao doctorDao;
+
+    @Autowired
+    private PatientDao patientDao;
+
+    @Autowired
+    private RoomDao roomDao;
+
+    @Autowired
+    private IdentifierService identifierService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Doctor doctor;
+    private Patient patient;
+    private Room room;
+
+    @BeforeEach
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        String suffix = TestFixtures.uniqueSuffix();
+        transactionTemplate.executeWithoutResult(status -> {
+            doctor = Doctor.builder().doctorNumber("SLOT-DOC-" + suffix).firstName("Slot").lastName("Test")
+                    .email("slot.test@example.com").appointments(new HashSet<>()).build();
+            doctorDao.save(doctor);
+            patient = TestFixtures.patient("SLOT-PAT-" + suffix);
+            patientDao.save(patient);
+            room = Room.builder().roomNumber("SLOT-ROOM-" + suffix).capacity(100).currentPatientCount(0)
+                    .isOccupied(false).build();
+            roomDao.save(room);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("DELETE FROM AppointmentSlot s WHERE s.doctorId = :doctorId")
+                    .setParameter("doctorId", doctor.getId()).executeUpdate();
+            entityManager.createQuery("DELETE FROM Appointment a WHERE a.doctor.id = :doctorId")
+                    .setParameter("doctorId", doctor.getId()).executeUpdate();
+            entityManager.createQuery("DELETE FROM Doctor d WHERE d.id = :id").setParameter("id", doctor.getId()).executeUpdate();
+            entityManager.createQuery("DELETE FROM Patient p WHERE p.id = :id").setParameter("id", patient.getId()).executeUpdate();
+            entityManager.createQuery("DELETE FROM Room r WHERE r.id = :id").setParameter("id", room.getId()).executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("Des rendez-vous pris en parallèle par plusieurs instances ne doivent jamais réserver deux fois un créneau")
+    public void create_shouldNeverDoubleBookUnderConcurrency() throws Exception {
+        int threads = 16;
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            AppointmentService instance = newInstance();
+            // Rendez-vous à des minutes différentes de la même heure, donc du même créneau
+            LocalDateTime appointmentDate = SLOT.plusMinutes(thread % 4 * 15L);
+            workers.add(executor.submit(() -> {
+                start.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            instance.create(doctor.getId(), patient.getId(), room.getId(), appointmentDate));
+                    booked.incrementAndGet();
+                } catch (InvalidDataException e) {
+                    assertEquals("Doctor is not available at this time", e.getMessage());
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, booked.get());
+        assertEquals(threads - 1, rejected.get());
+        assertEquals(1, appointmentDao.findByDoctorId(doctor.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Un créneau annulé doit pouvoir être réservé à nouveau par une autre instance")
+    public void cancel_shouldFreeSlotForAnotherInstance() {
+        AppointmentService first = newInstance();
+        Appointment appointment = transactionTemplate.execute(status ->
+                first.create(doctor.getId(), patient.getId(), room.getId(), SLOT));
+        AppointmentService second = newInstance();
+        assertThrows(InvalidDataException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                second.create(doctor.getId(), patient.getId(), room.getId(), SLOT.plusMinutes(30))));
+
+        transactionTemplate.executeWithoutResult(status -> first.cancel(appointment.getId()));
+
+        assertNotNull(transactionTemplate.execute(status ->
+                newInstance().create(doctor.getId(), patient.getId(), room.getId(), SLOT.plusMinutes(30))));
+    }
+
+    /**
+     * @return une instance du service avec son propre agenda, comme une autre instance de l'application
+     */
+    private AppointmentService newInstance() {
+        return new AppointmentService(appointmentDao, roomDao, doctorDao, patientDao, mock(EmailService.class),
+                identifierService, new DoctorCalendar(appointmentDao, 300, 100), appointmentSlotDao);
+    }
+}
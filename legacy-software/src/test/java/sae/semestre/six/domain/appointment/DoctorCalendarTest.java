@@ -0,0 +1,112 @@
+package sae.semestre.six.domain.appointment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DoctorCalendarTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 5, 13);
+
+    private final AppointmentDao appointmentDao = mock(AppointmentDao.class);
+    private final DoctorCalendar calendar = new DoctorCalendar(appointmentDao, 300, 100);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Un mois doit être chargé une seule fois, quel que soit le nombre de consultations")
+    void getOccupiedHours_shouldLoadEachMonthOnce() {
+        LocalDateTime may = LocalDateTime.of(2025, 5, 1, 0, 0);
+        when(appointmentDao.findActiveDatesByDoctorId(1L, may, may.plusMonths(1)))
+                .thenReturn(List.of(DAY.atTime(10, 0), DAY.atTime(14, 30), DAY.plusDays(1).atTime(9, 0)));
+
+        assertEquals((1 << 10) | (1 << 14), calendar.getOccupiedHours(1L, DAY));
+        assertEquals(1 << 9, calendar.getOccupiedHours(1L, DAY.plusDays(1)));
+        assertTrue(calendar.isOccupied(1L, DAY.atTime(14, 0)));
+        assertFalse(calendar.isOccupied(1L, DAY.atTime(15, 0)));
+
+        verify(appointmentDao, times(1)).findActiveDatesByDoctorId(1L, may, may.plusMonths(1));
+        assertEquals(1, calendar.getLoadCount());
+
+        // Un autre mois est chargé à part
+        assertEquals(0, calendar.getOccupiedHours(1L, DAY.plusMonths(1)));
+        assertEquals(2, calendar.getLoadCount());
+    }
+
+    @Test
+    @DisplayName("Un créneau ne doit pouvoir être réservé qu'une fois, même par des réservations simultanées")
+    void reserve_shouldGrantEachSlotOnce() throws Exception {
+        LocalDateTime slot = DAY.atTime(11, 0);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            attempts.add(executor.submit(() -> {
+                start.await();
+                return calendar.reserve(1L, slot);
+            }));
+        }
+        start.countDown();
+        int granted = 0;
+        for (Future<Boolean> attempt : attempts) {
+            if (attempt.get(10, TimeUnit.SECONDS)) {
+                granted++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, granted);
+        assertTrue(calendar.isOccupied(1L, slot));
+        assertFalse(calendar.isOccupied(2L, slot));
+    }
+
+    @Test
+    @DisplayName("Un créneau réservé par une transaction annulée doit être libéré")
+    void reserve_shouldReleaseSlotOnRollback() {
+        LocalDateTime slot = DAY.atTime(15, 0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(calendar.reserve(1L, slot));
+        assertTrue(calendar.isOccupied(1L, slot));
+        assertFalse(calendar.reserve(1L, slot));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertFalse(calendar.isOccupied(1L, slot));
+        assertTrue(calendar.reserve(1L, slot));
+    }
+
+    @Test
+    @DisplayName("Un créneau annulé doit redevenir disponible")
+    void release_shouldFreeSlot() {
+        LocalDateTime slot = LocalDateTime.of(DAY, LocalTime.of(16, 0));
+        when(appointmentDao.findActiveDatesByDoctorId(eq(1L), any(), any())).thenReturn(List.of(slot));
+
+        assertFalse(calendar.reserve(1L, slot));
+        calendar.release(1L, slot);
+
+        assertFalse(calendar.isOccupied(1L, slot));
+        assertTrue(calendar.reserve(1L, slot));
+    }
+}
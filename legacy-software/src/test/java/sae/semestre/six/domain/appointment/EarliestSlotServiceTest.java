@@ -0,0 +1,97 @@
+package sae.semestre.six.domain.appointment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.exception.InvalidDataException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EarliestSlotServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2099, 3, 30);
+
+    private final AppointmentDao appointmentDao = mock(AppointmentDao.class);
+    private final DoctorDao doctorDao = mock(DoctorDao.class);
+    private final EarliestSlotService service = new EarliestSlotService(doctorDao,
+            new DoctorCalendar(appointmentDao, 300, 100), 31, 20);
+
+    @Test
+    @DisplayName("Les premiers créneaux de tous les docteurs doivent être renvoyés par date, en une seule requête")
+    void findEarliestSlots_shouldMergeDoctorsInOneQuery() {
+        when(doctorDao.findBySpecialization("Cardiology")).thenReturn(List.of(doctor(1L, "Cardiology"), doctor(2L, "Cardiology")));
+        when(appointmentDao.findActiveDatesByDoctorIds(anyCollection(), any(), any())).thenReturn(List.of(
+                new DoctorAppointmentDate(1L, DAY.atTime(9, 0)),
+                new DoctorAppointmentDate(1L, DAY.atTime(10, 0)),
+                new DoctorAppointmentDate(2L, DAY.atTime(9, 0))));
+
+        List<AvailableSlot> slots = service.findEarliestSlots("Cardiology", null, DAY, 14, 1, 3);
+
+        assertEquals(List.of(DAY.atTime(10, 0), DAY.atTime(11, 0), DAY.atTime(11, 0)),
+                slots.stream().map(AvailableSlot::start).toList());
+        assertEquals(List.of(2L, 1L, 2L), slots.stream().map(AvailableSlot::doctorId).toList());
+        assertEquals(DAY.atTime(11, 0), slots.getFirst().end());
+        // La période couvre deux mois, chargés par une seule requête
+        verify(appointmentDao, times(1)).findActiveDatesByDoctorIds(anyCollection(), any(), any());
+        verify(appointmentDao, never()).findActiveDatesByDoctorId(any(), any(), any());
+
+        // Les mois chargés sont réutilisés par la recherche suivante
+        service.findEarliestSlots("Cardiology", null, DAY, 14, 1, 3);
+        verify(appointmentDao, times(1)).findActiveDatesByDoctorIds(anyCollection(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Un créneau de plusieurs heures ne doit être proposé que si toutes ses heures sont libres")
+    void findEarliestSlots_shouldRespectSlotLength() {
+        when(doctorDao.findByDepartment("Surgery")).thenReturn(List.of(doctor(1L, "Surgery")));
+        when(appointmentDao.findActiveDatesByDoctorIds(anyCollection(), any(), any())).thenReturn(List.of(
+                new DoctorAppointmentDate(1L, DAY.atTime(11, 0)),
+                new DoctorAppointmentDate(1L, DAY.atTime(14, 0)),
+                new DoctorAppointmentDate(1L, DAY.atTime(17, 0))));
+
+        List<AvailableSlot> slots = service.findEarliestSlots(null, "Surgery", DAY, 2, 2, 5);
+
+        assertEquals(List.of(DAY.atTime(9, 0), DAY.atTime(12, 0), DAY.atTime(15, 0),
+                        DAY.plusDays(1).atTime(9, 0), DAY.plusDays(1).atTime(10, 0)),
+                slots.stream().map(AvailableSlot::start).toList());
+        assertEquals(DAY.atTime(17, 0), slots.get(2).end());
+    }
+
+    @Test
+    @DisplayName("La spécialité et le service doivent être combinés s'ils sont donnés tous les deux")
+    void findEarliestSlots_shouldFilterByDepartment() {
+        when(doctorDao.findBySpecialization("Cardiology")).thenReturn(List.of(doctor(1L, "Cardiology"), doctor(2L, "Surgery")));
+
+        List<AvailableSlot> slots = service.findEarliestSlots("Cardiology", "Surgery", DAY, 1, 1, 20);
+
+        assertEquals(9, slots.size());
+        assertTrue(slots.stream().allMatch(slot -> slot.doctorId() == 2L));
+        verify(appointmentDao).findActiveDatesByDoctorIds(eq(Set.of(2L)), any(), any());
+    }
+
+    @Test
+    @DisplayName("Une recherche sans spécialité ni service, ou hors limites, doit être refusée")
+    void findEarliestSlots_shouldRejectInvalidSearch() {
+        assertThrows(InvalidDataException.class, () -> service.findEarliestSlots(null, " ", DAY, 14, 1, 5));
+        assertThrows(InvalidDataException.class, () -> service.findEarliestSlots("Cardiology", null, DAY, 32, 1, 5));
+        assertThrows(InvalidDataException.class, () -> service.findEarliestSlots("Cardiology", null, DAY, 14, 10, 5));
+        assertThrows(InvalidDataException.class, () -> service.findEarliestSlots("Cardiology", null, DAY, 14, 1, 21));
+        verifyNoInteractions(doctorDao, appointmentDao);
+    }
+
+    private static Doctor doctor(Long id, String department) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setDoctorNumber("DOC" + id);
+        doctor.setSpecialization("Cardiology");
+        doctor.setDepartment(department);
+        return doctor;
+    }
+}
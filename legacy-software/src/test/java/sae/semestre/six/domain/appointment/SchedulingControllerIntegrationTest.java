@@ -230,6 +230,45 @@ public class SchedulingControllerIntegrationTest {
                 .andExpect(content().string(containsString("Room is not available")));
     }
 
+    @Test
+    public void testScheduleAppointment_SlotNoLongerAvailable() throws Exception {
+        mockMvc.perform(post("/scheduling/appointment")
+                        .param("doctorId", doctor.getId().toString())
+                        .param("patientId", patient.getId().toString())
+                        .param("roomId", room.getId().toString())
+                        .param("appointmentDateTime", validAppointmentTime.toString())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+                .andExpect(status().isOk());
+
+        // Le créneau réservé ne doit plus être proposé
+        mockMvc.perform(get("/scheduling/available-slots/" + doctor.getId())
+                        .param("date", validAppointmentTime.toLocalDate().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(8)))
+                .andExpect(jsonPath("$", not(hasItem(endsWith("10:00:00")))));
+    }
+
+    @Test
+    public void testCancelAppointment() throws Exception {
+        mockMvc.perform(post("/scheduling/appointment")
+                        .param("doctorId", doctor.getId().toString())
+                        .param("patientId", patient.getId().toString())
+                        .param("roomId", room.getId().toString())
+                        .param("appointmentDateTime", validAppointmentTime.toString())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+                .andExpect(status().isOk());
+        Appointment appointment = appointmentDao.findByDoctorId(doctor.getId()).getFirst();
+
+        mockMvc.perform(post("/scheduling/appointment/" + appointment.getId() + "/cancel"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Appointment cancelled successfully"));
+        assert(Appointment.STATUS_CANCELLED.equals(appointmentDao.findById(appointment.getId()).getStatus()));
+
+        // Rendez-vous inexistant
+        mockMvc.perform(post("/scheduling/appointment/999999/cancel"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testGetAvailableSlots() throws Exception {
         // Créer un rendez-vous à 11h pour que ce créneau ne soit pas disponible
@@ -277,4 +316,34 @@ public class SchedulingControllerIntegrationTest {
                 .andExpect(jsonPath("$", hasSize(9))) // Tous les créneaux devraient être disponibles
                 .andExpect(jsonPath("$[*]", everyItem(containsString(tomorrow.toString()))));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetEarliestSlots() throws Exception {
+        // Spécialité propre au test pour ne pas dépendre des autres docteurs
+        doctor.setSpecialization("TEST-SPECIALIZATION-001");
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        Appointment existing = new Appointment();
+        existing.setAppointmentDate(LocalDateTime.of(tomorrow, LocalTime.of(9, 0)));
+        existing.setDoctor(doctor);
+        existing.setPatient(patient);
+        existing.setAppointmentNumber("EXISTING-APPT-004");
+        existing.setStatus("SCHEDULED");
+        appointmentDao.save(existing);
+
+        // Les deux premiers créneaux libres de demain : 10h et 11h
+        mockMvc.perform(get("/scheduling/earliest-slots")
+                        .param("specialization", "TEST-SPECIALIZATION-001")
+                        .param("from", tomorrow.toString())
+                        .param("days", "14")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].doctorId").value(doctor.getId()))
+                .andExpect(jsonPath("$[0].start", endsWith(tomorrow + "T10:00:00")))
+                .andExpect(jsonPath("$[1].start", endsWith(tomorrow + "T11:00:00")));
+
+        // Sans spécialité ni service, la recherche est refusée
+        mockMvc.perform(get("/scheduling/earliest-slots"))
+                .andExpect(status().isBadRequest());
+    }
+}
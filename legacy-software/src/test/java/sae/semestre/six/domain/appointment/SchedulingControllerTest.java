@@ -1,19 +1,22 @@
 package sae.semestre.six.domain.appointment;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import sae.semestre.six.domain.doctor.Doctor;
 import sae.semestre.six.domain.doctor.DoctorDao;
 import sae.semestre.six.domain.patient.Patient;
 import sae.semestre.six.domain.patient.PatientDao;
+import sae.semestre.six.domain.room.Room;
 import sae.semestre.six.domain.room.RoomDao;
 import sae.semestre.six.exception.InvalidDataException;
 import sae.semestre.six.mail.EmailService;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -21,6 +24,8 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
@@ -37,8 +42,9 @@ class SchedulingControllerTest {
     private PatientDao patientDao;
     @Mock
     private EmailService emailService;
+    @Mock
+    private AppointmentSlotDao appointmentSlotDao;
 
-    @InjectMocks
     private AppointmentService appointmentsService;
 
     private SchedulingController controller;
@@ -47,7 +53,10 @@ class SchedulingControllerTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
 
-        controller= new SchedulingController(appointmentsService);
+        DoctorCalendar doctorCalendar = new DoctorCalendar(appointmentDao, 300, 100);
+        appointmentsService = new AppointmentService(appointmentDao, roomDao, doctorDao, patientDao, emailService,
+                null, doctorCalendar, appointmentSlotDao);
+        controller= new SchedulingController(appointmentsService, new EarliestSlotService(doctorDao, doctorCalendar, 62, 50));
 
         // No manual instantiation: Mockito will inject mocks into controller
     }
@@ -67,15 +76,58 @@ class SchedulingControllerTest {
         Appointment existingAppointment = new Appointment();
         existingAppointment.setAppointmentDate(targetDate);
         doctor.addAppointment(existingAppointment);
-        when(appointmentDao.findByDoctorId(doctorId))
-                .thenReturn(List.of(existingAppointment));
+        when(appointmentDao.findActiveDatesByDoctorId(eq(doctorId), any(), any()))
+                .thenReturn(List.of(targetDate));
         when(patientDao.findById(patientId)).thenReturn(new Patient());
 
 
         String result = assertThrows(InvalidDataException.class,()->controller.scheduleAppointment(doctorId, patientId, roomID,targetDate)).getMessage();
 
         assertEquals("Doctor is not available at this time", result);
-        verify(appointmentDao).findByDoctorId(doctorId);
+        verify(appointmentDao).findActiveDatesByDoctorId(eq(doctorId), any(), any());
+    }
+
+    @Test
+    @DisplayName("scheduleAppointment doit refuser un créneau déjà réservé par une autre instance")
+    void scheduleAppointment_shouldRejectSlotReservedElsewhere() {
+        long doctorId = 1L;
+        long patientId = 1L;
+        long roomId = 1L;
+        LocalDateTime targetDate = LocalDateTime.of(2025, 5, 13, 15, 0);
+        when(doctorDao.findById(doctorId)).thenReturn(new Doctor());
+        when(patientDao.findById(patientId)).thenReturn(new Patient());
+        when(roomDao.findById(roomId)).thenReturn(Room.builder().roomNumber("R1").capacity(5)
+                .currentPatientCount(0).isOccupied(false).build());
+        // Le créneau est libre dans l'agenda de cette instance, mais déjà inséré par une autre
+        doThrow(new DataIntegrityViolationException("could not execute statement", new ConstraintViolationException(
+                "Duplicate entry", new SQLException(), null, ConstraintViolationException.ConstraintKind.UNIQUE,
+                "uk_appointment_slots_doctor_start")))
+                .when(appointmentSlotDao).reserve(doctorId, targetDate);
+
+        String result = assertThrows(InvalidDataException.class,
+                () -> controller.scheduleAppointment(doctorId, patientId, roomId, targetDate)).getMessage();
+
+        assertEquals("Doctor is not available at this time", result);
+        verify(appointmentDao, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("scheduleAppointment doit laisser remonter les erreurs de base autres qu'un créneau déjà réservé")
+    void scheduleAppointment_shouldPropagateOtherIntegrityErrors() {
+        long doctorId = 1L;
+        long patientId = 1L;
+        long roomId = 1L;
+        LocalDateTime targetDate = LocalDateTime.of(2025, 5, 13, 15, 0);
+        when(doctorDao.findById(doctorId)).thenReturn(new Doctor());
+        when(patientDao.findById(patientId)).thenReturn(new Patient());
+        when(roomDao.findById(roomId)).thenReturn(Room.builder().roomNumber("R1").capacity(5)
+                .currentPatientCount(0).isOccupied(false).build());
+        doThrow(new DataIntegrityViolationException("Column 'doctor_id' cannot be null"))
+                .when(appointmentSlotDao).reserve(doctorId, targetDate);
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> controller.scheduleAppointment(doctorId, patientId, roomId, targetDate));
+        verify(appointmentDao, never()).save(any());
     }
 
     @Test
@@ -85,16 +137,15 @@ class SchedulingControllerTest {
         LocalDate date = LocalDate.of(2025, 5, 13);
         LocalDateTime occupiedSlot = LocalDateTime.of(date, LocalTime.of(10, 0));
 
-        Appointment appointment = new Appointment();
-        appointment.setAppointmentDate(occupiedSlot);
-        when(appointmentDao.findByDoctorId(doctorId))
-                .thenReturn(List.of(appointment));
+        when(appointmentDao.findActiveDatesByDoctorId(eq(doctorId), any(), any()))
+                .thenReturn(List.of(occupiedSlot));
 
         List<LocalDateTime> availableSlots = controller.getAvailableSlots(doctorId, date).getBody();
 
         assertEquals(8, availableSlots.size()); // De 9 à 17, sauf 10h
         assertEquals(LocalDateTime.of(date, LocalTime.of(9, 0)), availableSlots.get(0));
         assertEquals(LocalDateTime.of(date, LocalTime.of(11, 0)), availableSlots.get(1));
-        verify(appointmentDao).findByDoctorId(doctorId);
+        verify(appointmentDao).findActiveDatesByDoctorId(eq(doctorId), any(), any());
+        verify(appointmentDao, never()).findByDoctorId(any());
     }
 }
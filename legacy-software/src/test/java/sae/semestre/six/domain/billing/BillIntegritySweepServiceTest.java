@@ -0,0 +1,96 @@
+package sae.semestre.six.domain.billing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import sae.semestre.six.domain.billing.insurance.InsuranceService;
+import sae.semestre.six.domain.billing.revenue.RevenueRollupService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BillIntegritySweepServiceTest {
+
+    private final BillDao billDao = mock(BillDao.class);
+    private final BillingService billingService = mock(BillingService.class);
+    private final BillingSecurityService billingSecurityService = mock(BillingSecurityService.class);
+
+    private final BillIntegritySweepService sweepService = new BillIntegritySweepService(
+            billDao, billingService, billingSecurityService, new ObjectMapper(), 2, 2, 1, "unused", 60_000);
+
+    @Test
+    @DisplayName("La vérification en masse doit parcourir toutes les pages et produire une synthèse")
+    void sweep_shouldReportEveryBillAndSummary() throws Exception {
+        BillIntegrityRow ok = new BillIntegrityRow(1L, "BILL1", "aa", "bb");
+        BillIntegrityRow failed = new BillIntegrityRow(2L, "BILL2", "aa", "bb");
+        BillIntegrityRow missing = new BillIntegrityRow(3L, "BILL3", "aa", "bb");
+        when(billDao.findIntegrityPage(isNull(), isNull(), eq(BillStatus.PENDING), isNull(), eq(2)))
+                .thenReturn(List.of(ok, failed));
+        when(billDao.findIntegrityPage(isNull(), isNull(), eq(BillStatus.PENDING), eq(2L), eq(2)))
+                .thenReturn(List.of(missing));
+
+        when(billingService.findBillFileContents("BILL1")).thenReturn(Optional.of("content 1"));
+        when(billingService.findBillFileContents("BILL2")).thenReturn(Optional.of("content 2"));
+        when(billingService.findBillFileContents("BILL3")).thenReturn(Optional.empty());
+        when(billingSecurityService.verifyAsyncWhenAvailable(eq("content 1"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        when(billingSecurityService.verifyAsyncWhenAvailable(eq("content 2"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(false));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BillIntegritySweepService.BillIntegritySummary summary =
+                sweepService.sweep(null, null, BillStatus.PENDING, output);
+
+        assertEquals(3, summary.checked());
+        assertEquals(1, summary.ok());
+        assertEquals(1, summary.failed());
+        assertEquals(1, summary.missing());
+        assertEquals(0, summary.errors());
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[3].contains("\"summary\":true"));
+    }
+
+    @Test
+    @DisplayName("GET /billing/integrity doit écrire la synthèse même au-delà du délai asynchrone par défaut")
+    void checkBillsIntegrity_shouldOutliveDefaultAsyncTimeout() throws Exception {
+        when(billDao.findIntegrityPage(isNull(), isNull(), isNull(), isNull(), eq(2))).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return List.of();
+        });
+        BillingController controller = new BillingController(mock(BillingService.class), mock(BillingHashExecutor.class),
+                sweepService, mock(BillingBatchService.class), mock(RevenueRollupService.class),
+                mock(InsuranceService.class));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setAsyncRequestTimeout(100)
+                .build();
+
+        MvcResult started = mockMvc.perform(get("/billing/integrity"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(60_000, started.getRequest().getAsyncContext().getTimeout());
+        started.getAsyncResult(5_000);
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk());
+
+        String body = started.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(body.contains("\"summary\":true"), body);
+    }
+}
@@ -0,0 +1,142 @@
+package sae.semestre.six.domain.billing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.billing.medical_acts.MedicalAct;
+import sae.semestre.six.domain.billing.medical_acts.MedicalActCatalog;
+import sae.semestre.six.domain.billing.revenue.RevenueRollupService;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.patient.PatientDao;
+import sae.semestre.six.domain.prescription.Prescription;
+import sae.semestre.six.domain.prescription.PrescriptionDao;
+import sae.semestre.six.mail.EmailService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BillingBatchServiceTest {
+
+    private final BillingService billingService = mock(BillingService.class);
+    private final BillingSecurityService billingSecurityService = mock(BillingSecurityService.class);
+    private final MedicalActCatalog medicalActCatalog = mock(MedicalActCatalog.class);
+    private final PatientDao patientDao = mock(PatientDao.class);
+    private final DoctorDao doctorDao = mock(DoctorDao.class);
+    private final PrescriptionDao prescriptionDao = mock(PrescriptionDao.class);
+    private final BillDao billDao = mock(BillDao.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final RevenueRollupService revenueRollupService = mock(RevenueRollupService.class);
+
+    private final BillingBatchService batchService = new BillingBatchService(billingService,
+            billingSecurityService, medicalActCatalog, patientDao, doctorDao, prescriptionDao, billDao, emailService,
+            transactionTemplate, revenueRollupService, 2);
+
+    private int billCounter = 0;
+    private String failingBillNumber;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Patient patient = mock(Patient.class);
+        when(patient.getId()).thenReturn(1L);
+        Doctor doctor = mock(Doctor.class);
+        when(doctor.getId()).thenReturn(2L);
+        MedicalAct radio = MedicalAct.builder().id(3L).name("Radiographie").price(150.0).build();
+
+        when(patientDao.findByIds(anyCollection())).thenReturn(List.of(patient));
+        when(doctorDao.findByIds(anyCollection())).thenReturn(List.of(doctor));
+        when(medicalActCatalog.findAllByName(anyCollection())).thenReturn(Map.of("Radiographie", radio));
+
+        when(billingService.initBill(any(), any(), anyList())).thenAnswer(invocation -> {
+            Bill bill = new Bill();
+            bill.setBillNumber("BILL" + System.nanoTime());
+            return bill;
+        });
+        when(billingService.buildBillFileContents(any(), any(), any(), anyList())).thenReturn("contents");
+        when(billingSecurityService.generateAsyncWhenAvailable(anyString())).thenReturn(
+                CompletableFuture.completedFuture(new BillingSecurityService.BillingSecurityDTO(new byte[1], new byte[1])));
+
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Une facture invalide ne doit pas empêcher la génération des autres factures du lot")
+    void processBills_shouldReportInvalidItemsWithoutFailingTheBatch() {
+        List<BillingBatchService.BatchBillResult> results = batchService.processBills(List.of(
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("Radiographie")),
+                new BillingBatchService.BatchBillRequest(99L, 2L, List.of("Radiographie")),
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("Inconnu")),
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("Radiographie"))));
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(1).success());
+        assertFalse(results.get(2).success());
+        assertTrue(results.get(3).success());
+        verify(patientDao, times(1)).findByIds(anyCollection());
+        verify(billDao, times(2)).save(any(Bill.class));
+        verify(emailService, times(1)).sendEmail(anyString(), eq("2 New Bills Generated"), anyString());
+    }
+
+    @Test
+    @DisplayName("Si un paquet échoue, seules les factures en erreur doivent être rejetées")
+    void processBills_shouldRetryFailedChunkItemByItem() {
+        doAnswer(invocation -> {
+            Bill bill = invocation.getArgument(0);
+            if (bill.getBillNumber().equals(failingBillNumber)) {
+                throw new IllegalStateException("Duplicate bill number");
+            }
+            return null;
+        }).when(billDao).save(any(Bill.class));
+        when(billingService.initBill(any(), any(), anyList())).thenAnswer(invocation -> {
+            Bill bill = new Bill();
+            bill.setBillNumber("BILL" + (++billCounter));
+            return bill;
+        });
+        failingBillNumber = "BILL2";
+
+        List<BillingBatchService.BatchBillResult> results = batchService.processBills(List.of(
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("Radiographie")),
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("Radiographie")),
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("Radiographie"))));
+
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(1).success());
+        assertTrue(results.get(2).success());
+        verify(billingService, times(2)).writeBillFile(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Les prescriptions facturées doivent être chargées en une seule requête")
+    void processBills_shouldResolvePrescriptionsInOneQuery() {
+        Prescription first = new Prescription("RX1", null, List.of(), null, 10.0);
+        Prescription second = new Prescription("RX2", null, List.of(), null, 20.0);
+        when(prescriptionDao.findByPrescriptionNumbers(anyCollection())).thenReturn(List.of(first, second));
+
+        List<BillingBatchService.BatchBillResult> results = batchService.processBills(List.of(
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("PRESCRIPTION_RX1", "Radiographie")),
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("PRESCRIPTION_RX2")),
+                new BillingBatchService.BatchBillRequest(1L, 2L, List.of("PRESCRIPTION_RX3"))));
+
+        assertTrue(results.get(0).success());
+        assertTrue(results.get(1).success());
+        assertFalse(results.get(2).success());
+        verify(prescriptionDao, times(1)).findByPrescriptionNumbers(Set.of("RX1", "RX2", "RX3"));
+        verify(billingService, never()).findBillableByName(anyString());
+        verify(billingService).initBill(any(), any(), eq(List.of(second)));
+    }
+}
@@ -12,6 +12,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import sae.semestre.six.domain.billing.insurance.InsuranceClient;
+import sae.semestre.six.domain.billing.insurance.InsuranceRate;
 import sae.semestre.six.domain.billing.medical_acts.MedicalAct;
 import sae.semestre.six.domain.billing.medical_acts.MedicalActDaoImpl;
 import sae.semestre.six.domain.doctor.Doctor;
@@ -24,6 +26,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.doReturn;
@@ -49,6 +53,8 @@ class BillingControllerTest {
     private PatientDaoImpl patientDao;
     @MockitoBean
     private DoctorDaoImpl doctorDao;
+    @MockitoBean
+    private InsuranceClient insuranceClient;
 
     private final static String TREATMENT_NAME = "CONSULTATION";
     private final static double TREATMENT_PRICE = 50.0;
@@ -110,17 +116,19 @@ class BillingControllerTest {
     }
 
     @Test
-    @DisplayName("Insurance coverage should be equal to bill amount")
+    @DisplayName("Insurance coverage should apply the insurer reimbursement rate")
     public void testCalculateInsurance() {
-        ResponseEntity<String> responseEntity = billingController.calculateInsurance(1000.0);
+        when(insuranceClient.fetchRate(TREATMENT_NAME, "SECUREPLUS")).thenReturn(
+                CompletableFuture.completedFuture(Optional.of(new InsuranceRate(TREATMENT_NAME, "SECUREPLUS", 70.0))));
+
+        ResponseEntity<String> responseEntity = billingController.calculateInsurance(1000.0, TREATMENT_NAME, "SECUREPLUS").join();
         String responseBody = responseEntity.getBody();
         assertNotNull(responseEntity);
         assertSuccessAndBodyNotNull(responseEntity);
 
         String responseValue = responseBody.replace("Insurance coverage: $", "");
         double result = Double.parseDouble(responseValue);
-//        assertEquals(700.0, result, 0.01);
-        assertEquals(1000.0, result, 0.01);
+        assertEquals(700.0, result, 0.01);
     }
 
     @Test
@@ -0,0 +1,138 @@
+package sae.semestre.six.domain.billing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.billing.revenue.RevenueRollupService;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.prescription.Prescription;
+import sae.semestre.six.domain.prescription.PrescriptionBillingBacklog;
+import sae.semestre.six.domain.prescription.PrescriptionBillingMode;
+import sae.semestre.six.domain.prescription.PrescriptionDao;
+import sae.semestre.six.mail.EmailService;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PrescriptionBillingDispatcherTest {
+
+    private final BillingService billingService = mock(BillingService.class);
+    private final BillingSecurityService billingSecurityService = mock(BillingSecurityService.class);
+    private final PrescriptionDao prescriptionDao = mock(PrescriptionDao.class);
+    private final DoctorDao doctorDao = mock(DoctorDao.class);
+    private final BillDao billDao = mock(BillDao.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final RevenueRollupService revenueRollupService = mock(RevenueRollupService.class);
+
+    private final PrescriptionBillingDispatcher dispatcher = new PrescriptionBillingDispatcher(billingService,
+            billingSecurityService, prescriptionDao, doctorDao, billDao, emailService, transactionTemplate,
+            revenueRollupService, 10, PrescriptionBillingMode.ASYNC);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        when(billingService.initBill(any(), any(), anyList())).thenAnswer(invocation -> {
+            Bill bill = new Bill();
+            bill.setBillNumber("BILL" + System.nanoTime());
+            return bill;
+        });
+        when(billingService.buildBillFileContents(any(), any(), any(), anyList())).thenReturn("contents");
+        when(billingSecurityService.generateAsyncWhenAvailable(anyString())).thenReturn(
+                CompletableFuture.completedFuture(new BillingSecurityService.BillingSecurityDTO(new byte[1], new byte[1])));
+        when(doctorDao.findByDoctorNumber("SYSTEM")).thenReturn(Optional.of(new Doctor()));
+    }
+
+    @Test
+    @DisplayName("Les prescriptions réservées doivent être facturées puis marquées comme facturées")
+    void billBatch_shouldBillClaimedPrescriptions() {
+        Prescription first = prescription("RX1", new Patient());
+        Prescription second = prescription("RX2", new Patient());
+        when(prescriptionDao.claimUnbilled(10)).thenReturn(List.of(first, second));
+
+        assertEquals(2, dispatcher.billBatch());
+
+        assertTrue(first.getIsBilled());
+        assertTrue(second.getIsBilled());
+        verify(billDao, times(2)).save(any(Bill.class));
+        verify(revenueRollupService, times(2)).recordNewBill(any(Bill.class));
+        verify(billingService, times(2)).writeBillFile(any(Bill.class), eq("contents"));
+        verify(emailService, times(1)).sendEmail(anyString(), eq("2 New Bills Generated"), anyString());
+        when(prescriptionDao.findBillingBacklog()).thenReturn(new PrescriptionBillingBacklog(0, null, 0));
+        assertEquals(2, dispatcher.getLag().billed());
+    }
+
+    @Test
+    @DisplayName("Une prescription impossible à facturer doit être écartée sans bloquer le lot")
+    void billBatch_shouldRejectInvalidPrescriptions() {
+        Prescription valid = prescription("RX1", new Patient());
+        Prescription orphan = prescription("RX2", null);
+        when(prescriptionDao.claimUnbilled(10)).thenReturn(List.of(orphan, valid));
+
+        assertEquals(2, dispatcher.billBatch());
+
+        assertTrue(valid.getIsBilled());
+        assertFalse(orphan.getIsBilled());
+        assertNotNull(orphan.getBillingError());
+        verify(billDao, times(1)).save(any(Bill.class));
+    }
+
+    @Test
+    @DisplayName("Sans docteur SYSTEM, les prescriptions doivent rester en attente")
+    void billBatch_shouldWaitForSystemDoctor() {
+        Prescription prescription = prescription("RX1", new Patient());
+        when(prescriptionDao.claimUnbilled(10)).thenReturn(List.of(prescription));
+        when(doctorDao.findByDoctorNumber("SYSTEM")).thenReturn(Optional.empty());
+
+        assertEquals(0, dispatcher.billBatch());
+
+        assertFalse(prescription.getIsBilled());
+        assertNull(prescription.getBillingError());
+        verifyNoInteractions(billDao, emailService);
+    }
+
+    @Test
+    @DisplayName("Hors du mode ASYNC, la scrutation ne doit pas interroger la base")
+    void billPending_shouldSkipOutsideAsyncMode() {
+        PrescriptionBillingDispatcher syncDispatcher = new PrescriptionBillingDispatcher(billingService,
+                billingSecurityService, prescriptionDao, doctorDao, billDao, emailService, transactionTemplate,
+                revenueRollupService, 10, PrescriptionBillingMode.SYNC);
+
+        syncDispatcher.billPending();
+
+        verifyNoInteractions(prescriptionDao, transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("Le retard doit être calculé depuis la plus ancienne demande de facturation")
+    void getLag_shouldReportOldestRequest() {
+        Date oldest = new Date(System.currentTimeMillis() - 90_000);
+        when(prescriptionDao.findBillingBacklog()).thenReturn(new PrescriptionBillingBacklog(3, oldest, 1));
+
+        PrescriptionBillingDispatcher.PrescriptionBillingLag lag = dispatcher.getLag();
+
+        assertEquals(3, lag.pending());
+        assertEquals(1, lag.failed());
+        assertEquals(oldest, lag.oldestRequestedDate());
+        assertTrue(lag.lagSeconds() >= 90);
+    }
+
+    private static Prescription prescription(String number, Patient patient) {
+        Prescription prescription = new Prescription(number, patient, List.of(), null, 10.0);
+        prescription.setIsBilled(false);
+        prescription.setBillingRequestedDate(new Date());
+        return prescription;
+    }
+}
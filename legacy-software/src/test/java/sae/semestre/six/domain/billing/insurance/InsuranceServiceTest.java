@@ -0,0 +1,175 @@
+package sae.semestre.six.domain.billing.insurance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sae.semestre.six.exception.ServiceBusyException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests du calcul des remboursements face à un bouchon de ms-assurance lancé dans le même processus
+ */
+class InsuranceServiceTest {
+
+    private static final Map<String, Double> RATES = Map.of(
+            "CONSULTATION|SECUREPLUS", 70.0,
+            "CONSULTATION|PROTEXIA", 65.0,
+            "RADIOLOGIE|SECUREPLUS", 75.0);
+
+    private HttpServer msAssurance;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private InsuranceClient insuranceClient;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        msAssurance = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        msAssurance.createContext("/remboursement/search/", this::search);
+        msAssurance.start();
+        insuranceClient = new InsuranceClient(new ObjectMapper(),
+                "http://localhost:" + msAssurance.getAddress().getPort(), 1000, 2000, 1000);
+    }
+
+    @AfterEach
+    void stopStub() {
+        insuranceClient.close();
+        msAssurance.stop(0);
+    }
+
+    @Test
+    @DisplayName("Le taux doit être appliqué au montant et conservé en mémoire")
+    void quote_shouldApplyRateAndCacheIt() {
+        InsuranceService insuranceService = new InsuranceService(insuranceClient, 600, 100, 5);
+
+        InsuranceQuote first = insuranceService.quote("CONSULTATION", "SECUREPLUS", 1000.0).join();
+        InsuranceQuote second = insuranceService.quote("CONSULTATION", "SECUREPLUS", 50.0).join();
+        InsuranceQuote notCovered = insuranceService.quote("CHIRURGIE", "SECUREPLUS", 50.0).join();
+        insuranceService.quote("CHIRURGIE", "SECUREPLUS", 80.0).join();
+
+        assertEquals(700.0, first.coverage(), 0.001);
+        assertEquals(35.0, second.coverage(), 0.001);
+        assertFalse(notCovered.covered());
+        assertEquals(0.0, notCovered.coverage());
+        assertEquals(2, requests.get());
+        assertEquals(new InsuranceService.InsuranceRateCacheStats(2, 2, 2, 2), insuranceService.getStats());
+    }
+
+    @Test
+    @DisplayName("Les taux manquants d'un lot doivent être recherchés en un seul appel")
+    void quoteBatch_shouldFetchMissingRatesInOneCall() {
+        InsuranceService insuranceService = new InsuranceService(insuranceClient, 600, 100, 5);
+        insuranceService.quote("CONSULTATION", "SECUREPLUS", 10.0).join();
+
+        List<InsuranceQuote> quotes = insuranceService.quote(List.of(
+                new InsuranceQuoteRequest("CONSULTATION", "SECUREPLUS", 100.0),
+                new InsuranceQuoteRequest("CONSULTATION", "PROTEXIA", 100.0),
+                new InsuranceQuoteRequest("RADIOLOGIE", "SECUREPLUS", 80.0),
+                new InsuranceQuoteRequest("RADIOLOGIE", "PROTEXIA", 80.0),
+                new InsuranceQuoteRequest("CONSULTATION", "PROTEXIA", 30.0))).join();
+
+        assertEquals(List.of(70.0, 65.0, 60.0, 0.0, 19.5),
+                quotes.stream().map(InsuranceQuote::coverage).toList());
+        assertEquals(2, requests.get());
+
+        insuranceService.quote("RADIOLOGIE", "PROTEXIA", 80.0).join();
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("Une panne de ms-assurance doit être signalée et ne pas être conservée en mémoire")
+    void quote_shouldFailWhenInsuranceServiceIsDown() {
+        InsuranceService insuranceService = new InsuranceService(insuranceClient, 600, 100, 5);
+        status = 500;
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> insuranceService.quote("CONSULTATION", "SECUREPLUS", 100.0).join());
+        assertInstanceOf(ServiceBusyException.class, error.getCause());
+
+        status = 200;
+        assertEquals(70.0, insuranceService.quote("CONSULTATION", "SECUREPLUS", 100.0).join().coverage(), 0.001);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("Un taux expiré doit être recherché à nouveau")
+    void quote_shouldRefreshExpiredRates() {
+        InsuranceService insuranceService = new InsuranceService(insuranceClient, 0, 100, 5);
+
+        insuranceService.quote("CONSULTATION", "SECUREPLUS", 100.0).join();
+        insuranceService.quote("CONSULTATION", "SECUREPLUS", 100.0).join();
+
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("Au-delà de la limite, le taux le moins récemment utilisé doit être retiré de la mémoire")
+    void quote_shouldEvictLeastRecentlyUsedRate() {
+        InsuranceService insuranceService = new InsuranceService(insuranceClient, 600, 2, 5);
+
+        insuranceService.quote("CONSULTATION", "SECUREPLUS", 100.0).join();
+        insuranceService.quote("CONSULTATION", "PROTEXIA", 100.0).join();
+        insuranceService.quote("CONSULTATION", "SECUREPLUS", 100.0).join();
+        insuranceService.quote("RADIOLOGIE", "SECUREPLUS", 100.0).join();
+
+        assertEquals(2, insuranceService.getStats().size());
+        assertEquals(3, requests.get());
+
+        insuranceService.quote("CONSULTATION", "SECUREPLUS", 100.0).join();
+        assertEquals(3, requests.get());
+        insuranceService.quote("CONSULTATION", "PROTEXIA", 100.0).join();
+        assertEquals(4, requests.get());
+        assertEquals(2, insuranceService.getStats().size());
+    }
+
+    /**
+     * Répond comme les recherches Spring Data REST du {@code RemboursementRepository}
+     */
+    private void search(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Map<String, List<String>> parameters = parameters(exchange.getRequestURI().getRawQuery());
+        List<String> products = parameters.getOrDefault("nomProduits", parameters.getOrDefault("nomProduit", List.of()));
+        List<String> insurers = parameters.getOrDefault("nomAssurances", parameters.getOrDefault("nomAssurance", List.of()));
+
+        StringJoiner remboursements = new StringJoiner(",");
+        for (String product : products) {
+            for (String insurer : insurers) {
+                Double rate = RATES.get(product + "|" + insurer);
+                if (rate != null) {
+                    remboursements.add("{\"nomProduit\":\"" + product + "\",\"nomAssurance\":\"" + insurer
+                            + "\",\"tauxRemboursement\":" + rate + ",\"_links\":{}}");
+                }
+            }
+        }
+        byte[] body = ("{\"_embedded\":{\"remboursements\":[" + remboursements + "]},\"page\":{}}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/hal+json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static Map<String, List<String>> parameters(String query) {
+        Map<String, List<String>> parameters = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            parameters.computeIfAbsent(pair[0], name -> new ArrayList<>())
+                    .add(URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,61 @@
+package sae.semestre.six.domain.billing.medical_acts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class MedicalActCatalogTest {
+
+    private MedicalActDao medicalActDao;
+    private MedicalActCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        medicalActDao = mock(MedicalActDao.class);
+        when(medicalActDao.findAll()).thenReturn(List.of(
+                MedicalAct.builder().id(1L).name("Radiographie").price(150.0).build()));
+        catalog = new MedicalActCatalog(medicalActDao);
+        catalog.reload();
+    }
+
+    @Test
+    @DisplayName("Un acte chargé au démarrage ne doit pas être recherché en base")
+    void findByName_shouldServeLoadedActsFromMemory() {
+        assertEquals(150.0, catalog.findByName("Radiographie").getPrice());
+        assertEquals(150.0, catalog.findByName("Radiographie").getPrice());
+
+        verify(medicalActDao, never()).findByName(anyString());
+        assertEquals(2, catalog.getStats().hits());
+        assertEquals(0, catalog.getStats().misses());
+    }
+
+    @Test
+    @DisplayName("Un acte absent du catalogue doit être recherché en base une seule fois")
+    void findByName_shouldLoadMissingActOnce() {
+        when(medicalActDao.findByName("Chirurgie"))
+                .thenReturn(MedicalAct.builder().id(2L).name("Chirurgie").price(1000.0).build());
+
+        catalog.findByName("Chirurgie");
+        catalog.findByName("Chirurgie");
+
+        verify(medicalActDao, times(1)).findByName("Chirurgie");
+        assertEquals(1, catalog.getStats().misses());
+        assertEquals(2, catalog.getPriceList().size());
+    }
+
+    @Test
+    @DisplayName("Les ajouts et modifications de prix doivent être visibles dans le catalogue")
+    void putAndUpdatePrice_shouldWriteThrough() {
+        catalog.put(MedicalAct.builder().name("Chirurgie").price(1000.0).build());
+        catalog.updatePrice("Radiographie", 180.0);
+
+        assertEquals(1000.0, catalog.getPriceList().get("Chirurgie"));
+        assertEquals(180.0, catalog.getPriceList().get("Radiographie"));
+        verify(medicalActDao, times(1)).findAll();
+    }
+}
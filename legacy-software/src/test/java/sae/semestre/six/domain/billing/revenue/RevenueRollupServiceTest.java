@@ -0,0 +1,57 @@
+package sae.semestre.six.domain.billing.revenue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.domain.billing.Bill;
+import sae.semestre.six.domain.billing.BillDao;
+import sae.semestre.six.domain.billing.BillStatus;
+import sae.semestre.six.domain.billing.Billable;
+import sae.semestre.six.domain.billing.medical_acts.MedicalAct;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RevenueRollupServiceTest {
+
+    private final RevenueRollupDao revenueRollupDao = mock(RevenueRollupDao.class);
+    private final RevenueRollupService service = new RevenueRollupService(
+            revenueRollupDao, mock(BillDao.class), mock(TransactionTemplate.class));
+
+    @Test
+    @DisplayName("Une nouvelle facture doit être ajoutée aux agrégats par docteur et par acte")
+    void recordNewBill_shouldUpdateBothRollups() {
+        Bill bill = new Bill();
+        bill.setBillNumber("BILL1");
+        bill.setBillDetails(List.<Billable>of(
+                new MedicalAct(null, "Radiographie", 150),
+                new MedicalAct(null, "Radiographie", 150),
+                new MedicalAct(null, "Chirurgie", 1000)));
+        bill.calculateTotal();
+
+        service.recordNewBill(bill);
+
+        LocalDate today = LocalDate.now();
+        verify(revenueRollupDao).addToRollup(today, RevenueRollupService.NO_DOCTOR, BillStatus.PENDING, 1, 1170.0);
+        verify(revenueRollupDao).addToActRollup(today, "Radiographie", BillStatus.PENDING, 2, 300.0);
+        verify(revenueRollupDao).addToActRollup(today, "Chirurgie", BillStatus.PENDING, 1, 1000.0);
+    }
+
+    @Test
+    @DisplayName("Une facture modifiée doit être retirée des agrégats puis ajoutée avec ses nouvelles valeurs")
+    void withdrawAndRecord_shouldApplyOppositeDeltas() {
+        LocalDate day = LocalDate.of(2025, 1, 15);
+        when(revenueRollupDao.aggregateBills(anyCollection())).thenReturn(List.of(
+                new RevenueRollupDao.BillAggregate(day, 3L, BillStatus.PENDING, 2L, 400.0)));
+        when(revenueRollupDao.aggregateBillLines(anyCollection())).thenReturn(List.of());
+
+        service.withdrawBills(List.of(1L, 2L));
+        service.recordBills(List.of(1L, 2L));
+
+        verify(revenueRollupDao).addToRollup(day, 3L, BillStatus.PENDING, -2, -400.0);
+        verify(revenueRollupDao).addToRollup(day, 3L, BillStatus.PENDING, 2, 400.0);
+    }
+}
@@ -0,0 +1,84 @@
+package sae.semestre.six.domain.inventory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import sae.semestre.six.domain.inventory.forecast.StockForecastService;
+import sae.semestre.six.domain.inventory.reorder.ReorderService;
+import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceDao;
+import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceImportService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the paginated inventory listing.
+ */
+class InventoryServiceTest {
+
+    private final InventoryDao inventoryDao = mock(InventoryDao.class);
+    private final InventoryService inventoryService = new InventoryService(inventoryDao,
+            mock(SupplierInvoiceDao.class), mock(PriceHistoryDao.class), mock(PriceHistoryService.class),
+            mock(LowStockTracker.class), mock(LowStockEventStream.class),
+            mock(ApplicationEventPublisher.class));
+    private final InventoryFilter noFilter = new InventoryFilter(null, null, null, null);
+
+    @Test
+    @DisplayName("The stream reads pages after the last item code until a short page")
+    void streamInventory() {
+        ReflectionTestUtils.setField(inventoryService, "listingPageSize", 2);
+        when(inventoryDao.findPage(noFilter, null, 2)).thenReturn(List.of(item("A"), item("B")));
+        when(inventoryDao.findPage(noFilter, "B", 2)).thenReturn(List.of(item("C"), item("D")));
+        when(inventoryDao.findPage(noFilter, "D", 2)).thenReturn(List.of(item("E")));
+
+        List<List<String>> pages = new ArrayList<>();
+        inventoryService.streamInventory(noFilter, null,
+                page -> pages.add(page.stream().map(InventoryDTO::itemCode).toList()));
+
+        assertEquals(List.of(List.of("A", "B"), List.of("C", "D"), List.of("E")), pages);
+        verify(inventoryDao, times(3)).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("A page reads one extra item to know whether there is a next page")
+    void getInventoryPage() {
+        when(inventoryDao.findPage(noFilter, "A", 3)).thenReturn(List.of(item("B"), item("C"), item("D")));
+        when(inventoryDao.findPage(noFilter, "C", 3)).thenReturn(List.of(item("D")));
+
+        assertEquals(new InventoryPage(List.of(item("B"), item("C")), "C"), inventoryService.getInventoryPage(noFilter, "A", 2));
+        assertEquals(new InventoryPage(List.of(item("D")), null), inventoryService.getInventoryPage(noFilter, "C", 2));
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.getInventoryPage(noFilter, null, 1001));
+        assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.getInventoryPage(new InventoryFilter(null, null, -1.0, null), null, 10));
+    }
+
+    @Test
+    @DisplayName("A stream interrupted by a failure ends with an error element")
+    void getAllInventory_interrupted() throws Exception {
+        ReflectionTestUtils.setField(inventoryService, "listingPageSize", 2);
+        when(inventoryDao.findPage(noFilter, null, 2)).thenReturn(List.of(item("A"), item("B")));
+        when(inventoryDao.findPage(noFilter, "B", 2)).thenThrow(new IllegalStateException("Connection lost"));
+        InventoryController controller = new InventoryController(inventoryService, mock(SupplierInvoiceImportService.class),
+                mock(ReorderService.class), mock(StockForecastService.class), new ObjectMapper());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getAllInventory(null, null, null, null, null, null, response);
+
+        // The first page was flushed before the failure: only the error element can signal it
+        assertTrue(response.isCommitted());
+        String body = response.getContentAsString();
+        assertTrue(body.startsWith("[{\"itemCode\":\"A\""), body);
+        assertTrue(body.endsWith(",{\"error\":\"Inventory listing interrupted: Connection lost\"}]"), body);
+    }
+
+    private static InventoryDTO item(String itemCode) {
+        return new InventoryDTO(itemCode, "Item " + itemCode, 1, 1.0, 0, null);
+    }
+}
@@ -0,0 +1,119 @@
+package sae.semestre.six.domain.inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import sae.semestre.six.TestFixtures;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency tests for {@link InventoryDao#reserveStock(Map)}.
+ * <p>
+ * Reservations are committed from 16 threads at once, so the row locks taken by the conditional
+ * updates are really contended. The inventory items are deleted after each test.
+ */
+@SpringBootTest
+public class InventoryStockReservationTest {
+
+    @Autowired
+    private InventoryDao inventoryDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private String firstCode;
+    private String secondCode;
+
+    /**
+     * Creates two inventory items with unique codes.
+     */
+    @BeforeEach
+    public void setup() {
+        String suffix = TestFixtures.uniqueSuffix();
+        firstCode = "STRESS-A-" + suffix;
+        secondCode = "STRESS-B-" + suffix;
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryDao.save(TestFixtures.inventoryItem(firstCode, 300, 1.0));
+            inventoryDao.save(TestFixtures.inventoryItem(secondCode, 500, 1.0));
+        });
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryDao.delete(inventoryDao.findByItemCode(firstCode));
+            inventoryDao.delete(inventoryDao.findByItemCode(secondCode));
+        });
+    }
+
+    /**
+     * Tests that a short item is reported and that nothing is reserved for the other items.
+     */
+    @Test
+    @DisplayName("reserveStock: short items are reported and nothing is reserved")
+    public void testReserveStock_ShortItems() {
+        Set<String> shortItems = transactionTemplate.execute(status ->
+                inventoryDao.reserveStock(Map.of(firstCode, 10, secondCode, 501, "UNKNOWN", 1)));
+
+        assertEquals(new TreeSet<>(Set.of(secondCode, "UNKNOWN")), shortItems);
+        assertEquals(300, quantityOf(firstCode));
+        assertEquals(500, quantityOf(secondCode));
+    }
+
+    /**
+     * Stress test: many threads reserve the same items at the same time. Exactly as many reservations
+     * as the stock allows must succeed, and no update may be lost.
+     */
+    @Test
+    @DisplayName("reserveStock: concurrent reservations neither lose updates nor oversell")
+    public void testReserveStock_Concurrent() throws Exception {
+        int threads = 16;
+        int attemptsPerThread = 50;
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    Set<String> shortItems = transactionTemplate.execute(status ->
+                            inventoryDao.reserveStock(Map.of(firstCode, 1, secondCode, 2)));
+                    if (shortItems.isEmpty()) {
+                        reserved.incrementAndGet();
+                    } else {
+                        assertEquals(Set.of(secondCode), shortItems);
+                        refused.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 500 units of the second item allow exactly 250 reservations of 2
+        assertEquals(250, reserved.get());
+        assertEquals(threads * attemptsPerThread - 250, refused.get());
+        assertEquals(50, quantityOf(firstCode));
+        assertEquals(0, quantityOf(secondCode));
+    }
+
+    private int quantityOf(String itemCode) {
+        return transactionTemplate.execute(status -> inventoryDao.findByItemCode(itemCode).getQuantity());
+    }
+}
@@ -0,0 +1,109 @@
+package sae.semestre.six.domain.inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link LowStockTracker}.
+ */
+class LowStockTrackerTest {
+
+    private final InventoryDao inventoryDao = mock(InventoryDao.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final LowStockTracker tracker = new LowStockTracker(
+            inventoryDao, eventPublisher, mock(PlatformTransactionManager.class), Runnable::run);
+
+    @BeforeEach
+    void setUp() {
+        when(inventoryDao.findNeedingRestock()).thenReturn(List.of(item(1L, "MED1", 5, 10)));
+        tracker.reload();
+        clearInvocations(inventoryDao);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(tracker);
+    }
+
+    @Test
+    @DisplayName("Changes outside a transaction are applied at once and crossings are published")
+    void onInventoryChanged_outsideTransaction() {
+        when(inventoryDao.findByIdsOrItemCodes(anyCollection(), anyCollection()))
+                .thenReturn(List.of(item(1L, "MED1", 20, 10), item(2L, "MED2", 1, 10)));
+
+        tracker.onInventoryChanged(InventoryChangedEvent.ofIds(List.of(1L, 2L)));
+
+        assertEquals(List.of("MED2"), tracker.getLowStockItems().stream().map(InventoryDTO::itemCode).toList());
+        verify(inventoryDao, never()).findNeedingRestock();
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof LowStockEvent lowStock
+                && lowStock.type() == LowStockEvent.Type.BACK_IN_STOCK && lowStock.itemCode().equals("MED1")));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof LowStockEvent lowStock
+                && lowStock.type() == LowStockEvent.Type.LOW_STOCK && lowStock.itemCode().equals("MED2")));
+    }
+
+    @Test
+    @DisplayName("A transaction with pending changes reads from the database until it commits")
+    void onInventoryChanged_insideTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        when(inventoryDao.findByIdsOrItemCodes(anyCollection(), anyCollection())).thenReturn(List.of());
+
+        tracker.onInventoryChanged(InventoryChangedEvent.ofIds(List.of(1L)));
+        tracker.onInventoryChanged(InventoryChangedEvent.ofItemCodes(List.of("MED3")));
+
+        verify(inventoryDao, never()).findByIdsOrItemCodes(anyCollection(), anyCollection());
+        tracker.getLowStockItems();
+        verify(inventoryDao).findNeedingRestock();
+
+        // Commit: MED1 has been deleted
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        verify(inventoryDao).findByIdsOrItemCodes(Set.of(1L), Set.of("MED3"));
+        assertFalse(TransactionSynchronizationManager.hasResource(tracker));
+        assertTrue(tracker.getLowStockItems().isEmpty());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof LowStockEvent lowStock
+                && lowStock.type() == LowStockEvent.Type.BACK_IN_STOCK && lowStock.itemCode().equals("MED1")));
+    }
+
+    @Test
+    @DisplayName("Changes of a rolled back transaction are discarded")
+    void onInventoryChanged_rollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        tracker.onInventoryChanged(InventoryChangedEvent.ofIds(List.of(1L)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(inventoryDao, never()).findByIdsOrItemCodes(anyCollection(), anyCollection());
+        assertEquals(List.of("MED1"), tracker.getLowStockItems().stream().map(InventoryDTO::itemCode).toList());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static Inventory item(Long id, String itemCode, int quantity, int reorderLevel) {
+        Inventory inventory = new Inventory();
+        ReflectionTestUtils.setField(inventory, "id", id);
+        inventory.setItemCode(itemCode);
+        inventory.setName("Item " + itemCode);
+        inventory.setQuantity(quantity);
+        inventory.setReorderLevel(reorderLevel);
+        return inventory;
+    }
+}
@@ -0,0 +1,60 @@
+package sae.semestre.six.domain.inventory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the delta encoding of the compacted price history.
+ */
+class PriceHistoryCodecTest {
+
+    @Test
+    @DisplayName("Encoded changes are decoded unchanged")
+    void encode_decode() {
+        List<PriceChange> changes = List.of(
+                new PriceChange(new Date(1_700_000_000_123L), null, 5.0),
+                new PriceChange(new Date(1_700_000_360_000L), 5.0, 4.9999),
+                new PriceChange(new Date(1_700_000_360_000L), 4.9999, 12.5),
+                new PriceChange(new Date(1_700_086_400_000L), 12.0, 0.0));
+
+        assertEquals(changes, PriceHistoryCodec.decode(PriceHistoryCodec.encode(changes)));
+        assertEquals(List.of(), PriceHistoryCodec.decode(PriceHistoryCodec.encode(List.of())));
+    }
+
+    @Test
+    @DisplayName("Frequent small changes take a few bytes each instead of a full row")
+    void encode_isCompact() {
+        List<PriceChange> changes = new ArrayList<>();
+        long time = 1_700_000_000_000L;
+        double price = 10.0;
+        for (int i = 0; i < 1000; i++) {
+            double newPrice = price + (i % 2 == 0 ? 0.05 : -0.03);
+            changes.add(new PriceChange(new Date(time), price, newPrice));
+            time += 60_000;
+            price = newPrice;
+        }
+
+        byte[] data = PriceHistoryCodec.encode(changes);
+
+        assertTrue(data.length < 8 * changes.size(), "Encoded size: " + data.length);
+        List<PriceChange> decoded = PriceHistoryCodec.decode(data);
+        assertEquals(changes.size(), decoded.size());
+        assertEquals(changes.getLast().newPrice(), decoded.getLast().newPrice(), 0.0001);
+        assertEquals(changes.getLast().changeDate(), decoded.getLast().changeDate());
+    }
+
+    @Test
+    @DisplayName("Truncated data is rejected")
+    void decode_truncated() {
+        byte[] data = PriceHistoryCodec.encode(List.of(new PriceChange(new Date(), 1.0, 2.0)));
+
+        assertThrows(IllegalStateException.class,
+                () -> PriceHistoryCodec.decode(java.util.Arrays.copyOf(data, data.length - 1)));
+    }
+}
@@ -0,0 +1,129 @@
+package sae.semestre.six.domain.inventory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the price history queries and compaction.
+ */
+class PriceHistoryServiceTest {
+
+    private final PriceHistoryDao priceHistoryDao = mock(PriceHistoryDao.class);
+    private final PriceHistorySegmentDao priceHistorySegmentDao = mock(PriceHistorySegmentDao.class);
+    private final InventoryDao inventoryDao = mock(InventoryDao.class);
+    private final PriceHistoryService priceHistoryService = new PriceHistoryService(
+            priceHistoryDao, priceHistorySegmentDao, inventoryDao, mock(PlatformTransactionManager.class), 90, 2);
+    private final Inventory inventory = new Inventory();
+
+    @BeforeEach
+    void setUp() {
+        // Compacted: 3 changes in March, recent: 3 changes in June
+        PriceHistorySegment march = new PriceHistorySegment(inventory, date(2025, 3, 1, 0));
+        march.setChanges(List.of(
+                new PriceChange(date(2025, 3, 1, 9), null, 10.0),
+                new PriceChange(date(2025, 3, 1, 15), 10.0, 12.0),
+                new PriceChange(date(2025, 3, 20, 9), 12.0, 8.0)));
+        when(priceHistorySegmentDao.findByInventory(eq(inventory), any(), any())).thenReturn(List.of(march));
+        when(priceHistorySegmentDao.findLatest(eq(inventory), anyInt())).thenReturn(List.of(march));
+        List<PriceHistory> june = List.of(
+                record(date(2025, 6, 2, 9), 8.0, 9.0),
+                record(date(2025, 6, 3, 9), 9.0, 7.0),
+                record(date(2025, 6, 3, 18), 7.0, 7.5));
+        when(priceHistoryDao.findByInventory(eq(inventory), any(), any())).thenAnswer(invocation -> {
+            Date from = invocation.getArgument(1);
+            Date to = invocation.getArgument(2);
+            return june.stream()
+                    .filter(record -> (from == null || !record.getChangeDate().before(from))
+                            && (to == null || record.getChangeDate().before(to)))
+                    .toList();
+        });
+        when(priceHistoryDao.findLatest(eq(inventory), anyInt())).thenAnswer(invocation ->
+                june.reversed().subList(0, Math.min(june.size(), invocation.<Integer>getArgument(1))));
+    }
+
+    @Test
+    @DisplayName("History merges compacted and recent changes and applies the range")
+    void getHistory() {
+        assertEquals(List.of(10.0, 12.0, 8.0, 9.0, 7.0, 7.5),
+                priceHistoryService.getHistory(inventory, null, null).stream().map(PriceHistoryDTO::newPrice).toList());
+        assertEquals(List.of(8.0, 9.0),
+                priceHistoryService.getHistory(inventory, LocalDate.of(2025, 3, 2), LocalDate.of(2025, 6, 2)).stream()
+                        .map(PriceHistoryDTO::newPrice).toList());
+        verify(priceHistoryDao).findByInventory(inventory, date(2025, 3, 2, 0), date(2025, 6, 3, 0));
+    }
+
+    @Test
+    @DisplayName("Latest changes are read from recent records first, then from segments")
+    void getLatest() {
+        assertEquals(List.of(7.5, 7.0), priceHistoryService.getLatest(inventory, 2).stream().map(PriceHistoryDTO::newPrice).toList());
+        verifyNoInteractions(priceHistorySegmentDao);
+        assertEquals(List.of(7.5, 7.0, 9.0, 8.0, 12.0),
+                priceHistoryService.getLatest(inventory, 5).stream().map(PriceHistoryDTO::newPrice).toList());
+        assertThrows(IllegalArgumentException.class, () -> priceHistoryService.getLatest(inventory, 0));
+    }
+
+    @Test
+    @DisplayName("Downsampling: last price per day and min/max per period")
+    void downsampling() {
+        assertEquals(List.of(
+                        new DailyPriceDTO(LocalDate.of(2025, 3, 1), 12.0),
+                        new DailyPriceDTO(LocalDate.of(2025, 3, 20), 8.0),
+                        new DailyPriceDTO(LocalDate.of(2025, 6, 2), 9.0),
+                        new DailyPriceDTO(LocalDate.of(2025, 6, 3), 7.5)),
+                priceHistoryService.getDailyPrices(inventory, null, null));
+
+        assertEquals(List.of(
+                        new PriceRangeDTO(LocalDate.of(2025, 3, 1), 8.0, 12.0, 8.0, 3),
+                        new PriceRangeDTO(LocalDate.of(2025, 6, 1), 7.0, 9.0, 7.5, 3)),
+                priceHistoryService.getPriceRanges(inventory, PricePeriod.MONTH, null, null));
+        assertEquals(new PriceRangeDTO(LocalDate.of(2025, 6, 3), 7.0, 9.0, 7.5, 2),
+                priceHistoryService.getPriceRanges(inventory, PricePeriod.DAY, null, null).getLast());
+        assertEquals(new PriceRangeDTO(LocalDate.of(2025, 6, 2), 7.0, 9.0, 7.5, 3),
+                priceHistoryService.getPriceRanges(inventory, PricePeriod.WEEK, null, null).getLast());
+    }
+
+    @Test
+    @DisplayName("Compaction merges old records into monthly segments and deletes them")
+    void compact() {
+        when(priceHistoryDao.findInventoryIdsToCompact(any(), eq(2))).thenReturn(List.of(1L));
+        when(inventoryDao.findById(1L)).thenReturn(inventory);
+        PriceHistorySegment existing = new PriceHistorySegment(inventory, date(2025, 6, 1, 0));
+        existing.setChanges(List.of(new PriceChange(date(2025, 6, 1, 8), null, 8.0)));
+        when(priceHistorySegmentDao.findByInventoryAndPeriod(eq(inventory), any()))
+                .thenAnswer(invocation -> invocation.getArgument(1).equals(date(2025, 6, 1, 0)) ? existing : null);
+
+        assertEquals(3, priceHistoryService.compact());
+
+        assertEquals(List.of(8.0, 9.0, 7.0, 7.5), existing.getChanges().stream().map(PriceChange::newPrice).toList());
+        verify(priceHistorySegmentDao).update(existing);
+        verify(priceHistorySegmentDao, never()).save(any());
+        ArgumentCaptor<Date> cutoff = ArgumentCaptor.forClass(Date.class);
+        verify(priceHistoryDao).deleteByInventoryBefore(eq(inventory), cutoff.capture());
+        assertEquals(date(LocalDate.now().minusDays(90).getYear(), LocalDate.now().minusDays(90).getMonthValue(),
+                LocalDate.now().minusDays(90).getDayOfMonth(), 0), cutoff.getValue());
+    }
+
+    private static PriceHistory record(Date changeDate, Double oldPrice, Double newPrice) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setChangeDate(changeDate);
+        priceHistory.setOldPrice(oldPrice);
+        priceHistory.setNewPrice(newPrice);
+        return priceHistory;
+    }
+
+    private static Date date(int year, int month, int day, int hour) {
+        return Date.from(LocalDateTime.of(year, month, day, hour, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
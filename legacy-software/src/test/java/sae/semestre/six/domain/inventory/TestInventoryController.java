@@ -1,22 +1,30 @@
 package sae.semestre.six.domain.inventory;
 
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.transaction.PlatformTransactionManager;
+import sae.semestre.six.domain.inventory.forecast.StockForecastService;
+import sae.semestre.six.domain.inventory.reorder.ReorderReport;
+import sae.semestre.six.domain.inventory.reorder.ReorderRequestDao;
+import sae.semestre.six.domain.inventory.reorder.ReorderService;
 import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceDao;
 
 import jakarta.transaction.Transactional;
 import sae.semestre.six.file.FileHandler;
 import sae.semestre.six.mail.EmailService;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -51,6 +59,18 @@ public class TestInventoryController {
     @Autowired
     private PriceHistoryDao priceHistoryDao;
 
+    @Autowired
+    private LowStockTracker lowStockTracker;
+
+    @Autowired
+    private StockForecastService stockForecastService;
+
+    @Autowired
+    private ReorderRequestDao reorderRequestDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private int initialSupplierInvoiceCount;
 
     /**
@@ -148,7 +168,7 @@ public class TestInventoryController {
                         .content(requestJson))
                 .andDo(MockMvcResultHandlers.print())
                 .andExpect(status().isBadRequest())
-                .andExpect(jsonPath("$.error").exists());
+                .andExpect(jsonPath("$.error").value("Item not found in inventory: NONEXISTENT-CODE"));
 
         assertThat(supplierInvoiceDao.count()).isEqualTo(initialSupplierInvoiceCount);
     }
@@ -207,45 +227,77 @@ public class TestInventoryController {
 
     /**
      * Tests reorder logic, file creation, and content for low stock items.
+     * A second run must not reorder the items already on order.
      */
     @Test
     @DisplayName("reorder-items: check file creation and content")
-    public void testReorderItems() throws Exception {
-        int numberOfExpectedItems = inventoryDao.findNeedingRestock().size();
+    public void testReorderItems(@TempDir Path ordersFolder) throws Exception {
+        List<String> needingRestock = inventoryDao.findNeedingRestock().stream().map(Inventory::getItemCode).toList();
+        int numberOfExpectedItems = needingRestock.size() - reorderRequestDao.findOpenItemCodes(needingRestock).size();
         // Mock the EmailService to avoid sending real emails
         EmailService mockEmailService = mock(EmailService.class);
+        Path ordersFile = ordersFolder.resolve("orders.txt");
 
-        // Create a service with the mocked EmailService
-        InventoryService testService = new InventoryService(
-                inventoryDao,
+        // Create a service with the mocked EmailService, writing to a temporary orders file
+        ReorderService testService = new ReorderService(
+                lowStockTracker,
+                stockForecastService,
+                reorderRequestDao,
                 supplierInvoiceDao,
-                priceHistoryDao,
-                mockEmailService);
-
-        // Mock the File class to avoid actual file operations
-        File hospitalDir = mock(File.class);
-        when(hospitalDir.mkdirs()).thenReturn(true);
-
-        // Mock the FileWriter to avoid writing to the file system
-        FileWriter mockFileWriter = mock(FileWriter.class);
-
-        // Simulate clearing or creating a new file
-        doNothing().when(mockFileWriter).close();
+                mockEmailService,
+                transactionManager,
+                ordersFile.toString(),
+                10);
 
         // Execute the method
-        String result = testService.reorderItems();
-
-        // Mock reading the file content
-        List<String> lines = List.of("REORDER: TESTING001 Quantity: 120");
+        ReorderReport report = testService.reorder();
+
+        // Verify file content
+        List<String> lines = Files.readAllLines(ordersFile);
+        assertThat(lines).hasSize(numberOfExpectedItems);
+        assertThat(lines).contains("REORDER: TESTING001, Quantity: 120"); // reorderLevel(60) * 2
+
+        // Verify the report and the digest emails, one per supplier
+        assertThat(report.ordered()).isEqualTo(numberOfExpectedItems);
+        verify(mockEmailService, times(report.emailsSent()))
+                .sendEmail(eq(EmailService.EMAIL_SOURCE.SUPPLIER.getEmail()), ArgumentMatchers.startsWith("Reorder Request"), anyString());
+
+        // The items are now on order
+        ReorderReport secondReport = testService.reorder();
+        assertThat(secondReport.ordered()).isZero();
+        assertThat(secondReport.alreadyOnOrder()).isEqualTo(needingRestock.size());
+        assertThat(Files.readAllLines(ordersFile)).hasSize(numberOfExpectedItems);
+        testService.close();
+    }
 
-        // Verify file content - only check the last line
-        assertThat(lines).isNotEmpty();
-        String lastLine = lines.getFirst();
-        assertThat(lastLine).contains("REORDER: TESTING001");
-        assertThat(lastLine).contains("Quantity: 120"); // reorderLevel(60) * 2
+    /**
+     * Tests polling an unknown reorder job.
+     */
+    @Test
+    @DisplayName("GET /inventory/reorder/{jobId}: unknown job")
+    public void testGetReorderJob_NotFound() throws Exception {
+        mockMvc.perform(get("/inventory/reorder/unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Reorder job not found"));
+    }
 
-        // Verify the result message
-        assertThat(result).isEqualTo("Reorder requests sent for " + numberOfExpectedItems + " items");
+    /**
+     * Tests the stock forecast of an item without consumption, of an unknown item, and an invalid horizon.
+     */
+    @Test
+    @DisplayName("GET /inventory/forecast: stock projections")
+    public void testGetForecast() throws Exception {
+        mockMvc.perform(get("/inventory/forecast/TESTING001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(50))
+                .andExpect(jsonPath("$.dailyConsumption").value(0.0))
+                .andExpect(jsonPath("$.projectedStockOut").doesNotExist())
+                .andExpect(jsonPath("$.reorderQuantity").value(120));
+        mockMvc.perform(get("/inventory/forecast/UNKNOWN-ITEM"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/inventory/forecast").param("days", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
     }
 
     /**
@@ -287,6 +339,67 @@ public class TestInventoryController {
                 .andExpect(jsonPath("$[*].itemCode", hasItems("TESTING001", "TESTING002")));
     }
 
+    /**
+     * Tests the filtered listing, read one page at a time with the cursor.
+     */
+    @Test
+    @DisplayName("GET /inventory: keyset pagination and filters")
+    public void testGetAllInventory_Pagination() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            Inventory item = new Inventory();
+            item.setItemCode("TESTPAGE00" + i);
+            item.setName("Paged_100% item " + i);
+            item.setQuantity(i * 10);
+            item.setUnitPrice(i * 1.5);
+            item.setReorderLevel(25);
+            item.setLastRestocked(new java.util.Date());
+            inventoryDao.save(item);
+        }
+
+        String nextCursor = mockMvc.perform(get("/inventory")
+                        .param("namePrefix", "Paged_100%")
+                        .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].itemCode", Matchers.contains("TESTPAGE001", "TESTPAGE002", "TESTPAGE003")))
+                .andExpect(header().string("X-Next-Cursor", "TESTPAGE003"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        mockMvc.perform(get("/inventory")
+                        .param("namePrefix", "Paged_100%")
+                        .param("after", nextCursor)
+                        .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].itemCode", Matchers.contains("TESTPAGE004", "TESTPAGE005")))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        // Streamed listing with filters: low stock (quantity <= 25) and price range
+        mockMvc.perform(get("/inventory")
+                        .param("namePrefix", "Paged_")
+                        .param("lowStock", "true")
+                        .param("minPrice", "2.0")
+                        .param("maxPrice", "10.0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].itemCode", Matchers.contains("TESTPAGE002")))
+                .andExpect(jsonPath("$[0].name").value("Paged_100% item 2"))
+                .andExpect(jsonPath("$[0].lastRestocked").isNotEmpty());
+        mockMvc.perform(get("/inventory").param("namePrefix", "Paged_1000"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    /**
+     * Tests the validation of the listing parameters.
+     */
+    @Test
+    @DisplayName("GET /inventory: invalid limit or price range")
+    public void testGetAllInventory_InvalidParameters() throws Exception {
+        mockMvc.perform(get("/inventory").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(get("/inventory").param("minPrice", "10").param("maxPrice", "5"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("minPrice cannot be greater than maxPrice"));
+    }
+
     /**
      * Tests retrieval of a specific inventory item by item code.
      */
@@ -377,4 +490,32 @@ public class TestInventoryController {
                 .andExpect(jsonPath("$[0].newPrice").value(8.0))
                 .andExpect(jsonPath("$[0].changeDate").isNotEmpty());
     }
+
+    /**
+     * Tests the latest price changes and the price ranges of an inventory item.
+     */
+    @Test
+    @DisplayName("GET /inventory/price-history/{itemCode}/latest and /ranges")
+    public void testGetPriceHistoryQueries() throws Exception {
+        for (double price : new double[]{8.0, 6.0, 7.0}) {
+            mockMvc.perform(put("/inventory/TESTING001")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"unitPrice\": " + price + "}"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/inventory/price-history/TESTING001/latest").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].newPrice").value(7.0))
+                .andExpect(jsonPath("$[1].newPrice").value(6.0));
+        mockMvc.perform(get("/inventory/price-history/TESTING001/ranges").param("period", "MONTH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].minPrice").value(5.0))
+                .andExpect(jsonPath("$[0].maxPrice").value(8.0))
+                .andExpect(jsonPath("$[0].lastPrice").value(7.0))
+                .andExpect(jsonPath("$[0].changes").value(3));
+        mockMvc.perform(get("/inventory/price-history/TESTING001/latest").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,99 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import sae.semestre.six.domain.inventory.StockConsumedEvent;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the incremental consumption rates.
+ */
+class ConsumptionTrackerTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long START = 1_700_000_000_000L;
+
+    private final ItemConsumptionDao itemConsumptionDao = mock(ItemConsumptionDao.class);
+    private final ConsumptionTracker tracker = new ConsumptionTracker(
+            itemConsumptionDao, mock(PlatformTransactionManager.class), 14);
+
+    @Test
+    @DisplayName("A steady consumption gives its daily rate, which halves after a half-life without consumption")
+    void getDailyRate() {
+        for (int day = 0; day < 60; day++) {
+            consume("MED1", 10, START + day * DAY);
+        }
+
+        double rate = tracker.getDailyRate("MED1", START + 60 * DAY);
+        assertEquals(10, rate, 0.5);
+        assertEquals(0.5, tracker.getDailyRate("MED1", START + 74 * DAY) / rate, 0.05);
+        assertEquals(0, tracker.getDailyRate("MED2", START + 60 * DAY));
+    }
+
+    @Test
+    @DisplayName("The rate of a recently tracked item is not diluted over the whole half-life")
+    void getDailyRate_shortHistory() {
+        for (int day = 0; day < 5; day++) {
+            consume("MED1", 4, START + day * DAY);
+        }
+
+        assertEquals(4, tracker.getDailyRate("MED1", START + 5 * DAY), 0.3);
+    }
+
+    @Test
+    @DisplayName("Consumptions recorded out of order give the same rate")
+    void onStockConsumed_outOfOrder() {
+        consume("MED1", 3, START);
+        consume("MED1", 7, START + 2 * DAY);
+        consume("MED2", 7, START + 2 * DAY);
+        consume("MED2", 3, START);
+
+        assertEquals(tracker.getDailyRate("MED1", START + 3 * DAY), tracker.getDailyRate("MED2", START + 3 * DAY), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Only the rates changed since the last flush are saved, and saved rates are loaded back")
+    void flushAndLoad() {
+        consume("MED1", 5, START);
+        consume("MED2", 2, START);
+        tracker.flush();
+        tracker.flush();
+
+        ArgumentCaptor<ItemConsumption> saved = ArgumentCaptor.forClass(ItemConsumption.class);
+        verify(itemConsumptionDao, times(2)).update(saved.capture());
+        assertEquals(Set.of("MED1", "MED2"), Set.copyOf(saved.getAllValues().stream().map(ItemConsumption::getItemCode).toList()));
+
+        ConsumptionTracker restarted = new ConsumptionTracker(itemConsumptionDao, mock(PlatformTransactionManager.class), 14);
+        when(itemConsumptionDao.findAll()).thenReturn(saved.getAllValues());
+        restarted.load();
+
+        assertEquals(tracker.getDailyRate("MED1", START + DAY), restarted.getDailyRate("MED1", START + DAY), 1e-9);
+        assertEquals(Set.of("MED1", "MED2"), restarted.getTrackedItemCodes());
+    }
+
+    @Test
+    @DisplayName("A failed flush is retried by the next one")
+    void flush_failed() {
+        consume("MED1", 5, START);
+        doThrow(new IllegalStateException("Database unavailable")).doNothing().when(itemConsumptionDao).update(any());
+
+        assertThrows(IllegalStateException.class, tracker::flush);
+        tracker.flush();
+
+        verify(itemConsumptionDao, times(2)).update(any());
+    }
+
+    private void consume(String itemCode, int quantity, long at) {
+        tracker.onStockConsumed(new StockConsumedEvent(Map.of(itemCode, quantity), new Date(at)));
+    }
+}
@@ -0,0 +1,79 @@
+package sae.semestre.six.domain.inventory.forecast;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import sae.semestre.six.domain.inventory.Inventory;
+import sae.semestre.six.domain.inventory.InventoryDTO;
+import sae.semestre.six.domain.inventory.InventoryDao;
+import sae.semestre.six.exception.ResourceNotFoundException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the stock projections.
+ */
+class StockForecastServiceTest {
+
+    private final InventoryDao inventoryDao = mock(InventoryDao.class);
+    private final ConsumptionTracker consumptionTracker = mock(ConsumptionTracker.class);
+    private final StockForecastService forecastService = new StockForecastService(inventoryDao, consumptionTracker, 7, 30);
+
+    @Test
+    @DisplayName("The stock-out date and reorder quantity follow the consumption rate")
+    void forecast() {
+        when(consumptionTracker.getDailyRate("MED1")).thenReturn(2.0);
+
+        StockForecast forecast = forecastService.forecast(item("MED1", 10, 5));
+
+        assertEquals(5.0, forecast.daysOfStock(), 1e-9);
+        assertEquals(LocalDate.now().plusDays(5), forecast.projectedStockOut());
+        // Reorder level + 37 days of consumption - stock
+        assertEquals(5 + 74 - 10, forecast.reorderQuantity());
+    }
+
+    @Test
+    @DisplayName("An item without consumption keeps the default reorder quantity and has no stock-out date")
+    void forecast_noConsumption() {
+        StockForecast forecast = forecastService.forecast(item("MED1", 10, 5));
+
+        assertEquals(0, forecast.dailyConsumption());
+        assertNull(forecast.daysOfStock());
+        assertNull(forecast.projectedStockOut());
+        assertEquals(10, forecast.reorderQuantity());
+    }
+
+    @Test
+    @DisplayName("Stock-outs are listed soonest first, within the requested number of days")
+    void getStockOuts() {
+        when(consumptionTracker.getTrackedItemCodes()).thenReturn(Set.of("MED1", "MED2", "MED3"));
+        when(consumptionTracker.getDailyRate("MED1")).thenReturn(1.0);
+        when(consumptionTracker.getDailyRate("MED2")).thenReturn(10.0);
+        when(consumptionTracker.getDailyRate("MED3")).thenReturn(0.5);
+        when(inventoryDao.findByIdsOrItemCodes(anyCollection(), anyCollection())).thenReturn(List.of(
+                new Inventory(item("MED1", 20, 5)), new Inventory(item("MED2", 50, 5)), new Inventory(item("MED3", 20, 5))));
+
+        List<StockForecast> stockOuts = forecastService.getStockOuts(30);
+
+        assertEquals(List.of("MED2", "MED1"), stockOuts.stream().map(StockForecast::itemCode).toList());
+        assertThrows(IllegalArgumentException.class, () -> forecastService.getStockOuts(0));
+    }
+
+    @Test
+    @DisplayName("Forecasting an unknown item fails")
+    void getForecast_unknown() {
+        when(inventoryDao.findByItemCode("UNKNOWN")).thenThrow(new EmptyResultDataAccessException(1));
+
+        assertThrows(ResourceNotFoundException.class, () -> forecastService.getForecast("UNKNOWN"));
+    }
+
+    private static InventoryDTO item(String itemCode, int quantity, int reorderLevel) {
+        return new InventoryDTO(itemCode, "Item " + itemCode, quantity, 1.0, reorderLevel, null);
+    }
+}
@@ -0,0 +1,134 @@
+package sae.semestre.six.domain.inventory.reorder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import sae.semestre.six.domain.inventory.InventoryDTO;
+import sae.semestre.six.domain.inventory.LowStockEvent;
+import sae.semestre.six.domain.inventory.LowStockTracker;
+import sae.semestre.six.domain.inventory.forecast.StockForecastService;
+import sae.semestre.six.domain.inventory.supplierInvoice.SupplierInvoiceDao;
+import sae.semestre.six.mail.EmailService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the reorder pipeline.
+ */
+class ReorderServiceTest {
+
+    private final LowStockTracker lowStockTracker = mock(LowStockTracker.class);
+    private final StockForecastService stockForecastService = mock(StockForecastService.class);
+    private final ReorderRequestDao reorderRequestDao = mock(ReorderRequestDao.class);
+    private final SupplierInvoiceDao supplierInvoiceDao = mock(SupplierInvoiceDao.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final List<Runnable> submitted = new ArrayList<>();
+
+    @TempDir
+    Path ordersFolder;
+
+    private ReorderService reorderService;
+
+    @BeforeEach
+    void setUp() {
+        reorderService = service(submitted::add);
+        when(lowStockTracker.getLowStockItems()).thenReturn(List.of(
+                item("MED1", 10), item("MED2", 5), item("MED3", 1), item("MED4", 3)));
+        when(stockForecastService.reorderQuantity(any())).thenAnswer(invocation -> {
+            InventoryDTO item = invocation.getArgument(0);
+            return item.itemCode().equals("MED4") ? 25 : item.reorderLevel() * 2;
+        });
+        when(reorderRequestDao.findOpenItemCodes(anyCollection())).thenReturn(Set.of("MED2"));
+        when(supplierInvoiceDao.findLatestSupplierNames(anyCollection()))
+                .thenReturn(Map.of("MED1", "Pharma A", "MED3", "Pharma A"));
+    }
+
+    @Test
+    @DisplayName("Items on order are skipped, quantities come from the forecast, one digest is sent per supplier and the file is appended once")
+    void reorder() throws Exception {
+        ReorderReport report = reorderService.reorder();
+
+        assertEquals(new ReorderReport(4, 3, 1, 2), report);
+        assertEquals(List.of("REORDER: MED1, Quantity: 20", "REORDER: MED3, Quantity: 2", "REORDER: MED4, Quantity: 25"),
+                Files.readAllLines(ordersFolder.resolve("orders.txt")));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ReorderRequestDao.OrderRow>> orders = ArgumentCaptor.forClass(List.class);
+        verify(reorderRequestDao).insertOpen(orders.capture(), any());
+        assertEquals(List.of(
+                new ReorderRequestDao.OrderRow("MED1", 20, "Pharma A"),
+                new ReorderRequestDao.OrderRow("MED3", 2, "Pharma A"),
+                new ReorderRequestDao.OrderRow("MED4", 25, null)), orders.getValue());
+
+        verify(emailService).sendEmail(eq(EmailService.EMAIL_SOURCE.SUPPLIER.getEmail()),
+                eq("Reorder Request - Pharma A (2 items)"),
+                argThat(body -> body.contains("MED1") && body.contains("MED3") && !body.contains("MED4")));
+        verify(emailService).sendEmail(eq(EmailService.EMAIL_SOURCE.SUPPLIER.getEmail()),
+                eq("Reorder Request - " + ReorderService.UNKNOWN_SUPPLIER + " (1 items)"),
+                contains("(MED4), Quantity: 25"));
+        verifyNoMoreInteractions(emailService);
+    }
+
+    @Test
+    @DisplayName("Only one reorder job runs at a time and its status can be polled")
+    void submit() {
+        ReorderJob first = reorderService.submit();
+        ReorderJob second = reorderService.submit();
+
+        assertEquals(first.id(), second.id());
+        assertEquals(ReorderJob.Status.QUEUED, reorderService.getJob(first.id()).orElseThrow().status());
+        assertEquals(1, submitted.size());
+
+        submitted.getFirst().run();
+
+        ReorderJob done = reorderService.getJob(first.id()).orElseThrow();
+        assertEquals(ReorderJob.Status.COMPLETED, done.status());
+        assertEquals(3, done.report().ordered());
+        assertNotNull(done.finishedAt());
+        assertNotEquals(first.id(), reorderService.submit().id());
+    }
+
+    @Test
+    @DisplayName("A failed job reports its error")
+    void submit_failed() {
+        doThrow(new IllegalStateException("Database unavailable")).when(reorderRequestDao).insertOpen(anyList(), any());
+        ReorderService directService = service(Runnable::run);
+
+        ReorderJob job = directService.submit();
+
+        ReorderJob failed = directService.getJob(job.id()).orElseThrow();
+        assertEquals(ReorderJob.Status.FAILED, failed.status());
+        assertEquals("Database unavailable", failed.error());
+        assertFalse(Files.exists(ordersFolder.resolve("orders.txt")));
+    }
+
+    @Test
+    @DisplayName("Reorders are closed when the item is back in stock")
+    void onLowStockEvent() {
+        Date now = new Date();
+        reorderService.onLowStockEvent(new LowStockEvent(LowStockEvent.Type.LOW_STOCK, "MED1", "Item", 1, 10, now));
+        reorderService.onLowStockEvent(new LowStockEvent(LowStockEvent.Type.BACK_IN_STOCK, "MED2", "Item", 20, 10, now));
+
+        verify(reorderRequestDao).markReceived("MED2", now);
+        verifyNoMoreInteractions(reorderRequestDao);
+    }
+
+    private ReorderService service(Executor executor) {
+        return new ReorderService(lowStockTracker, stockForecastService, reorderRequestDao, supplierInvoiceDao, emailService,
+                mock(PlatformTransactionManager.class), ordersFolder.resolve("orders.txt").toString(), 10, executor);
+    }
+
+    private static InventoryDTO item(String itemCode, int reorderLevel) {
+        return new InventoryDTO(itemCode, "Item " + itemCode, 0, 1.0, reorderLevel, null);
+    }
+}
@@ -0,0 +1,116 @@
+package sae.semestre.six.domain.inventory.supplierInvoice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import sae.semestre.six.domain.inventory.InventoryDao;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the streamed supplier invoice import.
+ */
+class SupplierInvoiceImportServiceTest {
+
+    private final InventoryDao inventoryDao = mock(InventoryDao.class);
+    private final SupplierInvoiceDao supplierInvoiceDao = mock(SupplierInvoiceDao.class);
+    private final SupplierInvoiceImportService importService = new SupplierInvoiceImportService(
+            inventoryDao, supplierInvoiceDao, new ObjectMapper(), 2, 10);
+
+    @BeforeEach
+    void setUp() {
+        when(inventoryDao.findIdsByItemCodes(anyCollection())).thenAnswer(invocation -> {
+            Map<String, Long> ids = new HashMap<>();
+            for (String code : invocation.<Collection<String>>getArgument(0)) {
+                if (code.startsWith("MED")) {
+                    ids.put(code, Long.parseLong(code.substring(3)));
+                }
+            }
+            return ids;
+        });
+    }
+
+    @Test
+    @DisplayName("CSV import: valid lines are restocked once per item and invalid lines are reported")
+    void importInvoice_csv() {
+        String csv = """
+                itemCode,quantity,unitPrice
+                MED1,10,2.5
+                MED2,5,1.0
+                MED1,4,2.5
+
+                UNKNOWN,1,1.0
+                MED2,abc,1.0
+                MED2,-1,1.0
+                """;
+
+        SupplierInvoiceImportReport report = importService.importInvoice(
+                "INV-1", "Supplier", null, 40.0, SupplierInvoiceFormat.CSV, stream(csv));
+
+        assertEquals(6, report.linesRead());
+        assertEquals(3, report.linesImported());
+        assertEquals(3, report.linesRejected());
+        assertEquals(40.0, report.totalAmount(), 0.001);
+        assertEquals(List.of(
+                new SupplierInvoiceImportReport.LineError(6, "UNKNOWN", "Item not found in inventory"),
+                new SupplierInvoiceImportReport.LineError(7, null, "Invalid quantity for item MED2"),
+                new SupplierInvoiceImportReport.LineError(8, "MED2", "Quantity and unit price must be positive")),
+                report.errors());
+        assertFalse(report.errorsTruncated());
+
+        // 6 lines in chunks of 2: one IN query per chunk containing codes not resolved yet
+        verify(inventoryDao, times(2)).findIdsByItemCodes(anyCollection());
+        verify(supplierInvoiceDao, times(3)).insertDetails(any(), anyList());
+        verify(inventoryDao).restockByIds(eq(Map.of(1L, 14, 2L, 5)), any());
+    }
+
+    @Test
+    @DisplayName("JSON import: the array is read element by element")
+    void importInvoice_json() {
+        String json = """
+                [
+                  {"itemCode": "MED1", "quantity": 3, "unitPrice": 2.0},
+                  {"itemCode": "MED3", "quantity": 1.5, "unitPrice": 2.0},
+                  "not an object",
+                  {"itemCode": "MED3", "quantity": 2, "unitPrice": 1.0}
+                ]
+                """;
+
+        SupplierInvoiceImportReport report = importService.importInvoice(
+                "INV-2", "Supplier", null, null, SupplierInvoiceFormat.JSON, stream(json));
+
+        assertEquals(4, report.linesRead());
+        assertEquals(2, report.linesImported());
+        assertEquals(List.of(2L, 3L), report.errors().stream().map(SupplierInvoiceImportReport.LineError::line).toList());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SupplierInvoiceDao.DetailRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(supplierInvoiceDao, times(2)).insertDetails(any(), rows.capture());
+        assertEquals(List.of(new SupplierInvoiceDao.DetailRow(1L, 3, 2.0)), rows.getAllValues().get(0));
+        assertEquals(List.of(new SupplierInvoiceDao.DetailRow(3L, 2, 1.0)), rows.getAllValues().get(1));
+    }
+
+    @Test
+    @DisplayName("Import: a malformed payload or a wrong total rejects the whole invoice")
+    void importInvoice_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> importService.importInvoice(
+                "INV-3", "Supplier", null, null, SupplierInvoiceFormat.JSON,
+                stream("[{\"itemCode\": \"MED1\", \"quantity\": 1, \"unitPrice\": 1.0}, {")));
+        assertThrows(IllegalArgumentException.class, () -> importService.importInvoice(
+                "INV-4", "Supplier", null, 99.0, SupplierInvoiceFormat.CSV, stream("MED1,1,1.0\n")));
+        verify(inventoryDao, never()).restockByIds(anyMap(), any());
+    }
+
+    private static InputStream stream(String payload) {
+        return new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
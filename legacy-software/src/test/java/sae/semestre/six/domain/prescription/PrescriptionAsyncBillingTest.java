@@ -0,0 +1,131 @@
+package sae.semestre.six.domain.prescription;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import sae.semestre.six.domain.billing.PrescriptionBillingDispatcher;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.inventory.Inventory;
+import sae.semestre.six.domain.inventory.InventoryDao;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.patient.PatientDao;
+
+import jakarta.transaction.Transactional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test of the asynchronous prescription billing, as reported by GET /prescriptions/billing/lag.
+ * <p>
+ * The background poll is pushed back by one hour so that the test drives the batches itself.
+ * Data is rolled back after each test due to @Transactional.
+ */
+@SpringBootTest(properties = {
+        "sae.semestre.six.prescription.billing.mode=ASYNC",
+        "sae.semestre.six.prescription.billing.poll-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+@Transactional
+public class PrescriptionAsyncBillingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PrescriptionBillingDispatcher prescriptionBillingDispatcher;
+
+    @Autowired
+    private InventoryDao inventoryDao;
+
+    @Autowired
+    private PatientDao patientDao;
+
+    @Autowired
+    private DoctorDao doctorDao;
+
+    private String patientId;
+
+    /**
+     * Creates a patient, an inventory item and, if missing, the doctor the prescription bills are attached to.
+     */
+    @BeforeEach
+    public void setup() {
+        Patient patient = Patient.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .email("test.test@gmail.fr")
+                .patientNumber("PASYNC001")
+                .build();
+        patientDao.save(patient);
+        patientId = String.valueOf(patient.getId());
+
+        Inventory med = new Inventory();
+        med.setItemCode("ASYNC001");
+        med.setName("Paracetamol");
+        med.setQuantity(100);
+        med.setUnitPrice(2.5);
+        med.setReorderLevel(10);
+        med.setLastRestocked(new java.util.Date());
+        inventoryDao.save(med);
+
+        if (doctorDao.findByDoctorNumber(PrescriptionBillingDispatcher.SYSTEM_DOCTOR_NUMBER).isEmpty()) {
+            doctorDao.save(Doctor.builder()
+                    .doctorNumber(PrescriptionBillingDispatcher.SYSTEM_DOCTOR_NUMBER)
+                    .firstName("System")
+                    .lastName("System")
+                    .build());
+        }
+    }
+
+    /**
+     * Tests that a new prescription is counted as pending until a billing batch processes it.
+     */
+    @Test
+    @DisplayName("GET /prescriptions/billing/lag: pending goes up on creation and down after a batch")
+    public void testBillingLag_PendingUntilBatch() throws Exception {
+        long before = pending();
+
+        String requestJson = """
+            {
+              "patientId": "%s",
+              "medicineCodes": ["ASYNC001"],
+              "notes": "Billed later"
+            }
+            """.formatted(patientId);
+        mockMvc.perform(post("/prescriptions/add")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("billing pending")));
+
+        long afterCreation = pending();
+        assertEquals(before + 1, afterCreation);
+
+        int processed = prescriptionBillingDispatcher.billBatch();
+
+        assertTrue(processed >= 1);
+        assertEquals(afterCreation - processed, pending());
+    }
+
+    /**
+     * @return the number of prescriptions waiting for their billing
+     */
+    private long pending() throws Exception {
+        String body = mockMvc.perform(get("/prescriptions/billing/lag"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.<Number>read(body, "$.pending").longValue();
+    }
+}
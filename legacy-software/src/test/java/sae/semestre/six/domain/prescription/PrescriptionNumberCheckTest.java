@@ -0,0 +1,54 @@
+package sae.semestre.six.domain.prescription;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the startup report on unique prescription numbers.
+ */
+class PrescriptionNumberCheckTest {
+
+    private final PrescriptionDao prescriptionDao = mock(PrescriptionDao.class);
+    private final PrescriptionNumberCheck check = new PrescriptionNumberCheck(prescriptionDao);
+
+    @Test
+    @DisplayName("Nothing is reported when numbers are unique and indexed")
+    void verify_unique() {
+        when(prescriptionDao.findDuplicatePrescriptionNumbers(anyInt())).thenReturn(List.of());
+        when(prescriptionDao.hasUniquePrescriptionNumberIndex()).thenReturn(true);
+
+        assertEquals(List.of(), check.findProblems());
+    }
+
+    @Test
+    @DisplayName("Duplicated numbers are reported without blocking startup")
+    void verify_duplicates() {
+        when(prescriptionDao.findDuplicatePrescriptionNumbers(anyInt())).thenReturn(List.of("RX42", "RX7"));
+
+        assertDoesNotThrow(check::verify);
+        List<String> problems = check.findProblems();
+
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0).contains("[RX42, RX7]"), problems.get(0));
+        verify(prescriptionDao, never()).hasUniquePrescriptionNumberIndex();
+    }
+
+    @Test
+    @DisplayName("A missing unique index is reported without blocking startup")
+    void verify_missingIndex() {
+        when(prescriptionDao.findDuplicatePrescriptionNumbers(anyInt())).thenReturn(List.of());
+        when(prescriptionDao.hasUniquePrescriptionNumberIndex()).thenReturn(false);
+
+        assertDoesNotThrow(check::verify);
+        List<String> problems = check.findProblems();
+
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0).contains("prescriptions.prescription_number"), problems.get(0));
+    }
+}
@@ -0,0 +1,154 @@
+package sae.semestre.six.domain.prescription;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import sae.semestre.six.TestFixtures;
+import sae.semestre.six.domain.inventory.Inventory;
+import sae.semestre.six.domain.inventory.InventoryDao;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.patient.PatientDao;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PrescriptionService#getPatientPrescriptionPage}.
+ * <p>
+ * Hibernate statistics are enabled to count the SQL statements run to read a page.
+ * Data is rolled back after each test due to @Transactional.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class PrescriptionPaginationTest {
+
+    private static final int PRESCRIPTIONS = 30;
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private PrescriptionDao prescriptionDao;
+
+    @Autowired
+    private PatientDao patientDao;
+
+    @Autowired
+    private InventoryDao inventoryDao;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private String patientId;
+
+    /**
+     * Creates a patient with 30 prescriptions of 3 medicines each, one per day from 2024-01-01.
+     */
+    @BeforeEach
+    public void setup() {
+        String suffix = TestFixtures.uniqueSuffix();
+        Patient patient = TestFixtures.patient("PPAGE-" + suffix);
+        patientDao.save(patient);
+        patientId = String.valueOf(patient.getId());
+
+        List<Inventory> medicines = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Inventory medicine = TestFixtures.inventoryItem("PAGE-" + i + "-" + suffix, 100, 1.0 + i);
+            inventoryDao.save(medicine);
+            medicines.add(medicine);
+        }
+
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < PRESCRIPTIONS; i++) {
+            Prescription prescription = new Prescription("RXPAGE-" + i + "-" + suffix, patient,
+                    new ArrayList<>(medicines), "Page " + i, 6.0);
+            prescription.setCreatedDate(Date.from(day.plusDays(i).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+            prescriptionDao.save(prescription);
+        }
+        entityManager.flush();
+    }
+
+    /**
+     * Tests that reading a page runs the same number of statements whatever the page size.
+     */
+    @Test
+    @DisplayName("The statement count does not depend on the page size")
+    public void testStatementCountIsConstant() {
+        long small = countStatements(5);
+        long large = countStatements(PRESCRIPTIONS);
+
+        assertEquals(small, large);
+        assertTrue(large <= 2, "Expected at most 2 statements, got " + large);
+    }
+
+    /**
+     * Tests that following the cursors returns every prescription once, in creation order.
+     */
+    @Test
+    @DisplayName("The cursors walk through all the prescriptions")
+    public void testCursorWalk() {
+        List<String> notes = new ArrayList<>();
+        Long cursor = null;
+        do {
+            PrescriptionPage page = prescriptionService.getPatientPrescriptionPage(patientId, null, null, cursor, 7);
+            page.prescriptions().forEach(prescription -> {
+                assertEquals(3, prescription.medicineCodes().size());
+                notes.add(prescription.notes());
+            });
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(PRESCRIPTIONS, notes.size());
+        assertEquals("Page 0", notes.getFirst());
+        assertEquals("Page " + (PRESCRIPTIONS - 1), notes.getLast());
+    }
+
+    /**
+     * Tests the creation date filters, both bounds being inclusive.
+     */
+    @Test
+    @DisplayName("The creation date filters are applied")
+    public void testDateRange() {
+        PrescriptionPage page = prescriptionService.getPatientPrescriptionPage(patientId,
+                LocalDate.of(2024, 1, 11), LocalDate.of(2024, 1, 20), null, 100);
+
+        assertEquals(10, page.prescriptions().size());
+        assertEquals("Page 10", page.prescriptions().getFirst().notes());
+        assertEquals("Page 19", page.prescriptions().getLast().notes());
+        assertNull(page.nextCursor());
+    }
+
+    /**
+     * Tests that an invalid limit is refused.
+     */
+    @Test
+    @DisplayName("An invalid limit is refused")
+    public void testInvalidLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> prescriptionService.getPatientPrescriptionPage(patientId, null, null, null, 0));
+    }
+
+    /**
+     * Reads the first page from an empty persistence context and counts the statements run.
+     */
+    private long countStatements(int limit) {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        PrescriptionPage page = prescriptionService.getPatientPrescriptionPage(patientId, null, null, null, limit);
+        page.prescriptions().forEach(prescription -> assertEquals(3, prescription.medicineCodes().size()));
+
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,106 @@
+package sae.semestre.six.domain.prescription;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sae.semestre.six.domain.billing.BillingService;
+import sae.semestre.six.domain.billing.PrescriptionBillingDispatcher;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.inventory.Inventory;
+import sae.semestre.six.domain.inventory.InventoryDao;
+import sae.semestre.six.domain.inventory.InventoryLookup;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.patient.PatientDao;
+import sae.semestre.six.file.AuditLogAppender;
+import sae.semestre.six.identifier.BusinessIdentifier;
+import sae.semestre.six.identifier.IdentifierService;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the prescription creation.
+ */
+class PrescriptionServiceTest {
+
+    private final InventoryDao inventoryDao = mock(InventoryDao.class);
+    private final PrescriptionDao prescriptionDao = mock(PrescriptionDao.class);
+    private final PatientDao patientDao = mock(PatientDao.class);
+    private final DoctorDao doctorDao = mock(DoctorDao.class);
+    private final BillingService billingService = mock(BillingService.class);
+    private final IdentifierService identifierService = mock(IdentifierService.class);
+    private final PrescriptionService prescriptionService = new PrescriptionService(inventoryDao, prescriptionDao,
+            patientDao, doctorDao, mock(AuditLogAppender.class), billingService, identifierService,
+            mock(PrescriptionBillingDispatcher.class));
+
+    @Test
+    @DisplayName("The medicines of a prescription are loaded with a single query")
+    void addPrescription_loadsMedicinesInOneQuery() {
+        List<String> codes = IntStream.range(0, 30).mapToObj(i -> "MED" + (i % 20)).toList();
+        Map<String, Inventory> items = new HashMap<>();
+        codes.forEach(code -> items.put(code, item(code)));
+        when(inventoryDao.findByItemCodes(codes)).thenReturn(new InventoryLookup(items, List.of()));
+        when(patientDao.findById(1L)).thenReturn(new Patient());
+        when(identifierService.next(BusinessIdentifier.PRESCRIPTION)).thenReturn("RX00000001");
+        when(inventoryDao.reserveStock(anyMap())).thenReturn(Set.of());
+
+        String result = prescriptionService.addPrescription(new PrescriptionDTO(null, "1", codes, "Notes", null));
+
+        assertEquals("Prescription RX00000001 created and billed", result);
+        verify(inventoryDao).findByItemCodes(codes);
+        verify(inventoryDao, never()).findByItemCode(anyString());
+        // Repeated codes are billed and reserved once per occurrence
+        verify(prescriptionDao).save(argThat(prescription -> prescription.getMedicines().size() == 30
+                && Math.abs(prescription.getTotalCost() - 30 * 2.5) < 0.001));
+        verify(inventoryDao).reserveStock(argThat(quantities -> quantities.size() == 20 && quantities.get("MED0") == 2));
+    }
+
+    @Test
+    @DisplayName("An unknown medicine code fails the prescription before anything is created")
+    void addPrescription_unknownMedicine() {
+        List<String> codes = List.of("MED1", "UNKNOWN", "OTHER");
+        when(inventoryDao.findByItemCodes(codes))
+                .thenReturn(new InventoryLookup(Map.of("MED1", item("MED1")), List.of("UNKNOWN", "OTHER")));
+
+        String result = prescriptionService.addPrescription(new PrescriptionDTO(null, "1", codes, "Notes", null));
+
+        assertEquals("Failed: inventory not found for code UNKNOWN", result);
+        verifyNoInteractions(prescriptionDao, identifierService);
+        verify(inventoryDao, never()).reserveStock(anyMap());
+    }
+
+    @Test
+    @DisplayName("In asynchronous mode, the prescription is marked as to be billed instead of being billed")
+    void addPrescription_asyncBilling() {
+        ReflectionTestUtils.setField(prescriptionService, "billingMode", PrescriptionBillingMode.ASYNC);
+        List<String> codes = List.of("MED1");
+        when(inventoryDao.findByItemCodes(codes)).thenReturn(new InventoryLookup(Map.of("MED1", item("MED1")), List.of()));
+        when(patientDao.findById(1L)).thenReturn(new Patient());
+        when(identifierService.next(BusinessIdentifier.PRESCRIPTION)).thenReturn("RX00000002");
+        when(inventoryDao.reserveStock(anyMap())).thenReturn(Set.of());
+        when(doctorDao.findByDoctorNumber("SYSTEM")).thenReturn(Optional.of(new Doctor()));
+
+        String result = prescriptionService.addPrescription(new PrescriptionDTO(null, "1", codes, "Notes", null));
+
+        assertEquals("Prescription RX00000002 created, billing pending", result);
+        verify(prescriptionDao).save(argThat(prescription -> !prescription.getIsBilled()
+                && prescription.getBillingRequestedDate() != null));
+        verifyNoInteractions(billingService);
+    }
+
+    private static Inventory item(String itemCode) {
+        Inventory inventory = new Inventory();
+        inventory.setItemCode(itemCode);
+        inventory.setName("Item " + itemCode);
+        inventory.setQuantity(100);
+        inventory.setUnitPrice(2.5);
+        inventory.setReorderLevel(0);
+        inventory.setLastRestocked(new Date());
+        return inventory;
+    }
+}
@@ -0,0 +1,146 @@
+package sae.semestre.six.domain.prescription;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import sae.semestre.six.TestFixtures;
+import sae.semestre.six.domain.billing.BillDao;
+import sae.semestre.six.domain.billing.BillingService;
+import sae.semestre.six.domain.billing.PrescriptionBillingDispatcher;
+import sae.semestre.six.domain.doctor.Doctor;
+import sae.semestre.six.domain.doctor.DoctorDao;
+import sae.semestre.six.domain.inventory.InventoryDao;
+import sae.semestre.six.domain.patient.Patient;
+import sae.semestre.six.domain.patient.PatientDao;
+import sae.semestre.six.file.BillArchive;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests of {@link PrescriptionService#addPrescription} when the stock is consumed by another
+ * prescription between the stock check and the reservation.
+ * <p>
+ * The competing prescription is simulated by a separate transaction that empties the stock while the
+ * bill is built. The rollback of the prescription, of its bill and of its bill file are then checked
+ * from a fresh transaction; the patient, item and SYSTEM doctor are deleted after each test.
+ */
+@SpringBootTest
+public class PrescriptionStockReservationTest {
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private PrescriptionDao prescriptionDao;
+
+    @Autowired
+    private PatientDao patientDao;
+
+    @Autowired
+    private DoctorDao doctorDao;
+
+    @Autowired
+    private BillDao billDao;
+
+    @Autowired
+    private InventoryDao inventoryDao;
+
+    @MockitoSpyBean
+    private BillingService billingService;
+
+    @MockitoSpyBean
+    private BillArchive billArchive;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Patient patient;
+    private Doctor createdSystemDoctor;
+    private String itemCode;
+
+    /**
+     * Creates a patient, the SYSTEM doctor if needed (so that prescriptions are billed) and an item
+     * with a single unit in stock.
+     */
+    @BeforeEach
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        String suffix = TestFixtures.uniqueSuffix();
+        itemCode = "RESERVE-" + suffix;
+        transactionTemplate.executeWithoutResult(status -> {
+            patient = TestFixtures.patient("PRESERVE-" + suffix);
+            patientDao.save(patient);
+
+            if (doctorDao.findByDoctorNumber(PrescriptionBillingDispatcher.SYSTEM_DOCTOR_NUMBER).isEmpty()) {
+                createdSystemDoctor = Doctor.builder()
+                        .doctorNumber(PrescriptionBillingDispatcher.SYSTEM_DOCTOR_NUMBER)
+                        .firstName("System")
+                        .lastName("System")
+                        .build();
+                doctorDao.save(createdSystemDoctor);
+            }
+
+            inventoryDao.save(TestFixtures.inventoryItem(itemCode, 1, 4.0));
+        });
+    }
+
+    @AfterEach
+    public void cleanup() {
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryDao.delete(inventoryDao.findByItemCode(itemCode));
+            patientDao.delete(patientDao.findById(patient.getId()));
+            if (createdSystemDoctor != null) {
+                doctorDao.delete(doctorDao.findById(createdSystemDoctor.getId()));
+            }
+        });
+    }
+
+    /**
+     * The last unit is consumed by another transaction while the bill is built, before the reservation: the conditional
+     * update fails, and neither the prescription nor a bill or a bill file may be left behind.
+     */
+    @Test
+    @DisplayName("A failed stock reservation leaves no prescription, bill or bill file")
+    public void testAddPrescription_ReservationFails() {
+        TransactionTemplate concurrentTransaction = new TransactionTemplate(transactionManager);
+        concurrentTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Stubbed on the billing service rather than on the inventory DAO, which background threads also call
+        doAnswer(invocation -> {
+            // Another prescription takes the last unit while the bill is built, after the stock check
+            concurrentTransaction.executeWithoutResult(status -> entityManager
+                    .createQuery("UPDATE Inventory i SET i.quantity = 0 WHERE i.itemCode = :itemCode")
+                    .setParameter("itemCode", itemCode)
+                    .executeUpdate());
+            return invocation.callRealMethod();
+        }).when(billingService).processBill(any(Patient.class), any(Doctor.class), any(String[].class));
+
+        String result = prescriptionService.addPrescription(
+                new PrescriptionDTO(null, String.valueOf(patient.getId()), List.of(itemCode), "Reserve", null));
+
+        assertEquals("Failed: insufficient stock for [" + itemCode + "]", result);
+        // The bill is built before the reservation, but its file is only written after the commit
+        verify(billArchive, never()).write(anyString(), anyString());
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(prescriptionDao.findByPatientId(patient.getId()).isEmpty());
+            assertTrue(billDao.findByPatientId(patient.getId()).isEmpty());
+            assertEquals(0, inventoryDao.findByItemCode(itemCode).getQuantity());
+        });
+    }
+}
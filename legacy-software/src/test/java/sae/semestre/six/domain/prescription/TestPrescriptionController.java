@@ -16,6 +16,7 @@ import sae.semestre.six.domain.patient.PatientDao;
 import jakarta.transaction.Transactional;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -100,6 +101,43 @@ public class TestPrescriptionController {
                 .andExpect(content().string(containsString("created and billed")));
     }
 
+    /**
+     * Tests that the creation of a prescription is recorded in the audit log statistics.
+     */
+    @Test
+    @DisplayName("GET /prescriptions/audit/stats: records appended to the audit log")
+    public void testGetAuditLogStats() throws Exception {
+        String requestJson = """
+            {
+              "patientId": "%s",
+              "medicineCodes": ["TESTING001"],
+              "notes": "Audited"
+            }
+            """.formatted(patientId);
+        mockMvc.perform(post("/prescriptions/add")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/prescriptions/audit/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.appended").value(greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$.failed").value(0));
+    }
+
+    /**
+     * Tests that the asynchronous billing lag is reported.
+     */
+    @Test
+    @DisplayName("GET /prescriptions/billing/lag: asynchronous billing backlog")
+    public void testGetBillingLag() throws Exception {
+        mockMvc.perform(get("/prescriptions/billing/lag"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pending").value(greaterThanOrEqualTo(0)))
+                .andExpect(jsonPath("$.failed").value(greaterThanOrEqualTo(0)))
+                .andExpect(jsonPath("$.lagSeconds").value(greaterThanOrEqualTo(0)));
+    }
+
     /**
      * Tests error handling when adding a prescription with an unknown medicine code.
      */
@@ -142,6 +180,39 @@ public class TestPrescriptionController {
                 .andExpect(content().string(containsString("Failed:")));
     }
 
+    /**
+     * Tests that a prescription requesting more units than the stock read is refused upfront.
+     * The failure of the reservation itself is covered by {@link PrescriptionStockReservationTest}.
+     */
+    @Test
+    @DisplayName("POST /prescriptions/add: error - insufficient stock")
+    public void testAddPrescription_InsufficientStock() throws Exception {
+        Inventory scarce = new Inventory();
+        scarce.setItemCode("TESTING003");
+        scarce.setName("Amoxicillin");
+        scarce.setQuantity(1);
+        scarce.setUnitPrice(4.0);
+        scarce.setReorderLevel(0);
+        scarce.setLastRestocked(new java.util.Date());
+        inventoryDao.save(scarce);
+
+        String requestJson = """
+            {
+              "patientId": "%s",
+              "medicineCodes": ["TESTING001", "TESTING003", "TESTING003"],
+              "notes": "Test"
+            }
+            """.formatted(patientId);
+
+        mockMvc.perform(post("/prescriptions/add")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("Failed: insufficient stock for [TESTING003]")));
+
+        assertEquals(100, inventoryDao.findByItemCode("TESTING001").getQuantity());
+    }
+
     /**
      * Tests retrieval of prescriptions for a patient with at least one prescription.
      */
@@ -169,6 +240,43 @@ public class TestPrescriptionController {
                 .andExpect(jsonPath("$[0].medicineCodes", hasItem("TESTING001")));
     }
 
+    /**
+     * Tests retrieval of a page of prescriptions for a patient.
+     */
+    @Test
+    @DisplayName("GET /prescriptions/patient/{patientId}/page: nominal case")
+    public void testGetPatientPrescriptionPage_Success() throws Exception {
+        String requestJson = """
+            {
+              "patientId": "%s",
+              "medicineCodes": ["TESTING001", "TESTING002"],
+              "notes": "Paged"
+            }
+            """.formatted(patientId);
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/prescriptions/add")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(requestJson))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/prescriptions/patient/" + patientId + "/page").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.prescriptions", hasSize(1)))
+                .andExpect(jsonPath("$.prescriptions[0].medicineCodes", hasItems("TESTING001", "TESTING002")))
+                .andExpect(jsonPath("$.nextCursor").isNumber());
+    }
+
+    /**
+     * Tests that an invalid page limit is refused.
+     */
+    @Test
+    @DisplayName("GET /prescriptions/patient/{patientId}/page: error - invalid limit")
+    public void testGetPatientPrescriptionPage_InvalidLimit() throws Exception {
+        mockMvc.perform(get("/prescriptions/patient/" + patientId + "/page").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * Tests retrieval of prescriptions for a patient with no prescriptions.
      */
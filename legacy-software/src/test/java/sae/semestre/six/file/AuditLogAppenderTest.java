@@ -0,0 +1,109 @@
+package sae.semestre.six.file;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogAppenderTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("Les enregistrements de plusieurs threads doivent tous être écrits, par groupes, sans se mélanger")
+    void append_shouldWriteAllRecordsInGroups() throws Exception {
+        Path file = folder.resolve("audit.log");
+        AuditLogAppender appender = new AuditLogAppender(file.toString(), AuditLogAppender.FsyncPolicy.ALWAYS,
+                1000, 10_000_000, 5, 100, 1000);
+
+        int threads = 8;
+        int recordsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<CompletableFuture<Void>>>> workers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int threadNumber = thread;
+            workers.add(executor.submit(() -> {
+                List<CompletableFuture<Void>> written = new ArrayList<>();
+                for (int i = 0; i < recordsPerThread; i++) {
+                    written.add(appender.append("thread " + threadNumber + " record " + i));
+                }
+                return written;
+            }));
+        }
+        for (Future<List<CompletableFuture<Void>>> worker : workers) {
+            CompletableFuture.allOf(worker.get(30, TimeUnit.SECONDS).toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(threads * recordsPerThread, lines.size());
+        assertEquals(threads * recordsPerThread, new HashSet<>(lines).size());
+        // L'ordre des enregistrements d'un même thread est conservé
+        for (int thread = 0; thread < threads; thread++) {
+            String prefix = "thread " + thread + " record ";
+            List<String> own = lines.stream().filter(line -> line.startsWith(prefix)).toList();
+            for (int i = 0; i < recordsPerThread; i++) {
+                assertEquals(prefix + i, own.get(i));
+            }
+        }
+
+        AuditLogAppender.AuditLogStats stats = appender.getStats();
+        assertEquals(threads * recordsPerThread, stats.written());
+        assertEquals(0, stats.pending());
+        assertTrue(stats.groups() <= stats.written());
+        // ALWAYS : une synchronisation par écriture groupée
+        assertEquals(stats.groups(), stats.syncs());
+        appender.close();
+    }
+
+    @Test
+    @DisplayName("Le fichier doit être renommé une fois plein, en conservant un nombre limité d'anciens fichiers")
+    void append_shouldRotateBySize() throws Exception {
+        Path file = folder.resolve("audit.log");
+        AuditLogAppender appender = new AuditLogAppender(file.toString(), AuditLogAppender.FsyncPolicy.NEVER,
+                1000, 100, 2, 100, 1);
+
+        // 10 enregistrements de 40 octets : 2 par fichier
+        for (int i = 0; i < 10; i++) {
+            appender.append("record %02d %s".formatted(i, "x".repeat(29))).get(10, TimeUnit.SECONDS);
+        }
+        appender.close();
+
+        assertEquals(List.of("record 08", "record 09"), prefixes(file));
+        assertEquals(List.of("record 06", "record 07"), prefixes(folder.resolve("audit.log.1")));
+        assertEquals(List.of("record 04", "record 05"), prefixes(folder.resolve("audit.log.2")));
+        assertFalse(Files.exists(folder.resolve("audit.log.3")));
+        assertEquals(4, appender.getStats().rotations());
+    }
+
+    @Test
+    @DisplayName("La fermeture doit écrire les enregistrements en attente puis refuser les nouveaux")
+    void close_shouldFlushPendingRecords() throws IOException {
+        Path file = folder.resolve("audit.log");
+        Files.writeString(file, "existing\n");
+        AuditLogAppender appender = new AuditLogAppender(file.toString(), AuditLogAppender.FsyncPolicy.INTERVAL,
+                60_000, 10_000_000, 5, 100, 1000);
+
+        for (int i = 0; i < 50; i++) {
+            appender.append("record " + i);
+        }
+        appender.close();
+
+        assertEquals(51, Files.readAllLines(file).size());
+        assertEquals("existing", Files.readAllLines(file).getFirst());
+        assertTrue(appender.getStats().syncs() >= 1);
+        assertThrows(IllegalStateException.class, () -> appender.append("too late"));
+    }
+
+    private static List<String> prefixes(Path file) throws IOException {
+        return Files.readAllLines(file).stream().map(line -> line.substring(0, 9)).toList();
+    }
+}
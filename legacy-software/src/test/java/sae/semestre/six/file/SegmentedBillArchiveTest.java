@@ -0,0 +1,86 @@
+package sae.semestre.six.file;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedBillArchiveTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("Les factures doivent être relues après changement de segment et réouverture de l'archive")
+    void write_shouldRollSegmentsAndSurviveReopen() {
+        SegmentedBillArchive archive = new SegmentedBillArchive(folder.toString(), 64, false);
+        archive.write("BILL1", "Bill Number: BILL1\nTotal: $150.0\n\n");
+        archive.write("BILL2", "Bill Number: BILL2\nTotal: $300.0\n\n");
+        archive.write("BILL3", "Bill Number: BILL3\nTotal: $450.0 é\n\n");
+
+        assertEquals(3, archive.locate("BILL3").orElseThrow().segment());
+        assertEquals("Bill Number: BILL2\nTotal: $300.0\n\n", archive.read("BILL2").orElseThrow());
+        assertTrue(archive.read("BILL4").isEmpty());
+        archive.close();
+
+        SegmentedBillArchive reopened = new SegmentedBillArchive(folder.toString(), 64, false);
+        assertEquals(3, reopened.size());
+        assertEquals("Bill Number: BILL3\nTotal: $450.0 é\n\n", reopened.read("BILL3").orElseThrow());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Les enregistrements absents de l'index doivent être réindexés et un enregistrement incomplet tronqué")
+    void open_shouldRecoverUnindexedRecordsAndTruncateTornTail() throws IOException {
+        SegmentedBillArchive archive = new SegmentedBillArchive(folder.toString(), 1024, false);
+        archive.write("BILL1", "first");
+        archive.write("BILL2", "second");
+        archive.close();
+
+        // Simule un arrêt après l'écriture du segment mais avant celle de l'index du second enregistrement,
+        // puis un enregistrement interrompu en fin de segment
+        Path index = folder.resolve("bills.idx");
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2 + 3);
+        }
+        Path segment = folder.resolve("bills-000001.seg");
+        long validSegmentSize = Files.size(segment);
+        Files.write(segment, new byte[]{0x42, 0x49, 0x4C}, StandardOpenOption.APPEND);
+
+        SegmentedBillArchive reopened = new SegmentedBillArchive(folder.toString(), 1024, false);
+        assertEquals("first", reopened.read("BILL1").orElseThrow());
+        assertEquals("second", reopened.read("BILL2").orElseThrow());
+        assertEquals(validSegmentSize, Files.size(segment));
+
+        reopened.write("BILL3", "third");
+        assertEquals("third", reopened.read("BILL3").orElseThrow());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("La migration doit archiver les fichiers existants et pouvoir être relancée")
+    void migrate_shouldImportPerBillFilesOnce() throws IOException {
+        Path source = Files.createDirectory(folder.resolve("billing"));
+        Files.writeString(source.resolve("BILL1.txt"), "Bill Number: BILL1\n");
+        Files.writeString(source.resolve("BILL2.txt"), "Bill Number: BILL2\n");
+        Files.writeString(source.resolve("notes.log"), "ignored");
+        SegmentedBillArchive archive = new SegmentedBillArchive(folder.resolve("archive").toString(), 1024, false);
+
+        BillArchiveMigration.MigrationReport first = BillArchiveMigration.migrate(source, archive, false);
+        assertEquals(new BillArchiveMigration.MigrationReport(2, 2, 0, 0), first);
+        assertEquals("Bill Number: BILL1\n", archive.read("BILL1").orElseThrow());
+
+        BillArchiveMigration.MigrationReport second = BillArchiveMigration.migrate(source, archive, true);
+        assertEquals(new BillArchiveMigration.MigrationReport(2, 0, 2, 0), second);
+        assertFalse(Files.exists(source.resolve("BILL1.txt")));
+        assertTrue(Files.exists(source.resolve("notes.log")));
+        archive.close();
+    }
+}
@@ -0,0 +1,67 @@
+package sae.semestre.six.identifier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de concurrence des numéros de prescription sur la base réelle.
+ * <p>
+ * Plusieurs instances de l'{@link IdentifierService} (comme plusieurs instances de l'application)
+ * réservent des blocs de la séquence {@code RX} depuis plusieurs threads à la fois. Le test n'est pas
+ * transactionnel : chaque réservation est validée dans sa propre transaction.
+ */
+@SpringBootTest
+public class IdentifierServiceConcurrencyTest {
+
+    @Autowired
+    private IdentifierBlockDao identifierBlockDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Des prescriptions créées en parallèle par plusieurs instances ne doivent jamais partager un numéro")
+    public void next_shouldNeverCollideUnderConcurrency() throws Exception {
+        int threads = 16;
+        int numbersPerThread = 200;
+        // Petits blocs : de nombreuses réservations concurrentes sur la ligne verrouillée
+        List<IdentifierService> instances = List.of(
+                new IdentifierService(identifierBlockDao, transactionManager, 5, 8),
+                new IdentifierService(identifierBlockDao, transactionManager, 7, 8),
+                new IdentifierService(identifierBlockDao, transactionManager, 11, 8));
+
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            IdentifierService service = instances.get(thread % instances.size());
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < numbersPerThread; i++) {
+                    String number = service.next(BusinessIdentifier.PRESCRIPTION);
+                    assertTrue(numbers.add(number), "Duplicate prescription number " + number);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(threads * numbersPerThread, numbers.size());
+        assertTrue(numbers.stream().allMatch(number -> number.matches("RX\\d{8}")));
+    }
+}
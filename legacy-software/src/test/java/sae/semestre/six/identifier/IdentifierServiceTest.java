@@ -0,0 +1,74 @@
+package sae.semestre.six.identifier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdentifierServiceTest {
+
+    private final IdentifierBlockDao identifierBlockDao = mock(IdentifierBlockDao.class);
+    private final IdentifierService identifierService = new IdentifierService(
+            identifierBlockDao, mock(PlatformTransactionManager.class), 100, 8);
+
+    @Test
+    @DisplayName("Les numéros doivent être distribués depuis la mémoire et la base consultée une fois par bloc")
+    void next_shouldReserveOneBlockPerBlockSize() {
+        when(identifierBlockDao.reserveBlock("BILL", 100)).thenReturn(1L, 101L, 201L);
+
+        assertEquals("BILL00000001", identifierService.next(BusinessIdentifier.BILL));
+        for (int i = 0; i < 248; i++) {
+            identifierService.next(BusinessIdentifier.BILL);
+        }
+        assertEquals("BILL00000250", identifierService.next(BusinessIdentifier.BILL));
+
+        verify(identifierBlockDao, times(3)).reserveBlock("BILL", 100);
+    }
+
+    @Test
+    @DisplayName("Les séquences des différents types de numéros doivent être indépendantes")
+    void next_shouldKeepSequencesSeparate() {
+        when(identifierBlockDao.reserveBlock(anyString(), anyInt())).thenReturn(1L);
+
+        assertEquals("APPT00000001", identifierService.next(BusinessIdentifier.APPOINTMENT));
+        assertEquals("RX00000001", identifierService.next(BusinessIdentifier.PRESCRIPTION));
+        assertEquals("APPT00000002", identifierService.next(BusinessIdentifier.APPOINTMENT));
+    }
+
+    @Test
+    @DisplayName("Deux instances partageant la même séquence ne doivent jamais produire le même numéro")
+    void next_shouldStayUniqueAcrossInstancesAndThreads() throws Exception {
+        // Séquence partagée simulant la ligne verrouillée en base
+        AtomicLong sequence = new AtomicLong(1);
+        when(identifierBlockDao.reserveBlock(eq("RX"), anyInt()))
+                .thenAnswer(invocation -> sequence.getAndAdd(invocation.<Integer>getArgument(1)));
+        IdentifierService otherInstance = new IdentifierService(
+                identifierBlockDao, mock(PlatformTransactionManager.class), 7, 8);
+
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int thread = 0; thread < 8; thread++) {
+            IdentifierService service = thread % 2 == 0 ? identifierService : otherInstance;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    assertTrue(numbers.add(service.next(BusinessIdentifier.PRESCRIPTION)));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(8000, numbers.size());
+    }
+}
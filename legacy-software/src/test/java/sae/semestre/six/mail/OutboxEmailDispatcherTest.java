@@ -0,0 +1,123 @@
+package sae.semestre.six.mail;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxEmailDispatcherTest {
+
+    private final OutboxEmailDao outboxEmailDao = mock(OutboxEmailDao.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final LocalEmailService transport = new LocalEmailService();
+
+    private final OutboxEmailDispatcher dispatcher = new OutboxEmailDispatcher(
+            outboxEmailDao, transport, transactionTemplate, 10, 3, 1000, 5000, 100_000, 10_000);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Les emails réservés doivent être envoyés puis marqués comme envoyés")
+    void dispatchBatch_shouldSendClaimedEmails() {
+        OutboxEmail first = new OutboxEmail("a@hospital.com", "Sujet 1", "Corps 1");
+        OutboxEmail second = new OutboxEmail("b@hospital.com", "Sujet 2", "Corps 2");
+        when(outboxEmailDao.claimDue(any(), any(), eq(10))).thenReturn(List.of(first, second));
+
+        assertEquals(2, dispatcher.dispatchBatch());
+
+        assertEquals(2, transport.getSentEmails().size());
+        assertEquals(OutboxEmailStatus.SENT, first.getStatus());
+        assertEquals(OutboxEmailStatus.SENT, second.getStatus());
+        assertNotNull(first.getSentDate());
+        verify(outboxEmailDao, times(2)).update(any(OutboxEmail.class));
+    }
+
+    @Test
+    @DisplayName("Un envoi en échec doit être reprogrammé, puis abandonné après le nombre maximal de tentatives")
+    void dispatchBatch_shouldRetryWithBackoffThenGiveUp() {
+        OutboxEmail email = new OutboxEmail("a@hospital.com", "Sujet", "Corps");
+        when(outboxEmailDao.claimDue(any(), any(), anyInt())).thenReturn(List.of(email));
+        transport.failNext(3);
+
+        long before = System.currentTimeMillis();
+        dispatcher.dispatchBatch();
+        assertEquals(OutboxEmailStatus.PENDING, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertTrue(email.getNextAttemptAt().getTime() >= before + 1000);
+        assertNotNull(email.getLastError());
+
+        dispatcher.dispatchBatch();
+        assertEquals(OutboxEmailStatus.PENDING, email.getStatus());
+        assertTrue(email.getNextAttemptAt().getTime() >= before + 2000);
+
+        dispatcher.dispatchBatch();
+        assertEquals(OutboxEmailStatus.FAILED, email.getStatus());
+        assertEquals(3, email.getAttempts());
+        assertTrue(transport.getSentEmails().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Le délai entre deux tentatives doit doubler jusqu'au plafond")
+    void backoffDelay_shouldGrowExponentiallyUpToMax() {
+        assertEquals(1000, dispatcher.backoffDelay(1));
+        assertEquals(2000, dispatcher.backoffDelay(2));
+        assertEquals(4000, dispatcher.backoffDelay(3));
+        assertEquals(5000, dispatcher.backoffDelay(4));
+        assertEquals(5000, dispatcher.backoffDelay(40));
+    }
+
+    @Test
+    @DisplayName("Une boîte d'envoi vide ne doit ouvrir aucune transaction d'écriture")
+    void dispatchPending_shouldStopWhenOutboxIsEmpty() {
+        when(outboxEmailDao.claimDue(any(), any(), anyInt())).thenReturn(List.of());
+
+        dispatcher.dispatchPending();
+
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Le résultat de chaque envoi doit être enregistré avant l'envoi suivant")
+    void dispatchBatch_shouldSaveEachOutcomeBeforeNextSend() {
+        OutboxEmail first = new OutboxEmail("a@hospital.com", "Sujet 1", "Corps 1");
+        OutboxEmail second = new OutboxEmail("b@hospital.com", "Sujet 2", "Corps 2");
+        when(outboxEmailDao.claimDue(any(), any(), anyInt())).thenReturn(List.of(first, second));
+        doAnswer(invocation -> {
+            // Le second email ne doit pas encore être envoyé quand le premier est enregistré
+            if (invocation.getArgument(0) == first) {
+                assertEquals(1, transport.getSentEmails().size());
+            }
+            return null;
+        }).when(outboxEmailDao).update(any(OutboxEmail.class));
+
+        dispatcher.dispatchBatch();
+
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(outboxEmailDao).update(first);
+        verify(outboxEmailDao).update(second);
+    }
+
+    @Test
+    @DisplayName("Une réservation plus courte que l'envoi d'un lot complet doit être refusée au démarrage")
+    void constructor_shouldRejectLeaseShorterThanBatch() {
+        assertThrows(IllegalStateException.class, () -> new OutboxEmailDispatcher(
+                outboxEmailDao, transport, transactionTemplate, 50, 3, 1000, 5000, 60_000, 10_000));
+    }
+}
@@ -7,9 +7,14 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Collection;
+
 @RepositoryRestResource(collectionResourceRel = "remboursements", path = "remboursement")
 public interface RemboursementRepository extends JpaRepository<Remboursement , Integer> {
 
     @Query("select r from Remboursement r where r.nomProduit = :nomProduit and r.nomAssurance = :nomAssurance")
     public Page<Remboursement> remboursementByNomProduitAndNomAssurance(@Param("nomProduit") String nomProduit, @Param("nomAssurance") String nomAssurance, Pageable pageable);
+
+    @Query("select r from Remboursement r where r.nomProduit in :nomProduits and r.nomAssurance in :nomAssurances")
+    public Page<Remboursement> remboursementsByNomProduitsAndNomAssurances(@Param("nomProduits") Collection<String> nomProduits, @Param("nomAssurances") Collection<String> nomAssurances, Pageable pageable);
 }
\ No newline at end of file